@@ -0,0 +1,33 @@
+\set ON_ERROR_STOP
+
+SET SESSION AUTHORIZATION 'tms';
+
+BEGIN;
+
+SELECT iris.update_version('4.89.0', '4.90.0');
+
+-- Add metrics_enable system attribute
+INSERT INTO iris.system_attribute (name, value)
+	VALUES ('metrics_enable', 'false');
+
+-- Add sample_archive_columnar system attribute
+INSERT INTO iris.system_attribute (name, value)
+	VALUES ('sample_archive_columnar', 'false');
+
+-- Add metric to sonar type lut
+INSERT INTO iris.sonar_type (name) VALUES ('metric');
+
+-- Add privileges for metric
+INSERT INTO iris.privilege (name, capability, type_n, write)
+	VALUES ('PRV_001C', 'base_admin', 'metric', false);
+
+-- Add table of content installed on DMS
+CREATE TABLE iris.dms_content (
+	dms VARCHAR(20) NOT NULL REFERENCES iris._dms ON DELETE CASCADE,
+	content VARCHAR(8) NOT NULL,
+	number INTEGER NOT NULL,
+	hash INTEGER NOT NULL,
+	PRIMARY KEY (dms, content, number)
+);
+
+COMMIT;
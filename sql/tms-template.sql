@@ -145,7 +145,7 @@ comm_event_purge_days	14
 comm_idle_disconnect_dms_sec	0
 comm_idle_disconnect_gps_sec	5
 comm_idle_disconnect_modem_sec	20
-database_version	4.89.0
+database_version	4.90.0
 detector_auto_fail_enable	true
 detector_event_purge_days	90
 dict_allowed_scheme	0
@@ -202,6 +202,7 @@ meter_green_secs	1.3
 meter_max_red_secs	13.0
 meter_min_red_secs	0.1
 meter_yellow_secs	0.7
+metrics_enable	false
 msg_feed_verify	true
 operation_retry_threshold	3
 price_message_event_purge_days	0
@@ -211,6 +212,7 @@ rwis_high_wind_speed_kph	40
 rwis_low_visibility_distance_m	152
 rwis_obs_age_limit_secs	240
 rwis_max_valid_wind_speed_kph	282
+sample_archive_columnar	false
 sample_archive_enable	true
 sign_event_purge_days	0
 speed_limit_min_mph	45
@@ -409,6 +411,7 @@ lcs_array
 lcs_indication
 map_extent
 meter_action
+metric
 modem
 monitor_style
 parking_area
@@ -468,6 +471,7 @@ PRV_001A	base_admin	domain		t
 PRV_0014	base_admin	privilege		t
 PRV_0015	base_admin	capability		t
 PRV_0016	base_admin	connection		t
+PRV_001C	base_admin	metric		f
 PRV_0017	base_policy	geo_loc		t
 PRV_0018	base_policy	map_extent		t
 PRV_0019	base_policy	road		t
@@ -2619,6 +2623,14 @@ CREATE VIEW dms_message_view AS
 	LEFT JOIN iris.sign_message s ON d.msg_current = s.name;
 GRANT SELECT ON dms_message_view TO PUBLIC;
 
+CREATE TABLE iris.dms_content (
+	dms VARCHAR(20) NOT NULL REFERENCES iris._dms ON DELETE CASCADE,
+	content VARCHAR(8) NOT NULL,
+	number INTEGER NOT NULL,
+	hash INTEGER NOT NULL,
+	PRIMARY KEY (dms, content, number)
+);
+
 CREATE TABLE iris.sign_group (
 	name VARCHAR(20) PRIMARY KEY,
 	local BOOLEAN NOT NULL,
@@ -0,0 +1,173 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sched;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram records a distribution of values (normally latencies in
+ * microseconds) into log-linear buckets.  Each power of two is split into
+ * 16 linear sub-buckets, so any recorded value is known to within about
+ * 6%, using a fixed amount of memory.  Recording is lock-free.
+ *
+ * @author Douglas Lau
+ */
+public final class Histogram {
+
+	/** Number of bits for sub-buckets */
+	static private final int SUB_BITS = 4;
+
+	/** Number of sub-buckets per power of two */
+	static private final int SUB_COUNT = 1 << SUB_BITS;
+
+	/** Total number of buckets (enough for Long.MAX_VALUE) */
+	static private final int N_BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+	/** Get the bucket index for a (non-negative) value */
+	static int bucketIndex(long v) {
+		if (v < SUB_COUNT)
+			return (int) v;
+		int exp = 63 - Long.numberOfLeadingZeros(v);
+		int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB_COUNT - 1);
+		return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+	}
+
+	/** Get the lowest value which is recorded into a bucket */
+	static long bucketLow(int i) {
+		if (i < SUB_COUNT)
+			return i;
+		int exp = i / SUB_COUNT + SUB_BITS - 1;
+		long sub = i % SUB_COUNT;
+		return (SUB_COUNT + sub) << (exp - SUB_BITS);
+	}
+
+	/** Get the highest value which is recorded into a bucket */
+	static long bucketHigh(int i) {
+		return (i + 1 < N_BUCKETS)
+		      ? bucketLow(i + 1) - 1
+		      : Long.MAX_VALUE;
+	}
+
+	/** Snapshot of a histogram for one interval */
+	static public final class Snapshot {
+
+		/** Count of values in each bucket */
+		private final long[] counts;
+
+		/** Total count of values */
+		private final long count;
+
+		/** Sum of all values */
+		private final long sum;
+
+		/** Maximum value */
+		private final long max;
+
+		/** Create a new snapshot */
+		private Snapshot(long[] c, long s, long m) {
+			counts = c;
+			long n = 0;
+			for (long v: c)
+				n += v;
+			count = n;
+			sum = s;
+			max = m;
+		}
+
+		/** Get the count of recorded values */
+		public long getCount() {
+			return count;
+		}
+
+		/** Get the mean value (or 0 if empty) */
+		public long getMean() {
+			return (count > 0) ? sum / count : 0;
+		}
+
+		/** Get the maximum value */
+		public long getMax() {
+			return max;
+		}
+
+		/** Get a percentile value.
+		 * @param p Percentile (0 - 100).
+		 * @return Upper bound of bucket containing the percentile,
+		 *         or 0 if empty. */
+		public long getPercentile(double p) {
+			long rank = (long) Math.ceil(count * p / 100);
+			rank = Math.max(1, rank);
+			long n = 0;
+			for (int i = 0; i < counts.length; i++) {
+				n += counts[i];
+				if (n >= rank)
+					return Math.min(bucketHigh(i), max);
+			}
+			return 0;
+		}
+	}
+
+	/** Metric name */
+	private final String name;
+
+	/** Count of values in each bucket */
+	private final AtomicLongArray buckets = new AtomicLongArray(N_BUCKETS);
+
+	/** Sum of all values */
+	private final AtomicLong sum = new AtomicLong();
+
+	/** Maximum value */
+	private final AtomicLong max = new AtomicLong();
+
+	/** Create a new histogram */
+	Histogram(String n) {
+		name = n;
+	}
+
+	/** Get the metric name */
+	public String getName() {
+		return name;
+	}
+
+	/** Record a value (if metrics are enabled) */
+	public void record(long v) {
+		if (Metrics.isEnabled()) {
+			v = Math.max(0, v);
+			buckets.incrementAndGet(bucketIndex(v));
+			sum.addAndGet(v);
+			long m = max.get();
+			while (v > m && !max.compareAndSet(m, v))
+				m = max.get();
+		}
+	}
+
+	/** Record elapsed time since a start time.
+	 * @param st Start time from Metrics.start (nanoseconds), or 0 if
+	 *           metrics were disabled at the start. */
+	public void recordSince(long st) {
+		if (st != 0)
+			record((System.nanoTime() - st) / 1000);
+	}
+
+	/** Take a snapshot of all values recorded since the previous one */
+	public Snapshot drain() {
+		long[] c = new long[N_BUCKETS];
+		for (int i = 0; i < N_BUCKETS; i++) {
+			if (buckets.get(i) != 0)
+				c[i] = buckets.getAndSet(i, 0);
+		}
+		return new Snapshot(c, sum.getAndSet(0), max.getAndSet(0));
+	}
+}
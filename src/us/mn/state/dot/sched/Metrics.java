@@ -0,0 +1,188 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sched;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of in-process metrics: counters, gauges and histograms.  When
+ * metrics are disabled, recording is a single volatile read.
+ *
+ * Timing a section of code:
+ *
+ *	long st = Metrics.start();
+ *	...
+ *	Metrics.histogram("name").recordSince(st);
+ *
+ * @author Douglas Lau
+ */
+public final class Metrics {
+
+	/** Don't allow instantiation */
+	private Metrics() { }
+
+	/** Flag to enable recording */
+	static private volatile boolean enabled = false;
+
+	/** Check if metrics are enabled */
+	static public boolean isEnabled() {
+		return enabled;
+	}
+
+	/** Enable or disable metrics */
+	static public void setEnabled(boolean e) {
+		enabled = e;
+	}
+
+	/** Get a start time for recording elapsed time.
+	 * @return Current nanosecond time, or 0 if metrics are disabled. */
+	static public long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/** Make a valid metric name (lower case, no spaces or slashes) */
+	static public String validName(String n) {
+		StringBuilder sb = new StringBuilder(n.length());
+		for (int i = 0; i < n.length(); i++) {
+			char c = Character.toLowerCase(n.charAt(i));
+			boolean valid = (c >= 'a' && c <= 'z') ||
+			                (c >= '0' && c <= '9') ||
+			                c == '.' || c == '_' || c == '-';
+			sb.append(valid ? c : '_');
+		}
+		return sb.toString();
+	}
+
+	/** A counter is a monotonically increasing value */
+	static public final class Counter {
+		private final String name;
+		private final LongAdder value = new LongAdder();
+		private Counter(String n) {
+			name = n;
+		}
+
+		/** Get the metric name */
+		public String getName() {
+			return name;
+		}
+
+		/** Increment the counter (if metrics are enabled) */
+		public void inc() {
+			add(1);
+		}
+
+		/** Add to the counter (if metrics are enabled) */
+		public void add(long v) {
+			if (enabled)
+				value.add(v);
+		}
+
+		/** Get the counter value */
+		public long get() {
+			return value.sum();
+		}
+	}
+
+	/** A gauge is a value which is set to the current level */
+	static public final class Gauge {
+		private final String name;
+		private volatile long value;
+		private Gauge(String n) {
+			name = n;
+		}
+
+		/** Get the metric name */
+		public String getName() {
+			return name;
+		}
+
+		/** Set the gauge value (if metrics are enabled) */
+		public void set(long v) {
+			if (enabled)
+				value = v;
+		}
+
+		/** Get the gauge value */
+		public long get() {
+			return value;
+		}
+	}
+
+	/** All counters */
+	static private final ConcurrentHashMap<String, Counter> COUNTERS =
+		new ConcurrentHashMap<String, Counter>();
+
+	/** All gauges */
+	static private final ConcurrentHashMap<String, Gauge> GAUGES =
+		new ConcurrentHashMap<String, Gauge>();
+
+	/** All histograms */
+	static private final ConcurrentHashMap<String, Histogram> HISTOGRAMS =
+		new ConcurrentHashMap<String, Histogram>();
+
+	/** Get (or create) a counter */
+	static public Counter counter(String n) {
+		Counter c = COUNTERS.get(n);
+		if (c == null) {
+			c = new Counter(validName(n));
+			Counter p = COUNTERS.putIfAbsent(n, c);
+			if (p != null)
+				return p;
+		}
+		return c;
+	}
+
+	/** Get (or create) a gauge */
+	static public Gauge gauge(String n) {
+		Gauge g = GAUGES.get(n);
+		if (g == null) {
+			g = new Gauge(validName(n));
+			Gauge p = GAUGES.putIfAbsent(n, g);
+			if (p != null)
+				return p;
+		}
+		return g;
+	}
+
+	/** Get (or create) a histogram */
+	static public Histogram histogram(String n) {
+		Histogram h = HISTOGRAMS.get(n);
+		if (h == null) {
+			h = new Histogram(validName(n));
+			Histogram p = HISTOGRAMS.putIfAbsent(n, h);
+			if (p != null)
+				return p;
+		}
+		return h;
+	}
+
+	/** Get a list of all counters */
+	static public List<Counter> getCounters() {
+		return new ArrayList<Counter>(COUNTERS.values());
+	}
+
+	/** Get a list of all gauges */
+	static public List<Gauge> getGauges() {
+		return new ArrayList<Gauge>(GAUGES.values());
+	}
+
+	/** Get a list of all histograms */
+	static public List<Histogram> getHistograms() {
+		return new ArrayList<Histogram>(HISTOGRAMS.values());
+	}
+}
@@ -62,6 +62,12 @@ public final class Scheduler {
 	/** Set of scheduled jobs to do */
 	private final TreeSet<Job> todo = new TreeSet<Job>();
 
+	/** Metric name prefix for jobs */
+	private final String metric_prefix;
+
+	/** Gauge of scheduled jobs */
+	private final Metrics.Gauge todo_gauge;
+
 	/** Set of jobs to remove from scheduler */
 	private final TreeSet<Job> toremove = new TreeSet<Job>();
 
@@ -82,6 +88,8 @@ public final class Scheduler {
 	public Scheduler(String name, ExceptionHandler h) {
 		slog = new DebugLog(name, h);
 		handler = h;
+		metric_prefix = "sched." + name + ".";
+		todo_gauge = Metrics.gauge(metric_prefix + "todo");
 		thread = new Thread(GROUP, name) {
 			public void run() {
 				try {
@@ -137,6 +145,7 @@ public final class Scheduler {
 	/** Perform a job */
 	private void performJob(Job job) {
 		boolean op = slog.isOpen();
+		long st = Metrics.start();
 		try {
 			if (op)
 				slog.log("Starting " + job.getName());
@@ -154,6 +163,10 @@ public final class Scheduler {
 		finally {
 			if (op)
 				slog.log("Finished " + job.getName());
+			if (st != 0) {
+				Metrics.histogram(metric_prefix + job.getName())
+					.recordSince(st);
+			}
 		}
 	}
 
@@ -166,6 +179,7 @@ public final class Scheduler {
 	/** Add a job for this scheduler to perform */
 	public synchronized void addJob(Job job) {
 		todo.add(job);
+		todo_gauge.set(todo.size());
 		if (slog.isOpen() && todo.size() > 5000)
 			slog.log("OVERLOADED: " + todo.size());
 		notify();
@@ -0,0 +1,53 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sched;
+
+/**
+ * A simulated Time Source, for replaying archived data faster than real
+ * time.  The time only changes when it is set, or when a thread sleeps or
+ * waits (which advances the time without blocking).
+ *
+ * @author Douglas Lau
+ */
+public class SimulatedTimeSource implements TimeSource {
+
+	/** Current simulated time */
+	private long now;
+
+	/** Create a new simulated time source */
+	public SimulatedTimeSource(long t) {
+		now = t;
+	}
+
+	/** Set the current time */
+	public synchronized void setTime(long t) {
+		now = t;
+	}
+
+	/** Get the current time */
+	public synchronized long currentTimeMillis() {
+		return now;
+	}
+
+	/** Sleep for the specified number of milliseconds */
+	public synchronized void sleep(long millis) {
+		now += millis;
+	}
+
+	/** Wait until an object is notified, or timeout expires */
+	public void wait(Object monitor, long ms) {
+		sleep(ms);
+	}
+}
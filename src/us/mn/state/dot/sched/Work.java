@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2016  Minnesota Department of Transportation
+ * Copyright (C) 2016-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,6 +14,7 @@
  */
 package us.mn.state.dot.sched;
 
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -30,9 +31,15 @@ abstract public class Work implements Comparable<Work> {
 	/** Unique work identifier */
 	private final long id = next_id.getAndIncrement();
 
+	/** Time added to a worker queue (nanoseconds) */
+	long added_ns;
+
 	/** Flag to indicate work complete */
 	private boolean is_complete = false;
 
+	/** Flag to indicate work was rejected by a worker */
+	private boolean is_rejected = false;
+
 	/** Create Work */
 	public Work() { }
 
@@ -56,6 +63,26 @@ abstract public class Work implements Comparable<Work> {
 		notify();
 	}
 
+	/** Reject the work without performing it.  This happens when a
+	 * bounded worker queue is full. */
+	final synchronized void reject() {
+		is_rejected = true;
+		setComplete();
+	}
+
+	/** Clear the rejected state, so that work can be added again */
+	final synchronized void clearRejected() {
+		if (is_rejected) {
+			is_rejected = false;
+			is_complete = false;
+		}
+	}
+
+	/** Check if the work was rejected */
+	public synchronized boolean isRejected() {
+		return is_rejected;
+	}
+
 	/** Actual "work" to be performed */
 	abstract protected void perform() throws Exception;
 
@@ -67,7 +94,8 @@ abstract public class Work implements Comparable<Work> {
 
 	/** Wait for the work to be completed.
 	 * @param ms Time to wait before giving up.
-	 * @throws TimeoutExcepiton if timeout expires before completion. */
+	 * @throws TimeoutExcepiton if timeout expires before completion.
+	 * @throws RejectedExecutionException if the work was rejected. */
 	public synchronized final void waitForCompletion(long ms)
 		throws TimeoutException
 	{
@@ -84,5 +112,7 @@ abstract public class Work implements Comparable<Work> {
 				// keep waiting
 			}
 		}
+		if (is_rejected)
+			throw new RejectedExecutionException();
 	}
 }
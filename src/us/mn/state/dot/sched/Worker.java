@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2017  Minnesota Department of Transportation
+ * Copyright (C) 2017-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,18 +14,45 @@
  */
 package us.mn.state.dot.sched;
 
-import java.util.PriorityQueue;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Work for performing work on a dedicated thread.
  *
+ * Work is added to a lock-free queue, so threads adding work never block
+ * each other or the worker thread.  The queue can have a capacity, with a
+ * policy for rejecting work when it is full.
+ *
  * @author Douglas Lau
  */
 public final class Worker {
 
+	/** Policy for rejecting work when the queue is full */
+	public enum Rejection {
+		/** Discard the new work */
+		DISCARD,
+
+		/** Discard the oldest queued work */
+		DISCARD_OLDEST;
+	}
+
 	/** Worker thread group */
 	static private final ThreadGroup GROUP = new ThreadGroup("WORKER");
 
+	/** All workers */
+	static private final CopyOnWriteArrayList<Worker> ALL =
+		new CopyOnWriteArrayList<Worker>();
+
+	/** Get a list of all workers */
+	static public List<Worker> getAll() {
+		return ALL;
+	}
+
 	/** Exception handler */
 	private final ExceptionHandler handler;
 
@@ -34,19 +61,81 @@ public final class Worker {
 		handler.handle(e);
 	}
 
+	/** Worker name */
+	private final String name;
+
 	/** Thread for running work */
 	private final Thread thread;
 
-	/** Set of work to do */
-	private final PriorityQueue<Work> todo = new PriorityQueue<Work>();
+	/** Queue of work to do */
+	private final ConcurrentLinkedQueue<Work> todo =
+		new ConcurrentLinkedQueue<Work>();
+
+	/** Count of work in the queue */
+	private final AtomicInteger n_todo = new AtomicInteger();
+
+	/** Queue capacity (0 for unbounded) */
+	private final int capacity;
+
+	/** Rejection policy */
+	private final Rejection rejection;
+
+	/** Flag to indicate worker thread is waiting for work */
+	private volatile boolean waiting = false;
 
 	/** Flag to indicate disposing */
 	private boolean disposing = false;
 
-	/** Create a Worker */
-	public Worker(String name, ExceptionHandler h) {
+	/** Count of work added */
+	private final LongAdder n_added = new LongAdder();
+
+	/** Count of work rejected */
+	private final LongAdder n_rejected = new LongAdder();
+
+	/** Count of work performed (only updated by worker thread) */
+	private volatile long n_done = 0;
+
+	/** Total nanoseconds work waited in queue (only updated by worker
+	 * thread) */
+	private volatile long wait_ns = 0;
+
+	/** Metric for work added */
+	private final Metrics.Counter added_metric;
+
+	/** Metric for work rejected */
+	private final Metrics.Counter rejected_metric;
+
+	/** Metric for queue depth */
+	private final Metrics.Gauge depth_metric;
+
+	/** Metric for time waiting in queue */
+	private final Histogram wait_metric;
+
+	/** Metric for time performing work */
+	private final Histogram work_metric;
+
+	/** Create a Worker with an unbounded queue */
+	public Worker(String n, ExceptionHandler h) {
+		this(n, h, 0, Rejection.DISCARD);
+	}
+
+	/** Create a Worker.
+	 * @param n Worker name.
+	 * @param h Exception handler.
+	 * @param c Queue capacity (0 for unbounded).
+	 * @param r Policy for rejecting work when the queue is full. */
+	public Worker(String n, ExceptionHandler h, int c, Rejection r) {
+		name = n;
 		handler = h;
-		thread = new Thread(GROUP, name) {
+		capacity = c;
+		rejection = r;
+		String prefix = "worker." + n + ".";
+		added_metric = Metrics.counter(prefix + "added");
+		rejected_metric = Metrics.counter(prefix + "rejected");
+		depth_metric = Metrics.gauge(prefix + "depth");
+		wait_metric = Metrics.histogram(prefix + "wait");
+		work_metric = Metrics.histogram(prefix + "work");
+		thread = new Thread(GROUP, n) {
 			public void run() {
 				try {
 					performWork();
@@ -59,6 +148,12 @@ public final class Worker {
 		};
 		thread.setDaemon(true);
 		thread.start();
+		ALL.add(this);
+	}
+
+	/** Get the worker name */
+	public String getName() {
+		return name;
 	}
 
 	/** Perform work*/
@@ -72,14 +167,40 @@ public final class Worker {
 
 	/** Wait until work needs to be performed.
 	 * @return Work to be performed. */
-	private synchronized Work waitWork() throws InterruptedException {
-		while (todo.isEmpty())
-			wait();
-		return todo.poll();
+	private Work waitWork() throws InterruptedException {
+		while (true) {
+			Work w = pollWork();
+			if (w != null)
+				return w;
+			waiting = true;
+			// Check again, in case work was added before
+			// the waiting flag was set
+			w = pollWork();
+			if (w != null) {
+				waiting = false;
+				return w;
+			}
+			LockSupport.park(this);
+			waiting = false;
+			if (thread.isInterrupted())
+				throw new InterruptedException();
+		}
+	}
+
+	/** Poll for work in the queue */
+	private Work pollWork() {
+		Work w = todo.poll();
+		if (w != null)
+			depth_metric.set(n_todo.decrementAndGet());
+		return w;
 	}
 
 	/** Perform Work */
 	private void performWork(Work w) {
+		long st = System.nanoTime();
+		long wt = st - w.added_ns;
+		wait_ns += wt;
+		wait_metric.record(wt / 1000);
 		try {
 			w.performWork();
 		}
@@ -92,12 +213,61 @@ public final class Worker {
 			System.err.println("FATAL: RESTARTING");
 			System.exit(1);
 		}
+		finally {
+			n_done++;
+			work_metric.record((System.nanoTime() - st) / 1000);
+		}
 	}
 
-	/** Add work to perform */
-	public synchronized void addWork(Work w) {
+	/** Add work to perform.
+	 * @param w Work to perform.
+	 * @return true if work was added, false if it was rejected. */
+	public boolean addWork(Work w) {
+		n_added.increment();
+		added_metric.inc();
+		w.added_ns = System.nanoTime();
+		w.clearRejected();
+		if (!reserve())
+			return rejectWork(w);
 		todo.add(w);
-		notify();
+		depth_metric.set(n_todo.get());
+		if (waiting)
+			LockSupport.unpark(thread);
+		return true;
+	}
+
+	/** Reserve space in the queue for one work */
+	private boolean reserve() {
+		while (true) {
+			int n = n_todo.get();
+			if (capacity > 0 && n >= capacity)
+				return false;
+			if (n_todo.compareAndSet(n, n + 1))
+				return true;
+		}
+	}
+
+	/** Reject work when the queue is full.  Dropped work is completed
+	 * as rejected, so that waiting threads are released.
+	 * @param w Work which was not added.
+	 * @return true if work was added. */
+	private boolean rejectWork(Work w) {
+		n_rejected.increment();
+		rejected_metric.inc();
+		if (Rejection.DISCARD_OLDEST == rejection) {
+			// Take the place of the oldest work
+			Work ow = todo.poll();
+			if (ow != null || reserve()) {
+				todo.add(w);
+				if (waiting)
+					LockSupport.unpark(thread);
+				if (ow != null)
+					ow.reject();
+				return true;
+			}
+		}
+		w.reject();
+		return false;
 	}
 
 	/** Test if the current thread is the worker thread */
@@ -107,12 +277,33 @@ public final class Worker {
 
 	/** Dispose of the worker */
 	public void dispose() {
+		ALL.remove(this);
 		disposing = true;
 		thread.interrupt();
 	}
 
 	/** Get the count of work in the queue */
-	public synchronized int size() {
-		return todo.size();
+	public int size() {
+		return n_todo.get();
+	}
+
+	/** Get the total count of work added (including rejected work) */
+	public long getAdded() {
+		return n_added.sum();
+	}
+
+	/** Get the total count of work rejected */
+	public long getRejected() {
+		return n_rejected.sum();
+	}
+
+	/** Get the total count of work performed */
+	public long getDone() {
+		return n_done;
+	}
+
+	/** Get the total nanoseconds work has waited in the queue */
+	public long getWaitNanos() {
+		return wait_ns;
 	}
 }
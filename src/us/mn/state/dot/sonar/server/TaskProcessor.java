@@ -31,6 +31,7 @@ import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLException;
 import us.mn.state.dot.sched.DebugLog;
 import us.mn.state.dot.sched.ExceptionHandler;
+import us.mn.state.dot.sched.Metrics;
 import us.mn.state.dot.sched.Work;
 import us.mn.state.dot.sched.Worker;
 import static us.mn.state.dot.sched.TimeSteward.currentTimeMillis;
@@ -98,6 +99,7 @@ public class TaskProcessor {
 		@Override public final void perform() throws Exception {
 			final boolean op = DEBUG_TIME.isOpen();
 			final long st = (op) ? currentTimeMillis() : 0;
+			final long mst = Metrics.start();
 			try {
 				debugTask(name, conn);
 				doPerform();
@@ -107,6 +109,10 @@ public class TaskProcessor {
 					long el = currentTimeMillis() - st;
 					debugElapsed(name, el);
 				}
+				if (mst != 0) {
+					Metrics.histogram("sonar.task." + name)
+						.recordSince(mst);
+				}
 			}
 		}
 		abstract protected void doPerform() throws Exception;
@@ -0,0 +1,52 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import us.mn.state.dot.sonar.SonarObject;
+
+/**
+ * A metric is a server performance measurement (counter, gauge or
+ * histogram), updated periodically when metrics are enabled.
+ *
+ * @author Douglas Lau
+ */
+public interface Metric extends SonarObject {
+
+	/** SONAR type name */
+	String SONAR_TYPE = "metric";
+
+	/** Get the metric kind (counter, gauge or histogram) */
+	String getKind();
+
+	/** Get the metric value.  For a counter, this is the total count;
+	 * for a gauge, the current level; for a histogram, the number of
+	 * values recorded during the last period. */
+	long getValue();
+
+	/** Get the mean histogram value (microseconds) */
+	long getMean();
+
+	/** Get the 50th percentile histogram value (microseconds) */
+	long getP50();
+
+	/** Get the 90th percentile histogram value (microseconds) */
+	long getP90();
+
+	/** Get the 99th percentile histogram value (microseconds) */
+	long getP99();
+
+	/** Get the maximum histogram value (microseconds) */
+	long getMax();
+}
@@ -29,6 +29,13 @@ import us.mn.state.dot.sonar.SonarObject;
  * 
  * The sReq and sResp strings are constructed/parsed
  * using RptStringListMap.
+ * 
+ * Results are returned in pages.  After sending a
+ * request, the client sets the page attribute to
+ * request each page (starting with 0), and the
+ * server sets the results attribute when that page
+ * is available.  Each page has a header containing
+ * its page number and a last-page flag.
  *
  * @author John L. Stanley - SRF Consulting
  */
@@ -57,5 +64,12 @@ public interface RptConduit extends SonarObject {
 	void setresults(String sResp);
 
 	String getResults();
+
+	//-------------------------------------------
+	// request a page of report-results
+
+	void setPage(int p);
+
+	int getPage();
 }
 
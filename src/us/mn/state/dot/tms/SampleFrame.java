@@ -0,0 +1,381 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * A sample frame is a compact binary form of the detector sample data in
+ * det_sample.xml.  A full frame contains a detector index table (names)
+ * followed by packed flow, speed and occupancy values for each detector.
+ * A delta frame contains only the values which changed since a previous
+ * frame with the same index table.
+ *
+ * All values are big-endian.  Header: magic (int), version (byte), frame
+ * type (byte), table ID (int), time stamp (long), period (short).  A full
+ * frame continues with detector count (int), names (UTF), then 3 shorts
+ * per detector.  A delta frame continues with base time stamp (long),
+ * changed count (int), then for each changed detector: index gap (varint)
+ * and 3 zig-zag varint value differences.
+ *
+ * @author Douglas Lau
+ */
+public class SampleFrame {
+
+	/** Name of full frame file (gzipped) */
+	static public final String FULL_FILE = "det_sample.bin.gz";
+
+	/** Name of delta frame file */
+	static public final String DELTA_FILE = "det_sample_delta.bin";
+
+	/** Magic number ("IRSF") */
+	static private final int MAGIC = 0x49525346;
+
+	/** Format version */
+	static private final byte VERSION = 1;
+
+	/** Full frame type */
+	static private final byte TYPE_FULL = 0;
+
+	/** Delta frame type */
+	static private final byte TYPE_DELTA = 1;
+
+	/** Value for missing data */
+	static public final short MISSING = -1;
+
+	/** Number of values per detector */
+	static private final int N_VALUES = 3;
+
+	/** Offset of flow value */
+	static private final int FLOW = 0;
+
+	/** Offset of speed value */
+	static private final int SPEED = 1;
+
+	/** Offset of occupancy value (hundredths of a percent) */
+	static private final int OCC = 2;
+
+	/** UTF-8 charset */
+	static private final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** Calculate the ID of a detector index table */
+	static public int tableId(String[] names) {
+		CRC32 crc = new CRC32();
+		for (String n: names) {
+			crc.update(n.getBytes(UTF8));
+			crc.update('\n');
+		}
+		return (int) crc.getValue();
+	}
+
+	/** Clamp a value to the range of valid (non-missing) shorts */
+	static private short clamp(int v) {
+		if (v < 0)
+			return MISSING;
+		else
+			return (short) Math.min(v, Short.MAX_VALUE);
+	}
+
+	/** Detector names (index table) */
+	private final String[] names;
+
+	/** Index table ID */
+	private final int table_id;
+
+	/** Time stamp of frame */
+	private final long stamp;
+
+	/** Sample period (seconds) */
+	private final int period;
+
+	/** Packed values (flow, speed and occupancy for each detector) */
+	private final short[] values;
+
+	/** Create a new sample frame with all data missing.
+	 * @param n Detector names (index table).
+	 * @param tid Index table ID.
+	 * @param st Time stamp.
+	 * @param p Sample period (seconds). */
+	public SampleFrame(String[] n, int tid, long st, int p) {
+		names = n;
+		table_id = tid;
+		stamp = st;
+		period = p;
+		values = new short[n.length * N_VALUES];
+		Arrays.fill(values, MISSING);
+	}
+
+	/** Create a new sample frame with all data missing */
+	public SampleFrame(String[] n, long st, int p) {
+		this(n, tableId(n), st, p);
+	}
+
+	/** Create a copy of a frame with a new time stamp */
+	private SampleFrame(SampleFrame f, long st, int p) {
+		names = f.names;
+		table_id = f.table_id;
+		stamp = st;
+		period = p;
+		values = Arrays.copyOf(f.values, f.values.length);
+	}
+
+	/** Get the number of detectors */
+	public int size() {
+		return names.length;
+	}
+
+	/** Get the detector name at an index */
+	public String getName(int i) {
+		return names[i];
+	}
+
+	/** Get the index table ID */
+	public int getTableId() {
+		return table_id;
+	}
+
+	/** Get the time stamp */
+	public long getStamp() {
+		return stamp;
+	}
+
+	/** Get the sample period (seconds) */
+	public int getPeriod() {
+		return period;
+	}
+
+	/** Set the sample data for one detector.
+	 * @param i Detector index.
+	 * @param f Flow rate (vehicles per hour), or negative if missing.
+	 * @param s Speed (mph), or negative if missing.
+	 * @param o Occupancy (percent), or negative if missing. */
+	public void setSample(int i, int f, int s, float o) {
+		int b = i * N_VALUES;
+		values[b + FLOW] = clamp(f);
+		values[b + SPEED] = clamp(s);
+		values[b + OCC] = (o >= 0)
+		                ? clamp(Math.round(o * 100))
+		                : MISSING;
+	}
+
+	/** Get the flow rate for a detector (or null if missing) */
+	public Integer getFlow(int i) {
+		short v = values[i * N_VALUES + FLOW];
+		return (v != MISSING) ? Integer.valueOf(v) : null;
+	}
+
+	/** Get the speed for a detector (or null if missing) */
+	public Integer getSpeed(int i) {
+		short v = values[i * N_VALUES + SPEED];
+		return (v != MISSING) ? Integer.valueOf(v) : null;
+	}
+
+	/** Get the occupancy for a detector (or null if missing) */
+	public Float getOcc(int i) {
+		short v = values[i * N_VALUES + OCC];
+		return (v != MISSING) ? Float.valueOf(v / 100f) : null;
+	}
+
+	/** Check if any data exists for a detector */
+	public boolean hasData(int i) {
+		int b = i * N_VALUES;
+		for (int v = 0; v < N_VALUES; v++) {
+			if (values[b + v] != MISSING)
+				return true;
+		}
+		return false;
+	}
+
+	/** Check if a delta can be made from another frame */
+	public boolean isCompatible(SampleFrame f) {
+		return f != null && f.table_id == table_id &&
+		       f.names.length == names.length;
+	}
+
+	/** Write the frame header */
+	private void writeHeader(DataOutputStream dos, byte t)
+		throws IOException
+	{
+		dos.writeInt(MAGIC);
+		dos.writeByte(VERSION);
+		dos.writeByte(t);
+		dos.writeInt(table_id);
+		dos.writeLong(stamp);
+		dos.writeShort(period);
+	}
+
+	/** Write a full frame */
+	public void writeFull(OutputStream os) throws IOException {
+		DataOutputStream dos = new DataOutputStream(os);
+		writeHeader(dos, TYPE_FULL);
+		dos.writeInt(names.length);
+		for (String n: names)
+			dos.writeUTF(n);
+		for (short v: values)
+			dos.writeShort(v);
+		dos.flush();
+	}
+
+	/** Write a delta frame.
+	 * @param os Output stream.
+	 * @param base Base frame (must be compatible). */
+	public void writeDelta(OutputStream os, SampleFrame base)
+		throws IOException
+	{
+		if (!isCompatible(base))
+			throw new IOException("Incompatible base frame");
+		DataOutputStream dos = new DataOutputStream(os);
+		writeHeader(dos, TYPE_DELTA);
+		dos.writeLong(base.stamp);
+		dos.writeInt(countChanged(base));
+		int p = -1;
+		for (int i = 0; i < names.length; i++) {
+			if (isChanged(base, i)) {
+				writeVarInt(dos, i - p - 1);
+				int b = i * N_VALUES;
+				for (int v = b; v < b + N_VALUES; v++)
+					writeVarInt(dos, zigZag(values[v] -
+						base.values[v]));
+				p = i;
+			}
+		}
+		dos.flush();
+	}
+
+	/** Count the detectors changed from a base frame */
+	private int countChanged(SampleFrame base) {
+		int n = 0;
+		for (int i = 0; i < names.length; i++) {
+			if (isChanged(base, i))
+				n++;
+		}
+		return n;
+	}
+
+	/** Check if one detector changed from a base frame */
+	private boolean isChanged(SampleFrame base, int i) {
+		int b = i * N_VALUES;
+		for (int v = b; v < b + N_VALUES; v++) {
+			if (values[v] != base.values[v])
+				return true;
+		}
+		return false;
+	}
+
+	/** Read a full frame */
+	static public SampleFrame readFull(InputStream is) throws IOException {
+		DataInputStream dis = new DataInputStream(is);
+		readType(dis, TYPE_FULL);
+		int tid = dis.readInt();
+		long st = dis.readLong();
+		int p = dis.readShort();
+		int n = dis.readInt();
+		if (n < 0)
+			throw new IOException("Invalid count: " + n);
+		String[] nms = new String[n];
+		for (int i = 0; i < n; i++)
+			nms[i] = dis.readUTF();
+		SampleFrame f = new SampleFrame(nms, tid, st, p);
+		for (int i = 0; i < f.values.length; i++)
+			f.values[i] = dis.readShort();
+		return f;
+	}
+
+	/** Read a delta frame and apply it to this frame.
+	 * @param is Input stream.
+	 * @return New frame, this frame if the delta has the same time stamp,
+	 *         or null if the delta does not apply to this frame (table
+	 *         or base time stamp mismatch). */
+	public SampleFrame applyDelta(InputStream is) throws IOException {
+		DataInputStream dis = new DataInputStream(is);
+		readType(dis, TYPE_DELTA);
+		int tid = dis.readInt();
+		long st = dis.readLong();
+		int p = dis.readShort();
+		long base_stamp = dis.readLong();
+		if (tid == table_id && st == stamp)
+			return this;
+		if (tid != table_id || base_stamp != stamp)
+			return null;
+		SampleFrame f = new SampleFrame(this, st, p);
+		int n = dis.readInt();
+		int i = -1;
+		for (int c = 0; c < n; c++) {
+			i += readVarInt(dis) + 1;
+			if (i < 0 || i >= names.length)
+				throw new IOException("Invalid index: " + i);
+			int b = i * N_VALUES;
+			for (int v = b; v < b + N_VALUES; v++) {
+				f.values[v] = (short) (f.values[v] +
+					unZigZag(readVarInt(dis)));
+			}
+		}
+		return f;
+	}
+
+	/** Read and check the frame header magic, version and type */
+	static private void readType(DataInputStream dis, byte t)
+		throws IOException
+	{
+		if (dis.readInt() != MAGIC)
+			throw new IOException("Invalid magic");
+		byte v = dis.readByte();
+		if (v != VERSION)
+			throw new IOException("Invalid version: " + v);
+		byte ft = dis.readByte();
+		if (ft != t)
+			throw new IOException("Invalid frame type: " + ft);
+	}
+
+	/** Zig-zag encode a value */
+	static private int zigZag(int v) {
+		return (v << 1) ^ (v >> 31);
+	}
+
+	/** Zig-zag decode a value */
+	static private int unZigZag(int v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	/** Write an unsigned variable-length int (7 bits per byte) */
+	static private void writeVarInt(DataOutputStream dos, int v)
+		throws IOException
+	{
+		while ((v & ~0x7f) != 0) {
+			dos.writeByte((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		dos.writeByte(v);
+	}
+
+	/** Read an unsigned variable-length int (7 bits per byte) */
+	static private int readVarInt(DataInputStream dis) throws IOException {
+		int v = 0;
+		for (int s = 0; s < 35; s += 7) {
+			int b = dis.readUnsignedByte();
+			v |= (b & 0x7f) << s;
+			if ((b & 0x80) == 0)
+				return v;
+		}
+		throw new IOException("Invalid varint");
+	}
+}
@@ -112,6 +112,7 @@ public enum SystemAttrEnum {
 	METER_MAX_RED_SECS(13f, 5f, 30f),
 	METER_MIN_RED_SECS(0.1f, 0.1f, 10f),
 	METER_YELLOW_SECS(0.7f, 0.1f, 10f),
+	METRICS_ENABLE(false),
 	MSG_FEED_VERIFY(true),
 	OPERATION_RETRY_THRESHOLD(3, 1, 20),
 	PRICE_MESSAGE_EVENT_PURGE_DAYS(0, 0),
@@ -121,6 +122,7 @@ public enum SystemAttrEnum {
 	RWIS_LOW_VISIBILITY_DISTANCE_M(152, 0),
 	RWIS_OBS_AGE_LIMIT_SECS(240, 0),
 	RWIS_MAX_VALID_WIND_SPEED_KPH(282, 0),
+	SAMPLE_ARCHIVE_COLUMNAR(false),
 	SAMPLE_ARCHIVE_ENABLE(true),
 	SIGN_EVENT_PURGE_DAYS(0, 0),
 	SPEED_LIMIT_MIN_MPH(45, 0, 100),
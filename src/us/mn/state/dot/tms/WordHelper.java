@@ -59,6 +59,37 @@ public class WordHelper extends BaseHelper {
 	/** Indent for messages */
 	static private String INDENT = "    ";
 
+	/** Index of words, maintained by WordImpl on the server and by a
+	 * proxy listener on clients */
+	static private final WordIndex INDEX = new WordIndex();
+
+	/** Flag indicating INDEX is being maintained */
+	static private volatile boolean indexed = false;
+
+	/** Add a word to the index */
+	static public void addIndex(Word w) {
+		indexed = true;
+		INDEX.add(w);
+	}
+
+	/** Remove a word from the index */
+	static public void removeIndex(Word w) {
+		INDEX.remove(w);
+	}
+
+	/** Get the word index.  If the index is not being maintained, a new
+	 * index is built from the namespace.  Callers should get the index
+	 * once for each message checked. */
+	static public WordIndex getIndex() {
+		if (indexed)
+			return INDEX;
+		WordIndex wi = new WordIndex();
+		Iterator<Word> it = iterator();
+		while (it.hasNext())
+			wi.add(it.next());
+		return wi;
+	}
+
 	/** Get an iterator */
 	static public Iterator<Word> iterator() {
 		return new IteratorWrapper<Word>(
@@ -119,20 +150,22 @@ public class WordHelper extends BaseHelper {
 	static public String spellCheck(String multi) {
 		if (!spellCheckEnabled())
 			return "";
+		WordIndex wi = getIndex();
 		StringBuilder msg = new StringBuilder();
-		msg.append(buildBannedUserMsg(multi));
-		msg.append(buildAllowedUserMsg(multi));
+		msg.append(buildBannedUserMsg(multi, wi));
+		msg.append(buildAllowedUserMsg(multi, wi));
 		return msg.toString();
 	}
 
 	/** Build a user message for words that are banned.
 	 * @param ms MULTI string
+	 * @param wi Word index.
 	 * @return A user message indicating which words are misspelled */
-	static private String buildBannedUserMsg(String multi) {
+	static private String buildBannedUserMsg(String multi, WordIndex wi) {
 		DictScheme bds = getDictScheme(false);
 		if (bds == DictScheme.OFF)
 			return "";
-		List<String> bw = WordHelper.spellCheck(multi, false);
+		List<String> bw = WordHelper.spellCheck(multi, false, wi);
 		if (bw.size() <= 0)
 			return "";
 		StringBuilder msg = new StringBuilder();
@@ -154,12 +187,13 @@ public class WordHelper extends BaseHelper {
 
 	/** Build a user message for words that are not explicitly allowed.
 	 * @param ms MULTI string
+	 * @param wi Word index.
 	 * @return A user message indicating which words are misspelled */
-	static private String buildAllowedUserMsg(String multi) {
+	static private String buildAllowedUserMsg(String multi, WordIndex wi) {
 		DictScheme ads = getDictScheme(true);
 		if (ads == DictScheme.OFF)
 			return "";
-		List<String> aw = WordHelper.spellCheck(multi, true);
+		List<String> aw = WordHelper.spellCheck(multi, true, wi);
 		if (aw.size() <= 0)
 			return "";
 		StringBuilder msg = new StringBuilder();
@@ -184,19 +218,15 @@ public class WordHelper extends BaseHelper {
 	 * @param ms MULTI string containing words to check.
 	 * @return User message listing words that can be abbreviated */
 	static public String abbreviationCheck(String ms) {
+		WordIndex wi = getIndex();
 		List<String> mwds = new MultiString(ms).getWords();
 		List<Word> awords = new LinkedList<Word>();
-		for(String mwd : mwds) {
+		for (String mwd : mwds) {
 			if (ignoreWord(mwd))
 				continue;
-			Iterator<Word> it = WordHelper.iterator();
-			while (it.hasNext()) {
-				Word dwd = it.next();
-				if (!hasAbbr(dwd))
-					continue;
-				if (WordHelper.equals(mwd, dwd.getName()))
-					awords.add(dwd);
-			}
+			Word dwd = wi.lookup(mwd);
+			if (hasAbbr(dwd))
+				awords.add(dwd);
 		}
 		if (awords.isEmpty())
 			return "";
@@ -210,6 +240,25 @@ public class WordHelper extends BaseHelper {
 		return msg.toString();
 	}
 
+	/** Abbreviate words in a MULTI string until it fits on a sign.
+	 * Words which save the most characters are abbreviated first.
+	 * @param ms MULTI string to abbreviate.
+	 * @param rb Raster builder for the sign.
+	 * @return Abbreviated MULTI string, or null if it cannot fit. */
+	static public String abbreviate(String ms, final RasterBuilder rb) {
+		return getIndex().abbreviate(ms, new WordIndex.Fit() {
+			public boolean fits(String m) {
+				try {
+					rb.createPixmaps(new MultiString(m));
+					return true;
+				}
+				catch (InvalidMsgException e) {
+					return false;
+				}
+			}
+		});
+	}
+
 	/** Does a word have an abbreviation? */
 	static public boolean hasAbbr(Word wd) {
 		return (wd == null ? 
@@ -228,21 +277,26 @@ public class WordHelper extends BaseHelper {
 	/** Spell check a MULTI string, returning the misspelled words.
 	 * @param ms MULTI string containing words to check.
 	 * @param a True to check against allowed words else banned words.
+	 * @param wi Word index.
 	 * @return A list of incorrect words. */
-	static private List<String> spellCheck(String ms, boolean a) {
-		List<String> wrong = new LinkedList<String>();
-		return spellCheck(new MultiString(ms).getWords(), a);
+	static private List<String> spellCheck(String ms, boolean a,
+		WordIndex wi)
+	{
+		return spellCheck(new MultiString(ms).getWords(), a, wi);
 	}
 
 	/** Spell check a list of words, returning the misspelled words.
 	 * @param ws List of words in the message to spellcheck
 	 * @param a True for the allowed list else banned word list.
+	 * @param wi Word index.
 	 * @return A list of words from the argument ws that are not 
 	 * 	   contained in the dictionary */
-	static private List<String> spellCheck(List<String> ws, boolean a) {
+	static private List<String> spellCheck(List<String> ws, boolean a,
+		WordIndex wi)
+	{
 		LinkedList<String> wrong = new LinkedList<String>();
 		for(String w : ws) {
-			if (!spellCheckWord(w, a))
+			if (!spellCheckWord(w, a, wi))
 				wrong.add(w);
 		}
 		return wrong;
@@ -252,11 +306,14 @@ public class WordHelper extends BaseHelper {
 	 * @param w Word to check
 	 * @param allow True to spell check with allowed word list else use
 	 * 		the banned word list.
+	 * @param wi Word index.
 	 * @return True if word argument is in the dictionary else false */
-	static private boolean spellCheckWord(String w, boolean allow) {
+	static private boolean spellCheckWord(String w, boolean allow,
+		WordIndex wi)
+	{
 		if (ignoreWord(w))
 			return true;
-		Word dwd = lookup(w);
+		Word dwd = wi.lookup(w);
 		return (dwd == null ? !allow : dwd.getAllowed());
 	}
 
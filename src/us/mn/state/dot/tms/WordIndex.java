@@ -0,0 +1,131 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.util.HashMap;
+import java.util.List;
+import us.mn.state.dot.tms.utils.MultiBuilder;
+import us.mn.state.dot.tms.utils.MultiString;
+
+/**
+ * An index of dictionary words.  Words are indexed by their decoded, upper
+ * case name in a hash map for spell checking and abbreviation lookups.
+ * Allowed and abbreviation values are read from the words themselves, so
+ * only adding and removing words changes the index.
+ *
+ * @author Douglas Lau
+ */
+public class WordIndex {
+
+	/** Check if a message fits */
+	static public interface Fit {
+
+		/** Check if a MULTI string fits */
+		boolean fits(String ms);
+	}
+
+	/** Get the index key for a word name */
+	static private String key(String w) {
+		return w.toUpperCase();
+	}
+
+	/** Words by key */
+	private final HashMap<String, Word> words =
+		new HashMap<String, Word>();
+
+	/** Add a word to the index */
+	public synchronized void add(Word w) {
+		String k = key(WordHelper.decode(w.getName()));
+		words.put(k, w);
+	}
+
+	/** Remove a word from the index */
+	public synchronized void remove(Word w) {
+		String k = key(WordHelper.decode(w.getName()));
+		if (words.get(k) == w)
+			words.remove(k);
+	}
+
+	/** Get the number of indexed words */
+	public synchronized int size() {
+		return words.size();
+	}
+
+	/** Lookup a word (case insensitive).
+	 * @param w Unencoded word.
+	 * @return Dictionary word, or null if not found. */
+	public synchronized Word lookup(String w) {
+		return (w != null) ? words.get(key(w)) : null;
+	}
+
+	/** Find the abbreviation which saves the most characters.
+	 * @param ws List of words in a message.
+	 * @return Dictionary word with the best abbreviation, or null. */
+	public synchronized Word findBestAbbr(List<String> ws) {
+		Word best = null;
+		int saved = 0;
+		for (String w: ws) {
+			Word dw = lookup(w);
+			if (WordHelper.hasAbbr(dw)) {
+				String a = dw.getAbbr().trim();
+				int s = w.length() - a.length();
+				if (s > saved) {
+					best = dw;
+					saved = s;
+				}
+			}
+		}
+		return best;
+	}
+
+	/** Abbreviate words in a MULTI string until it fits.  Words which
+	 * save the most characters are abbreviated first.
+	 * @param ms MULTI string to abbreviate.
+	 * @param f Check for whether a message fits.
+	 * @return Abbreviated MULTI string, or null if it cannot fit. */
+	public String abbreviate(String ms, Fit f) {
+		while (!f.fits(ms)) {
+			List<String> ws = new MultiString(ms).getWords();
+			Word w = findBestAbbr(ws);
+			if (null == w)
+				return null;
+			ms = replaceWord(ms, WordHelper.decode(w.getName()),
+				w.getAbbr().trim());
+		}
+		return ms;
+	}
+
+	/** Replace all occurrences of a word in the text of a MULTI string.
+	 * @param ms MULTI string.
+	 * @param w Word to replace (case insensitive).
+	 * @param r Replacement.
+	 * @return Updated MULTI string. */
+	static private String replaceWord(String ms, final String w,
+		final String r)
+	{
+		MultiBuilder mb = new MultiBuilder() {
+			@Override public void addSpan(String span) {
+				String[] ws = span.split(" ", -1);
+				for (int i = 0; i < ws.length; i++) {
+					if (WordHelper.equals(ws[i], w))
+						ws[i] = r;
+				}
+				super.addSpan(String.join(" ", ws));
+			}
+		};
+		new MultiString(ms).parse(mb);
+		return mb.toString();
+	}
+}
@@ -129,6 +129,8 @@ public class ScreenPane extends JPanel {
 
 	/** Create the tool panels */
 	public void createToolPanels(Session s) {
+		map.setPaintStats(Boolean.parseBoolean(s.getProperties()
+			.getProperty("map.paint.stats")));
 		map_bar.addMenu();
 		TreeMap<String, MapExtent> extents = buildExtents(s);
 		for (String n: extents.keySet()) {
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2018  Minnesota Department of Transportation
+ * Copyright (C) 2000-2019  Minnesota Department of Transportation
  * Copyright (C) 2014  AHMCT, University of California
  *
  * This program is free software; you can redistribute it and/or modify
@@ -15,6 +15,7 @@
  */
 package us.mn.state.dot.tms.client;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -191,14 +192,28 @@ public class Session {
 		tile_layer = createTileLayer(props.getProperty("map.tile.url"));
 	}
 
+	/** Size of tile memory cache (bytes) */
+	static private final long TILE_CACHE_BYTES = 64L << 20;
+
+	/** Size of tile disk cache (bytes) */
+	static private final long TILE_DISK_BYTES = 512L << 20;
+
 	/** Create the tile layer */
 	private TileLayer createTileLayer(String url) {
-		if (url != null)
-			return new TileLayer("Base map", url, 1000);
-		else
+		if (url != null) {
+			return new TileLayer("Base map", url, TILE_CACHE_BYTES,
+				tileCacheDir(url), TILE_DISK_BYTES);
+		} else
 			return null;
 	}
 
+	/** Get the tile disk cache directory for a tile URL */
+	static private File tileCacheDir(String url) {
+		String home = System.getProperty("user.home");
+		File tiles = new File(new File(home, "iris"), "tiles");
+		return new File(tiles, Integer.toHexString(url.hashCode()));
+	}
+
 	/** Initialize the session */
 	public void initialize() throws Exception {
 		initializeManagers();
@@ -403,6 +418,8 @@ public class Session {
 			man.dispose();
 		managers.clear();
 		loc_manager.dispose();
+		if (tile_layer != null)
+			tile_layer.dispose();
 		state.quit();
 	}
 
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2018  Minnesota Department of Transportation
+ * Copyright (C) 2007-2019  Minnesota Department of Transportation
  * Copyright (C) 2015       Iteris Inc.
  * Copyright (C) 2016-2017  SRF Consulting Group
  *
@@ -30,6 +30,7 @@ import us.mn.state.dot.sonar.SonarException;
 import us.mn.state.dot.sonar.SonarObject;
 import us.mn.state.dot.sonar.User;
 import us.mn.state.dot.sonar.client.Client;
+import us.mn.state.dot.sonar.client.ProxyListener;
 import us.mn.state.dot.sonar.client.TypeCache;
 import us.mn.state.dot.tms.ActionPlan;
 import us.mn.state.dot.tms.Alarm;
@@ -60,6 +61,7 @@ import us.mn.state.dot.tms.TimeAction;
 import us.mn.state.dot.tms.TollZone;
 import us.mn.state.dot.tms.WeatherSensor;
 import us.mn.state.dot.tms.Word;
+import us.mn.state.dot.tms.WordHelper;
 import us.mn.state.dot.tms.client.camera.CamCache;
 import us.mn.state.dot.tms.client.comm.ConCache;
 import us.mn.state.dot.tms.client.detector.DetCache;
@@ -462,6 +464,20 @@ public class SonarState extends Client {
 	private final TypeCache<Word> words = 
 		new TypeCache<Word>(Word.class, this);
 
+	/** Listener to maintain the word index */
+	private final ProxyListener<Word> word_listener =
+		new ProxyListener<Word>()
+	{
+		public void proxyAdded(Word proxy) {
+			WordHelper.addIndex(proxy);
+		}
+		public void enumerationComplete() { }
+		public void proxyRemoved(Word proxy) {
+			WordHelper.removeIndex(proxy);
+		}
+		public void proxyChanged(Word proxy, String a) { }
+	};
+
 	/** Get the weather sensor cache */
 	public TypeCache<Word> getWords() {
 		return words;
@@ -512,6 +528,7 @@ public class SonarState extends Client {
 		plan_model.initialize();
 		beacon_model = new ProxyListModel<Beacon>(beacons);
 		beacon_model.initialize();
+		words.addProxyListener(word_listener);
 		// FIXME: this is an ugly hack
 		BaseHelper.namespace = getNamespace();
 	}
@@ -23,6 +23,7 @@ import javax.swing.JPanel;
 import us.mn.state.dot.tms.DeviceRequest;
 import us.mn.state.dot.tms.DMS;
 import us.mn.state.dot.tms.DMSHelper;
+import us.mn.state.dot.tms.RasterBuilder;
 import us.mn.state.dot.tms.RasterGraphic;
 import us.mn.state.dot.tms.SignConfig;
 import us.mn.state.dot.tms.SignMessage;
@@ -254,7 +255,21 @@ public class DMSDispatcher extends JPanel {
 	/** Create a new message from the widgets.
 	 * @return A SignMessage from composer selection, or null on error. */
 	private SignMessage createMessage(DMS dms) {
-		return createMessage(dms, getComposedMulti(dms));
+		return createMessage(dms, fitMulti(dms, getComposedMulti(dms)));
+	}
+
+	/** Abbreviate a MULTI string if it does not fit on a sign.
+	 * @param dms Sign to check.
+	 * @param ms MULTI string to fit.
+	 * @return Abbreviated MULTI string, or ms if it cannot fit. */
+	private String fitMulti(DMS dms, String ms) {
+		RasterBuilder rb = DMSHelper.createRasterBuilder(dms);
+		if (rb != null) {
+			String ams = WordHelper.abbreviate(ms, rb);
+			if (ams != null)
+				return ams;
+		}
+		return ms;
 	}
 
 	/** Create a new message using the specified MULTI */
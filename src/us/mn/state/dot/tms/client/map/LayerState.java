@@ -24,6 +24,7 @@ import java.util.LinkedList;
 import java.util.List;
 import javax.swing.SwingUtilities;
 import javax.swing.event.EventListenerList;
+import static us.mn.state.dot.tms.client.widget.Widgets.UI;
 
 /**
  * Layer state is the rendering state for one layer on a map. Multiple layer
@@ -36,6 +37,9 @@ import javax.swing.event.EventListenerList;
  */
 abstract public class LayerState {
 
+	/** Margin around extents for map object symbols (pixels) */
+	static private final int MARGIN_PIX = UI.scaled(64);
+
 	/** Empty selection special case (for equality comparisons) */
 	static private final MapObject[] NO_SELECTION = new MapObject[0];
 
@@ -187,6 +191,22 @@ abstract public class LayerState {
 	/** Call the specified callback for each map object in the layer */
 	abstract public MapObject forEach(MapSearcher s);
 
+	/** Call the specified callback for each map object which may be
+	 * within an extent.  Sub-classes with a spatial index can override
+	 * this to skip objects outside of the extent.
+	 * @param s Map searcher callback.
+	 * @param ext Extent in world coordinates. */
+	public MapObject forEach(MapSearcher s, Rectangle2D ext) {
+		return forEach(s);
+	}
+
+	/** Expand an extent by a margin for map object symbols */
+	private Rectangle2D marginExtent(Rectangle2D r) {
+		double m = MARGIN_PIX * map.getScale();
+		return new Rectangle2D.Double(r.getX() - m, r.getY() - m,
+			r.getWidth() + 2 * m, r.getHeight() + 2 * m);
+	}
+
 	/** Paint the layer */
 	public void paint(final Graphics2D g) {
 		if (isVisible()) {
@@ -198,7 +218,7 @@ abstract public class LayerState {
 					g.setTransform(t);
 					return false;
 				}
-			});
+			}, marginExtent(map.getViewExtent()));
 		}
 	}
 
@@ -258,7 +278,8 @@ abstract public class LayerState {
 			public boolean next(MapObject mo) {
 				return theme.hit(p, mo);
 			}
-		});
+		}, marginExtent(new Rectangle2D.Double(p.getX(), p.getY(), 0,
+			0)));
 	}
 
 	/** Process a mouse click for the layer */
@@ -229,6 +229,13 @@ public class MapBean extends JComponent {
 		return t.transform(p, null);
 	}
 
+	/** Get the current view extent in world coordinates */
+	public Rectangle2D getViewExtent() {
+		Rectangle r = new Rectangle(mapPane.getSize());
+		AffineTransform t = mapPane.getInverseTransform();
+		return t.createTransformedShape(r).getBounds2D();
+	}
+
 	/** Get the size of a pixel in world coordinates */
 	public double getScale() {
 		return model.getZoomLevel().scale;
@@ -401,10 +408,58 @@ public class MapBean extends JComponent {
 
 	/** Paint the map component */
 	public void paintComponent(Graphics g) {
+		long st = System.nanoTime();
+		AffineTransform t = ((Graphics2D) g).getTransform();
 		if (pan != null && pan.isStarted())
 			pan.renderMap((Graphics2D)g);
 		else
 			renderMap((Graphics2D)g);
+		if (paint_stats) {
+			((Graphics2D) g).setTransform(t);
+			paintStats((Graphics2D) g, st);
+		}
+	}
+
+	/** Smoothing factor for paint statistics */
+	static private final double STATS_ALPHA = 0.1;
+
+	/** Flag to paint statistics overlay (for debugging) */
+	private boolean paint_stats = false;
+
+	/** Start time of previous frame (nanoseconds) */
+	private long frame_start = 0;
+
+	/** Smoothed time between frames (ms) */
+	private double frame_ms = 0;
+
+	/** Smoothed time to paint a frame (ms) */
+	private double paint_ms = 0;
+
+	/** Set the flag to paint statistics overlay */
+	public void setPaintStats(boolean ps) {
+		paint_stats = ps;
+		repaint();
+	}
+
+	/** Paint the frame rate and paint time statistics overlay */
+	private void paintStats(Graphics2D g, long st) {
+		double ms = (System.nanoTime() - st) / 1e6;
+		paint_ms += (ms - paint_ms) * STATS_ALPHA;
+		if (frame_start > 0) {
+			double fms = (st - frame_start) / 1e6;
+			frame_ms += (fms - frame_ms) * STATS_ALPHA;
+		}
+		frame_start = st;
+		double fps = (frame_ms > 0) ? 1000 / frame_ms : 0;
+		String txt = String.format("%.1f fps  paint %.1f ms  " +
+			"layers %.1f ms", fps, paint_ms,
+			mapPane.getDrawNanos() / 1e6);
+		int h = g.getFontMetrics().getHeight();
+		int w = g.getFontMetrics().stringWidth(txt);
+		g.setColor(new Color(0, 0, 0, 160));
+		g.fillRect(4, 4, w + 8, h + 4);
+		g.setColor(Color.WHITE);
+		g.drawString(txt, 8, 4 + h - g.getFontMetrics().getDescent());
 	}
 
 	/** Dispose of the map */
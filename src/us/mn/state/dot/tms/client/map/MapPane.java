@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2016  Minnesota Department of Transportation
+ * Copyright (C) 2000-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,6 +14,7 @@
  */
 package us.mn.state.dot.tms.client.map;
 
+import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics2D;
@@ -23,10 +24,18 @@ import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 
 /**
  * This class can be used to generate map graphics when access to the graphics
- * subsystem is not available.
+ * subsystem is not available.  The most recently changed layer is the
+ * "active" layer.  Visible layers below it are cached in one opaque raster,
+ * and layers above it in one transparent raster.  When only the active
+ * layer changes, it is painted between the two cached rasters, so repeated
+ * changes to one layer do not repaint the others.  At most two rasters are
+ * cached, no matter how many layers there are.
  *
  * @author Erik Engstrom
  * @author Douglas Lau
@@ -42,6 +51,24 @@ public class MapPane implements LayerChangeListener {
 	/** Dirty flag */
 	private boolean dirty = true;
 
+	/** Cached raster of layers below the active layer (opaque) */
+	private BufferedImage below;
+
+	/** Cached raster of layers above the active layer (transparent) */
+	private BufferedImage above;
+
+	/** Visible layers when cached rasters were painted */
+	private List<LayerState> cached = new ArrayList<LayerState>();
+
+	/** Index of active layer in cached list (size if none) */
+	private int active = 0;
+
+	/** Layers changed since cached rasters were painted */
+	private final HashSet<LayerState> changed = new HashSet<LayerState>();
+
+	/** Flag to indicate all layers have changed */
+	private boolean all_changed = true;
+
 	/** Transform from world to screen coordinates */
 	private final AffineTransform transform = new AffineTransform();
 
@@ -64,6 +91,9 @@ public class MapPane implements LayerChangeListener {
 	public void setSize(Dimension d) {
 		screenBuffer = createImage(d.width, d.height);
 		rescale();
+		below = null;
+		above = null;
+		all_changed = true;
 		dirty = true;
 	}
 
@@ -83,7 +113,10 @@ public class MapPane implements LayerChangeListener {
 
 	/** Dispose of the map pane */
 	public void dispose() {
-		// nothing to do
+		below = null;
+		above = null;
+		cached.clear();
+		changed.clear();
 	}
 
 	/** Change the scale of the map panel */
@@ -110,6 +143,8 @@ public class MapPane implements LayerChangeListener {
 	/** Set the background color of the map */
 	public void setBackground(Color color) {
 		background = color;
+		all_changed = true;
+		dirty = true;
 	}
 
 	/** Get the current image for the map panel */
@@ -122,19 +157,156 @@ public class MapPane implements LayerChangeListener {
 		return bi;
 	}
 
-	/** Draw the map image */
+	/** Time to draw the map image most recently (nanoseconds) */
+	private long draw_nanos = 0;
+
+	/** Get the time to draw the map image most recently (nanoseconds) */
+	public long getDrawNanos() {
+		return draw_nanos;
+	}
+
+	/** Draw the map image.  Only cached rasters containing changed
+	 * layers are repainted. */
 	private void drawImage(BufferedImage bi) {
+		long st = System.nanoTime();
+		List<LayerState> layers = getVisibleLayers();
+		updateCache(layers);
 		Graphics2D g = bi.createGraphics();
+		if (below != null)
+			g.drawImage(below, 0, 0, null);
+		else {
+			g.setBackground(background);
+			g.clearRect(0, 0, bi.getWidth(), bi.getHeight());
+		}
+		if (active < layers.size()) {
+			paintLayers(bi, layers.subList(active, active + 1));
+			if (above != null)
+				g.drawImage(above, 0, 0, null);
+		}
+		g.dispose();
+		draw_nanos = System.nanoTime() - st;
+	}
+
+	/** Get a list of visible layers */
+	private List<LayerState> getVisibleLayers() {
+		ArrayList<LayerState> layers = new ArrayList<LayerState>();
+		for (LayerState s: mapbean.getLayers()) {
+			if (s.isVisible())
+				layers.add(s);
+		}
+		return layers;
+	}
+
+	/** Update cached rasters for changed layers.  If one layer (other
+	 * than the active layer) has changed, it becomes the active layer.
+	 * @param layers Visible layers. */
+	private void updateCache(List<LayerState> layers) {
+		int n = layers.size();
+		boolean below_ok = !all_changed;
+		boolean above_ok = !all_changed;
+		if (!layers.equals(cached)) {
+			active = n;
+			below_ok = false;
+			above_ok = false;
+		} else if (!all_changed) {
+			int lo = n;
+			int hi = -1;
+			for (int i = 0; i < n; i++) {
+				if (changed.contains(layers.get(i))) {
+					lo = Math.min(lo, i);
+					hi = i;
+				}
+			}
+			if (lo == hi && lo != active) {
+				active = lo;
+				below_ok = false;
+				above_ok = false;
+			} else {
+				below_ok = lo >= active;
+				above_ok = hi <= active;
+			}
+		}
+		if (!below_ok)
+			below = paintBelow(layers.subList(0, active));
+		if (!above_ok && active < n)
+			above = paintAbove(layers.subList(active + 1, n));
+		else if (active >= n)
+			above = null;
+		cached = layers;
+		changed.clear();
+		all_changed = false;
+	}
+
+	/** Paint the layers below the active layer.
+	 * @return Opaque raster, or null if there are no layers. */
+	private BufferedImage paintBelow(List<LayerState> layers) {
+		if (layers.isEmpty())
+			return null;
+		BufferedImage img = reuse(below, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = img.createGraphics();
 		g.setBackground(background);
-		g.clearRect(0, 0, bi.getWidth(), bi.getHeight());
+		g.clearRect(0, 0, img.getWidth(), img.getHeight());
+		g.dispose();
+		paintLayers(img, layers);
+		return img;
+	}
+
+	/** Paint the layers above the active layer.
+	 * @return Transparent raster, or null if there are no layers. */
+	private BufferedImage paintAbove(List<LayerState> layers) {
+		if (layers.isEmpty())
+			return null;
+		BufferedImage img = reuse(above, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = img.createGraphics();
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(0, 0, img.getWidth(), img.getHeight());
+		g.dispose();
+		paintLayers(img, layers);
+		return img;
+	}
+
+	/** Reuse a cached raster, or create one the size of the map.
+	 * @param img Cached raster (may be null).
+	 * @param type Image type.
+	 * @return Raster to paint. */
+	private BufferedImage reuse(BufferedImage img, int type) {
+		BufferedImage bi = screenBuffer;	// Avoid race
+		if (img != null && img.getWidth() == bi.getWidth() &&
+		    img.getHeight() == bi.getHeight())
+			return img;
+		else
+			return new BufferedImage(bi.getWidth(), bi.getHeight(),
+				type);
+	}
+
+	/** Paint layers into a raster */
+	private void paintLayers(BufferedImage img, List<LayerState> layers) {
+		Graphics2D g = img.createGraphics();
 		g.transform(transform);
 		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
 			RenderingHints.VALUE_ANTIALIAS_ON);
-		for (LayerState s: mapbean.getLayers())
+		for (LayerState s: layers)
 			s.paint(g);
 		g.dispose();
 	}
 
+	/** Mark layers changed for an event source.
+	 * @param src Event source (LayerState, Layer, or other). */
+	private void invalidate(Object src) {
+		if (src instanceof LayerState || src instanceof Layer) {
+			for (LayerState s: cached) {
+				if (src == s || src == s.getLayer())
+					changed.add(s);
+			}
+		} else
+			invalidateAll();
+	}
+
+	/** Mark all layers changed */
+	private void invalidateAll() {
+		all_changed = true;
+	}
+
 	/** Get the buffered image */
 	public BufferedImage getBufferedImage() {
 		return screenBuffer;
@@ -149,9 +321,13 @@ public class MapPane implements LayerChangeListener {
 		case model:
 		case extent:
 			rescale();
+			invalidateAll();
+			break;
 		default:
-			dirty = true;
+			invalidate(ev.getSource());
+			break;
 		}
+		dirty = true;
 	}
 
 	/** Get the transform from world to screen coordinates */
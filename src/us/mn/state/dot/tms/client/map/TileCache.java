@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2011-2016  Minnesota Department of Transportation
+ * Copyright (C) 2011-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,98 +15,473 @@
 package us.mn.state.dot.tms.client.map;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
 
 /**
- * A cache of image tiles.
+ * A two-level cache of image tiles.  Decoded images are kept in a memory
+ * cache (least-recently used, bounded by size in bytes), backed by a disk
+ * cache of PNG files which persists between sessions.  The disk cache is
+ * also bounded by size; file modified times record when each tile was
+ * last used, so the least-recently used tiles are deleted first, even
+ * after a restart.  Tiles are loaded
+ * by a small pool of fetch threads; tiles needed for painting are loaded
+ * ahead of prefetched tiles.
  *
  * @author Douglas Lau
  */
 public class TileCache {
 
-	/** FIFO of tile names in cache */
-	protected final LinkedList<String> tiles = new LinkedList<String>();
+	/** Number of fetch threads */
+	static private final int N_THREADS = 4;
 
-	/** Hash of tile names to image files */
-	protected final HashMap<String, TempImageFile> tile_hash =
-		new HashMap<String, TempImageFile>();
+	/** Maximum number of queued prefetch requests */
+	static private final int MAX_PREFETCH = 64;
+
+	/** Listener for tiles loaded */
+	public interface Listener {
+
+		/** Called (on a fetch thread) when a requested tile has
+		 * been loaded */
+		void tileLoaded(String n);
+	}
 
 	/** Image fetcher */
-	protected final ImageFetcher fetcher;
+	private final ImageFetcher fetcher;
+
+	/** Directory for disk cache (may be null) */
+	private final File dir;
+
+	/** Maximum size of memory cache (bytes) */
+	private final long max_bytes;
+
+	/** Get the maximum size of memory cache (bytes) */
+	public long getMaxBytes() {
+		return max_bytes;
+	}
 
-	/** Size of cache (number of tiles) */
-	protected final int size;
+	/** Maximum size of disk cache (bytes) */
+	private final long max_disk_bytes;
 
-	/** Get the size of cache */
-	public int getSize() {
-		return size;
+	/** Get the maximum size of disk cache (bytes) */
+	public long getMaxDiskBytes() {
+		return max_disk_bytes;
 	}
 
-	/** Create a new tile cache */
-	public TileCache(ImageFetcher f, int sz) {
+	/** Sizes of tile files in disk cache, in access order */
+	private final LinkedHashMap<String, Long> disk =
+		new LinkedHashMap<String, Long>(256, 0.75f, true);
+
+	/** Current size of disk cache (bytes) */
+	private long disk_bytes = 0;
+
+	/** Memory cache of decoded tiles, in access order */
+	private final LinkedHashMap<String, BufferedImage> tiles =
+		new LinkedHashMap<String, BufferedImage>(256, 0.75f, true);
+
+	/** Current size of memory cache (bytes) */
+	private long n_bytes = 0;
+
+	/** Queue of tiles to load */
+	private final LinkedBlockingDeque<String> queue =
+		new LinkedBlockingDeque<String>();
+
+	/** Set of tiles queued or being loaded */
+	private final HashSet<String> pending = new HashSet<String>();
+
+	/** Set of requested tiles (not prefetch) */
+	private final HashSet<String> requested = new HashSet<String>();
+
+	/** Set of tiles which do not exist */
+	private final HashSet<String> missing = new HashSet<String>();
+
+	/** Fetch threads */
+	private final Thread[] threads = new Thread[N_THREADS];
+
+	/** Tile loaded listener */
+	private Listener listener;
+
+	/** Count of memory cache hits */
+	private final AtomicInteger hits = new AtomicInteger();
+
+	/** Count of memory cache misses */
+	private final AtomicInteger misses = new AtomicInteger();
+
+	/** Count of tiles loaded from disk cache */
+	private final AtomicInteger disk_hits = new AtomicInteger();
+
+	/** Count of tiles fetched from server */
+	private final AtomicInteger fetches = new AtomicInteger();
+
+	/** Create a new tile cache.
+	 * @param f Image fetcher.
+	 * @param mb Maximum size of memory cache (bytes).
+	 * @param d Directory for disk cache, or null for none.
+	 * @param db Maximum size of disk cache (bytes). */
+	public TileCache(ImageFetcher f, long mb, File d, long db) {
 		fetcher = f;
-		size = sz;
+		max_bytes = mb;
+		dir = d;
+		max_disk_bytes = db;
+		if (dir != null)
+			scanDisk();
+		for (int i = 0; i < N_THREADS; i++) {
+			threads[i] = new Thread("tile_fetch_" + i) {
+				@Override public void run() {
+					fetchTiles();
+				}
+			};
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
 	}
 
-	/** Purge the oldest image from the cache */
-	protected void purgeOldestImage() {
-		removeFirst();
+	/** Set the tile loaded listener */
+	public void setListener(Listener l) {
+		listener = l;
 	}
 
-	/** Remove a tile from the cache */
-	protected TempImageFile removeFirst() {
-		synchronized(tile_hash) {
-			String name = tiles.removeFirst();
-			return tile_hash.remove(name);
-		}
+	/** Get the count of memory cache hits */
+	public int getHits() {
+		return hits.get();
 	}
 
-	/** Get the named tile from the cache */
-	public BufferedImage getTile(String n) throws IOException {
-		TempImageFile tif = getTempImageFile(n);
-		if(tif != null)
-			return tif.getImage();
+	/** Get the count of memory cache misses */
+	public int getMisses() {
+		return misses.get();
+	}
+
+	/** Get the count of tiles loaded from disk cache */
+	public int getDiskHits() {
+		return disk_hits.get();
+	}
+
+	/** Get the count of tiles fetched from server */
+	public int getFetches() {
+		return fetches.get();
+	}
+
+	/** Get the named tile from the memory cache.
+	 * @param n Tile name.
+	 * @return Tile image, or null if not cached. */
+	public BufferedImage getTile(String n) {
+		BufferedImage img;
+		synchronized (tiles) {
+			img = tiles.get(n);
+		}
+		if (img != null)
+			hits.incrementAndGet();
 		else
-			return null;
+			misses.incrementAndGet();
+		return img;
+	}
+
+	/** Check if a tile is in the memory cache */
+	private boolean isCached(String n) {
+		synchronized (tiles) {
+			return tiles.containsKey(n);
+		}
+	}
+
+	/** Put a tile into the memory cache */
+	private void putTile(String n, BufferedImage img) {
+		synchronized (tiles) {
+			BufferedImage old = tiles.put(n, img);
+			if (old != null)
+				n_bytes -= imageBytes(old);
+			n_bytes += imageBytes(img);
+			purgeTiles();
+		}
 	}
 
-	/** Get the named temp image file from the cache */
-	protected TempImageFile getTempImageFile(String n) {
-		synchronized(tile_hash) {
-			if(tile_hash.containsKey(n))
-				return tile_hash.get(n);
-			else
-				return null;
+	/** Purge least-recently used tiles from the memory cache */
+	private void purgeTiles() {
+		Iterator<Map.Entry<String, BufferedImage>> it =
+			tiles.entrySet().iterator();
+		while (n_bytes > max_bytes && it.hasNext()) {
+			n_bytes -= imageBytes(it.next().getValue());
+			it.remove();
 		}
 	}
 
-	/** Lookup a tile and put it in the cache */
-	public void lookupTile(String n) throws IOException {
-		while(isFull())
-			purgeOldestImage();
-		TempImageFile tif = new TempImageFile(fetcher.fetchImage(n));
-		// Update the FIFO and hash map last so that exceptions cannot
-		// leave us in an inconsistent state
-		synchronized(tile_hash) {
-			tiles.addLast(n);
-			tile_hash.put(n, tif);
+	/** Estimate the memory used by an image */
+	static private long imageBytes(BufferedImage img) {
+		return 4L * img.getWidth() * img.getHeight();
+	}
+
+	/** Check if a tile does not exist */
+	public boolean isTileMissing(String n) {
+		synchronized (queue) {
+			return missing.contains(n);
 		}
 	}
 
-	/** Check if the cache is full */
-	protected boolean isFull() {
-		synchronized(tile_hash) {
-			return tile_hash.size() >= size;
+	/** Request a tile to be loaded for painting.  The listener will be
+	 * notified when it is available. */
+	public void requestTile(String n) {
+		synchronized (queue) {
+			if (missing.contains(n))
+				return;
+			requested.add(n);
+			// Move prefetched tile to the front of the queue
+			if (!pending.add(n))
+				queue.remove(n);
+			queue.addFirst(n);
+		}
+	}
+
+	/** Prefetch a tile (if the prefetch queue is not full) */
+	public void prefetchTile(String n) {
+		if (isCached(n))
+			return;
+		synchronized (queue) {
+			if (queue.size() < MAX_PREFETCH &&
+			    !missing.contains(n) && pending.add(n))
+				queue.addLast(n);
+		}
+	}
+
+	/** Fetch tiles from the queue (on a fetch thread) */
+	private void fetchTiles() {
+		try {
+			while (true) {
+				String n = queue.takeFirst();
+				loadTile(n);
+				completeTile(n);
+			}
+		}
+		catch (InterruptedException e) {
+			// Cache destroyed
+		}
+	}
+
+	/** Load one tile into the memory cache */
+	private void loadTile(String n) {
+		if (isCached(n))
+			return;
+		try {
+			BufferedImage img = readDisk(n);
+			if (img != null)
+				disk_hits.incrementAndGet();
+			else {
+				byte[] data = fetchTile(n);
+				fetches.incrementAndGet();
+				writeDisk(n, data);
+				img = decode(data);
+			}
+			if (img != null)
+				putTile(n, img);
+		}
+		catch (FileNotFoundException e) {
+			synchronized (queue) {
+				missing.add(n);
+			}
+		}
+		catch (IOException e) {
+			System.err.print("I/O Error ");
+			System.err.print(e.getMessage());
+			System.err.println(" loading tile: " + n);
+		}
+	}
+
+	/** Complete loading a tile */
+	private void completeTile(String n) {
+		boolean req;
+		synchronized (queue) {
+			pending.remove(n);
+			req = requested.remove(n);
+		}
+		Listener l = listener;
+		if (req && l != null && isCached(n))
+			l.tileLoaded(n);
+	}
+
+	/** Fetch a tile from the server */
+	private byte[] fetchTile(String n) throws IOException {
+		InputStream is = fetcher.fetchImage(n);
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			byte[] buf = new byte[8192];
+			for (int r = is.read(buf); r >= 0; r = is.read(buf))
+				bos.write(buf, 0, r);
+			return bos.toByteArray();
+		}
+		finally {
+			is.close();
+		}
+	}
+
+	/** Decode a tile image */
+	static private BufferedImage decode(byte[] data) throws IOException {
+		return ImageIO.read(new ByteArrayInputStream(data));
+	}
+
+	/** Get the size of the disk cache (bytes) */
+	public long getDiskBytes() {
+		synchronized (disk) {
+			return disk_bytes;
+		}
+	}
+
+	/** Scan the disk cache directory for tiles from earlier sessions */
+	private void scanDisk() {
+		ArrayList<File> files = new ArrayList<File>();
+		listFiles(dir, files);
+		Collections.sort(files, new Comparator<File>() {
+			public int compare(File a, File b) {
+				return Long.compare(a.lastModified(),
+					b.lastModified());
+			}
+		});
+		String base = dir.getPath() + File.separator;
+		synchronized (disk) {
+			for (File f: files) {
+				String p = f.getPath();
+				String n = p.substring(base.length(),
+					p.length() - 4);
+				addDisk(n.replace(File.separatorChar, '/'),
+					f.length());
+			}
+			purgeDisk();
+		}
+	}
+
+	/** List tile files in a directory (recursively).  Temp files left
+	 * by an interrupted write are deleted. */
+	static private void listFiles(File d, ArrayList<File> files) {
+		File[] fs = d.listFiles();
+		if (fs == null)
+			return;
+		for (File f: fs) {
+			if (f.isDirectory())
+				listFiles(f, files);
+			else if (f.getName().endsWith(".png"))
+				files.add(f);
+			else if (f.getName().contains(".png~"))
+				f.delete();
+		}
+	}
+
+	/** Add a tile file to the disk cache index */
+	private void addDisk(String n, long size) {
+		Long old = disk.put(n, size);
+		if (old != null)
+			disk_bytes -= old;
+		disk_bytes += size;
+	}
+
+	/** Remove a tile file from the disk cache index */
+	private void removeDisk(String n) {
+		synchronized (disk) {
+			Long old = disk.remove(n);
+			if (old != null)
+				disk_bytes -= old;
+		}
+	}
+
+	/** Mark a tile file as used */
+	private void touchDisk(String n, File f) {
+		synchronized (disk) {
+			disk.get(n);
+		}
+		f.setLastModified(System.currentTimeMillis());
+	}
+
+	/** Delete least-recently used files from the disk cache */
+	private void purgeDisk() {
+		Iterator<Map.Entry<String, Long>> it =
+			disk.entrySet().iterator();
+		while (disk_bytes > max_disk_bytes && it.hasNext()) {
+			Map.Entry<String, Long> e = it.next();
+			disk_bytes -= e.getValue();
+			it.remove();
+			diskFile(e.getKey()).delete();
+		}
+	}
+
+	/** Get the disk cache file for a tile */
+	private File diskFile(String n) {
+		return (dir != null) ? new File(dir, n + ".png") : null;
+	}
+
+	/** Read a tile from the disk cache */
+	private BufferedImage readDisk(String n) {
+		File f = diskFile(n);
+		if (f != null && f.canRead()) {
+			try {
+				BufferedImage img = decode(Files.readAllBytes(
+					f.toPath()));
+				touchDisk(n, f);
+				return img;
+			}
+			catch (IOException e) {
+				// Corrupt file; fetch it again
+				removeDisk(n);
+				f.delete();
+			}
+		}
+		return null;
+	}
+
+	/** Write a tile to the disk cache */
+	private void writeDisk(String n, byte[] data) {
+		File f = diskFile(n);
+		if (f == null)
+			return;
+		File temp = new File(f.getPath() + "~" +
+			Thread.currentThread().getName());
+		try {
+			f.getParentFile().mkdirs();
+			OutputStream os = new FileOutputStream(temp);
+			try {
+				os.write(data);
+			}
+			finally {
+				os.close();
+			}
+			if (temp.renameTo(f)) {
+				synchronized (disk) {
+					addDisk(n, data.length);
+					purgeDisk();
+				}
+			} else
+				temp.delete();
+		}
+		catch (IOException e) {
+			System.err.println("Tile cache: " + e.getMessage());
+			temp.delete();
 		}
 	}
 
 	/** Destroy the tile cache */
-	public void destroy() throws IOException {
-		synchronized(tile_hash) {
+	public void destroy() {
+		for (Thread t: threads)
+			t.interrupt();
+		synchronized (queue) {
+			queue.clear();
+			pending.clear();
+			requested.clear();
+		}
+		synchronized (tiles) {
 			tiles.clear();
-			tile_hash.clear();
+			n_bytes = 0;
 		}
 	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2011-2016  Minnesota Department of Transportation
+ * Copyright (C) 2011-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,7 +14,10 @@
  */
 package us.mn.state.dot.tms.client.map;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
 
 /**
  * A tile layer for drawing a Google-style tile map.
@@ -26,23 +29,62 @@ public class TileLayer extends Layer {
 	/** URL where tiles are hosted */
 	private final String url;
 
-	/** Number of tiles to cache */
-	private final int n_cached;
+	/** Size of memory cache (bytes) */
+	private final long cache_bytes;
+
+	/** Directory for disk cache (may be null) */
+	private final File cache_dir;
+
+	/** Size of disk cache (bytes) */
+	private final long disk_bytes;
 
 	/** Tile cache */
 	private TileCache cache;
 
-	/** Create a new tile layer */
-	public TileLayer(String n, String url, int n_cached) {
+	/** Flag to indicate a geometry change has been scheduled */
+	private final AtomicBoolean change_pending = new AtomicBoolean();
+
+	/** Listener for loaded tiles.  Changes are coalesced, so many tiles
+	 * loading at once only cause one repaint. */
+	private final TileCache.Listener listener = new TileCache.Listener() {
+		public void tileLoaded(String n) {
+			if (change_pending.compareAndSet(false, true)) {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						change_pending.set(false);
+						fireLayerChanged(
+							LayerChange.geometry);
+					}
+				});
+			}
+		}
+	};
+
+	/** Create a new tile layer.
+	 * @param n Layer name.
+	 * @param url Base URL of tiles.
+	 * @param cb Size of memory cache (bytes).
+	 * @param cd Directory for disk cache (null for none).
+	 * @param db Size of disk cache (bytes). */
+	public TileLayer(String n, String url, long cb, File cd, long db) {
 		super(n);
 		this.url = url;
-		this.n_cached = n_cached;
+		cache_bytes = cb;
+		cache_dir = cd;
+		disk_bytes = db;
 	}
 
 	/** Initialize the tile layer */
 	public void initialize() throws IOException {
 		ImageFetcher f = new ImageFetcher(url);
-		cache = new TileCache(f, n_cached);
+		cache = new TileCache(f, cache_bytes, cache_dir, disk_bytes);
+		cache.setListener(listener);
+	}
+
+	/** Dispose of the tile layer */
+	public void dispose() {
+		if (cache != null)
+			cache.destroy();
 	}
 
 	/** Create a new layer state */
@@ -55,6 +55,8 @@ public class MapGeoLoc implements MapObject {
 		}
 		updateTransform();
 		updateInverseTransform();
+		if (manager != null)
+			manager.updateMapGeoLoc(this);
 	}
 
 	/** Update the layer geometry */
@@ -16,6 +16,7 @@ package us.mn.state.dot.tms.client.proxy;
 
 import java.awt.event.InputEvent;
 import java.awt.event.MouseEvent;
+import java.awt.geom.Rectangle2D;
 import java.util.LinkedList;
 import java.util.Set;
 import us.mn.state.dot.sonar.SonarObject;
@@ -132,6 +133,12 @@ public class ProxyLayerState<T extends SonarObject> extends LayerState {
 		return manager.forEach(s);
 	}
 
+	/** Iterate through shapes in the layer which may be in an extent */
+	@Override
+	public MapObject forEach(MapSearcher s, Rectangle2D ext) {
+		return manager.forEach(s, ext);
+	}
+
 	/** Do mouse click event processing */
 	private void doClick(MouseEvent e, T proxy) {
 		if (proxy != null) {
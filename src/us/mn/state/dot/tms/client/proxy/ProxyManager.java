@@ -18,6 +18,7 @@ package us.mn.state.dot.tms.client.proxy;
 import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseEvent;
+import java.awt.geom.Rectangle2D;
 import java.util.Collection;
 import javax.swing.Icon;
 import javax.swing.JLabel;
@@ -451,6 +452,25 @@ abstract public class ProxyManager<T extends SonarObject> {
 		return null;
 	}
 
+	/** Iterate through proxy objects which may be within an extent.
+	 * @param s Map searcher callback.
+	 * @param ext Extent in spherical mercator coordinates.
+	 * @return Map object found by searcher, or null. */
+	public MapObject forEach(MapSearcher s, Rectangle2D ext) {
+		synchronized (map_cache) {
+			for (MapGeoLoc loc: map_cache.search(ext)) {
+				if (isVisible(loc) && s.next(loc))
+					return loc;
+			}
+		}
+		return null;
+	}
+
+	/** Update the map cache index after a location has moved */
+	void updateMapGeoLoc(MapGeoLoc loc) {
+		map_cache.update(loc);
+	}
+
 	/** Check if a MapGeoLoc is visible */
 	private boolean isVisible(MapGeoLoc loc) {
 		return isLocationSet(loc) && isStyleVisible(loc);
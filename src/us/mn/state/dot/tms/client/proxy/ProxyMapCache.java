@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2013  Minnesota Department of Transportation
+ * Copyright (C) 2008-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,28 +14,64 @@
  */
 package us.mn.state.dot.tms.client.proxy;
 
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import us.mn.state.dot.sonar.SonarObject;
 
 /**
  * A cache mapping from MapGeoLoc to proxy objects.  This cache
- * is an optimization to help ProxyManager.findProxy run fast.
+ * is an optimization to help ProxyManager.findProxy run fast.  It also
+ * keeps a uniform grid index of MapGeoLoc positions, so that painting and
+ * searching only need to visit objects near the current map viewport.
  *
  * @author Douglas Lau
  */
 public final class ProxyMapCache<T extends SonarObject>
 	implements Iterable<MapGeoLoc>
 {
+	/** Size of grid index cells (spherical mercator meters) */
+	static private final double CELL_SIZE = 2000;
+
+	/** Get the grid cell coordinate for a position */
+	static private int cellCoord(double v) {
+		return (int) Math.floor(v / CELL_SIZE);
+	}
+
+	/** Get the grid cell key for cell coordinates */
+	static private long cellKey(int cx, int cy) {
+		return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+	}
+
+	/** Get the grid cell key for a map location */
+	static private long cellKey(MapGeoLoc loc) {
+		AffineTransform t = loc.getTransform();
+		return cellKey(cellCoord(t.getTranslateX()),
+			cellCoord(t.getTranslateY()));
+	}
+
 	/** Mapping from MapGeoLoc to proxy objects.  This is an optimization
 	 * cache to help findProxy run fast. */
 	private final HashMap<MapGeoLoc, T> map_proxies =
 		new HashMap<MapGeoLoc, T>();
 
+	/** Grid index cell key for each MapGeoLoc */
+	private final HashMap<MapGeoLoc, Long> loc_cells =
+		new HashMap<MapGeoLoc, Long>();
+
+	/** Grid index mapping from cell key to MapGeoLocs in that cell */
+	private final HashMap<Long, ArrayList<MapGeoLoc>> cells =
+		new HashMap<Long, ArrayList<MapGeoLoc>>();
+
 	/** Dispose of the proxy map cache */
 	public synchronized void dispose() {
 		map_proxies.clear();
+		loc_cells.clear();
+		cells.clear();
 	}
 
 	/** Put an entry into cache.
@@ -43,6 +79,7 @@ public final class ProxyMapCache<T extends SonarObject>
 	 * @param proxy Proxy to associate with map object. */
 	public synchronized void put(MapGeoLoc loc, T proxy) {
 		map_proxies.put(loc, proxy);
+		indexLoc(loc);
 	}
 
 	/** Remove an entry from cache.
@@ -53,12 +90,50 @@ public final class ProxyMapCache<T extends SonarObject>
 		while(it.hasNext()) {
 			Map.Entry<MapGeoLoc, T> ent = it.next();
 			if(ent.getValue() == proxy) {
+				unindexLoc(ent.getKey());
 				it.remove();
 				break;
 			}
 		}
 	}
 
+	/** Update the grid index after a MapGeoLoc position has changed.
+	 * @param loc Map object which was updated. */
+	public synchronized void update(MapGeoLoc loc) {
+		if (map_proxies.containsKey(loc))
+			indexLoc(loc);
+	}
+
+	/** Add (or move) a MapGeoLoc in the grid index */
+	private void indexLoc(MapGeoLoc loc) {
+		Long key = cellKey(loc);
+		Long pkey = loc_cells.get(loc);
+		if (!key.equals(pkey)) {
+			if (pkey != null)
+				unindexLoc(loc);
+			ArrayList<MapGeoLoc> cell = cells.get(key);
+			if (cell == null) {
+				cell = new ArrayList<MapGeoLoc>(4);
+				cells.put(key, cell);
+			}
+			cell.add(loc);
+			loc_cells.put(loc, key);
+		}
+	}
+
+	/** Remove a MapGeoLoc from the grid index */
+	private void unindexLoc(MapGeoLoc loc) {
+		Long key = loc_cells.remove(loc);
+		if (key != null) {
+			ArrayList<MapGeoLoc> cell = cells.get(key);
+			if (cell != null) {
+				cell.remove(loc);
+				if (cell.isEmpty())
+					cells.remove(key);
+			}
+		}
+	}
+
 	/** Lookup a proxy in the cache.
 	 * @param loc Map object to find associated proxy.
 	 * @return Proxy associated with map object. */
@@ -70,4 +145,46 @@ public final class ProxyMapCache<T extends SonarObject>
 	public Iterator<MapGeoLoc> iterator() {
 		return map_proxies.keySet().iterator();
 	}
+
+	/** Find all MapGeoLocs which may be within an extent.  The result
+	 * can include some locations just outside of the extent.
+	 * @param ext Extent in spherical mercator coordinates.
+	 * @return List of map locations. */
+	public synchronized List<MapGeoLoc> search(Rectangle2D ext) {
+		int x0 = cellCoord(ext.getMinX());
+		int x1 = cellCoord(ext.getMaxX());
+		int y0 = cellCoord(ext.getMinY());
+		int y1 = cellCoord(ext.getMaxY());
+		long n_cells = (long) (x1 - x0 + 1) * (y1 - y0 + 1);
+		// When zoomed far out, checking every cell costs more
+		// than just visiting every location
+		if (n_cells > cells.size())
+			return searchCells(ext);
+		ArrayList<MapGeoLoc> locs = new ArrayList<MapGeoLoc>();
+		for (int cx = x0; cx <= x1; cx++) {
+			for (int cy = y0; cy <= y1; cy++) {
+				ArrayList<MapGeoLoc> cell =
+					cells.get(cellKey(cx, cy));
+				if (cell != null)
+					locs.addAll(cell);
+			}
+		}
+		return locs;
+	}
+
+	/** Find all MapGeoLocs in cells overlapping an extent */
+	private List<MapGeoLoc> searchCells(Rectangle2D ext) {
+		Rectangle2D.Double r = new Rectangle2D.Double();
+		ArrayList<MapGeoLoc> locs = new ArrayList<MapGeoLoc>();
+		for (Map.Entry<Long, ArrayList<MapGeoLoc>> ent:
+		     cells.entrySet())
+		{
+			long key = ent.getKey();
+			r.setRect((key >> 32) * CELL_SIZE,
+				(int) key * CELL_SIZE, CELL_SIZE, CELL_SIZE);
+			if (r.intersects(ext))
+				locs.addAll(ent.getValue());
+		}
+		return locs;
+	}
 }
@@ -35,13 +35,16 @@ import us.mn.state.dot.tms.utils.I18N;
  * 0.5 seconds, this displays a progress dialog
  * that provides a button to cancel the request.
  * 
+ * Results are requested from the server one page
+ * at a time, until the last page is received.
+ * 
  * Once the server returns a report, this closes
  * the progress dialog (if shown) and displays a
  * RptResultForm containing the report data.
  * 
  * @author John L. Stanley - SRF Consulting
  */
-public class RptProcess extends SwingWorker<String,Integer> {
+public class RptProcess extends SwingWorker<RptResults,Integer> {
 
 	protected final Session session;
 	protected final String ssRequest;
@@ -56,10 +59,11 @@ public class RptProcess extends SwingWorker<String,Integer> {
 
 	/** Submit a report request and wait for the results. */
 	@Override
-	protected String doInBackground() throws Exception {
+	protected RptResults doInBackground() throws Exception {
 		TypeCache<RptConduit> cache = null;
 		String conduitName = null;
-		String ssResults = null;
+		RptResults res = new RptResults();
+		int page = 0;
 
 		indMon = new IndProgressMonitor(session.getDesktop(),
 				I18N.get("report.generating"), null);
@@ -82,17 +86,25 @@ public class RptProcess extends SwingWorker<String,Integer> {
 			// the conduit, submit a request.
 			if (conduit == null) {
 				conduit = RptConduitHelper.lookup(conduitName);
-				if (conduit != null)
+				if (conduit != null) {
 					conduit.setRequest(ssRequest);
+					conduit.setPage(page);
+				}
 			}
 
-			// If server has returned a report, exit.
+			// If server has returned the requested page,
+			// add it to results and request the next one.
 			if (conduit != null) {
-				ssResults = conduit.getResults();
-				if ((ssResults != null)
-				 && !ssResults.isEmpty()
-				 && (ssResults.charAt(0) == '{'))
-					break;
+				String ssPage = conduit.getResults();
+				if (RptResults.getPageNumber(ssPage) == page) {
+					res.initFromResultsString(ssPage);
+					if (res.isLastPage())
+						break;
+					page++;
+					conduit.setPage(page);
+					publish(x);
+					continue;
+				}
 			}
 
 			// update progress monitor and take a nap
@@ -101,7 +113,7 @@ public class RptProcess extends SwingWorker<String,Integer> {
 			publish(x);
 			Thread.sleep(100);
 		}
-		return ssResults;
+		return res;
 	}
 	
 	/** Update progress monitor */
@@ -121,9 +133,8 @@ public class RptProcess extends SwingWorker<String,Integer> {
 				return;
 			}
 
-			String ssResults = get();
-			if (ssResults != null) {
-				RptResults res = new RptResults(ssResults);
+			RptResults res = get();
+			if (res != null) {
 				RptResultsForm form = new RptResultsForm(res);
 				session.getDesktop().show(form);
 			}
@@ -0,0 +1,125 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.client.roads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import us.mn.state.dot.tms.client.map.MapObject;
+import us.mn.state.dot.tms.geo.MapVector;
+import us.mn.state.dot.tms.geo.ZoomLevel;
+
+/**
+ * Segments for one side of a corridor, with map geometry cached for each
+ * zoom level.  Segments are immutable once built (except for sample data),
+ * so geometry only needs to be created once per zoom level.
+ *
+ * @author Douglas Lau
+ */
+public class CorridorSegments {
+
+	/** Zoom level threshold for drawing individual lanes */
+	static private final int LANE_ZOOM = 14;
+
+	/** Zoom level threshold for drawing parking spaces */
+	static private final int PARKING_ZOOM = 17;
+
+	/** Empty geometry */
+	static private final MapObject[] NO_GEOMETRY = new MapObject[0];
+
+	/** Segments in corridor order */
+	private final List<Segment> segments;
+
+	/** Cached geometry, indexed by zoom level ordinal */
+	private final AtomicReferenceArray<MapObject[]> geometry =
+		new AtomicReferenceArray<MapObject[]>(
+		ZoomLevel.values().length);
+
+	/** Create corridor segments */
+	public CorridorSegments(List<Segment> segs) {
+		segments = segs;
+	}
+
+	/** Update sample data for all segments */
+	public void updateSamples() {
+		for (Segment seg: segments)
+			seg.updateSamples();
+	}
+
+	/** Get map geometry for a zoom level.  If not cached, it will be
+	 * created on the calling thread. */
+	public MapObject[] getGeometry(ZoomLevel zl) {
+		int z = zl.ordinal();
+		MapObject[] g = geometry.get(z);
+		if (null == g) {
+			g = createGeometry(zl);
+			geometry.set(z, g);
+		}
+		return g;
+	}
+
+	/** Create map geometry for a zoom level */
+	private MapObject[] createGeometry(ZoomLevel zl) {
+		if (segments.isEmpty())
+			return NO_GEOMETRY;
+		float scale = (float) zl.scale;
+		ArrayList<MapObject> mos = new ArrayList<MapObject>();
+		if (zl.ordinal() >= LANE_ZOOM)
+			addLanes(mos, scale, zl.ordinal() >= PARKING_ZOOM);
+		else
+			addStations(mos, scale);
+		return mos.toArray(NO_GEOMETRY);
+	}
+
+	/** Add station geometry */
+	private void addStations(List<MapObject> mos, float scale) {
+		for (Segment seg: segments)
+			mos.add(new MapSegment(seg, scale));
+	}
+
+	/** Add lane geometry */
+	private void addLanes(List<MapObject> mos, float scale,
+		boolean parking)
+	{
+		MapVector normal = null;
+		for (Segment seg: segments) {
+			if (parking && seg.parking) {
+				ParkingSpace ps = null;
+				if (seg.laneCount() > 1) {
+					int n = Math.min(seg.laneCount(), 4);
+					for (int ln = 1; ln <= n; ln++) {
+						ps = new ParkingSpace(seg, ln,
+							scale, normal);
+						mos.add(ps);
+					}
+				} else {
+					ps = new ParkingSpace(seg, null, scale,
+						normal);
+					mos.add(ps);
+				}
+				boolean n = (normal != null);
+				normal = ps.normal;
+				if (n)
+					continue;
+			} else
+				normal = null;
+			for (int sh = seg.getLeftMin(); sh < seg.getRightMax();
+			     sh++)
+			{
+				mos.add(new MapSegment(seg, sh, scale));
+			}
+		}
+	}
+}
@@ -68,22 +68,23 @@ public class DetectorHash {
 	}
 
 	/** Add a detector to the hash */
-	private void proxyAddedSwing(Detector det) {
+	private synchronized void proxyAddedSwing(Detector det) {
 		R_Node n = det.getR_Node();
 		if (n != null)
-			getDetectors(n).add(det);
+			getDetectors(n.getName()).add(det);
 	}
 
 	/** Remove a detector from the hash */
-	private void proxyRemovedSwing(Detector det) {
+	private synchronized void proxyRemovedSwing(Detector det) {
 		R_Node n = det.getR_Node();
 		if (n != null)
-			getDetectors(n).remove(det);
+			getDetectors(n.getName()).remove(det);
 	}
 
-	/** Get the detectors for a specific r_node */
-	public Set<Detector> getDetectors(R_Node n) {
-		return getDetectors(n.getName());
+	/** Get the detectors for a specific r_node.  This can be called
+	 * from any thread, so a copy of the detector set is returned. */
+	public synchronized Set<Detector> getDetectors(R_Node n) {
+		return new HashSet<Detector>(getDetectors(n.getName()));
 	}
 
 	/** Get a detector set for a node ID */
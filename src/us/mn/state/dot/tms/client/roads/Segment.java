@@ -14,9 +14,10 @@
  */
 package us.mn.state.dot.tms.client.roads;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import us.mn.state.dot.tms.Detector;
 import us.mn.state.dot.tms.DetectorHelper;
 import us.mn.state.dot.tms.Direction;
@@ -109,9 +110,35 @@ public class Segment {
 	private final HashMap<Integer, String> labels =
 		new HashMap<Integer, String>();
 
-	/** Mapping of sensor ID to lane number */
-	private final HashMap<String, Integer> lane_sensors =
-		new HashMap<String, Integer>();
+	/** Sensor IDs for segment */
+	private String[] sensors = new String[0];
+
+	/** Lane number of each sensor */
+	private int[] sensor_lanes = new int[0];
+
+	/** Distinct lane numbers (sorted) */
+	private int[] lanes = new int[0];
+
+	/** Value offset for flow */
+	static private final int FLOW = 0;
+
+	/** Value offset for speed */
+	static private final int SPEED = 1;
+
+	/** Value offset for density */
+	static private final int DENSITY = 2;
+
+	/** Value offset for occupancy */
+	static private final int OCC = 3;
+
+	/** Number of values for each lane */
+	static private final int N_VALUES = 4;
+
+	/** Sample values for current period.  For each lane index (0 for all
+	 * lanes, then each distinct lane), flow, speed, density and occupancy
+	 * are stored, with NaN for missing data.  The array is replaced (never
+	 * modified) on each sample update. */
+	private volatile float[] values = new float[0];
 
 	/** Create a new segment.
 	 * @param m Upstream node model.
@@ -141,6 +168,7 @@ public class Segment {
 			labels.put(null, getStationLabel(s));
 			addDetection(dhash.getDetectors(s));
 		}
+		updateSamples();
 	}
 
 	/** Get label for a station segment */
@@ -163,12 +191,21 @@ public class Segment {
 
 	/** Add detection to the segment */
 	private void addDetection(Set<Detector> dets) {
+		sensors = new String[dets.size()];
+		sensor_lanes = new int[dets.size()];
+		TreeSet<Integer> lns = new TreeSet<Integer>();
+		int i = 0;
 		for (Detector d: dets) {
-			String sid = d.getName();
-			int ln = d.getLaneNumber();
-			lane_sensors.put(sid, ln);
+			sensors[i] = d.getName();
+			sensor_lanes[i] = d.getLaneNumber();
+			lns.add(sensor_lanes[i]);
 			addDetectorLabel(d);
+			i++;
 		}
+		lanes = new int[lns.size()];
+		i = 0;
+		for (int ln: lns)
+			lanes[i++] = ln;
 	}
 
 	/** Add a detector label */
@@ -194,93 +231,91 @@ public class Segment {
 		return sb.toString().trim();
 	}
 
-	/** Get the flow for the given lane */
-	public Integer getFlow(Integer lane) {
-		int total = 0;
-		int count = 0;
-		for (Map.Entry<String, Integer> ent: lane_sensors.entrySet()) {
-			if (lane == null || lane == ent.getValue()) {
-				String sid = ent.getKey();
-				SensorSample s = samples.getSample(sid);
-				if (s != null) {
-					Integer f = s.getFlow();
-					if (f != null) {
-						total += f;
-						count++;
-					}
-				}
+	/** Update sample values from the current sample data set.  This
+	 * reads each sensor sample once, then swaps in a new value array. */
+	public void updateSamples() {
+		int n_keys = lanes.length + 1;
+		float[] total = new float[n_keys * N_VALUES];
+		int[] count = new int[n_keys * N_VALUES];
+		for (int i = 0; i < sensors.length; i++) {
+			SensorSample ss = samples.getSample(sensors[i]);
+			if (ss != null) {
+				int k = Arrays.binarySearch(lanes,
+					sensor_lanes[i]) + 1;
+				addSample(total, count, 0, ss);
+				addSample(total, count, k * N_VALUES, ss);
 			}
 		}
-		if (count > 0)
-			return total / count;
-		else
-			return null;
+		float[] v = new float[total.length];
+		for (int i = 0; i < v.length; i++) {
+			if (count[i] == 0)
+				v[i] = Float.NaN;
+			else if (i % N_VALUES == OCC)
+				v[i] = total[i] / count[i];
+			else
+				v[i] = (int) total[i] / count[i];
+		}
+		values = v;
+	}
+
+	/** Add one sensor sample to value totals */
+	static private void addSample(float[] total, int[] count, int b,
+		SensorSample ss)
+	{
+		addValue(total, count, b + FLOW, ss.getFlow());
+		addValue(total, count, b + SPEED, ss.getSpeed());
+		addValue(total, count, b + DENSITY, ss.getDensity());
+		addValue(total, count, b + OCC, ss.getOcc());
+	}
+
+	/** Add one value to value totals */
+	static private void addValue(float[] total, int[] count, int i,
+		Number n)
+	{
+		if (n != null) {
+			total[i] += n.floatValue();
+			count[i]++;
+		}
+	}
+
+	/** Get a sample value for the given lane (NaN if missing) */
+	private float getValue(Integer lane, int off) {
+		float[] v = values;
+		int k = 0;
+		if (lane != null) {
+			k = Arrays.binarySearch(lanes, lane) + 1;
+			if (k <= 0)
+				return Float.NaN;
+		}
+		int i = k * N_VALUES + off;
+		return (i < v.length) ? v[i] : Float.NaN;
+	}
+
+	/** Get a sample value for the given lane as an integer */
+	private Integer getInt(Integer lane, int off) {
+		float v = getValue(lane, off);
+		return Float.isNaN(v) ? null : Integer.valueOf((int) v);
+	}
+
+	/** Get the flow for the given lane */
+	public Integer getFlow(Integer lane) {
+		return getInt(lane, FLOW);
 	}
 
 	/** Get the speed for the given lane */
 	public Integer getSpeed(Integer lane) {
-		int total = 0;
-		int count = 0;
-		for (Map.Entry<String, Integer> ent: lane_sensors.entrySet()) {
-			if (lane == null || lane == ent.getValue()) {
-				String sid = ent.getKey();
-				SensorSample s = samples.getSample(sid);
-				if (s != null) {
-					Integer spd = s.getSpeed();
-					if (spd != null) {
-						total += spd;
-						count++;
-					}
-				}
-			}
-		}
-		if (count > 0)
-			return total / count;
-		else
-			return null;
+		return getInt(lane, SPEED);
 	}
 
 	/** Get the density for the given lane */
 	public Integer getDensity(Integer lane) {
-		int total = 0;
-		int count = 0;
-		for (Map.Entry<String, Integer> ent: lane_sensors.entrySet()) {
-			if (lane == null || lane == ent.getValue()) {
-				String sid = ent.getKey();
-				SensorSample s = samples.getSample(sid);
-				if (s != null) {
-					Integer d = s.getDensity();
-					if (d != null) {
-						total += d;
-						count++;
-					}
-				}
-			}
-		}
-		if (count > 0)
-			return total / count;
-		else
-			return null;
+		return getInt(lane, DENSITY);
 	}
 
 	/** Get the occupancy for the given lane */
 	public Float getOcc(Integer lane) {
-		float total = 0;
-		int count = 0;
-		for (Map.Entry<String, Integer> ent: lane_sensors.entrySet()) {
-			if (lane == null || lane == ent.getValue()) {
-				String sid = ent.getKey();
-				SensorSample s = samples.getSample(sid);
-				if (s != null) {
-					Float o = s.getOcc();
-					if (o != null) {
-						total += o;
-						count++;
-					}
-				}
-			}
-		}
-		return (count > 0) ? total / count : null;
+		float v = getValue(lane, OCC);
+		return Float.isNaN(v) ? null : Float.valueOf(v);
 	}
 
 	/** Get the minimum left shift */
@@ -304,6 +339,6 @@ public class Segment {
 
 	/** Get the count of lanes */
 	public int laneCount() {
-		return lane_sensors.size();
+		return sensors.length;
 	}
 }
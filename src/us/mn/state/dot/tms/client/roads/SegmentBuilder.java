@@ -17,13 +17,15 @@ package us.mn.state.dot.tms.client.roads;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collection;
 import java.util.List;
-import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.xml.parsers.ParserConfigurationException;
 import org.xml.sax.SAXException;
+import us.mn.state.dot.sched.Job;
+import us.mn.state.dot.sched.Scheduler;
 import static us.mn.state.dot.tms.client.widget.SwingRunner.runSwing;
 import us.mn.state.dot.tms.CorridorBase;
 import us.mn.state.dot.tms.Detector;
@@ -31,17 +33,29 @@ import us.mn.state.dot.tms.R_Node;
 import us.mn.state.dot.tms.R_NodeHelper;
 import us.mn.state.dot.tms.client.Session;
 import us.mn.state.dot.tms.client.proxy.MapGeoLoc;
+import us.mn.state.dot.tms.geo.ZoomLevel;
 
 /**
- * SegmentBuilder is a class for building roadway segments.
+ * SegmentBuilder is a class for building roadway segments.  Segments are
+ * built on a background thread, one corridor at a time.
  *
  * @author Douglas Lau
   */
-public class SegmentBuilder implements Iterable<Segment> {
+public class SegmentBuilder {
 
-	/** Mapping of corridor names to segment lists */
-	private final ConcurrentSkipListMap<String, List<Segment>> cor_segs =
-		new ConcurrentSkipListMap<String, List<Segment>>();
+	/** Segment builder thread */
+	static private final Scheduler BUILDER = new Scheduler("seg_builder");
+
+	/** Mapping of corridor names to segments.  This allows a corridor to
+	 * be updated without regenerating all segments. */
+	private final ConcurrentSkipListMap<String, CorridorSegments> cor_segs
+		= new ConcurrentSkipListMap<String, CorridorSegments>();
+
+	/** Most recently painted zoom level */
+	private volatile ZoomLevel zoom = null;
+
+	/** Flag indicating a geometry update is pending */
+	private final AtomicBoolean geo_pending = new AtomicBoolean();
 
 	/** R_Node manager */
 	private final R_NodeManager manager;
@@ -69,8 +83,10 @@ public class SegmentBuilder implements Iterable<Segment> {
 		SAXException, ParserConfigurationException
 	{
 		String loc = props.getProperty("tdxml.detector.url");
+		String floc = props.getProperty("tdxml.detector.frame.url");
+		URL furl = (floc != null) ? new URL(floc) : null;
 		return (loc != null)
-		     ? new SensorReader(new URL(loc), this)
+		     ? new SensorReader(new URL(loc), furl, this)
 		     : null;
 	}
 
@@ -94,12 +110,19 @@ public class SegmentBuilder implements Iterable<Segment> {
 	/** Complete one sample update */
 	public void completeSamples() {
 		samples.swapSamples();
-		updateStatus();
+		updateSamples();
 	}
 
 	/** Clear all sample data */
 	public void clearSamples() {
 		samples.clearSamples();
+		updateSamples();
+	}
+
+	/** Update sample values for all segments */
+	private void updateSamples() {
+		for (CorridorSegments cs: cor_segs.values())
+			cs.updateSamples();
 		updateStatus();
 	}
 
@@ -112,16 +135,49 @@ public class SegmentBuilder implements Iterable<Segment> {
 		});
 	}
 
-	/** Update a corridor */
+	/** Update the layer geometry (coalescing pending updates) */
+	private void updateGeometry() {
+		if (geo_pending.compareAndSet(false, true)) {
+			runSwing(new Runnable() {
+				public void run() {
+					geo_pending.set(false);
+					manager.getLayer().updateGeometry();
+				}
+			});
+		}
+	}
+
+	/** Update a corridor.  Nodes and locations are copied on the calling
+	 * thread, then segments are built on the builder thread. */
 	public void updateCorridor(CorridorBase<R_Node> corridor) {
+		final String cid = corridor.getName();
+		final List<R_Node> nodes = new ArrayList<R_Node>();
+		final List<MapGeoLoc> locs = new ArrayList<MapGeoLoc>();
+		for (R_Node n: corridor) {
+			nodes.add(n);
+			locs.add(findGeoLoc(n));
+		}
+		BUILDER.addJob(new Job() {
+			public void perform() {
+				buildCorridor(cid, nodes, locs);
+				updateGeometry();
+			}
+		});
+	}
+
+	/** Build segments for a corridor */
+	private void buildCorridor(String cid, List<R_Node> nodes,
+		List<MapGeoLoc> locs)
+	{
 		List<Segment> below = new ArrayList<Segment>();
 		List<Segment> above = new ArrayList<Segment>();
 		R_Node sn = null;       // station node
 		MapGeoLoc sl = null;    // station node location
 		MapGeoLoc al = null;    // upstream node location
 		R_NodeModel mdl = null; // node model
-		for (R_Node bn: corridor) {
-			MapGeoLoc bl = findGeoLoc(bn);
+		for (int i = 0; i < nodes.size(); i++) {
+			R_Node bn = nodes.get(i);
+			MapGeoLoc bl = locs.get(i);
 			Segment seg = new Segment(mdl, al, bn, bl, sn, sl,
 				samples, det_hash);
 			if (seg.isGood()) {
@@ -138,9 +194,21 @@ public class SegmentBuilder implements Iterable<Segment> {
 			}
 			al = bl;
 		}
-		cor_segs.put(corridor.getName(), below);
+		putSegments(cid, below);
 		// Prepend lowercase z, for sorting purposes
-		cor_segs.put('z' + corridor.getName(), above);
+		putSegments('z' + cid, above);
+	}
+
+	/** Put segments for one side of a corridor */
+	private void putSegments(String cid, List<Segment> segs) {
+		CorridorSegments cs = new CorridorSegments(segs);
+		// Create geometry for current zoom level before swapping
+		ZoomLevel zl = zoom;
+		if (zl != null)
+			cs.getGeometry(zl);
+		cor_segs.put(cid, cs);
+		// Samples may have been swapped while building
+		cs.updateSamples();
 	}
 
 	/** Find the map geo loc */
@@ -148,32 +216,10 @@ public class SegmentBuilder implements Iterable<Segment> {
 		return manager.findGeoLoc(n);
 	}
 
-	/** Create a segment iterator.  This uses the cor_segs mapping, which
-	 * allows a corridor to be updated without regenerating all segments. */
-	public Iterator<Segment> iterator() {
-		final Iterator<List<Segment>> cors =
-			cor_segs.values().iterator();
-		return new Iterator<Segment>() {
-			Iterator<Segment> segs;
-			public boolean hasNext() {
-				if (segs != null && segs.hasNext())
-					return true;
-				while (cors.hasNext()) {
-					segs = cors.next().iterator();
-					if (segs.hasNext())
-						return true;
-				}
-				return false;
-			}
-			public Segment next() {
-				if (segs != null)
-					return segs.next();
-				else
-					throw new NoSuchElementException();
-			}
-			public void remove() {
-				throw new UnsupportedOperationException();
-			}
-		};
+	/** Get segments for all corridors.
+	 * @param zl Zoom level to be painted. */
+	public Collection<CorridorSegments> getCorridors(ZoomLevel zl) {
+		zoom = zl;
+		return cor_segs.values();
 	}
 }
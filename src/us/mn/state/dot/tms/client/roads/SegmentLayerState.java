@@ -15,13 +15,14 @@
 package us.mn.state.dot.tms.client.roads;
 
 import java.awt.event.MouseEvent;
+import java.awt.geom.Rectangle2D;
 import us.mn.state.dot.tms.R_Node;
 import us.mn.state.dot.tms.client.map.MapBean;
 import us.mn.state.dot.tms.client.map.MapObject;
 import us.mn.state.dot.tms.client.map.MapSearcher;
 import us.mn.state.dot.tms.client.proxy.ProxyLayer;
 import us.mn.state.dot.tms.client.proxy.ProxyLayerState;
-import us.mn.state.dot.tms.geo.MapVector;
+import us.mn.state.dot.tms.geo.ZoomLevel;
 
 /**
  * SegmentLayerState is a class for drawing roadway segments.
@@ -53,20 +54,20 @@ public class SegmentLayerState extends ProxyLayerState<R_Node> {
 	/** Iterate through the segments in the layer */
 	@Override
 	public MapObject forEach(MapSearcher s) {
-		if (isPastLaneZoomThreshold())
-			return forEachLane(s);
-		else
-			return forEachStation(s);
-	}
-
-	/** Is the zoom level past the "individual lane" threshold? */
-	private boolean isPastLaneZoomThreshold() {
-		return map.getModel().getZoomLevel().ordinal() >= 14;
+		ZoomLevel zl = map.getModel().getZoomLevel();
+		for (CorridorSegments cs: builder.getCorridors(zl)) {
+			for (MapObject mo: cs.getGeometry(zl)) {
+				if (s.next(mo))
+					return mo;
+			}
+		}
+		return null;
 	}
 
-	/** Is the zoom level past the "parking space" threshold? */
-	private boolean isPastParkingZoomThreshold() {
-		return map.getModel().getZoomLevel().ordinal() >= 17;
+	/** Iterate through the segments in the layer (not indexed) */
+	@Override
+	public MapObject forEach(MapSearcher s, Rectangle2D ext) {
+		return forEach(s);
 	}
 
 	/** Get the current map scale */
@@ -76,71 +77,6 @@ public class SegmentLayerState extends ProxyLayerState<R_Node> {
 		return (float) map.getScale();
 	}
 
-	/** Iterate through the stations in the layer */
-	private MapObject forEachStation(MapSearcher s) {
-		float scale = getScale();
-		for (Segment seg: builder) {
-			MapSegment ms = new MapSegment(seg, scale);
-			if (s.next(ms))
-				return ms;
-		}
-		return null;
-	}
-
-	/** Iterate through each lane segment in the layer.
-	 * @param s Map searcher callback.
-	 * @return Map object found, if any. */
-	private MapObject forEachLane(MapSearcher s) {
-		float scale = getScale();
-		boolean parking = isPastParkingZoomThreshold();
-		MapVector normal = null;
-		for (Segment seg: builder) {
-			if (parking && seg.parking) {
-				ParkingSpace ps;
-				if (seg.laneCount() > 1) {
-					ps = new ParkingSpace(seg, 1, scale,
-						normal);
-					if (s.next(ps))
-						return ps;
-					ps = new ParkingSpace(seg, 2, scale,
-						normal);
-					if (s.next(ps))
-						return ps;
-					if (seg.laneCount() > 2) {
-						ps = new ParkingSpace(seg, 3,
-							scale, normal);
-						if (s.next(ps))
-							return ps;
-					}
-					if (seg.laneCount() > 3) {
-						ps = new ParkingSpace(seg, 4,
-							scale, normal);
-						if (s.next(ps))
-							return ps;
-					}
-				} else {
-					ps = new ParkingSpace(seg, null, scale,
-						normal);
-					if (s.next(ps))
-						return ps;
-				}
-				boolean n = (normal != null);
-				normal = ps.normal;
-				if (n)
-					continue;
-			} else
-				normal = null;
-			for (int sh = seg.getLeftMin(); sh < seg.getRightMax();
-			     sh++)
-			{
-				MapSegment ms = new MapSegment(seg, sh, scale);
-				if (s.next(ms))
-					return ms;
-			}
-		}
-		return null;
-	}
-
 	/** Do left-click event processing */
 	@Override
 	protected void doLeftClick(MouseEvent e, MapObject o) {
@@ -30,11 +30,14 @@ import org.xml.sax.SAXParseException;
 import org.xml.sax.helpers.DefaultHandler;
 import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.Scheduler;
+import us.mn.state.dot.tms.SampleFrame;
 
 /**
  * SensorReader reads and parses an XML document at a 30-second interval.
  * SensorSample objects are created for each sample element, and reported
- * to the segment layer.
+ * to the segment layer.  If a sample frame URL is configured, binary
+ * sample frames are read instead (a delta frame when possible), and the
+ * XML document is only used when the frames are not available.
  *
  * @author Douglas Lau
  */
@@ -79,6 +82,15 @@ public class SensorReader {
 	/** The URL of the xml document */
 	private final URL url;
 
+	/** URL of the full sample frame (may be null) */
+	private final URL frame_url;
+
+	/** URL of the delta sample frame (may be null) */
+	private final URL delta_url;
+
+	/** Most recent sample frame */
+	private SampleFrame frame;
+
 	/** SAX parser */
 	private final SAXParser parser;
 
@@ -102,22 +114,29 @@ public class SensorReader {
 		OFFSET_SECS)
 	{
 		public void perform() {
-			readXmlFile();
+			readSamples();
 		}
 	};
 
-	/** Create a new sensor reader */
-	public SensorReader(URL u, SegmentBuilder sb) throws SAXException,
-		ParserConfigurationException
+	/** Create a new sensor reader.
+	 * @param u URL of XML sample document.
+	 * @param fu URL of full sample frame (may be null).
+	 * @param sb Segment builder. */
+	public SensorReader(URL u, URL fu, SegmentBuilder sb)
+		throws IOException, SAXException, ParserConfigurationException
 	{
 		url = u;
+		frame_url = fu;
+		delta_url = (fu != null)
+		          ? new URL(fu, SampleFrame.DELTA_FILE)
+		          : null;
 		builder = sb;
 		SAXParserFactory factory = SAXParserFactory.newInstance();
 		parser = factory.newSAXParser();
 		// Read the sensor data right away
 		READER.addJob(new Job() {
 			public void perform() {
-				readXmlFile();
+				readSamples();
 			}
 		});
 		// Read the sensor data every 30 seconds
@@ -129,11 +148,12 @@ public class SensorReader {
 		READER.removeJob(job);
 	}
 
-	/** Read and parse an XML file */
-	private void readXmlFile() {
+	/** Read sample data from a frame or XML file */
+	private void readSamples() {
 		try {
 			time_changed = false;
-			parse();
+			if (!readFrame())
+				parse();
 		}
 		catch (Exception e) {
 			logErr(e.getMessage());
@@ -156,13 +176,90 @@ public class SensorReader {
 		System.err.println("" + new Date() + " SensorReader " + msg);
 	}
 
-	/** Parse the XML document and notify clients */
-	private void parse() throws IOException, SAXException {
-		URLConnection conn = url.openConnection();
+	/** Open an input stream for a URL */
+	private InputStream openStream(URL u) throws IOException {
+		URLConnection conn = u.openConnection();
 		conn.setConnectTimeout(URL_TIMEOUT_MS);
 		conn.setReadTimeout(URL_TIMEOUT_MS);
-		InputStream in = new GZIPInputStream(conn.getInputStream());
-		parser.parse(in, handler);
+		return conn.getInputStream();
+	}
+
+	/** Parse the XML document and notify clients */
+	private void parse() throws IOException, SAXException {
+		InputStream in = new GZIPInputStream(openStream(url));
+		try {
+			parser.parse(in, handler);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/** Read a sample frame and notify clients.
+	 * @return true if a frame was read, false otherwise. */
+	private boolean readFrame() {
+		if (frame_url == null)
+			return false;
+		try {
+			SampleFrame f = readDeltaFrame();
+			if (f == null)
+				f = readFullFrame();
+			time_changed = (frame == null) ||
+				(f.getStamp() != frame.getStamp());
+			last_stamp = new Date(f.getStamp()).toString();
+			frame = f;
+			if (time_changed)
+				notifyFrame(f);
+			return true;
+		}
+		catch (IOException e) {
+			logErr("frame: " + e.getMessage());
+			frame = null;
+			return false;
+		}
+	}
+
+	/** Read a delta frame and apply it to the current frame.
+	 * @return Updated frame, or null if the delta does not apply. */
+	private SampleFrame readDeltaFrame() {
+		SampleFrame f = frame;
+		if (f == null)
+			return null;
+		try {
+			InputStream in = openStream(delta_url);
+			try {
+				return f.applyDelta(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+		catch (IOException e) {
+			// Delta not available; fall back to full frame
+			return null;
+		}
+	}
+
+	/** Read a full frame */
+	private SampleFrame readFullFrame() throws IOException {
+		InputStream in = new GZIPInputStream(openStream(frame_url));
+		try {
+			return SampleFrame.readFull(in);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/** Notify segment layer of all samples in a frame */
+	private void notifyFrame(SampleFrame f) {
+		for (int i = 0; i < f.size(); i++) {
+			if (f.hasData(i)) {
+				builder.update(new SensorSample(f.getName(i),
+					f.getFlow(i), f.getSpeed(i),
+					f.getOcc(i)));
+			}
+		}
 	}
 
 	/** Inner class to handle parsing sensor elements */
@@ -123,6 +123,65 @@ public class RptResults {
 		
 	//-------------------------------------------
 
+	//-------------------------------------------
+	// Results are sent to the client in pages.
+	// Each page has a header set:
+	//   "{page: n=<page>; last=<true|false>}"
+
+	/** Number of the most recently added page */
+	protected int page = 0;
+
+	/** Flag indicating the most recently added page is the last */
+	protected boolean lastPage = true;
+
+	/** Get number of the most recently added page */
+	public int getPage() {
+		return page;
+	}
+
+	/** Check if the most recently added page is the last one */
+	public boolean isLastPage() {
+		return lastPage;
+	}
+
+	/** Converts results to a composite-results String
+	 *  for one page of results. */
+	public String toPageString(int pg, boolean last) {
+		RptStringSet rssPage = new RptStringSet("page");
+		rssPage.add("n=" + pg);
+		rssPage.add("last=" + last);
+		return rssPage.toString() + toResultsString();
+	}
+
+	/** Get the page number from a composite-results String.
+	 * @return page number, or -1 if there is no page header. */
+	static public int getPageNumber(String sRes) {
+		if ((sRes == null) || !sRes.startsWith("{page: n="))
+			return -1;
+		int end = sRes.indexOf(';');
+		try {
+			return Integer.parseInt(sRes.substring(9, end));
+		}
+		catch (RuntimeException e) {
+			return -1;
+		}
+	}
+
+	/** Read the page header from a RptStringSetMap */
+	private void readPageHeader(RptStringSetMap rssm) {
+		RptStringSet rssPage = rssm.get("page");
+		if (rssPage == null)
+			return;
+		for (String str : rssPage) {
+			if (str.startsWith("n="))
+				page = Integer.parseInt(str.substring(2));
+			else if (str.startsWith("last=")) {
+				lastPage = Boolean.parseBoolean(
+					str.substring(5));
+			}
+		}
+	}
+
 	/** Converts result to a composite-results String. */
 	public String toResultsString() {
 		RptStringSetMap rssm = new RptStringSetMap();
@@ -146,13 +205,16 @@ public class RptResults {
 		return rssm.toCompositeString();
 	}
 	
-	/** Initialize from a composite-results String. */
+	/** Initialize from a composite-results String.
+	 *  Rows are appended, so this can be called
+	 *  once for each page of results. */
 	public void initFromResultsString(String sRes) {
 		if (sRes == null)
 			sRes = "";
 		try {
 			RptStringSetMap rssm;
 			rssm = new RptStringSetMap(sRes);
+			readPageHeader(rssm);
 			RptStringSet rssRow;
 			RptResultItem it;
 			String [] strs = new String[0];
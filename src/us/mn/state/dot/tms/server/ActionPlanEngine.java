@@ -0,0 +1,516 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import us.mn.state.dot.sched.Job;
+import us.mn.state.dot.sched.Scheduler;
+import us.mn.state.dot.tms.ActionPlan;
+import us.mn.state.dot.tms.Beacon;
+import us.mn.state.dot.tms.BeaconAction;
+import us.mn.state.dot.tms.BeaconActionHelper;
+import us.mn.state.dot.tms.DMS;
+import us.mn.state.dot.tms.DMSHelper;
+import us.mn.state.dot.tms.DmsAction;
+import us.mn.state.dot.tms.DmsActionHelper;
+import us.mn.state.dot.tms.DmsSignGroup;
+import us.mn.state.dot.tms.DmsSignGroupHelper;
+import us.mn.state.dot.tms.LaneAction;
+import us.mn.state.dot.tms.LaneActionHelper;
+import us.mn.state.dot.tms.LaneMarking;
+import us.mn.state.dot.tms.MeterAction;
+import us.mn.state.dot.tms.MeterActionHelper;
+import us.mn.state.dot.tms.PlanPhase;
+import us.mn.state.dot.tms.RampMeter;
+import us.mn.state.dot.tms.SignGroup;
+import us.mn.state.dot.tms.TimeAction;
+import us.mn.state.dot.tms.TimeActionHelper;
+import us.mn.state.dot.tms.TMSException;
+import static us.mn.state.dot.tms.server.ActionPlanJob.SCHED_LOG;
+
+/**
+ * The action plan engine evaluates actions when their inputs change, instead
+ * of sweeping all actions periodically.  Actions are indexed by action plan
+ * and by device, so that a plan phase change only updates devices with
+ * actions for that plan.  Time actions are indexed by minute-of-day.
+ *
+ * The indexes are rebuilt after actions, sign groups or quick messages are
+ * changed.  DMS with messages which depend on data inputs (travel times,
+ * feeds, tolling, etc.) are updated on every periodic evaluation.  All
+ * other devices are only updated on the (less frequent) full evaluation.
+ * Evaluation happens on the TIMER thread.
+ *
+ * @author Douglas Lau
+ */
+public class ActionPlanEngine {
+
+	/** Index of actions for one type of device */
+	static private class DeviceIndex<D, A> {
+
+		/** Devices with actions for each plan */
+		private final HashMap<ActionPlan, LinkedHashSet<D>> plans =
+			new HashMap<ActionPlan, LinkedHashSet<D>>();
+
+		/** Actions for each device, in action iteration order */
+		private final LinkedHashMap<D, ArrayList<A>> devices =
+			new LinkedHashMap<D, ArrayList<A>>();
+
+		/** Clear the index */
+		private void clear() {
+			plans.clear();
+			devices.clear();
+		}
+
+		/** Add an action for a device */
+		private void add(ActionPlan ap, D d, A a) {
+			LinkedHashSet<D> devs = plans.get(ap);
+			if (null == devs) {
+				devs = new LinkedHashSet<D>();
+				plans.put(ap, devs);
+			}
+			devs.add(d);
+			ArrayList<A> acts = devices.get(d);
+			if (null == acts) {
+				acts = new ArrayList<A>();
+				devices.put(d, acts);
+			}
+			acts.add(a);
+		}
+
+		/** Get all devices with actions */
+		private Set<D> devices() {
+			return devices.keySet();
+		}
+
+		/** Get devices with actions for a set of plans */
+		private Set<D> devices(Set<ActionPlan> aps) {
+			LinkedHashSet<D> devs = new LinkedHashSet<D>();
+			for (ActionPlan ap: aps) {
+				LinkedHashSet<D> pd = plans.get(ap);
+				if (pd != null)
+					devs.addAll(pd);
+			}
+			return devs;
+		}
+
+		/** Get the actions for a device */
+		private List<A> actions(D d) {
+			ArrayList<A> acts = devices.get(d);
+			return (acts != null)
+			      ? acts
+			      : Collections.<A>emptyList();
+		}
+	}
+
+	/** Check if an action plan is active and in a phase */
+	static private boolean isDeployed(ActionPlan ap, PlanPhase p) {
+		return ap.getActive() && ap.getPhase() == p;
+	}
+
+	/** Chooser for the scheduled message of one DMS */
+	static abstract class MsgChooser<M> {
+
+		/** Chosen message (null for none) */
+		private M msg;
+
+		/** Action of the chosen message */
+		private DmsAction action;
+
+		/** Flag indicating the DMS must be evaluated periodically */
+		private boolean dynamic;
+
+		/** Create a message for an action */
+		abstract protected M create(DmsAction da);
+
+		/** Check if a message is valid */
+		abstract protected boolean isValid(M m);
+
+		/** Check if a message depends on data inputs */
+		abstract protected boolean isDynamic(M m);
+
+		/** Log a message */
+		protected void log(String m) { }
+
+		/** Choose the deployed action with highest priority; for equal
+		 * priorities, the last.  Messages for lower priority actions
+		 * are not created.  An invalid message is skipped, and the
+		 * DMS is marked dynamic so that it is retried periodically.
+		 * @param acts Actions for the DMS.
+		 * @return Chosen message, or null. */
+		M choose(List<DmsAction> acts) {
+			for (DmsAction da: acts) {
+				ActionPlan ap = da.getActionPlan();
+				if (isDeployed(ap, da.getPhase()))
+					check(da);
+			}
+			return msg;
+		}
+
+		/** Check one deployed action */
+		private void check(DmsAction da) {
+			log("checking " + da);
+			if (null == action || da.getMsgPriority() >=
+			    action.getMsgPriority())
+			{
+				M m = create(da);
+				dynamic |= isDynamic(m) || !isValid(m);
+				if (isValid(m)) {
+					msg = m;
+					action = da;
+				}
+			} else
+				log("dropping " + da);
+		}
+
+		/** Check if the DMS must be evaluated periodically */
+		boolean isDynamic() {
+			return dynamic;
+		}
+	}
+
+	/** Scheduler for evaluation jobs */
+	private Scheduler timer;
+
+	/** Flag indicating indexes need to be rebuilt */
+	private boolean stale = true;
+
+	/** Action plans changed since last evaluation */
+	private final HashSet<ActionPlan> dirty = new HashSet<ActionPlan>();
+
+	/** Flag indicating an evaluation job has been scheduled */
+	private boolean pending = false;
+
+	/** Flag indicating indexes were rebuilt since last evaluation.  This
+	 * is only accessed by the TIMER thread. */
+	private boolean rebuilt = false;
+
+	/** Time actions for each minute-of-day */
+	private final HashMap<Integer, ArrayList<TimeActionImpl>> time_acts =
+		new HashMap<Integer, ArrayList<TimeActionImpl>>();
+
+	/** DMS action index */
+	private final DeviceIndex<DMSImpl, DmsAction> dms_index =
+		new DeviceIndex<DMSImpl, DmsAction>();
+
+	/** Beacon action index */
+	private final DeviceIndex<Beacon, BeaconAction> beacon_index =
+		new DeviceIndex<Beacon, BeaconAction>();
+
+	/** Lane action index */
+	private final DeviceIndex<LaneMarking, LaneAction> lane_index =
+		new DeviceIndex<LaneMarking, LaneAction>();
+
+	/** Meter action index */
+	private final DeviceIndex<RampMeterImpl, MeterAction> meter_index =
+		new DeviceIndex<RampMeterImpl, MeterAction>();
+
+	/** DMS with messages which depend on data inputs, or which failed
+	 * to render (retried periodically) */
+	private final HashSet<DMSImpl> dynamic_dms = new HashSet<DMSImpl>();
+
+	/** Set the scheduler for evaluation jobs.  Before this is set, changes
+	 * are only evaluated periodically. */
+	public synchronized void setScheduler(Scheduler t) {
+		timer = t;
+	}
+
+	/** Invalidate the action indexes, after actions, sign groups or quick
+	 * messages are changed */
+	public synchronized void invalidate() {
+		stale = true;
+		schedule();
+	}
+
+	/** Mark an action plan as changed (phase or active status) */
+	public synchronized void planChanged(ActionPlan ap) {
+		dirty.add(ap);
+		schedule();
+	}
+
+	/** Schedule a job to evaluate changes */
+	private void schedule() {
+		if (timer != null && !pending) {
+			pending = true;
+			timer.addJob(new Job() {
+				public void perform() {
+					evaluate(false, false);
+				}
+			});
+		}
+	}
+
+	/** Perform time actions for one minute-of-day */
+	public void performTimeActions(Calendar cal, int min)
+		throws TMSException
+	{
+		checkIndexes();
+		ArrayList<TimeActionImpl> acts = time_acts.get(min);
+		if (acts != null) {
+			for (TimeActionImpl ta: acts)
+				ta.perform(cal, min);
+		}
+	}
+
+	/** Evaluate periodically.  Changed plans and DMS with dynamic
+	 * messages are evaluated.
+	 * @param full Evaluate all actions, including unchanged ones. */
+	public void evaluatePeriodic(boolean full) {
+		evaluate(true, full);
+	}
+
+	/** Check if indexes are stale, and rebuild them if so */
+	private void checkIndexes() {
+		boolean s;
+		synchronized (this) {
+			s = stale;
+			stale = false;
+		}
+		if (s)
+			rebuildIndexes();
+	}
+
+	/** Evaluate changed plans.
+	 * @param dynamic Evaluate DMS with dynamic messages.
+	 * @param full Evaluate all actions. */
+	private void evaluate(boolean dynamic, boolean full) {
+		HashSet<ActionPlan> plans;
+		synchronized (this) {
+			pending = false;
+			plans = new HashSet<ActionPlan>(dirty);
+			dirty.clear();
+		}
+		checkIndexes();
+		if (rebuilt || full) {
+			rebuilt = false;
+			evaluateAll();
+		} else
+			evaluatePlans(plans, dynamic);
+	}
+
+	/** Rebuild all action indexes */
+	private void rebuildIndexes() {
+		rebuildTimeActions();
+		rebuildDmsActions();
+		rebuildBeaconActions();
+		rebuildLaneActions();
+		rebuildMeterActions();
+		rebuilt = true;
+	}
+
+	/** Rebuild the time action index */
+	private void rebuildTimeActions() {
+		time_acts.clear();
+		Iterator<TimeAction> it = TimeActionHelper.iterator();
+		while (it.hasNext()) {
+			TimeAction ta = it.next();
+			Integer min = TimeActionHelper.getMinuteOfDay(ta);
+			if (ta instanceof TimeActionImpl && min != null)
+				addTimeAction(min, (TimeActionImpl) ta);
+		}
+	}
+
+	/** Add a time action to the index */
+	private void addTimeAction(int min, TimeActionImpl ta) {
+		ArrayList<TimeActionImpl> acts = time_acts.get(min);
+		if (null == acts) {
+			acts = new ArrayList<TimeActionImpl>();
+			time_acts.put(min, acts);
+		}
+		acts.add(ta);
+	}
+
+	/** Rebuild the DMS action index */
+	private void rebuildDmsActions() {
+		dms_index.clear();
+		dynamic_dms.clear();
+		HashMap<SignGroup, ArrayList<DMSImpl>> groups =
+			new HashMap<SignGroup, ArrayList<DMSImpl>>();
+		Iterator<DmsSignGroup> git = DmsSignGroupHelper.iterator();
+		while (git.hasNext()) {
+			DmsSignGroup dsg = git.next();
+			DMS dms = dsg.getDms();
+			if (dms instanceof DMSImpl) {
+				SignGroup sg = dsg.getSignGroup();
+				ArrayList<DMSImpl> signs = groups.get(sg);
+				if (null == signs) {
+					signs = new ArrayList<DMSImpl>();
+					groups.put(sg, signs);
+				}
+				signs.add((DMSImpl) dms);
+			}
+		}
+		Iterator<DmsAction> it = DmsActionHelper.iterator();
+		while (it.hasNext()) {
+			DmsAction da = it.next();
+			ActionPlan ap = da.getActionPlan();
+			ArrayList<DMSImpl> signs = groups.get(
+				da.getSignGroup());
+			if (signs != null) {
+				for (DMSImpl dms: signs)
+					dms_index.add(ap, dms, da);
+			}
+		}
+	}
+
+	/** Rebuild the beacon action index */
+	private void rebuildBeaconActions() {
+		beacon_index.clear();
+		Iterator<BeaconAction> it = BeaconActionHelper.iterator();
+		while (it.hasNext()) {
+			BeaconAction ba = it.next();
+			Beacon b = ba.getBeacon();
+			if (b != null)
+				beacon_index.add(ba.getActionPlan(), b, ba);
+		}
+	}
+
+	/** Rebuild the lane action index */
+	private void rebuildLaneActions() {
+		lane_index.clear();
+		Iterator<LaneAction> it = LaneActionHelper.iterator();
+		while (it.hasNext()) {
+			LaneAction la = it.next();
+			LaneMarking lm = la.getLaneMarking();
+			if (lm != null)
+				lane_index.add(la.getActionPlan(), lm, la);
+		}
+	}
+
+	/** Rebuild the meter action index */
+	private void rebuildMeterActions() {
+		meter_index.clear();
+		Iterator<MeterAction> it = MeterActionHelper.iterator();
+		while (it.hasNext()) {
+			MeterAction ma = it.next();
+			RampMeter rm = ma.getRampMeter();
+			if (rm instanceof RampMeterImpl) {
+				meter_index.add(ma.getActionPlan(),
+					(RampMeterImpl) rm, ma);
+			}
+		}
+	}
+
+	/** Evaluate all actions */
+	private void evaluateAll() {
+		// All DMS are updated, to clear messages from signs which
+		// no longer have any actions
+		Iterator<DMS> it = DMSHelper.iterator();
+		while (it.hasNext()) {
+			DMS dms = it.next();
+			if (dms instanceof DMSImpl)
+				updateDms((DMSImpl) dms);
+		}
+		for (Beacon b: beacon_index.devices())
+			updateBeacon(b);
+		for (LaneMarking lm: lane_index.devices())
+			updateLaneMarking(lm);
+		for (RampMeterImpl meter: meter_index.devices())
+			updateMeter(meter);
+	}
+
+	/** Evaluate actions for a set of plans.
+	 * @param plans Changed action plans.
+	 * @param dynamic Evaluate DMS with dynamic messages. */
+	private void evaluatePlans(Set<ActionPlan> plans, boolean dynamic) {
+		Set<DMSImpl> signs = dms_index.devices(plans);
+		if (dynamic)
+			signs.addAll(dynamic_dms);
+		for (DMSImpl dms: signs)
+			updateDms(dms);
+		for (Beacon b: beacon_index.devices(plans))
+			updateBeacon(b);
+		for (LaneMarking lm: lane_index.devices(plans))
+			updateLaneMarking(lm);
+		for (RampMeterImpl meter: meter_index.devices(plans))
+			updateMeter(meter);
+	}
+
+	/** Log a DMS schedule message */
+	private void logSched(DMS dms, String msg) {
+		SCHED_LOG.log(dms.getName() + ": " + msg);
+	}
+
+	/** Update the scheduled message for one DMS.  The deployed action
+	 * with highest priority is used; for equal priorities, the last. */
+	private void updateDms(final DMSImpl dms) {
+		MsgChooser<DmsActionMsg> ch = new MsgChooser<DmsActionMsg>() {
+			protected DmsActionMsg create(DmsAction da) {
+				return new DmsActionMsg(da, dms, SCHED_LOG);
+			}
+			protected boolean isValid(DmsActionMsg m) {
+				return m.isValid();
+			}
+			protected boolean isDynamic(DmsActionMsg m) {
+				return m.isDynamic();
+			}
+			@Override protected void log(String m) {
+				if (SCHED_LOG.isOpen())
+					logSched(dms, m);
+			}
+		};
+		DmsActionMsg amsg = ch.choose(dms_index.actions(dms));
+		if (ch.isDynamic())
+			dynamic_dms.add(dms);
+		else
+			dynamic_dms.remove(dms);
+		if (SCHED_LOG.isOpen())
+			logSched(dms, "scheduling " + amsg);
+		dms.setActionMsg(amsg);
+	}
+
+	/** Update one beacon.  The last action for an active plan is used. */
+	private void updateBeacon(Beacon b) {
+		for (BeaconAction ba: beacon_index.actions(b)) {
+			ActionPlan ap = ba.getActionPlan();
+			if (ap.getActive())
+				b.setFlashing(ap.getPhase() == ba.getPhase());
+		}
+	}
+
+	/** Update one lane marking.  The last action for an active plan is
+	 * used. */
+	private void updateLaneMarking(LaneMarking lm) {
+		for (LaneAction la: lane_index.actions(lm)) {
+			ActionPlan ap = la.getActionPlan();
+			if (ap.getActive())
+				lm.setDeployed(ap.getPhase() == la.getPhase());
+		}
+	}
+
+	/** Update one ramp meter.  It is operating if any action for an
+	 * active plan is deployed. */
+	private void updateMeter(RampMeterImpl meter) {
+		boolean active = false;
+		boolean operating = false;
+		for (MeterAction ma: meter_index.actions(meter)) {
+			ActionPlan ap = ma.getActionPlan();
+			if (ap.getActive()) {
+				active = true;
+				operating |= (ap.getPhase() == ma.getPhase());
+			}
+		}
+		if (active)
+			meter.setOperating(operating);
+	}
+}
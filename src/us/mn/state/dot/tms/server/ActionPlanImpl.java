@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2018  Minnesota Department of Transportation
+ * Copyright (C) 2009-2019  Minnesota Department of Transportation
  * Copyright (C) 2018  Iteris Inc.
  *
  * This program is free software; you can redistribute it and/or modify
@@ -239,6 +239,7 @@ public class ActionPlanImpl extends BaseObjectImpl implements ActionPlan {
 			EventType.ACTION_PLAN_DEACTIVATED);
 		logEvent(new ActionPlanEvent(et, getName(), un));
 		sendEmailAlert(un, a, getName());
+		plan_engine.planChanged(this);
 	}
 
 	/** Set the active status */
@@ -293,6 +294,7 @@ public class ActionPlanImpl extends BaseObjectImpl implements ActionPlan {
 		phase_time = TimeSteward.currentTimeMillis();
 		EventType et = EventType.ACTION_PLAN_PHASE_CHANGED;
 		logEvent(new ActionPlanEvent(et, getName(), p.toString()));
+		plan_engine.planChanged(this);
 	}
 
 	/**
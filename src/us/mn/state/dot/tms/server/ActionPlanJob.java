@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2018  Minnesota Department of Transportation
+ * Copyright (C) 2009-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -24,7 +24,9 @@ import us.mn.state.dot.tms.ActionPlanHelper;
 import us.mn.state.dot.tms.TMSException;
 
 /**
- * Job to update action plans
+ * Job to update action plans.  Plan phases are updated, and actions are
+ * evaluated by the action plan engine.  Phase changes are also evaluated as
+ * they happen, so this job mostly updates DMS with dynamic messages.
  *
  * @author Douglas Lau
  */
@@ -33,27 +35,27 @@ public class ActionPlanJob extends Job {
 	/** Seconds to offset each poll from start of interval */
 	static private final int OFFSET_SECS = 29;
 
+	/** Number of intervals between full evaluations of all actions */
+	static private final int FULL_INTERVALS = 10;
+
 	/** Schedule debug log */
 	static public final DebugLog SCHED_LOG = new DebugLog("sched");
 
-	/** TIMER Scheduler */
-	private final Scheduler timer;
+	/** Number of intervals since last full evaluation */
+	private int n_intervals = 0;
 
 	/** Create a new action plan job */
 	public ActionPlanJob(Scheduler t) {
 		super(Calendar.SECOND, 30, Calendar.SECOND, OFFSET_SECS);
-		timer = t;
+		BaseObjectImpl.plan_engine.setScheduler(t);
 	}
 
 	/** Perform the action plan job */
 	@Override
 	public void perform() throws TMSException {
-		timer.addJob(new TimeActionJob());
-		timer.addJob(new DmsActionJob(SCHED_LOG));
-		timer.addJob(new BeaconActionJob());
-		timer.addJob(new LaneActionJob());
-		timer.addJob(new MeterActionJob());
 		updateActionPlanPhases();
+		n_intervals = (n_intervals + 1) % FULL_INTERVALS;
+		BaseObjectImpl.plan_engine.evaluatePeriodic(0 == n_intervals);
 	}
 
 	/** Update the action plan phases */
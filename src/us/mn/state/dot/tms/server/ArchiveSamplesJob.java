@@ -21,10 +21,13 @@ import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -38,6 +41,9 @@ import us.mn.state.dot.sched.TimeSteward;
  */
 public class ArchiveSamplesJob extends Job {
 
+	/** Maximum size of sample files to store without compression */
+	static private final int STORED_MAX_BYTES = 64 * 1024;
+
 	/** Buffer for reading sample data files */
 	protected final byte[] buffer = new byte[8192];
 
@@ -128,22 +134,106 @@ public class ArchiveSamplesJob extends Job {
 	protected void addSampleEntries(ZipOutputStream zos, File day)
 		throws IOException
 	{
+		HashSet<String> added = addColumnarEntries(zos, day);
 		String[] entries = day.list(new FilenameFilter() {
 			public boolean accept(File dir, String name) {
 				return a_factory.hasKnownExtension(name);
 			}
 		});
 		Arrays.sort(entries);
-		for(String entry: entries)
-			addSampleEntry(zos, day, entry);
+		for(String entry: entries) {
+			if(!added.contains(entry))
+				addSampleEntry(zos, day, entry);
+		}
+	}
+
+	/** List the columnar sample files in a day directory */
+	protected File[] listColumnarFiles(File day) {
+		File[] files = day.listFiles(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return ColumnarSampleFile.isColumnar(name);
+			}
+		});
+		Arrays.sort(files);
+		return files;
 	}
 
-	/** Add one sample file entry to an archive file */
+	/** Add an entry for each sensor in all columnar sample files.  The
+	 * entries are the same as for per-sensor sample files.
+	 * @return Set of entry names added. */
+	protected HashSet<String> addColumnarEntries(ZipOutputStream zos,
+		File day) throws IOException
+	{
+		HashSet<String> added = new HashSet<String>();
+		for(File file: listColumnarFiles(day)) {
+			ColumnarSampleFile col = new ColumnarSampleFile(file);
+			try {
+				addColumnarEntries(zos, col, file, added);
+			}
+			finally {
+				col.close();
+			}
+		}
+		return added;
+	}
+
+	/** Add an entry for each sensor in one columnar sample file */
+	private void addColumnarEntries(ZipOutputStream zos,
+		ColumnarSampleFile col, File file, HashSet<String> added)
+		throws IOException
+	{
+		File day = file.getParentFile();
+		String ext = ColumnarSampleFile.sampleExtension(file.getName());
+		for(String sensor_id: col.getSensors()) {
+			String name = sensor_id + '.' + ext;
+			File f = new File(day, name);
+			addStoredEntry(zos, name, ColumnarSampleConverter
+				.sensorSamples(col, sensor_id, f));
+			added.add(name);
+		}
+	}
+
+	/** Add one sample file entry to an archive file.  Small files are
+	 * stored without compression, so that SampleArchiveReader can read
+	 * them directly from a memory-mapped archive. */
 	protected void addSampleEntry(ZipOutputStream zos, File day,
 		String name) throws IOException
+	{
+		File file = new File(day, name);
+		if (file.length() <= STORED_MAX_BYTES)
+			addStoredEntry(zos, file, name);
+		else
+			addDeflatedEntry(zos, file, name);
+	}
+
+	/** Add a sample file entry without compression */
+	private void addStoredEntry(ZipOutputStream zos, File file,
+		String name) throws IOException
+	{
+		addStoredEntry(zos, name, Files.readAllBytes(file.toPath()));
+	}
+
+	/** Add an entry without compression */
+	private void addStoredEntry(ZipOutputStream zos, String name,
+		byte[] data) throws IOException
+	{
+		CRC32 crc = new CRC32();
+		crc.update(data);
+		ZipEntry ze = new ZipEntry(name);
+		ze.setMethod(ZipEntry.STORED);
+		ze.setSize(data.length);
+		ze.setCompressedSize(data.length);
+		ze.setCrc(crc.getValue());
+		zos.putNextEntry(ze);
+		zos.write(data);
+	}
+
+	/** Add a compressed sample file entry */
+	private void addDeflatedEntry(ZipOutputStream zos, File file,
+		String name) throws IOException
 	{
 		zos.putNextEntry(new ZipEntry(name));
-		FileInputStream fis = new FileInputStream(new File(day, name));
+		FileInputStream fis = new FileInputStream(file);
 		try {
 			synchronized(buffer) {
 				while(true) {
@@ -175,6 +265,8 @@ public class ArchiveSamplesJob extends Job {
 					file.delete();
 			}
 		}
+		for(File file: listColumnarFiles(day))
+			file.delete();
 		day.delete();
 	}
 
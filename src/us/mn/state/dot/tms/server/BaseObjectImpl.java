@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2007-2018  Minnesota Department of Transportation
+ * Copyright (C) 2007-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -41,76 +41,398 @@ abstract public class BaseObjectImpl implements Storable, SonarObject {
 	/** Corridor manager */
 	static public final CorridorManager corridors = new CorridorManager();
 
-	/** Load all objects from the database into the SONAR Namespace */
-	static void loadAll(SQLConnection s, ServerNamespace ns)
+	/** Action plan engine */
+	static public final ActionPlanEngine plan_engine =
+		new ActionPlanEngine();
+
+	/** Load all objects from the database into the SONAR Namespace.
+	 * @param s SQL connection.
+	 * @param ns Server namespace.
+	 * @param n Number of load threads (and database connections). */
+	static void loadAll(SQLConnection s, ServerNamespace ns, int n)
 		throws TMSException
 	{
 		store = s;
 		namespace = ns;
-		SystemAttributeImpl.loadAll();
-		GraphicImpl.loadAll();
-		FontImpl.loadAll();
-		GlyphImpl.loadAll();
-		RoadImpl.loadAll();
-		RoadAffixImpl.loadAll();
-		GeoLocImpl.loadAll();
-		MapExtentImpl.loadAll();
-		IncidentDetailImpl.loadAll();
-		CommLinkImpl.loadAll();
-		ModemImpl.loadAll();
-		CabinetStyleImpl.loadAll();
-		CabinetImpl.loadAll();
-		ControllerImpl.loadAll();
-		SignConfigImpl.loadAll();
-		SignDetailImpl.loadAll();
-		DayMatcherImpl.loadAll();
-		DayPlanImpl.loadAll();
-		PlanPhaseImpl.loadAll();
-		ActionPlanImpl.loadAll();
-		R_NodeImpl.loadAll();
+		store.setMaxConnections(n);
+		try {
+			createLoader(n).run();
+		}
+		finally {
+			store.setMaxConnections(1);
+		}
+	}
+
+	/** Create an object loader with all load steps.  Each step must
+	 * list the steps for objects it looks up while loading. */
+	static private ObjectLoader createLoader(int n) {
+		ObjectLoader ol = new ObjectLoader(n);
+		ol.add(new ObjectLoader.Step("system_attribute") {
+			protected void load() throws TMSException {
+				SystemAttributeImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("graphic", "system_attribute") {
+			protected void load() throws TMSException {
+				GraphicImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("font", "system_attribute") {
+			protected void load() throws TMSException {
+				FontImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("glyph", "font", "graphic") {
+			protected void load() throws TMSException {
+				GlyphImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("road", "system_attribute") {
+			protected void load() throws TMSException {
+				RoadImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("road_affix", "system_attribute") {
+			protected void load() throws TMSException {
+				RoadAffixImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("geo_loc", "road", "road_affix") {
+			protected void load() throws TMSException {
+				GeoLocImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("map_extent", "system_attribute") {
+			protected void load() throws TMSException {
+				MapExtentImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("incident_detail",
+			"system_attribute")
+		{
+			protected void load() throws TMSException {
+				IncidentDetailImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("modem", "system_attribute") {
+			protected void load() throws TMSException {
+				ModemImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("comm_link", "modem") {
+			protected void load() throws TMSException {
+				CommLinkImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("cabinet_style",
+			"system_attribute")
+		{
+			protected void load() throws TMSException {
+				CabinetStyleImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("cabinet", "cabinet_style",
+			"geo_loc")
+		{
+			protected void load() throws TMSException {
+				CabinetImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("controller", "cabinet",
+			"comm_link")
+		{
+			protected void load() throws TMSException {
+				ControllerImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("sign_config", "font") {
+			protected void load() throws TMSException {
+				SignConfigImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("sign_detail", "system_attribute")
+		{
+			protected void load() throws TMSException {
+				SignDetailImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("day_matcher", "system_attribute")
+		{
+			protected void load() throws TMSException {
+				DayMatcherImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("day_plan", "day_matcher") {
+			protected void load() throws TMSException {
+				DayPlanImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("plan_phase", "system_attribute") {
+			protected void load() throws TMSException {
+				PlanPhaseImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("action_plan", "plan_phase") {
+			protected void load() throws TMSException {
+				ActionPlanImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("r_node", "geo_loc") {
+			protected void load() throws TMSException {
+				R_NodeImpl.loadAll();
+			}
+		});
 		/* NOTE: must happen after r_nodes are loaded */
-		corridors.createCorridors();
-		AlarmImpl.loadAll();
-		GpsImpl.loadAll();
-		DetectorImpl.loadAll();
-		TollZoneImpl.loadAll();
-		EncoderTypeImpl.loadAll();
-		CameraImpl.loadAll();
-		CameraPresetImpl.loadAll();
-		PlayListImpl.loadAll();
-		CatalogImpl.loadAll();
-		MonitorStyleImpl.loadAll();
-		VideoMonitorImpl.loadAll();
-		BeaconImpl.loadAll();
-		WeatherSensorImpl.loadAll();
-		RampMeterImpl.loadAll();
-		SignMessageImpl.loadAll();
-		DMSImpl.loadAll();
-		SignGroupImpl.loadAll();
-		DmsSignGroupImpl.loadAll();
-		QuickMessageImpl.loadAll();
-		SignTextImpl.loadAll();
-		GateArmArrayImpl.loadAll();
-		GateArmImpl.loadAll();
-		TagReaderImpl.loadAll();
-		LaneMarkingImpl.loadAll();
-		LCSArrayImpl.loadAll();
-		LCSImpl.loadAll();
-		LCSIndicationImpl.loadAll();
-		LaneUseMultiImpl.loadAll();
-		ParkingAreaImpl.loadAll();
-		IncidentImpl.loadAll();
-		IncDescriptorImpl.loadAll();
-		IncLocatorImpl.loadAll();
-		IncAdviceImpl.loadAll();
-		TimeActionImpl.loadAll();
-		DmsActionImpl.loadAll();
-		BeaconActionImpl.loadAll();
-		LaneActionImpl.loadAll();
-		MeterActionImpl.loadAll();
-		WordImpl.loadAll();
-		DMSImpl.updateAllStyles();
-		RptConduitImpl.loadAll();
+		ol.add(new ObjectLoader.Step("corridor", "r_node") {
+			protected void load() throws TMSException {
+				corridors.createCorridors();
+			}
+		});
+		ol.add(new ObjectLoader.Step("alarm", "controller") {
+			protected void load() throws TMSException {
+				AlarmImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("gps", "controller") {
+			protected void load() throws TMSException {
+				GpsImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("detector", "controller",
+			"corridor")
+		{
+			protected void load() throws TMSException {
+				DetectorImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("toll_zone", "detector") {
+			protected void load() throws TMSException {
+				TollZoneImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("encoder_type",
+			"system_attribute")
+		{
+			protected void load() throws TMSException {
+				EncoderTypeImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("camera", "controller",
+			"encoder_type")
+		{
+			protected void load() throws TMSException {
+				CameraImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("camera_preset", "camera") {
+			protected void load() throws TMSException {
+				CameraPresetImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("play_list", "camera") {
+			protected void load() throws TMSException {
+				PlayListImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("catalog", "play_list") {
+			protected void load() throws TMSException {
+				CatalogImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("monitor_style",
+			"system_attribute")
+		{
+			protected void load() throws TMSException {
+				MonitorStyleImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("video_monitor", "camera",
+			"monitor_style")
+		{
+			protected void load() throws TMSException {
+				VideoMonitorImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("beacon", "camera_preset") {
+			protected void load() throws TMSException {
+				BeaconImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("weather_sensor", "controller") {
+			protected void load() throws TMSException {
+				WeatherSensorImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("ramp_meter", "detector",
+			"beacon")
+		{
+			protected void load() throws TMSException {
+				RampMeterImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("sign_message", "sign_config") {
+			protected void load() throws TMSException {
+				SignMessageImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("dms", "beacon", "gps", "glyph",
+			"sign_detail", "sign_message")
+		{
+			protected void load() throws TMSException {
+				DMSImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("sign_group", "system_attribute") {
+			protected void load() throws TMSException {
+				SignGroupImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("dms_sign_group", "dms",
+			"sign_group")
+		{
+			protected void load() throws TMSException {
+				DmsSignGroupImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("quick_message", "sign_config",
+			"sign_group")
+		{
+			protected void load() throws TMSException {
+				QuickMessageImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("sign_text", "sign_group") {
+			protected void load() throws TMSException {
+				SignTextImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("gate_arm_array", "camera",
+			"action_plan")
+		{
+			protected void load() throws TMSException {
+				GateArmArrayImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("gate_arm", "gate_arm_array") {
+			protected void load() throws TMSException {
+				GateArmImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("tag_reader", "toll_zone", "dms") {
+			protected void load() throws TMSException {
+				TagReaderImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("lane_marking", "controller") {
+			protected void load() throws TMSException {
+				LaneMarkingImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("lcs_array", "dms") {
+			protected void load() throws TMSException {
+				LCSArrayImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("lcs", "lcs_array") {
+			protected void load() throws TMSException {
+				LCSImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("lcs_indication", "lcs") {
+			protected void load() throws TMSException {
+				LCSIndicationImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("lane_use_multi", "quick_message")
+		{
+			protected void load() throws TMSException {
+				LaneUseMultiImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("parking_area", "camera_preset") {
+			protected void load() throws TMSException {
+				ParkingAreaImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("incident", "incident_detail",
+			"camera", "corridor")
+		{
+			protected void load() throws TMSException {
+				IncidentImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("inc_descriptor",
+			"incident_detail")
+		{
+			protected void load() throws TMSException {
+				IncDescriptorImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("inc_locator", "system_attribute")
+		{
+			protected void load() throws TMSException {
+				IncLocatorImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("inc_advice", "system_attribute") {
+			protected void load() throws TMSException {
+				IncAdviceImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("time_action", "action_plan",
+			"day_plan")
+		{
+			protected void load() throws TMSException {
+				TimeActionImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("dms_action", "action_plan",
+			"quick_message")
+		{
+			protected void load() throws TMSException {
+				DmsActionImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("beacon_action", "action_plan",
+			"beacon")
+		{
+			protected void load() throws TMSException {
+				BeaconActionImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("lane_action", "action_plan",
+			"lane_marking")
+		{
+			protected void load() throws TMSException {
+				LaneActionImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("meter_action", "action_plan",
+			"ramp_meter")
+		{
+			protected void load() throws TMSException {
+				MeterActionImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("word", "system_attribute") {
+			protected void load() throws TMSException {
+				WordImpl.loadAll();
+			}
+		});
+		ol.add(new ObjectLoader.Step("dms_style", "dms_sign_group",
+			"lcs_indication", "tag_reader", "dms_action")
+		{
+			protected void load() throws TMSException {
+				DMSImpl.updateAllStyles();
+			}
+		});
+		ol.add(new ObjectLoader.Step("rpt_conduit", "system_attribute")
+		{
+			protected void load() throws TMSException {
+				RptConduitImpl.loadAll();
+			}
+		});
+		return ol;
 	}
 
 	/** Get the time as a time stamp */
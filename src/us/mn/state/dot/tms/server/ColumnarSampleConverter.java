@@ -0,0 +1,231 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
+
+/**
+ * Converter between per-sensor sample files and columnar sample files in a
+ * day directory.  When both contain samples for the same sensor, missing
+ * samples in one are filled from the other.
+ *
+ * @author Douglas Lau
+ */
+public class ColumnarSampleConverter {
+
+	/** Number of seconds per day */
+	static private final int DAY_SECS = 24 * 60 * 60;
+
+	/** Convert day directories from the command line */
+	static public void main(String[] args) {
+		if (args.length < 2 || !("columnar".equals(args[0]) ||
+		    "files".equals(args[0])))
+		{
+			System.err.println("Usage: ColumnarSampleConverter " +
+				"columnar|files YYYYMMDD...");
+			System.exit(1);
+		}
+		boolean columnar = "columnar".equals(args[0]);
+		try {
+			for (int i = 1; i < args.length; i++) {
+				File day = new File(args[i]);
+				int n = columnar
+				      ? toColumnar(day)
+				      : toFiles(day);
+				System.out.println(day + ": " + n + " files");
+			}
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+
+	/** Get the index of the sample period in a file extension */
+	static private int periodIndex(String ext) {
+		int i = ext.length();
+		while (i > 0 && Character.isDigit(ext.charAt(i - 1)))
+			i--;
+		return i;
+	}
+
+	/** Get the sample type of a file extension.
+	 * @param ext File extension, such as "v30".
+	 * @return Periodic sample type, or null if unknown. */
+	static public PeriodicSampleType sampleType(String ext) {
+		String e = ext.substring(0, periodIndex(ext));
+		for (PeriodicSampleType t: PeriodicSampleType.values()) {
+			if (t.extension.equals(e))
+				return t;
+		}
+		return null;
+	}
+
+	/** Get the number of samples per day for a file extension.
+	 * @param ext File extension, such as "v30".
+	 * @return Samples per day, or 0 if period is invalid. */
+	static public int samplesPerDay(String ext) {
+		try {
+			int p = Integer.parseInt(ext.substring(
+				periodIndex(ext)));
+			return (p > 0 && DAY_SECS % p == 0) ? DAY_SECS / p : 0;
+		}
+		catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/** Replace missing samples in a column.
+	 * @param col Column of samples.
+	 * @param data Samples to replace missing samples.
+	 * @param s_bytes Number of bytes per sample. */
+	static private void fillMissing(ByteBuffer col, byte[] data,
+		int s_bytes)
+	{
+		int n_sam = Math.min(col.limit(), data.length) / s_bytes;
+		for (int i = 0; i < n_sam; i++) {
+			int p = i * s_bytes;
+			int v = (2 == s_bytes) ? col.getShort(p) : col.get(p);
+			if (MISSING_DATA == v) {
+				for (int b = 0; b < s_bytes; b++)
+					col.put(p + b, data[p + b]);
+			}
+		}
+	}
+
+	/** Get the samples for one sensor from a columnar file.
+	 * @param col Columnar sample file.
+	 * @param sensor_id Sensor identifier.
+	 * @param file Per-sensor sample file, which may not exist.
+	 * @return Contents of per-sensor sample file. */
+	static public byte[] sensorSamples(ColumnarSampleFile col,
+		String sensor_id, File file) throws IOException
+	{
+		ByteBuffer buf = col.read(sensor_id);
+		if (null == buf)
+			throw new IOException("Not found: " + sensor_id);
+		if (file.isFile()) {
+			fillMissing(buf, Files.readAllBytes(file.toPath()),
+				col.getSampleBytes());
+		}
+		return buf.array();
+	}
+
+	/** List files in a day directory, sorted by name */
+	static private String[] listFiles(File day) throws IOException {
+		String[] names = day.list();
+		if (null == names)
+			throw new IOException("Not a directory: " + day);
+		Arrays.sort(names);
+		return names;
+	}
+
+	/** Convert per-sensor sample files to columnar files.  Each file is
+	 * deleted after its samples are written.
+	 * @param day Day directory.
+	 * @return Number of files converted. */
+	static public int toColumnar(File day) throws IOException {
+		HashMap<String, ColumnarSampleFile> cols =
+			new HashMap<String, ColumnarSampleFile>();
+		int n_files = 0;
+		try {
+			for (String name: listFiles(day)) {
+				if (fileToColumn(day, name, cols))
+					n_files++;
+			}
+		}
+		finally {
+			for (ColumnarSampleFile col: cols.values())
+				col.close();
+		}
+		return n_files;
+	}
+
+	/** Convert one per-sensor sample file to a column.
+	 * @return true if the file was converted. */
+	static private boolean fileToColumn(File day, String name,
+		HashMap<String, ColumnarSampleFile> cols) throws IOException
+	{
+		int d = name.lastIndexOf('.');
+		if (d <= 0 || ColumnarSampleFile.isColumnar(name))
+			return false;
+		String sensor_id = name.substring(0, d);
+		String ext = name.substring(d + 1);
+		PeriodicSampleType t = sampleType(ext);
+		int slots = samplesPerDay(ext);
+		if (null == t || 0 == slots)
+			return false;
+		ColumnarSampleFile col = cols.get(ext);
+		if (null == col) {
+			col = new ColumnarSampleFile(
+				ColumnarSampleFile.columnarFile(day, ext),
+				t.sample_bytes, slots);
+			cols.put(ext, col);
+		}
+		File file = new File(day, name);
+		ByteBuffer buf = col.read(sensor_id);
+		if (null == buf) {
+			buf = ColumnarSampleFile.missingColumn(slots *
+				t.sample_bytes);
+		}
+		fillMissing(buf, Files.readAllBytes(file.toPath()),
+			t.sample_bytes);
+		col.write(sensor_id, buf);
+		return file.delete();
+	}
+
+	/** Convert columnar files to per-sensor sample files.  Each columnar
+	 * file is deleted after all of its sensors are written.
+	 * @param day Day directory.
+	 * @return Number of per-sensor files written. */
+	static public int toFiles(File day) throws IOException {
+		int n_files = 0;
+		for (String name: listFiles(day)) {
+			if (ColumnarSampleFile.isColumnar(name))
+				n_files += columnToFiles(new File(day,
+					name));
+		}
+		return n_files;
+	}
+
+	/** Convert one columnar file to per-sensor sample files */
+	static private int columnToFiles(File file) throws IOException {
+		File day = file.getParentFile();
+		String ext = ColumnarSampleFile.sampleExtension(
+			file.getName());
+		ColumnarSampleFile col = new ColumnarSampleFile(file);
+		int n_files = 0;
+		try {
+			for (String sensor_id: col.getSensors()) {
+				File f = new File(day, sensor_id + '.' + ext);
+				byte[] data = sensorSamples(col, sensor_id, f);
+				Files.write(f.toPath(), data);
+				n_files++;
+			}
+		}
+		finally {
+			col.close();
+		}
+		file.delete();
+		return n_files;
+	}
+}
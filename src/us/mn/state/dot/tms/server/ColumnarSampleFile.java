@@ -0,0 +1,343 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
+
+/**
+ * A columnar sample file contains one day of samples for all sensors, for
+ * one sample type and period.  It replaces one sample file per sensor, so
+ * that a day of data is stored in a few files instead of many thousands.
+ *
+ * The file starts with a 16-byte header, followed by blocks of sensors.
+ * Each block contains a dictionary of sensor names (32 bytes each, padded
+ * with zeros), followed by a column of samples for each sensor.  A column
+ * has the same layout as a per-sensor sample file.  Sensors are added to
+ * the next free slot in the last block, and a new block is appended when
+ * it is full.  All values are big-endian.
+ *
+ * @author Douglas Lau
+ */
+public class ColumnarSampleFile {
+
+	/** File extension for columnar sample files */
+	static public final String EXT = ".col";
+
+	/** Magic number ("IRSC") */
+	static private final int MAGIC = 0x49525343;
+
+	/** File format version */
+	static private final short VERSION = 1;
+
+	/** Length of file header */
+	static private final int HEADER_BYTES = 16;
+
+	/** Length of sensor names in dictionary */
+	static private final int NAME_BYTES = 32;
+
+	/** Number of sensors in each block */
+	static private final int BLOCK_SENSORS = 256;
+
+	/** Character set for sensor names */
+	static private final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** Get the columnar file for a sample file extension.
+	 * @param dir Day directory.
+	 * @param ext Sample file extension (without dot), such as "v30". */
+	static public File columnarFile(File dir, String ext) {
+		return new File(dir, ext + EXT);
+	}
+
+	/** Check if a file name is a columnar sample file */
+	static public boolean isColumnar(String name) {
+		return name.endsWith(EXT);
+	}
+
+	/** Get the sample file extension of a columnar file name */
+	static public String sampleExtension(String name) {
+		return name.substring(0, name.length() - EXT.length());
+	}
+
+	/** File */
+	private final File file;
+
+	/** File channel */
+	private final FileChannel channel;
+
+	/** Number of bytes per sample */
+	private final int sample_bytes;
+
+	/** Number of sample slots per day */
+	private final int slots;
+
+	/** Sensor names, in dictionary order */
+	private final ArrayList<String> sensors = new ArrayList<String>();
+
+	/** Index of dictionary slots by sensor name */
+	private final HashMap<String, Integer> index =
+		new HashMap<String, Integer>();
+
+	/** Open a columnar sample file for writing.  The file is created if
+	 * it does not exist.
+	 * @param f File.
+	 * @param sb Number of bytes per sample.
+	 * @param sl Number of sample slots per day. */
+	public ColumnarSampleFile(File f, int sb, int sl) throws IOException {
+		this(f, true, sb, sl);
+	}
+
+	/** Open an existing columnar sample file for reading.
+	 * @param f File. */
+	public ColumnarSampleFile(File f) throws IOException {
+		this(f, false, 0, 0);
+	}
+
+	/** Open a columnar sample file */
+	private ColumnarSampleFile(File f, boolean write, int sb, int sl)
+		throws IOException
+	{
+		file = f;
+		channel = new RandomAccessFile(f, write ? "rw" : "r")
+			.getChannel();
+		boolean ok = false;
+		try {
+			ByteBuffer hdr = readHeader(write, sb, sl);
+			sample_bytes = hdr.getShort(6);
+			slots = hdr.getInt(8);
+			readDictionary();
+			ok = true;
+		}
+		finally {
+			if (!ok)
+				channel.close();
+		}
+	}
+
+	/** Read the file header, or write it for a new file */
+	private ByteBuffer readHeader(boolean write, int sb, int sl)
+		throws IOException
+	{
+		ByteBuffer hdr = ByteBuffer.allocate(HEADER_BYTES);
+		if (write && channel.size() == 0) {
+			hdr.putInt(MAGIC);
+			hdr.putShort(VERSION);
+			hdr.putShort((short) sb);
+			hdr.putInt(sl);
+			hdr.putInt(BLOCK_SENSORS);
+			hdr.flip();
+			writeFully(hdr, 0);
+			return hdr;
+		}
+		readFully(hdr, 0);
+		if (hdr.hasRemaining() ||
+		    hdr.getInt(0) != MAGIC ||
+		    hdr.getShort(4) != VERSION ||
+		    hdr.getInt(12) != BLOCK_SENSORS)
+			throw new IOException("Invalid header: " + file);
+		if (write && (hdr.getShort(6) != sb || hdr.getInt(8) != sl))
+			throw new IOException("Format mismatch: " + file);
+		return hdr;
+	}
+
+	/** Read the sensor dictionary */
+	private void readDictionary() throws IOException {
+		ByteBuffer names = ByteBuffer.allocate(BLOCK_SENSORS *
+			NAME_BYTES);
+		for (long pos = HEADER_BYTES; pos < channel.size();
+		     pos += blockBytes())
+		{
+			names.clear();
+			readFully(names, pos);
+			for (int i = 0; i < BLOCK_SENSORS; i++) {
+				String name = decodeName(names, i * NAME_BYTES);
+				if (null == name)
+					return;
+				index.put(name, sensors.size());
+				sensors.add(name);
+			}
+		}
+	}
+
+	/** Decode a sensor name from the dictionary */
+	static private String decodeName(ByteBuffer names, int pos) {
+		int len = 0;
+		while (len < NAME_BYTES && names.get(pos + len) != 0)
+			len++;
+		if (0 == len)
+			return null;
+		byte[] b = new byte[len];
+		for (int i = 0; i < len; i++)
+			b[i] = names.get(pos + i);
+		return new String(b, UTF8);
+	}
+
+	/** Get the number of bytes in one column */
+	private int columnBytes() {
+		return slots * sample_bytes;
+	}
+
+	/** Get the number of bytes in one block */
+	private long blockBytes() {
+		return BLOCK_SENSORS * (NAME_BYTES + (long) columnBytes());
+	}
+
+	/** Get the file position of a block */
+	private long blockPos(int n) {
+		return HEADER_BYTES + (n / BLOCK_SENSORS) * blockBytes();
+	}
+
+	/** Get the file position of a dictionary name */
+	private long namePos(int n) {
+		return blockPos(n) + (n % BLOCK_SENSORS) * NAME_BYTES;
+	}
+
+	/** Get the file position of a column */
+	private long columnPos(int n) {
+		return blockPos(n) + BLOCK_SENSORS * NAME_BYTES +
+			(n % BLOCK_SENSORS) * (long) columnBytes();
+	}
+
+	/** Read from the channel until the buffer is full or end of file */
+	private void readFully(ByteBuffer buf, long pos) throws IOException {
+		while (buf.hasRemaining()) {
+			int n = channel.read(buf, pos);
+			if (n < 0)
+				break;
+			pos += n;
+		}
+	}
+
+	/** Write a buffer to the channel */
+	private void writeFully(ByteBuffer buf, long pos) throws IOException {
+		while (buf.hasRemaining())
+			pos += channel.write(buf, pos);
+	}
+
+	/** Get the number of bytes per sample */
+	public int getSampleBytes() {
+		return sample_bytes;
+	}
+
+	/** Get the number of sample slots per day */
+	public int getSlots() {
+		return slots;
+	}
+
+	/** Get a list of all sensors, in dictionary order */
+	public List<String> getSensors() {
+		return Collections.unmodifiableList(sensors);
+	}
+
+	/** Check if the dictionary contains a sensor */
+	public boolean hasSensor(String sensor_id) {
+		return index.containsKey(sensor_id);
+	}
+
+	/** Read the column for one sensor.
+	 * @param sensor_id Sensor identifier.
+	 * @param buf Buffer to read into.  Up to one column is read, from the
+	 *            buffer position.  Missing bytes at the end of the file
+	 *            are not read.
+	 * @return true if the sensor was found. */
+	public boolean read(String sensor_id, ByteBuffer buf)
+		throws IOException
+	{
+		Integer n = index.get(sensor_id);
+		if (null == n)
+			return false;
+		int lim = buf.limit();
+		buf.limit(Math.min(lim, buf.position() + columnBytes()));
+		try {
+			readFully(buf, columnPos(n));
+		}
+		finally {
+			buf.limit(lim);
+		}
+		return true;
+	}
+
+	/** Read the column for one sensor.  Samples missing from the end of
+	 * the file are MISSING_DATA.
+	 * @param sensor_id Sensor identifier.
+	 * @return Buffer containing column, or null if sensor not found. */
+	public ByteBuffer read(String sensor_id) throws IOException {
+		ByteBuffer buf = missingColumn(columnBytes());
+		if (read(sensor_id, buf)) {
+			buf.clear();
+			return buf;
+		} else
+			return null;
+	}
+
+	/** Create a column of MISSING_DATA samples.  Every byte of a missing
+	 * sample is the same (for 1 or 2 byte samples).
+	 * @param n_bytes Number of bytes in column. */
+	static public ByteBuffer missingColumn(int n_bytes) {
+		byte[] col = new byte[n_bytes];
+		Arrays.fill(col, MISSING_DATA);
+		return ByteBuffer.wrap(col);
+	}
+
+	/** Write the column for one sensor.  A sensor which is not in the
+	 * dictionary is added to it.
+	 * @param sensor_id Sensor identifier.
+	 * @param buf Buffer containing one column of samples. */
+	public void write(String sensor_id, ByteBuffer buf)
+		throws IOException
+	{
+		if (buf.remaining() != columnBytes())
+			throw new IOException("Invalid column: " + sensor_id);
+		Integer n = index.get(sensor_id);
+		if (n != null)
+			writeFully(buf, columnPos(n));
+		else
+			addSensor(sensor_id, buf);
+	}
+
+	/** Add a sensor to the dictionary */
+	private void addSensor(String sensor_id, ByteBuffer buf)
+		throws IOException
+	{
+		byte[] b = sensor_id.getBytes(UTF8);
+		if (b.length == 0 || b.length > NAME_BYTES)
+			throw new IOException("Invalid sensor: " + sensor_id);
+		int n = sensors.size();
+		// Write the column before its name, so that a name in the
+		// dictionary always has a column
+		writeFully(buf, columnPos(n));
+		ByteBuffer name = ByteBuffer.allocate(NAME_BYTES);
+		name.put(b);
+		name.clear();
+		writeFully(name, namePos(n));
+		index.put(sensor_id, n);
+		sensors.add(sensor_id);
+	}
+
+	/** Close the file */
+	public void close() throws IOException {
+		channel.close();
+	}
+}
@@ -421,6 +421,30 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 			io_pins.put(pin, io);
 		else
 			io_pins.remove(pin);
+		det_pins = buildDetPins();
+	}
+
+	/** Detectors indexed by I/O pin.  This is an immutable snapshot,
+	 * replaced whenever pin assignments change, so sample data can be
+	 * stored without locking or building a map. */
+	private transient volatile DetectorImpl[] det_pins =
+		new DetectorImpl[0];
+
+	/** Build an array of detectors indexed by I/O pin */
+	private DetectorImpl[] buildDetPins() {
+		int max = -1;
+		for (Map.Entry<Integer, ControllerIO> e: io_pins.entrySet()) {
+			if (e.getValue() instanceof DetectorImpl)
+				max = Math.max(max, e.getKey());
+		}
+		DetectorImpl[] dets = new DetectorImpl[max + 1];
+		for (Map.Entry<Integer, ControllerIO> e: io_pins.entrySet()) {
+			ControllerIO io = e.getValue();
+			int pin = e.getKey();
+			if (io instanceof DetectorImpl && pin >= 0)
+				dets[pin] = (DetectorImpl) io;
+		}
+		return dets;
 	}
 
 	/** Determine whether this controller has an active ramp meter */
@@ -445,18 +469,6 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 		return null;
 	}
 
-	/** Get a map of pins to detectors */
-	private synchronized HashMap<Integer, DetectorImpl> getDetectors() {
-		HashMap<Integer, DetectorImpl> dets =
-			new HashMap<Integer, DetectorImpl>();
-		for (Integer pin: io_pins.keySet()) {
-			ControllerIO io = io_pins.get(pin);
-			if (io instanceof DetectorImpl)
-				dets.put(pin, (DetectorImpl) io);
-		}
-		return dets;
-	}
-
 	/** Get a detector by its I/O pin number */
 	public DetectorImpl getDetectorAtPin(int pin) {
 		ControllerIO io = getIO(pin);
@@ -467,25 +479,19 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 	}
 
 	/** Get first detector pin */
-	public synchronized int getDetectorPinFirst() {
-		int p = Integer.MAX_VALUE;
-		for (Integer pin: io_pins.keySet()) {
-			ControllerIO io = io_pins.get(pin);
-			if (io instanceof DetectorImpl)
-				p = Integer.min(p, pin);
+	public int getDetectorPinFirst() {
+		DetectorImpl[] dets = det_pins;
+		for (int pin = 0; pin < dets.length; pin++) {
+			if (dets[pin] != null)
+				return pin;
 		}
-		return (p < Integer.MAX_VALUE) ? p : -1;
+		return -1;
 	}
 
 	/** Get last detector pin */
-	public synchronized int getDetectorPinLast() {
-		int p = Integer.MIN_VALUE;
-		for (Integer pin: io_pins.keySet()) {
-			ControllerIO io = io_pins.get(pin);
-			if (io instanceof DetectorImpl)
-				p = Integer.max(p, pin);
-		}
-		return (p > Integer.MIN_VALUE) ? p : -1;
+	public int getDetectorPinLast() {
+		// Last element is always a detector (if not empty)
+		return det_pins.length - 1;
 	}
 
 	/** Check whether this controller has any active detectors */
@@ -562,15 +568,32 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 	public void storeVehCount(long stamp, int period, int start_pin,
 		int[] veh_count, VehLengthClass vc)
 	{
-		HashMap<Integer, DetectorImpl> dets = getDetectors();
-		for (Integer pin: dets.keySet()) {
-			DetectorImpl det = dets.get(pin);
-			int i = pin - start_pin;
-			int v = sampleValue(veh_count, i);
-			if (v >= 0) {
-				det.storeVehCount(new PeriodicSample(stamp,
-					period, v), vc);
-			}
+		if (veh_count == null)
+			return;
+		DetectorImpl[] dets = det_pins;
+		int last = lastSamplePin(dets, start_pin, veh_count.length);
+		for (int pin = Math.max(start_pin, 0); pin < last; pin++) {
+			DetectorImpl det = dets[pin];
+			if (det != null)
+				storeVehCount(det, stamp, period,
+					veh_count[pin - start_pin], vc);
+		}
+	}
+
+	/** Get the pin after the last one with sample data */
+	static private int lastSamplePin(DetectorImpl[] dets, int start_pin,
+		int n_samples)
+	{
+		return Math.min(dets.length, start_pin + n_samples);
+	}
+
+	/** Store one vehicle count sample */
+	static private void storeVehCount(DetectorImpl det, long stamp,
+		int period, int v, VehLengthClass vc)
+	{
+		if (v >= 0) {
+			det.storeVehCount(new PeriodicSample(stamp, period, v),
+				vc);
 		}
 	}
 
@@ -583,15 +606,25 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 	public void storeOccupancy(long stamp, int period, int start_pin,
 		int[] scans, int max_scans)
 	{
-		HashMap<Integer, DetectorImpl> dets = getDetectors();
-		for (Integer pin: dets.keySet()) {
-			DetectorImpl det = dets.get(pin);
-			int i = pin - start_pin;
-			int n_scans = sampleValue(scans, i);
-			if (n_scans >= 0) {
-				det.storeOccupancy(new OccupancySample(stamp,
-					period, n_scans, max_scans));
-			}
+		if (scans == null)
+			return;
+		DetectorImpl[] dets = det_pins;
+		int last = lastSamplePin(dets, start_pin, scans.length);
+		for (int pin = Math.max(start_pin, 0); pin < last; pin++) {
+			DetectorImpl det = dets[pin];
+			if (det != null)
+				storeOccupancy(det, stamp, period,
+					scans[pin - start_pin], max_scans);
+		}
+	}
+
+	/** Store one occupancy sample */
+	static private void storeOccupancy(DetectorImpl det, long stamp,
+		int period, int n_scans, int max_scans)
+	{
+		if (n_scans >= 0) {
+			det.storeOccupancy(new OccupancySample(stamp, period,
+				n_scans, max_scans));
 		}
 	}
 
@@ -603,18 +636,60 @@ public class ControllerImpl extends BaseObjectImpl implements Controller {
 	public void storeSpeed(long stamp, int period, int start_pin,
 		int[] speed)
 	{
-		HashMap<Integer, DetectorImpl> dets = getDetectors();
-		for (Integer pin: dets.keySet()) {
-			DetectorImpl det = dets.get(pin);
-			int i = pin - start_pin;
-			int s = sampleValue(speed, i);
-			if (s > 0) {
-				det.storeSpeed(new PeriodicSample(stamp,
-					period, s));
+		if (speed == null)
+			return;
+		DetectorImpl[] dets = det_pins;
+		int last = lastSamplePin(dets, start_pin, speed.length);
+		for (int pin = Math.max(start_pin, 0); pin < last; pin++) {
+			DetectorImpl det = dets[pin];
+			if (det != null)
+				storeSpeed(det, stamp, period,
+					speed[pin - start_pin]);
+		}
+	}
+
+	/** Store one speed sample */
+	static private void storeSpeed(DetectorImpl det, long stamp,
+		int period, int s)
+	{
+		if (s > 0)
+			det.storeSpeed(new PeriodicSample(stamp, period, s));
+	}
+
+	/** Store a complete sample record for all detectors in one pass.
+	 * @param stamp Timestamp in milliseconds since epoch.
+	 * @param period Sampling period in seconds.
+	 * @param start_pin Start pin on controller I/O.
+	 * @param veh_count Array of vehicle count samples (may be null).
+	 * @param scans Array of scan samples, 0 to max_scans (may be null).
+	 * @param max_scans Maximum scan value (representing 100% occupancy).
+	 * @param speed Array of speed samples, MPH (may be null). */
+	public void storeSamples(long stamp, int period, int start_pin,
+		int[] veh_count, int[] scans, int max_scans, int[] speed)
+	{
+		DetectorImpl[] dets = det_pins;
+		int n_samples = Math.max(sampleCount(veh_count),
+			Math.max(sampleCount(scans), sampleCount(speed)));
+		int last = lastSamplePin(dets, start_pin, n_samples);
+		for (int pin = Math.max(start_pin, 0); pin < last; pin++) {
+			DetectorImpl det = dets[pin];
+			if (det != null) {
+				int i = pin - start_pin;
+				storeVehCount(det, stamp, period,
+					sampleValue(veh_count, i), null);
+				storeOccupancy(det, stamp, period,
+					sampleValue(scans, i), max_scans);
+				storeSpeed(det, stamp, period,
+					sampleValue(speed, i));
 			}
 		}
 	}
 
+	/** Get the number of samples in an array */
+	static private int sampleCount(int[] values) {
+		return (values != null) ? values.length : 0;
+	}
+
 	/** Bin sample data to the specified period */
 	public synchronized void binEventSamples(int p) {
 		for (ControllerIO io: io_pins.values()) {
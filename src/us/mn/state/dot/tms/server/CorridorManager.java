@@ -16,9 +16,14 @@ package us.mn.state.dot.tms.server;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.RecursiveAction;
 import us.mn.state.dot.tms.GeoLoc;
 import us.mn.state.dot.tms.GeoLocHelper;
 import us.mn.state.dot.tms.LaneType;
@@ -28,7 +33,8 @@ import us.mn.state.dot.tms.geo.SphericalMercatorPosition;
 import us.mn.state.dot.tms.units.Distance;
 
 /**
- * This is a class to manage roadway network corridors.
+ * This is a class to manage roadway network corridors.  Corridors are
+ * updated incrementally as r_nodes are created, changed or destroyed.
  *
  * @author Douglas Lau
  */
@@ -38,41 +44,102 @@ public class CorridorManager {
 	private final Map<String, Corridor> corridors =
 		new TreeMap<String, Corridor>();
 
+	/** Corridor names for all r_nodes */
+	private final HashMap<R_NodeImpl, String> node_cids =
+		new HashMap<R_NodeImpl, String>();
+
+	/** Names of corridors which need to be rebuilt.  This is checked
+	 * before corridors are accessed, so that several r_node changes
+	 * only cause one rebuild, and only for affected corridors. */
+	private final TreeSet<String> dirty = new TreeSet<String>();
+
 	/** Create all corridors from the existing r_nodes */
 	public synchronized void createCorridors() {
 		corridors.clear();
+		node_cids.clear();
+		dirty.clear();
 		Iterator<R_Node> it = R_NodeHelper.iterator();
 		while (it.hasNext()) {
 			R_Node r_node = it.next();
 			if (r_node instanceof R_NodeImpl) {
 				R_NodeImpl n = (R_NodeImpl) r_node;
-				n.updateFork();
-				addCorridorNode(n);
+				setNodeCorridor(n,
+					R_NodeHelper.getCorridorName(n));
 			}
 		}
-		for (Corridor c: corridors.values())
-			c.arrangeNodes();
+		for (R_NodeImpl n: node_cids.keySet())
+			n.updateFork(node_cids.keySet());
+		rebuildDirty();
+	}
+
+	/** Update an r_node after it has been created or changed */
+	public synchronized void updateNode(R_NodeImpl n) {
+		setNodeCorridor(n, R_NodeHelper.getCorridorName(n));
+		n.updateFork(node_cids.keySet());
+		updateForks(n);
+	}
+
+	/** Remove an r_node after it has been destroyed */
+	public synchronized void removeNode(R_NodeImpl n) {
+		setNodeCorridor(n, null);
+		updateForks(n);
 	}
 
-	/** Add an r_node to the proper corridor */
-	private void addCorridorNode(R_NodeImpl r_node) {
-		String cid = R_NodeHelper.getCorridorName(r_node);
+	/** Set the corridor for an r_node, marking corridors dirty */
+	private void setNodeCorridor(R_NodeImpl n, String cid) {
+		String old = (cid != null)
+		           ? node_cids.put(n, cid)
+		           : node_cids.remove(n);
+		if (old != null)
+			dirty.add(old);
 		if (cid != null)
-			addCorridorNode(cid, r_node);
+			dirty.add(cid);
+	}
+
+	/** Update forks of all exits which may link with an r_node */
+	private void updateForks(R_NodeImpl n) {
+		boolean entrance = R_NodeHelper.isEntrance(n);
+		for (R_NodeImpl e: node_cids.keySet()) {
+			if (e.getFork() == n || (entrance && e.isExit() &&
+			    GeoLocHelper.rampMatches(e.getGeoLoc(),
+			    n.getGeoLoc())))
+				e.updateFork(node_cids.keySet());
+		}
 	}
 
-	/** Add an r_node to the specified corridor */
-	private void addCorridorNode(String cid, R_NodeImpl r_node) {
-		Corridor c = corridors.get(cid);
-		if (c == null) {
-			c = new Corridor(r_node.getGeoLoc());
-			corridors.put(cid, c);
+	/** Rebuild all dirty corridors.  A new corridor is created for each
+	 * one, since other threads may be using the old corridor. */
+	private void rebuildDirty() {
+		if (dirty.isEmpty())
+			return;
+		HashMap<String, Corridor> built =
+			new HashMap<String, Corridor>();
+		for (Map.Entry<R_NodeImpl, String> e: node_cids.entrySet()) {
+			String cid = e.getValue();
+			if (dirty.contains(cid)) {
+				R_NodeImpl n = e.getKey();
+				Corridor c = built.get(cid);
+				if (null == c) {
+					c = new Corridor(n.getGeoLoc());
+					built.put(cid, c);
+				}
+				c.addNode(n);
+			}
+		}
+		for (String cid: dirty) {
+			Corridor c = built.get(cid);
+			if (c != null) {
+				c.arrangeNodes();
+				corridors.put(cid, c);
+			} else
+				corridors.remove(cid);
 		}
-		c.addNode(r_node);
+		dirty.clear();
 	}
 
 	/** Lookup the named corridor */
 	public synchronized Corridor getCorridor(String cid) {
+		rebuildDirty();
 		return (cid != null) ? corridors.get(cid) : null;
 	}
 
@@ -80,14 +147,30 @@ public class CorridorManager {
 	public synchronized void writeXmlBody(Writer w,
 		Map<String, RampMeterImpl> m_nodes) throws IOException
 	{
+		rebuildDirty();
 		for (Corridor c: corridors.values())
 			c.writeXml(w, m_nodes);
 	}
 
-	/** Find the current bottlenecks for all corridors */
-	public synchronized void findBottlenecks() {
-		for (Corridor c: corridors.values())
-			c.findBottlenecks();
+	/** Find the current bottlenecks for all corridors.  Each corridor
+	 * is a separate task, run on the metering fork-join pool. */
+	public void findBottlenecks() {
+		ArrayList<RecursiveAction> actions =
+			new ArrayList<RecursiveAction>();
+		for (final Corridor c: getCorridors()) {
+			actions.add(new RecursiveAction() {
+				@Override protected void compute() {
+					c.findBottlenecks();
+				}
+			});
+		}
+		MeteringJob.forkAll(actions);
+	}
+
+	/** Get a snapshot of all corridors */
+	private synchronized List<Corridor> getCorridors() {
+		rebuildDirty();
+		return new ArrayList<Corridor>(corridors.values());
 	}
 
 	/** Lookup the corridor for a location */
@@ -101,6 +184,7 @@ public class CorridorManager {
 	public synchronized GeoLoc snapGeoLoc(SphericalMercatorPosition smp,
 		LaneType lt, Distance max_dist)
 	{
+		rebuildDirty();
 		GeoLoc loc = null;
 		Distance dist = max_dist;
 		for (Corridor c: corridors.values()) {
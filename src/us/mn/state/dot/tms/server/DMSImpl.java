@@ -136,6 +136,36 @@ public class DMSImpl extends DeviceImpl implements DMS, Comparable<DMSImpl> {
 				namespace.addObject(new DMSImpl(row));
 			}
 		});
+		loadContent();
+	}
+
+	/** Table of content installed on signs */
+	static private final String CONTENT_TABLE = "iris.dms_content";
+
+	/** Load installed content hashes for all DMS */
+	static private void loadContent() throws TMSException {
+		store.query("SELECT dms, content, number, hash FROM " +
+			CONTENT_TABLE + ";", new ResultFactory()
+		{
+			public void create(ResultSet row) throws Exception {
+				DMSImpl dms = lookupDMS(row.getString(1));
+				if (dms != null) {
+					dms.content.put(contentKey(
+						row.getString(2),
+						row.getInt(3)), row.getInt(4));
+				}
+			}
+		});
+	}
+
+	/** Get a content map key */
+	static private String contentKey(String c, int num) {
+		return c + " " + num;
+	}
+
+	/** Quote a string for SQL */
+	static private String quote(String v) {
+		return "'" + v.replace("'", "''") + "'";
 	}
 
 	/** Update all DMS item styles */
@@ -256,6 +286,8 @@ public class DMSImpl extends DeviceImpl implements DMS, Comparable<DMSImpl> {
 		override_background = bg;
 		msg_sched = ms;
 		msg_current = mc;
+		SignMessageImpl.swapRef(null, ms);
+		SignMessageImpl.swapRef(null, mc);
 		expire_time = stampMillis(et);
 		initTransients();
 	}
@@ -266,6 +298,10 @@ public class DMSImpl extends DeviceImpl implements DMS, Comparable<DMSImpl> {
 		super.doDestroy();
 		setPreset(null);
 		geo_loc.notifyRemove();
+		setMsgUser(null);
+		setMsgNext(null);
+		SignMessageImpl.swapRef(swapMsgSched(null), null);
+		SignMessageImpl.swapRef(swapMsgCurrent(null), null);
 	}
 
 	/** Set the controller to which this DMS is assigned */
@@ -455,6 +491,9 @@ public class DMSImpl extends DeviceImpl implements DMS, Comparable<DMSImpl> {
 	/** Set the sign detail */
 	public void setSignDetailNotify(SignDetailImpl sd) {
 		if (!objectEquals(sd, sign_detail)) {
+			// Sign may have been replaced or updated
+			if (sign_detail != null)
+				clearContent();
 			try {
 				store.update(this, "sign_detail", sd);
 			}
@@ -467,9 +506,96 @@ public class DMSImpl extends DeviceImpl implements DMS, Comparable<DMSImpl> {
 		}
 	}
 
+	/** Content hashes installed on the sign, keyed by content type and
+	 * number (for example "font 3").  Access synchronized on map. */
+	private final HashMap<String, Integer> content =
+		new HashMap<String, Integer>();
+
+	/** Check if content is installed on the sign.
+	 * @param c Content type ("font" or "graphic").
+	 * @param num Font or graphic number.
+	 * @param hash Content hash.
+	 * @return true if the content was last installed with the same
+	 *         hash. */
+	public boolean isContentInstalled(String c, int num, int hash) {
+		synchronized (content) {
+			Integer h = content.get(contentKey(c, num));
+			return (h != null) && (h == hash);
+		}
+	}
+
+	/** Record content installed on the sign.
+	 * @param c Content type ("font" or "graphic").
+	 * @param num Font or graphic number.
+	 * @param hash Content hash, or null if content is not valid. */
+	public void setContentInstalled(String c, int num, Integer hash) {
+		String key = contentKey(c, num);
+		synchronized (content) {
+			if (objectEquals(hash, content.get(key)))
+				return;
+			if (hash != null)
+				content.put(key, hash);
+			else
+				content.remove(key);
+		}
+		String where = " WHERE dms = " + quote(name) +
+			" AND content = " + quote(c) + " AND number = " + num;
+		try {
+			store.update("DELETE FROM " + CONTENT_TABLE + where +
+				";");
+			if (hash != null) {
+				store.update("INSERT INTO " + CONTENT_TABLE +
+					" (dms, content, number, hash) " +
+					"VALUES (" + quote(name) + ", " +
+					quote(c) + ", " + num + ", " + hash +
+					");");
+			}
+		}
+		catch (TMSException e) {
+			logError("content: " + e.getMessage());
+		}
+	}
+
+	/** Clear all content installed on the sign */
+	private void clearContent() {
+		synchronized (content) {
+			if (content.isEmpty())
+				return;
+			content.clear();
+		}
+		try {
+			store.update("DELETE FROM " + CONTENT_TABLE +
+				" WHERE dms = " + quote(name) + ";");
+		}
+		catch (TMSException e) {
+			logError("content: " + e.getMessage());
+		}
+	}
+
+	/** Clear installed content of one type.
+	 * @param c Content type ("font" or "graphic"). */
+	private void clearContent(String c) {
+		String prefix = c + " ";
+		synchronized (content) {
+			Iterator<String> it = content.keySet().iterator();
+			while (it.hasNext()) {
+				if (it.next().startsWith(prefix))
+					it.remove();
+			}
+		}
+		try {
+			store.update("DELETE FROM " + CONTENT_TABLE +
+				" WHERE dms = " + quote(name) +
+				" AND content = " + quote(c) + ";");
+		}
+		catch (TMSException e) {
+			logError("content: " + e.getMessage());
+		}
+	}
+
 	/** Reset sign state (and notify clients) */
 	public void resetStateNotify() {
-		msg_user = null;
+		setMsgUser(null);
 		setMsgSchedNotify(null);
 		setMsgCurrentNotify(null, "RESET");
 		setPixelStatusNotify(null);
@@ -851,7 +977,12 @@ public class DMSImpl extends DeviceImpl implements DMS, Comparable<DMSImpl> {
 	/** Set the user selected sign message */
 	@Override
 	public void setMsgUser(SignMessage sm) {
-		msg_user = sm;
+		SignMessage om;
+		synchronized (this) {
+			om = msg_user;
+			msg_user = sm;
+		}
+		SignMessageImpl.swapRef(om, sm);
 	}
 
 	/** Set the user selected sign message */
@@ -894,13 +1025,21 @@ public class DMSImpl extends DeviceImpl implements DMS, Comparable<DMSImpl> {
 	private void setMsgSched(SignMessage sm) {
 		try {
 			store.update(this, "msg_sched", sm);
-			msg_sched = sm;
+			SignMessageImpl.swapRef(swapMsgSched(sm), sm);
 		}
 		catch (TMSException e) {
 			logError("msg_sched: " + e.getMessage());
 		}
 	}
 
+	/** Swap the scheduled sign message.
+	 * @return Previous scheduled message. */
+	private synchronized SignMessage swapMsgSched(SignMessage sm) {
+		SignMessage om = msg_sched;
+		msg_sched = sm;
+		return om;
+	}
+
 	/** Set the scheduled sign message.
 	 * @param sm New scheduled sign message.
 	 * @return true If scheduled message changed. */
@@ -954,13 +1093,21 @@ public class DMSImpl extends DeviceImpl implements DMS, Comparable<DMSImpl> {
 	private void setMsgCurrent(SignMessage sm) {
 		try {
 			store.update(this, "msg_current", sm);
-			msg_current = sm;
+			SignMessageImpl.swapRef(swapMsgCurrent(sm), sm);
 		}
 		catch (TMSException e) {
 			logError("msg_current: " + e.getMessage());
 		}
 	}
 
+	/** Swap the current sign message.
+	 * @return Previous current message. */
+	private synchronized SignMessage swapMsgCurrent(SignMessage sm) {
+		SignMessage om = msg_current;
+		msg_current = sm;
+		return om;
+	}
+
 	/** Set the current message.
 	 * @param sm Sign message.
 	 * @param owner Message owner. */
@@ -1021,7 +1168,12 @@ public class DMSImpl extends DeviceImpl implements DMS, Comparable<DMSImpl> {
 	 * a sign.
 	 * @see DeviceImpl.acquire */
 	public void setMsgNext(SignMessage sm) {
-		msg_next = sm;
+		SignMessage om;
+		synchronized (this) {
+			om = msg_next;
+			msg_next = sm;
+		}
+		SignMessageImpl.swapRef(om, sm);
 	}
 
 	/** Get validated user/scheduled sign message.
@@ -1115,14 +1267,6 @@ public class DMSImpl extends DeviceImpl implements DMS, Comparable<DMSImpl> {
 		p.sendMessage(this, sm, owner);
 	}
 
-	/** Check if the sign has a reference to a sign message */
-	public boolean hasReference(final SignMessage sm) {
-		return sm == msg_user ||
-		       sm == msg_sched ||
-		       sm == msg_current ||
-		       sm == msg_next;
-	}
-
 	/** Current message expiration time */
 	private Long expire_time;
 
@@ -1361,9 +1505,21 @@ public class DMSImpl extends DeviceImpl implements DMS, Comparable<DMSImpl> {
 		return (dp instanceof DMSPoller) ? (DMSPoller) dp : null;
 	}
 
+	/** Request a device operation.  An explicit request to send
+	 * settings must not be skipped because of installed fonts. */
+	@Override
+	public void setDeviceRequest(int r) {
+		DeviceRequest dr = DeviceRequest.fromOrdinal(r);
+		if (dr == DeviceRequest.SEND_SETTINGS)
+			clearContent("font");
+		sendDeviceRequest(dr);
+	}
+
 	/** Send a device request operation */
 	@Override
 	protected void sendDeviceRequest(DeviceRequest dr) {
+		if (dr == DeviceRequest.RESET_DEVICE)
+			clearContent();
 		DMSPoller p = getDMSPoller();
 		if (p != null)
 			p.sendRequest(this, dr);
@@ -38,6 +38,7 @@ import us.mn.state.dot.tms.GeoLocHelper;
 import us.mn.state.dot.tms.LaneType;
 import us.mn.state.dot.tms.R_Node;
 import us.mn.state.dot.tms.Road;
+import us.mn.state.dot.tms.SampleFrame;
 import us.mn.state.dot.tms.SystemAttrEnum;
 import us.mn.state.dot.tms.TMSException;
 import us.mn.state.dot.tms.VehLengthClass;
@@ -65,7 +66,7 @@ public class DetectorImpl extends DeviceImpl implements Detector,VehicleSampler{
 	}
 
 	/** Default average detector field length (feet) */
-	static private final float DEFAULT_FIELD_FT = 22.0f;
+	static public final float DEFAULT_FIELD_FT = 22.0f;
 
 	/** Valid density threshold for speed calculation */
 	static private final float DENSITY_THRESHOLD = 1.2f;
@@ -309,7 +310,7 @@ public class DetectorImpl extends DeviceImpl implements Detector,VehicleSampler{
 	}
 
 	/** Create a detector */
-	private DetectorImpl(String n, ControllerImpl c, int p, R_NodeImpl r,
+	protected DetectorImpl(String n, ControllerImpl c, int p, R_NodeImpl r,
 		short lt, short ln, boolean a, boolean ff, boolean af, float fl,
 		String f, String nt)
 	{
@@ -1016,6 +1017,11 @@ public class DetectorImpl extends DeviceImpl implements Detector,VehicleSampler{
 		v_log.logGap();
 	}
 
+	/** Flush buffered vehicle events to the log file */
+	public void flushEvents() {
+		v_log.flush();
+	}
+
 	/** Bin sample data to the specified period */
 	public void binEventSamples(int p) {
 		// FIXME: make this work for other binning periods
@@ -1059,21 +1065,30 @@ public class DetectorImpl extends DeviceImpl implements Detector,VehicleSampler{
 	}
 
 	/** Print the current sample as an XML element */
-	public void writeSampleXml(Writer w) throws IOException {
+	public void writeSampleXml(XmlEmitter em) throws IOException {
 		if (abandoned || !isSampling())
 			return;
 		int flow = getFlowRaw();
 		int speed = Math.round(getSpeed());
 		float occ = getOccupancy();
-		w.write("\t<sample");
-		w.write(createAttribute("sensor", name));
+		em.raw(FlushXmlJob.SAMPLE_START);
+		em.attr(FlushXmlJob.SENSOR, name);
 		if (flow != MISSING_DATA)
-			w.write(createAttribute("flow", flow));
+			em.attr(FlushXmlJob.FLOW, flow);
 		if (isMainline() && speed > 0)
-			w.write(createAttribute("speed", speed));
+			em.attr(FlushXmlJob.SPEED, speed);
 		if (occ >= 0)
-			w.write(createAttribute("occ", formatFloat(occ, 2)));
-		w.write("/>\n");
+			em.attr(FlushXmlJob.OCC, occ, 2);
+		em.raw(FlushXmlJob.ELEMENT_END);
+	}
+
+	/** Store the current sample in a sample frame */
+	public void storeSample(SampleFrame f, int i) {
+		if (abandoned || !isSampling())
+			return;
+		int speed = Math.round(getSpeed());
+		f.setSample(i, getFlowRaw(), (isMainline() && speed > 0)
+			? speed : MISSING_DATA, getOccupancy());
 	}
 
 	/** Send a device request operation */
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2018  Minnesota Department of Transportation
+ * Copyright (C) 2009-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -144,6 +144,7 @@ public class DmsActionImpl extends BaseObjectImpl implements DmsAction {
 		if (p != phase) {
 			store.update(this, "phase", p);
 			setPhase(p);
+			plan_engine.planChanged(action_plan);
 		}
 	}
 
@@ -167,6 +168,7 @@ public class DmsActionImpl extends BaseObjectImpl implements DmsAction {
 		if (qm != quick_message) {
 			store.update(this, "quick_message", qm);
 			setQuickMessage(qm);
+			plan_engine.planChanged(action_plan);
 		}
 	}
 
@@ -190,6 +192,7 @@ public class DmsActionImpl extends BaseObjectImpl implements DmsAction {
 		if (be != beacon_enabled) {
 			store.update(this, "beacon_enabled", be);
 			setBeaconEnabled(be);
+			plan_engine.planChanged(action_plan);
 		}
 	}
 
@@ -215,6 +218,7 @@ public class DmsActionImpl extends BaseObjectImpl implements DmsAction {
 		if (mp != msg_priority) {
 			store.update(this, "msg_priority", mp);
 			setMsgPriority(mp);
+			plan_engine.planChanged(action_plan);
 		}
 	}
 
@@ -225,4 +229,18 @@ public class DmsActionImpl extends BaseObjectImpl implements DmsAction {
 	public int getMsgPriority() {
 		return msg_priority;
 	}
+
+	/** Store the DMS action */
+	@Override
+	public void doStore() throws TMSException {
+		super.doStore();
+		plan_engine.invalidate();
+	}
+
+	/** Destroy the DMS action */
+	@Override
+	public void doDestroy() throws TMSException {
+		super.doDestroy();
+		plan_engine.invalidate();
+	}
 }
@@ -73,6 +73,12 @@ public class DmsActionMsg {
 		return SystemAttrEnum.VSA_MAX_DISPLAY_MPH.getInt();
 	}
 
+	/** Message sources which depend on data inputs */
+	static private final int DYNAMIC_SRC = SignMsgSource.toBits(
+		SignMsgSource.tolling, SignMsgSource.external,
+		SignMsgSource.travel_time, SignMsgSource.slow_warning,
+		SignMsgSource.speed_advisory, SignMsgSource.parking);
+
 	/** Round value to the nearest 5 */
 	static private int round5(float v) {
 		return Math.round(v / 5) * 5;
@@ -165,6 +171,12 @@ public class DmsActionMsg {
 		return src;
 	}
 
+	/** Check if the message depends on data inputs, which can change
+	 * without an action plan phase change */
+	public boolean isDynamic() {
+		return (src & DYNAMIC_SRC) != 0;
+	}
+
 	/** Mapping of station IDs to travel times */
 	private final HashMap<String, TravelTime> travel =
 		new HashMap<String, TravelTime>();
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2008-2016  Minnesota Department of Transportation
+ * Copyright (C) 2008-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -103,4 +103,18 @@ public class DmsSignGroupImpl extends BaseObjectImpl implements DmsSignGroup {
 	public SignGroup getSignGroup() {
 		return sign_group;
 	}
+
+	/** Store the DMS sign group */
+	@Override
+	public void doStore() throws TMSException {
+		super.doStore();
+		plan_engine.invalidate();
+	}
+
+	/** Destroy the DMS sign group */
+	@Override
+	public void doDestroy() throws TMSException {
+		super.doDestroy();
+		plan_engine.invalidate();
+	}
 }
@@ -37,6 +37,11 @@ public class FlushSamplesJob extends Job {
 		return SystemAttrEnum.SAMPLE_ARCHIVE_ENABLE.getBoolean();
 	}
 
+	/** Are columnar sample files enabled? */
+	static private boolean isColumnarEnabled() {
+		return SystemAttrEnum.SAMPLE_ARCHIVE_COLUMNAR.getBoolean();
+	}
+
 	/** Number of milliseconds to cache periodic sample data */
 	static private final long SAMPLE_CACHE_MS = new Interval(10,
 		Interval.Units.MINUTES).ms();
@@ -58,8 +63,14 @@ public class FlushSamplesJob extends Job {
 	/** Perform the flush samples job */
 	public void perform() {
 		long before = calculatePurgeStamp();
-		flushDetectorSamples(before);
-		flushWeatherSamples(before);
+		writer.setColumnar(isColumnarEnabled());
+		try {
+			flushDetectorSamples(before);
+			flushWeatherSamples(before);
+		}
+		finally {
+			writer.close();
+		}
 	}
 
 	/** Flush detector sample data to disk */
@@ -0,0 +1,45 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.util.Calendar;
+import java.util.Iterator;
+import us.mn.state.dot.sched.Job;
+import us.mn.state.dot.tms.Detector;
+import us.mn.state.dot.tms.DetectorHelper;
+
+/**
+ * Job to flush buffered vehicle events to disk.
+ *
+ * @author Douglas Lau
+ */
+public class FlushVehicleEventsJob extends Job {
+
+	/** Create a new flush vehicle events job */
+	public FlushVehicleEventsJob() {
+		super(Calendar.SECOND, 30);
+	}
+
+	/** Perform the flush vehicle events job */
+	public void perform() {
+		Iterator<Detector> it = DetectorHelper.iterator();
+		while (it.hasNext()) {
+			Detector d = it.next();
+			if (d instanceof DetectorImpl)
+				((DetectorImpl) d).flushEvents();
+		}
+		VehicleEventLog.closeIdle();
+	}
+}
@@ -15,7 +15,6 @@
 package us.mn.state.dot.tms.server;
 
 import java.io.IOException;
-import java.io.Writer;
 import java.util.Iterator;
 import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
@@ -32,9 +31,68 @@ public class FlushXmlJob extends Job {
 	/** Detector sample file */
 	static private final String SAMPLE_XML = "det_sample.xml";
 
+	/** Sample XML DTD */
+	static private final byte[] SAMPLE_DTD = XmlEmitter.encode(
+		"<!DOCTYPE traffic_sample [\n" +
+		"<!ELEMENT traffic_sample (sample)*>\n" +
+		"<!ATTLIST traffic_sample time_stamp CDATA #REQUIRED>\n" +
+		"<!ATTLIST traffic_sample period CDATA #REQUIRED>\n" +
+		"<!ELEMENT sample EMPTY>\n" +
+		"<!ATTLIST sample sensor CDATA #REQUIRED>\n" +
+		"<!ATTLIST sample flow CDATA 'UNKNOWN'>\n" +
+		"<!ATTLIST sample speed CDATA 'UNKNOWN'>\n" +
+		"<!ATTLIST sample occ CDATA 'UNKNOWN'>\n" +
+		"]>\n");
+
+	/** Sample element start */
+	static final byte[] SAMPLE_START = XmlEmitter.encode("\t<sample");
+
+	/** Empty element end */
+	static final byte[] ELEMENT_END = XmlEmitter.encode("/>\n");
+
+	/** Sensor attribute */
+	static final XmlEmitter.Attr SENSOR = new XmlEmitter.Attr("sensor");
+
+	/** Flow attribute */
+	static final XmlEmitter.Attr FLOW = new XmlEmitter.Attr("flow");
+
+	/** Speed attribute */
+	static final XmlEmitter.Attr SPEED = new XmlEmitter.Attr("speed");
+
+	/** Occupancy attribute */
+	static final XmlEmitter.Attr OCC = new XmlEmitter.Attr("occ");
+
+	/** Write the header of a sample XML file */
+	static void writeSampleXmlHead(XmlEmitter em) throws IOException {
+		em.raw(XmlWriter.XML_DECLARATION);
+		em.raw(SAMPLE_DTD);
+		em.raw("<traffic_sample time_stamp='");
+		em.text(TimeSteward.getDateInstance().toString());
+		em.raw("' period='30'>\n");
+	}
+
+	/** Write the tail of a sample XML file */
+	static void writeSampleXmlTail(XmlEmitter em) throws IOException {
+		em.raw("</traffic_sample>\n");
+	}
+
 	/** Station manager */
 	private final StationManager station_manager;
 
+	/** Emitter for detector sample XML (reused for every write) */
+	private final XmlEmitter sample_xml = new XmlEmitter(SAMPLE_XML,
+		true)
+	{
+		@Override protected void emit() throws IOException {
+			writeSampleXmlHead(this);
+			writeSampleXmlBody(this);
+			writeSampleXmlTail(this);
+		}
+	};
+
+	/** Writer for binary sample frames */
+	private final SampleFrameWriter frame_writer = new SampleFrameWriter();
+
 	/** Create a new flush XML samples job */
 	public FlushXmlJob(StationManager sm) {
 		station_manager = sm;
@@ -43,61 +101,20 @@ public class FlushXmlJob extends Job {
 	/** Perform flush XML data to disk */
 	@Override
 	public void perform() throws IOException {
-		writeSampleXml();
+		sample_xml.write();
+		frame_writer.write();
 		station_manager.writeSampleXml();
 	}
 
-	/** Write the sample data out as XML */
-	private void writeSampleXml() throws IOException {
-		XmlWriter w = new XmlWriter(SAMPLE_XML, true) {
-			@Override protected void write(Writer w)
-				throws IOException
-			{
-				writeSampleXmlHead(w);
-				writeSampleXmlBody(w);
-				writeSampleXmlTail(w);
-			}
-		};
-		w.write();
-	}
-
-	/** Write the header of the detector sample XML file */
-	private void writeSampleXmlHead(Writer w) throws IOException {
-		w.write(XmlWriter.XML_DECLARATION);
-		writeDtd(w);
-		w.write("<traffic_sample time_stamp='" +
-			TimeSteward.getDateInstance() + "' period='30'>\n");
-	}
-
-	/** Write the DTD */
-	private void writeDtd(Writer w) throws IOException {
-		w.write("<!DOCTYPE traffic_sample [\n");
-		w.write("<!ELEMENT traffic_sample (sample)*>\n");
-		w.write("<!ATTLIST traffic_sample time_stamp " +
-			"CDATA #REQUIRED>\n");
-		w.write("<!ATTLIST traffic_sample period CDATA #REQUIRED>\n");
-		w.write("<!ELEMENT sample EMPTY>\n");
-		w.write("<!ATTLIST sample sensor CDATA #REQUIRED>\n");
-		w.write("<!ATTLIST sample flow CDATA 'UNKNOWN'>\n");
-		w.write("<!ATTLIST sample speed CDATA 'UNKNOWN'>\n");
-		w.write("<!ATTLIST sample occ CDATA 'UNKNOWN'>\n");
-		w.write("]>\n");
-	}
-
 	/** Write the body of the detector sample XML file */
-	private void writeSampleXmlBody(Writer w) throws IOException {
+	private void writeSampleXmlBody(XmlEmitter em) throws IOException {
 		Iterator<Detector> it = DetectorHelper.iterator();
 		while (it.hasNext()) {
 			Detector d = it.next();
 			if (d instanceof DetectorImpl) {
 				DetectorImpl det = (DetectorImpl) d;
-				det.writeSampleXml(w);
+				det.writeSampleXml(em);
 			}
 		}
 	}
-
-	/** Write the tail of the detector sample XML file */
-	private void writeSampleXmlTail(Writer w) throws IOException {
-		w.write("</traffic_sample>\n");
-	}
 }
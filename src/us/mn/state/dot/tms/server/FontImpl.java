@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2018  Minnesota Department of Transportation
+ * Copyright (C) 2000-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,12 +15,15 @@
 package us.mn.state.dot.tms.server;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.ResultSet;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.CRC32;
 import us.mn.state.dot.tms.ChangeVetoException;
 import us.mn.state.dot.tms.Font;
 import us.mn.state.dot.tms.FontHelper;
+import us.mn.state.dot.tms.Glyph;
 import us.mn.state.dot.tms.TMSException;
 
 /**
@@ -235,4 +238,33 @@ public class FontImpl extends BaseObjectImpl implements Font {
 	public int getVersionID() {
 		return versionID;
 	}
+
+	/** Get a hash of the font content, including all glyphs.  This is
+	 * a CRC-32 of the font properties and glyph bitmaps, used to check
+	 * whether a font needs to be sent to a sign. */
+	public int getContentHash() {
+		CRC32 crc = new CRC32();
+		updateInt(crc, f_number);
+		updateInt(crc, height);
+		updateInt(crc, width);
+		updateInt(crc, lineSpacing);
+		updateInt(crc, charSpacing);
+		for (Glyph g: FontHelper.lookupGlyphs(this)) {
+			updateInt(crc, g.getCodePoint());
+			updateInt(crc, g.getWidth());
+			byte[] pixels = g.getPixels().getBytes(
+				StandardCharsets.US_ASCII);
+			updateInt(crc, pixels.length);
+			crc.update(pixels);
+		}
+		return (int) crc.getValue();
+	}
+
+	/** Update a CRC with a 32-bit value (big-endian) */
+	static private void updateInt(CRC32 crc, int v) {
+		crc.update(v >>> 24);
+		crc.update(v >>> 16);
+		crc.update(v >>> 8);
+		crc.update(v);
+	}
 }
@@ -151,7 +151,7 @@ public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
 	}
 
 	/** Create a new geo location */
-	private GeoLocImpl(String n, String nt, Road r, short rd, Road x,
+	protected GeoLocImpl(String n, String nt, Road r, short rd, Road x,
 		short xd, short xm, Double lt, Double ln, String lm)
 	{
 		this(n, nt);
@@ -191,6 +191,7 @@ public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
 		if (r != roadway) {
 			store.update(this, "roadway", r);
 			setRoadway(r);
+			updateR_Node();
 		}
 	}
 
@@ -200,6 +201,15 @@ public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
 		notifyAttribute("roadway");
 	}
 
+	/** Update the corridor of an r_node at this location */
+	private void updateR_Node() {
+		if (R_Node.SONAR_TYPE.equals(notify_tag)) {
+			R_NodeImpl n = lookupR_Node(name);
+			if (n != null)
+				corridors.updateNode(n);
+		}
+	}
+
 	/** Get the roadway location */
 	@Override
 	public Road getRoadway() {
@@ -222,6 +232,7 @@ public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
 			checkDir(d);
 			store.update(this, "road_dir", d);
 			setRoadDir(d);
+			updateR_Node();
 		}
 	}
 
@@ -251,6 +262,7 @@ public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
 		if (x != cross_street) {
 			store.update(this, "cross_street", x);
 			setCrossStreet(x);
+			updateR_Node();
 		}
 	}
 
@@ -281,6 +293,7 @@ public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
 			checkDir(d);
 			store.update(this, "cross_dir", d);
 			setCrossDir(d);
+			updateR_Node();
 		}
 	}
 
@@ -341,6 +354,7 @@ public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
 			checkLat(lt);
 			store.update(this, "lat", lt);
 			setLat(lt);
+			updateR_Node();
 		}
 	}
 
@@ -371,6 +385,7 @@ public class GeoLocImpl extends BaseObjectImpl implements GeoLoc {
 			checkLon(ln);
 			store.update(this, "lon", ln);
 			setLon(ln);
+			updateR_Node();
 		}
 	}
 
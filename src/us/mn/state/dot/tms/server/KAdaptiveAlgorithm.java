@@ -15,8 +15,10 @@
  */
 package us.mn.state.dot.tms.server;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.concurrent.RecursiveAction;
 import us.mn.state.dot.sched.DebugLog;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.EventType;
@@ -207,13 +209,24 @@ public class KAdaptiveAlgorithm implements MeterAlgorithmState {
 		return alg;
 	}
 
-	/** Process one interval for all K adaptive algorithm states */
+	/** Process one interval for all K adaptive algorithm states.
+	 * Stations are updated concurrently for each corridor, then done
+	 * algorithms are removed. */
 	static public void processAllStates() {
+		ArrayList<RecursiveAction> actions =
+			new ArrayList<RecursiveAction>();
+		for (final KAdaptiveAlgorithm alg: ALL_ALGS.values()) {
+			actions.add(new RecursiveAction() {
+				@Override protected void compute() {
+					alg.updateStations();
+				}
+			});
+		}
+		MeteringJob.forkAll(actions);
 		Iterator<KAdaptiveAlgorithm> it =
 			ALL_ALGS.values().iterator();
 		while (it.hasNext()) {
 			KAdaptiveAlgorithm alg = it.next();
-			alg.updateStations();
 			if (alg.isDone()) {
 				alg.log("isDone: removing");
 				it.remove();
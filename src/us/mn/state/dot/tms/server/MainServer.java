@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2018  Minnesota Department of Transportation
+ * Copyright (C) 2000-2019  Minnesota Department of Transportation
  * Copyright (C) 2017  Iteris Inc.
  *
  * This program is free software; you can redistribute it and/or modify
@@ -104,7 +104,7 @@ public class MainServer {
 			IrisRoleImpl.lookup(store, ns);
 			IrisDomainImpl.lookup(store, ns);
 			IrisUserImpl.lookup(store, ns);
-			BaseObjectImpl.loadAll(store, ns);
+			BaseObjectImpl.loadAll(store, ns, getLoadThreads(props));
 			scheduleTimerJobs();
 			scheduleFlushJobs();
 			startProtocolServer();
@@ -175,6 +175,17 @@ public class MainServer {
 		);
 	}
 
+	/** Get the number of threads to load objects at startup */
+	static private int getLoadThreads(Properties props) {
+		try {
+			return Integer.parseInt(props.getProperty(
+				"db.load.threads", "4"));
+		}
+		catch (NumberFormatException e) {
+			return 1;
+		}
+	}
+
 	/** Create the server namespace */
 	static private WhitelistNamespace createNamespace(Properties props)
 		throws UnknownHostException, NumberFormatException
@@ -199,13 +210,17 @@ public class MainServer {
 		TIMER.addJob(new ParkingAreaJob());
 		TIMER.addJob(new ReaperJob());
 		TIMER.addJob(new ActionPlanJob(TIMER));
+		TIMER.addJob(new TimeActionJob());
 	}
 
 	/** Schedule jobs on FLUSH thread */
 	static private void scheduleFlushJobs() {
 		FLUSH.addJob(new FlushSamplesJob(a_factory));
+		FLUSH.addJob(new FlushVehicleEventsJob());
+		FLUSH.addJob(new FlushTagReadsJob());
 		FLUSH.addJob(new ArchiveSamplesJob(a_factory));
 		FLUSH.addJob(new ProfilingJob());
+		FLUSH.addJob(new MetricsJob());
 		FLUSH.addJob(new XmlConfigJob());
 		FLUSH.addJob(new XmlConfigJob(1000));
 		FLUSH.addJob(new SignMessageXmlJob());
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2017  Minnesota Department of Transportation
+ * Copyright (C) 2009-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -130,6 +130,7 @@ public class MeterActionImpl extends BaseObjectImpl implements MeterAction {
 			return;
 		store.update(this, "phase", p);
 		setPhase(p);
+		plan_engine.planChanged(action_plan);
 	}
 
 	/** Get the plan phase to perform action */
@@ -137,4 +138,18 @@ public class MeterActionImpl extends BaseObjectImpl implements MeterAction {
 	public PlanPhase getPhase() {
 		return phase;
 	}
+
+	/** Store the meter action */
+	@Override
+	public void doStore() throws TMSException {
+		super.doStore();
+		plan_engine.invalidate();
+	}
+
+	/** Destroy the meter action */
+	@Override
+	public void doDestroy() throws TMSException {
+		super.doDestroy();
+		plan_engine.invalidate();
+	}
 }
@@ -16,13 +16,20 @@ package us.mn.state.dot.tms.server;
 
 import java.util.Calendar;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import us.mn.state.dot.sched.Histogram;
 import us.mn.state.dot.sched.Job;
+import us.mn.state.dot.sched.Metrics;
 import us.mn.state.dot.sched.Scheduler;
 import us.mn.state.dot.tms.RampMeter;
 import us.mn.state.dot.tms.RampMeterHelper;
 
 /**
- * Job to calculate station data and ramp metering.
+ * Job to calculate station data and ramp metering.  Each phase (station
+ * data, bottlenecks, then K adaptive states) is split into independent
+ * tasks per station or corridor, which are run on a fork-join pool.
  *
  * @author Douglas Lau
  */
@@ -31,6 +38,23 @@ public class MeteringJob extends Job {
 	/** Seconds to offset each poll from start of interval */
 	static private final int OFFSET_SECS = 29;
 
+	/** Fork-join pool for metering tasks */
+	static private final ForkJoinPool POOL = new ForkJoinPool();
+
+	/** Histogram of metering cycle times */
+	static private final Histogram CYCLE_TIME =
+		Metrics.histogram("metering.cycle");
+
+	/** Perform a list of actions on the fork-join pool, waiting for all
+	 * of them to complete.  Any exception is rethrown to the caller. */
+	static public void forkAll(final List<RecursiveAction> actions) {
+		POOL.invoke(new RecursiveAction() {
+			@Override protected void compute() {
+				invokeAll(actions);
+			}
+		});
+	}
+
 	/** FLUSH Scheduler for writing XML (I/O to disk) */
 	private final Scheduler flush;
 
@@ -51,6 +75,7 @@ public class MeteringJob extends Job {
 	/** Perform the metering job */
 	@Override
 	public void perform() {
+		long st = Metrics.start();
 		try {
 			station_manager.calculateData();
 			// Perform flush job after station data calculated
@@ -59,6 +84,7 @@ public class MeteringJob extends Job {
 		}
 		finally {
 			validateMetering();
+			CYCLE_TIME.recordSince(st);
 		}
 	}
 
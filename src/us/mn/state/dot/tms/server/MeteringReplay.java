@@ -0,0 +1,671 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.zip.GZIPInputStream;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+import us.mn.state.dot.sched.SimulatedTimeSource;
+import us.mn.state.dot.sched.SystemTimeSource;
+import us.mn.state.dot.sched.TimeSteward;
+import us.mn.state.dot.sonar.SonarException;
+import us.mn.state.dot.sonar.server.ServerNamespace;
+import us.mn.state.dot.tms.BaseHelper;
+import us.mn.state.dot.tms.Direction;
+import us.mn.state.dot.tms.LaneType;
+import us.mn.state.dot.tms.MeterAlgorithm;
+import us.mn.state.dot.tms.R_Node;
+import us.mn.state.dot.tms.R_NodeTransition;
+import us.mn.state.dot.tms.R_NodeType;
+import us.mn.state.dot.tms.RampMeterType;
+import us.mn.state.dot.tms.Road;
+import us.mn.state.dot.tms.Station;
+import us.mn.state.dot.tms.StationHelper;
+import us.mn.state.dot.tms.SystemAttrEnum;
+import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
+import static us.mn.state.dot.tms.server.DetectorImpl.SAMPLE_PERIOD_SEC;
+
+/**
+ * Offline replay of ramp metering.  The corridors, detectors and meters
+ * are loaded from a tms_config.xml file, without a database.  Then one day
+ * of archived samples (a .traffic file) is fed to the detectors, with the
+ * time steward driven in simulated time.  For every 30-second interval,
+ * station data, bottlenecks and metering algorithms are processed just as
+ * in MeteringJob, as fast as possible.
+ *
+ * Bottleneck stations and planned release rates are written as CSV lines:
+ * "time,bottleneck,station,speed" and "time,meter,name,rate".  A summary
+ * of CPU time per cycle is written at the end, for benchmarking.
+ *
+ * Detector auto-fail and meter events are disabled, since they must be
+ * stored in the database.  Meters are operating during fixed AM and PM
+ * periods, instead of being controlled by action plans.  CD road links
+ * are not available, since tms_config.xml does not contain the cross
+ * streets of r_nodes.
+ *
+ * @author Douglas Lau
+ */
+public class MeteringReplay {
+
+	/** Number of sample periods per day */
+	static private final int SAMPLES_PER_DAY = 24 * 60 * 60 /
+		SAMPLE_PERIOD_SEC;
+
+	/** Sample period (ms) */
+	static private final long SAMPLE_PERIOD_MS = SAMPLE_PERIOD_SEC * 1000;
+
+	/** Maximum scan count for a sample period (60 Hz) */
+	static private final int MAX_SCANS = SAMPLE_PERIOD_SEC * 60;
+
+	/** Offset (ms) from end of sample period to metering cycle.  This
+	 * matches the offset of MeteringJob. */
+	static private final long METERING_OFFSET_MS = 29 * 1000;
+
+	/** Number of cycles between purging cached detector samples */
+	static private final int PURGE_CYCLES = 20;
+
+	/** Age (ms) of cached samples to purge */
+	static private final long PURGE_AGE_MS = 10 * 60 * 1000;
+
+	/** AM metering start minute-of-day */
+	static private final int AM_START_MIN = 6 * 60;
+
+	/** AM metering stop minute-of-day */
+	static private final int AM_STOP_MIN = 9 * 60;
+
+	/** PM metering start minute-of-day */
+	static private final int PM_START_MIN = 14 * 60 + 30;
+
+	/** PM metering stop minute-of-day */
+	static private final int PM_STOP_MIN = 19 * 60;
+
+	/** Nanoseconds per millisecond */
+	static private final double NS_PER_MS = 1000000.0;
+
+	/** Sample types to replay */
+	static private final PeriodicSampleType[] SAMPLE_TYPES = {
+		PeriodicSampleType.VEH_COUNT,
+		PeriodicSampleType.SCAN,
+		PeriodicSampleType.SPEED,
+	};
+
+	/** Replay metering for one day.
+	 * @param args tms_config.xml file, .traffic file and (optional)
+	 *             metering algorithm (K_ADAPTIVE or SIMPLE). */
+	static public void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: MeteringReplay " +
+				"tms_config.xml YYYYMMDD.traffic [algorithm]");
+			System.exit(1);
+		}
+		try {
+			MeterAlgorithm alg = (args.length > 2)
+				? MeterAlgorithm.valueOf(args[2].toUpperCase())
+				: MeterAlgorithm.K_ADAPTIVE;
+			MeteringReplay replay = new MeteringReplay(alg);
+			replay.loadConfig(new File(args[0]));
+			PrintStream out = new PrintStream(
+				new BufferedOutputStream(System.out));
+			replay.replay(new File(args[1]), out);
+			out.flush();
+			replay.printSummary(System.err);
+		}
+		catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+
+	/** Parse an attribute as an integer value */
+	static private int parseInt(String v, int d) {
+		try {
+			if (v != null)
+				return Integer.parseInt(v);
+		}
+		catch (NumberFormatException e) {
+			// Invalid value
+		}
+		return d;
+	}
+
+	/** Parse an attribute as a float value */
+	static private float parseFloat(String v, float d) {
+		try {
+			if (v != null)
+				return Float.parseFloat(v);
+		}
+		catch (NumberFormatException e) {
+			// Invalid value
+		}
+		return d;
+	}
+
+	/** Parse an attribute as a double value */
+	static private Double parseDouble(String v) {
+		try {
+			if (v != null)
+				return Double.parseDouble(v);
+		}
+		catch (NumberFormatException e) {
+			// Invalid value
+		}
+		return null;
+	}
+
+	/** Parse a boolean attribute ('t' is true) */
+	static private boolean parseBool(String v, boolean d) {
+		return (v != null) ? "t".equals(v) : d;
+	}
+
+	/** Lookup a direction by abbreviation */
+	static private Direction lookupDirection(String a) {
+		for (Direction d: Direction.values()) {
+			if (d.abbrev.equals(a))
+				return d;
+		}
+		return Direction.UNKNOWN;
+	}
+
+	/** Lookup an r_node type by description */
+	static private R_NodeType lookupNodeType(String d) {
+		for (R_NodeType nt: R_NodeType.values()) {
+			if (nt.description.equals(d))
+				return nt;
+		}
+		return R_NodeType.STATION;
+	}
+
+	/** Lookup an r_node transition by description */
+	static private R_NodeTransition lookupTransition(String d) {
+		for (R_NodeTransition t: R_NodeTransition.values()) {
+			if (t.description.equals(d))
+				return t;
+		}
+		return R_NodeTransition.NONE;
+	}
+
+	/** Lookup a lane type by detector category (suffix) */
+	static private LaneType lookupLaneType(String c) {
+		if (c != null) {
+			for (LaneType lt: LaneType.values()) {
+				if (lt.suffix.equals(c))
+					return lt;
+			}
+		}
+		return LaneType.MAINLINE;
+	}
+
+	/** Get the total CPU time (ns) of all threads */
+	static private long cpuTime() {
+		ThreadMXBean tb = ManagementFactory.getThreadMXBean();
+		long t = 0;
+		for (long id: tb.getAllThreadIds()) {
+			long c = tb.getThreadCpuTime(id);
+			if (c > 0)
+				t += c;
+		}
+		return t;
+	}
+
+	/** Detector for replaying archived samples.  It has no controller,
+	 * so it is always active. */
+	static private class ReplayDetector extends DetectorImpl {
+		private ReplayDetector(String n, R_NodeImpl r, LaneType lt,
+			short ln, boolean a, float fl)
+		{
+			super(n, null, 0, r, (short) lt.ordinal(), ln, a, false,
+			      false, fl, null, "");
+		}
+		@Override public boolean isActive() {
+			return true;
+		}
+		@Override public boolean isFailed() {
+			return getForceFail() || getAutoFail();
+		}
+	}
+
+	/** Ramp meter for replay, using fixed metering periods */
+	static private class ReplayMeter extends RampMeterImpl {
+		private ReplayMeter(String n, GeoLocImpl loc, int st, int w,
+			MeterAlgorithm alg)
+		{
+			super(n, loc, null, 0, "",
+			      RampMeterType.DUAL_ALTERNATE.ordinal(), st, w,
+			      alg.ordinal(), 0, 0, null, null, null);
+		}
+		@Override public int getStartMin() {
+			return isAm() ? AM_START_MIN : PM_START_MIN;
+		}
+		@Override public int getStopMin() {
+			return isAm() ? AM_STOP_MIN : PM_STOP_MIN;
+		}
+		private boolean isAm() {
+			return TimeSteward.getCalendarInstance().get(
+				Calendar.AM_PM) == Calendar.AM;
+		}
+		private void updateOperating() {
+			int min = TimeSteward.currentMinuteOfDayInt();
+			setOperating(min >= getStartMin() &&
+			             min < getStopMin());
+		}
+	}
+
+	/** Meter configuration, which must be created after corridors */
+	static private class MeterConfig {
+		private final String name;
+		private final GeoLocImpl loc;
+		private final int storage;
+		private final int max_wait;
+		private MeterConfig(String n, GeoLocImpl l, int st, int w) {
+			name = n;
+			loc = l;
+			storage = st;
+			max_wait = w;
+		}
+	}
+
+	/** Metering algorithm for all meters */
+	private final MeterAlgorithm algorithm;
+
+	/** Simulated time source */
+	private final SimulatedTimeSource clock = new SimulatedTimeSource(0);
+
+	/** Namespace for replay objects */
+	private final ServerNamespace namespace = new ServerNamespace();
+
+	/** Station manager */
+	private final StationManager station_manager = new StationManager();
+
+	/** Roads by name (roadways and cross streets) */
+	private final HashMap<String, Road> roads =
+		new HashMap<String, Road>();
+
+	/** All detectors */
+	private final ArrayList<ReplayDetector> detectors =
+		new ArrayList<ReplayDetector>();
+
+	/** Meter configurations */
+	private final ArrayList<MeterConfig> meter_cfgs =
+		new ArrayList<MeterConfig>();
+
+	/** All ramp meters */
+	private final ArrayList<ReplayMeter> meters =
+		new ArrayList<ReplayMeter>();
+
+	/** Archived samples, by file name */
+	private final HashMap<String, ByteBuffer> samples =
+		new HashMap<String, ByteBuffer>();
+
+	/** CPU time (ns) for each metering cycle */
+	private final long[] cycle_cpu = new long[SAMPLES_PER_DAY];
+
+	/** Number of cycles replayed */
+	private int n_cycles;
+
+	/** Elapsed wall time (ns) of replay */
+	private long elapsed;
+
+	/** Create a new metering replay.  This replaces the global
+	 * namespace, so it must not be used within a running server.
+	 * @param alg Metering algorithm for all meters. */
+	public MeteringReplay(MeterAlgorithm alg) throws SonarException {
+		algorithm = alg;
+		BaseObjectImpl.namespace = namespace;
+		BaseHelper.namespace = namespace;
+		createSystemAttributes();
+	}
+
+	/** Create system attributes with default values */
+	private void createSystemAttributes() throws SonarException {
+		for (SystemAttrEnum sa: SystemAttrEnum.values()) {
+			String v = sa.getDefault();
+			if (sa == SystemAttrEnum.DETECTOR_AUTO_FAIL_ENABLE ||
+			    sa == SystemAttrEnum.METER_EVENT_ENABLE)
+				v = "false";
+			namespace.addObject(new SystemAttributeImpl(sa.aname(),
+				v));
+		}
+	}
+
+	/** Lookup (or create) a road */
+	private Road lookupRoad(String n) throws SonarException {
+		Road r = roads.get(n);
+		if (null == r) {
+			RoadImpl ri = new RoadImpl(n, "", (short) 0, (short) 0,
+				(short) 0);
+			namespace.addObject(ri);
+			roads.put(n, ri);
+			r = ri;
+		}
+		return r;
+	}
+
+	/** Load the configuration from a tms_config.xml file */
+	public void loadConfig(File f) throws IOException, SAXException,
+		ParserConfigurationException, SonarException
+	{
+		InputStream in = new FileInputStream(f);
+		try {
+			if (f.getName().endsWith(".gz"))
+				in = new GZIPInputStream(in);
+			SAXParserFactory spf = SAXParserFactory.newInstance();
+			spf.newSAXParser().parse(in, new ConfigHandler());
+		}
+		finally {
+			in.close();
+		}
+		BaseObjectImpl.corridors.createCorridors();
+		for (MeterConfig mc: meter_cfgs) {
+			ReplayMeter m = new ReplayMeter(mc.name, mc.loc,
+				mc.storage, mc.max_wait, algorithm);
+			namespace.addObject(m);
+			meters.add(m);
+		}
+	}
+
+	/** Handler for tms_config.xml elements */
+	private class ConfigHandler extends DefaultHandler {
+
+		/** Current corridor roadway */
+		private Road roadway;
+
+		/** Current corridor direction */
+		private short road_dir;
+
+		/** Current r_node */
+		private R_NodeImpl r_node;
+
+		@Override
+		public void startElement(String uri, String localName,
+			String qname, Attributes attrs) throws SAXException
+		{
+			try {
+				if (qname.equals("corridor"))
+					startCorridor(attrs);
+				else if (qname.equals("r_node"))
+					startR_Node(attrs);
+				else if (qname.equals("detector"))
+					startDetector(attrs);
+				else if (qname.equals("meter"))
+					startMeter(attrs);
+			}
+			catch (SonarException e) {
+				throw new SAXException(e);
+			}
+		}
+
+		@Override
+		public void endElement(String uri, String localName,
+			String qname)
+		{
+			if (qname.equals("r_node"))
+				r_node = null;
+			else if (qname.equals("corridor"))
+				roadway = null;
+		}
+
+		/** Start a corridor element */
+		private void startCorridor(Attributes attrs)
+			throws SonarException
+		{
+			roadway = lookupRoad(attrs.getValue("route"));
+			road_dir = (short) lookupDirection(
+				attrs.getValue("dir")).ordinal();
+		}
+
+		/** Start an r_node element.  The label is used as cross
+		 * street, so that meters can find their entrance r_node. */
+		private void startR_Node(Attributes attrs)
+			throws SonarException
+		{
+			String n = attrs.getValue("name");
+			String lbl = attrs.getValue("label");
+			Road x = lookupRoad((lbl != null) ? lbl : n);
+			GeoLocImpl loc = new GeoLocImpl(n, R_Node.SONAR_TYPE,
+				roadway, road_dir, x, (short) 0, (short) 0,
+				parseDouble(attrs.getValue("lat")),
+				parseDouble(attrs.getValue("lon")), null);
+			namespace.addObject(loc);
+			R_NodeType nt = lookupNodeType(
+				attrs.getValue("n_type"));
+			R_NodeTransition t = lookupTransition(
+				attrs.getValue("transition"));
+			r_node = new R_NodeImpl(n, loc, nt.ordinal(),
+				parseBool(attrs.getValue("pickable"), false),
+				parseBool(attrs.getValue("above"), false),
+				t.ordinal(),
+				parseInt(attrs.getValue("lanes"), 0),
+				"left".equals(attrs.getValue("attach_side")),
+				parseInt(attrs.getValue("shift"), 0),
+				parseBool(attrs.getValue("active"), true),
+				parseBool(attrs.getValue("abandoned"), false),
+				attrs.getValue("station_id"),
+				parseInt(attrs.getValue("s_limit"),
+					R_NodeImpl.getDefaultSpeedLimit()),
+				"");
+			namespace.addObject(r_node);
+		}
+
+		/** Start a detector element */
+		private void startDetector(Attributes attrs)
+			throws SonarException
+		{
+			if (null == r_node)
+				return;
+			ReplayDetector det = new ReplayDetector(
+				attrs.getValue("name"), r_node,
+				lookupLaneType(attrs.getValue("category")),
+				(short) parseInt(attrs.getValue("lane"), 0),
+				parseBool(attrs.getValue("abandoned"), false),
+				parseFloat(attrs.getValue("field"),
+					DetectorImpl.DEFAULT_FIELD_FT));
+			det.initTransients();
+			namespace.addObject(det);
+			detectors.add(det);
+		}
+
+		/** Start a meter element */
+		private void startMeter(Attributes attrs) {
+			if (null == r_node)
+				return;
+			meter_cfgs.add(new MeterConfig(attrs.getValue("name"),
+				(GeoLocImpl) r_node.getGeoLoc(),
+				parseInt(attrs.getValue("storage"), 1),
+				parseInt(attrs.getValue("max_wait"),
+					RampMeterImpl.DEFAULT_MAX_WAIT)));
+		}
+	}
+
+	/** Replay one day of archived samples.
+	 * @param traffic Sample archive (YYYYMMDD.traffic).
+	 * @param out Stream to write results. */
+	public void replay(File traffic, PrintStream out) throws IOException {
+		long midnight = parseDate(traffic);
+		loadSamples(traffic);
+		TimeSteward.setTimeSource(clock);
+		try {
+			long st = System.nanoTime();
+			for (int i = 0; i < SAMPLES_PER_DAY; i++) {
+				long end = midnight + (i + 1) *
+					SAMPLE_PERIOD_MS;
+				clock.setTime(end);
+				storeSamples(end, i);
+				if (i % PURGE_CYCLES == 0)
+					purgeSamples(end - PURGE_AGE_MS);
+				clock.setTime(end + METERING_OFFSET_MS);
+				long c = cpuTime();
+				performMetering();
+				cycle_cpu[i] = cpuTime() - c;
+				n_cycles = i + 1;
+				writeResults(out);
+			}
+			elapsed = System.nanoTime() - st;
+		}
+		finally {
+			TimeSteward.setTimeSource(new SystemTimeSource());
+		}
+	}
+
+	/** Parse the date of a sample archive file */
+	private long parseDate(File traffic) throws IOException {
+		String n = traffic.getName();
+		SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd");
+		try {
+			return sdf.parse(n.substring(0, 8)).getTime();
+		}
+		catch (ParseException | IndexOutOfBoundsException e) {
+			throw new IOException("Invalid archive name: " + n);
+		}
+	}
+
+	/** Load archived samples for all detectors */
+	private void loadSamples(File traffic) throws IOException {
+		samples.clear();
+		SampleArchiveReader reader = new SampleArchiveReader(
+			traffic.getParentFile());
+		for (DetectorImpl det: detectors) {
+			for (PeriodicSampleType t: SAMPLE_TYPES) {
+				String name = sampleFile(det, t);
+				ByteBuffer b = reader.read(traffic, name);
+				if (b != null)
+					samples.put(name, b);
+			}
+		}
+	}
+
+	/** Get the archive file name for a sample type */
+	private String sampleFile(DetectorImpl det, PeriodicSampleType t) {
+		return det.getName() + '.' + t.extension + SAMPLE_PERIOD_SEC;
+	}
+
+	/** Get one archived sample value */
+	private int sampleValue(DetectorImpl det, PeriodicSampleType t,
+		int i)
+	{
+		ByteBuffer b = samples.get(sampleFile(det, t));
+		int pos = i * t.sample_bytes;
+		if (null == b || pos + t.sample_bytes > b.limit())
+			return MISSING_DATA;
+		else if (t.sample_bytes == 2)
+			return b.getShort(pos);
+		else
+			return b.get(pos);
+	}
+
+	/** Store one sample period for all detectors */
+	private void storeSamples(long end, int i) {
+		for (ReplayDetector det: detectors) {
+			int v = sampleValue(det, PeriodicSampleType.VEH_COUNT,
+				i);
+			det.storeVehCount(new PeriodicSample(end,
+				SAMPLE_PERIOD_SEC, v));
+			int c = sampleValue(det, PeriodicSampleType.SCAN, i);
+			det.storeOccupancy(new OccupancySample(end,
+				SAMPLE_PERIOD_SEC, c, MAX_SCANS));
+			int s = sampleValue(det, PeriodicSampleType.SPEED, i);
+			det.storeSpeed(new PeriodicSample(end,
+				SAMPLE_PERIOD_SEC, s));
+		}
+	}
+
+	/** Purge cached samples for all detectors */
+	private void purgeSamples(long before) {
+		for (ReplayDetector det: detectors)
+			det.purge(before);
+	}
+
+	/** Perform one metering cycle, as in MeteringJob */
+	private void performMetering() {
+		for (ReplayMeter m: meters)
+			m.updateOperating();
+		station_manager.calculateData();
+		BaseObjectImpl.corridors.findBottlenecks();
+		KAdaptiveAlgorithm.processAllStates();
+		for (ReplayMeter m: meters)
+			m.validateAlgorithm();
+	}
+
+	/** Write results of one metering cycle */
+	private void writeResults(PrintStream out) {
+		String t = TimeSteward.currentTimeShortString();
+		Iterator<Station> it = StationHelper.iterator();
+		while (it.hasNext()) {
+			Station s = it.next();
+			if (s instanceof StationImpl) {
+				StationImpl si = (StationImpl) s;
+				if (si.isBottleneck()) {
+					out.println(t + ",bottleneck," +
+						si.getName() + "," + Math.round(
+						si.getRollingAverageSpeed()));
+				}
+			}
+		}
+		for (ReplayMeter m: meters) {
+			Integer r = m.getRatePlanned();
+			if (r != null) {
+				out.println(t + ",meter," + m.getName() + "," +
+					r);
+			}
+			m.setRatePlanned(null);
+		}
+	}
+
+	/** Get the number of cycles replayed */
+	public int getCycles() {
+		return n_cycles;
+	}
+
+	/** Print a summary of CPU time per metering cycle */
+	public void printSummary(PrintStream out) {
+		if (n_cycles < 1)
+			return;
+		long[] cpu = Arrays.copyOf(cycle_cpu, n_cycles);
+		Arrays.sort(cpu);
+		long total = 0;
+		for (long c: cpu)
+			total += c;
+		out.println("detectors: " + detectors.size() + ", meters: " +
+			meters.size() + ", cycles: " + n_cycles);
+		out.printf("elapsed: %.1f ms, %.0fx real time%n",
+			elapsed / NS_PER_MS,
+			n_cycles * SAMPLE_PERIOD_MS * NS_PER_MS / elapsed);
+		out.printf("cpu per cycle (ms): mean %.3f, median %.3f, " +
+			"p99 %.3f, max %.3f%n",
+			total / NS_PER_MS / n_cycles,
+			cpu[n_cycles / 2] / NS_PER_MS,
+			cpu[(n_cycles * 99) / 100] / NS_PER_MS,
+			cpu[n_cycles - 1] / NS_PER_MS);
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.IOException;
+import java.io.Writer;
+import us.mn.state.dot.sched.Histogram;
+import us.mn.state.dot.sonar.server.Server;
+import us.mn.state.dot.tms.Metric;
+import static us.mn.state.dot.tms.server.XmlWriter.createAttribute;
+
+/**
+ * A metric is a server performance measurement.  Metrics are not stored
+ * in the database; they are created by MetricsJob as needed.
+ *
+ * @author Douglas Lau
+ */
+public class MetricImpl implements Metric {
+
+	/** Counter kind */
+	static public final String COUNTER = "counter";
+
+	/** Gauge kind */
+	static public final String GAUGE = "gauge";
+
+	/** Histogram kind */
+	static public final String HISTOGRAM = "histogram";
+
+	/** Metric name */
+	private final String name;
+
+	/** Get the metric name */
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/** Metric kind */
+	private final String kind;
+
+	/** Get the metric kind */
+	@Override
+	public String getKind() {
+		return kind;
+	}
+
+	/** Create a new metric */
+	public MetricImpl(String n, String k) {
+		name = n;
+		kind = k;
+	}
+
+	/** Get the SONAR type name */
+	@Override
+	public String getTypeName() {
+		return SONAR_TYPE;
+	}
+
+	/** Destroy a metric */
+	@Override
+	public void destroy() {
+		// Nothing to do
+	}
+
+	/** Get a string representation of the metric */
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	/** Metric value */
+	private long value;
+
+	/** Get the metric value */
+	@Override
+	public long getValue() {
+		return value;
+	}
+
+	/** Mean histogram value */
+	private long mean;
+
+	/** Get the mean histogram value (microseconds) */
+	@Override
+	public long getMean() {
+		return mean;
+	}
+
+	/** 50th percentile histogram value */
+	private long p50;
+
+	/** Get the 50th percentile histogram value (microseconds) */
+	@Override
+	public long getP50() {
+		return p50;
+	}
+
+	/** 90th percentile histogram value */
+	private long p90;
+
+	/** Get the 90th percentile histogram value (microseconds) */
+	@Override
+	public long getP90() {
+		return p90;
+	}
+
+	/** 99th percentile histogram value */
+	private long p99;
+
+	/** Get the 99th percentile histogram value (microseconds) */
+	@Override
+	public long getP99() {
+		return p99;
+	}
+
+	/** Maximum histogram value */
+	private long max;
+
+	/** Get the maximum histogram value (microseconds) */
+	@Override
+	public long getMax() {
+		return max;
+	}
+
+	/** Update a counter or gauge value */
+	public void update(long v) {
+		if (v != value) {
+			value = v;
+			notifyAttribute("value");
+		}
+	}
+
+	/** Update histogram values from a snapshot */
+	public void update(Histogram.Snapshot s) {
+		update(s.getCount());
+		long m = s.getMean();
+		if (m != mean) {
+			mean = m;
+			notifyAttribute("mean");
+		}
+		long p = s.getPercentile(50);
+		if (p != p50) {
+			p50 = p;
+			notifyAttribute("p50");
+		}
+		p = s.getPercentile(90);
+		if (p != p90) {
+			p90 = p;
+			notifyAttribute("p90");
+		}
+		p = s.getPercentile(99);
+		if (p != p99) {
+			p99 = p;
+			notifyAttribute("p99");
+		}
+		if (s.getMax() != max) {
+			max = s.getMax();
+			notifyAttribute("max");
+		}
+	}
+
+	/** Notify SONAR clients of an object created */
+	public void notifyCreate() {
+		Server s = MainServer.server;
+		if (s != null)
+			s.addObject(this);
+	}
+
+	/** Notify SONAR clients of a change to an attribute */
+	private void notifyAttribute(String aname) {
+		Server s = MainServer.server;
+		if (s != null)
+			s.setAttribute(this, aname);
+	}
+
+	/** Write the metric as an XML element */
+	public void writeXml(Writer w) throws IOException {
+		w.write("\t<" + kind);
+		w.write(createAttribute("name", name));
+		w.write(createAttribute("value", value));
+		if (HISTOGRAM.equals(kind)) {
+			w.write(createAttribute("mean", mean));
+			w.write(createAttribute("p50", p50));
+			w.write(createAttribute("p90", p90));
+			w.write(createAttribute("p99", p99));
+			w.write(createAttribute("max", max));
+		}
+		w.write("/>\n");
+	}
+}
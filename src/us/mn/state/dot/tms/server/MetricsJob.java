@@ -0,0 +1,90 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.TreeMap;
+import us.mn.state.dot.sched.Histogram;
+import us.mn.state.dot.sched.Job;
+import us.mn.state.dot.sched.Metrics;
+import us.mn.state.dot.tms.SystemAttrEnum;
+
+/**
+ * Job to export server performance metrics.  Metrics are enabled by the
+ * metrics_enable system attribute.  Every minute, metric objects are
+ * updated (histograms cover the previous minute) and written to the
+ * metrics.xml file.
+ *
+ * @author Douglas Lau
+ */
+public class MetricsJob extends Job {
+
+	/** Seconds to offset each poll from start of interval */
+	static protected final int OFFSET_SECS = 2;
+
+	/** Mapping of metric names to SONAR objects */
+	private final TreeMap<String, MetricImpl> metrics =
+		new TreeMap<String, MetricImpl>();
+
+	/** Create a new metrics job */
+	public MetricsJob() {
+		super(Calendar.MINUTE, 1, Calendar.SECOND, OFFSET_SECS);
+	}
+
+	/** Perform the metrics job */
+	@Override
+	public void perform() throws IOException {
+		boolean e = SystemAttrEnum.METRICS_ENABLE.getBoolean();
+		boolean was = Metrics.isEnabled();
+		Metrics.setEnabled(e);
+		if (e && was) {
+			updateMetrics();
+			MetricsXmlWriter writer = new MetricsXmlWriter(
+				metrics.values());
+			writer.write();
+		} else if (e)
+			discardHistograms();
+	}
+
+	/** Discard stale histogram values from a previous period */
+	private void discardHistograms() {
+		for (Histogram h: Metrics.getHistograms())
+			h.drain();
+	}
+
+	/** Update all metric objects */
+	private void updateMetrics() {
+		for (Metrics.Counter c: Metrics.getCounters())
+			lookup(c.getName(), MetricImpl.COUNTER).update(c.get());
+		for (Metrics.Gauge g: Metrics.getGauges())
+			lookup(g.getName(), MetricImpl.GAUGE).update(g.get());
+		for (Histogram h: Metrics.getHistograms()) {
+			lookup(h.getName(), MetricImpl.HISTOGRAM).update(
+				h.drain());
+		}
+	}
+
+	/** Lookup (or create) a metric object */
+	private MetricImpl lookup(String n, String k) {
+		MetricImpl m = metrics.get(n);
+		if (m == null) {
+			m = new MetricImpl(n, k);
+			metrics.put(n, m);
+			m.notifyCreate();
+		}
+		return m;
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import us.mn.state.dot.sched.TimeSteward;
+
+/**
+ * This class writes out server performance metrics to an XML file.
+ *
+ * @author Douglas Lau
+ */
+public class MetricsXmlWriter extends XmlWriter {
+
+	/** XML file */
+	static private final String METRICS_XML = "metrics.xml";
+
+	/** Metrics to write */
+	private final Collection<MetricImpl> metrics;
+
+	/** Create a new metrics XML writer */
+	public MetricsXmlWriter(Collection<MetricImpl> m) {
+		super(METRICS_XML, false);
+		metrics = m;
+	}
+
+	/** Write the metrics XML file */
+	@Override protected void write(Writer w) throws IOException {
+		writeHead(w);
+		for (MetricImpl m: metrics)
+			m.writeXml(w);
+		writeTail(w);
+	}
+
+	/** Write the head of the metrics XML file */
+	private void writeHead(Writer w) throws IOException {
+		w.write(XML_DECLARATION);
+		writeDtd(w);
+		w.write("<metrics time_stamp='" +
+			TimeSteward.getDateInstance() + "'>\n");
+	}
+
+	/** Write the DTD */
+	private void writeDtd(Writer w) throws IOException {
+		w.write("<!DOCTYPE metrics [\n");
+		w.write("<!ELEMENT metrics (counter|gauge|histogram)*>\n");
+		w.write("<!ATTLIST metrics time_stamp CDATA #REQUIRED>\n");
+		w.write("<!ELEMENT counter EMPTY>\n");
+		w.write("<!ATTLIST counter name CDATA #REQUIRED>\n");
+		w.write("<!ATTLIST counter value CDATA #REQUIRED>\n");
+		w.write("<!ELEMENT gauge EMPTY>\n");
+		w.write("<!ATTLIST gauge name CDATA #REQUIRED>\n");
+		w.write("<!ATTLIST gauge value CDATA #REQUIRED>\n");
+		w.write("<!ELEMENT histogram EMPTY>\n");
+		w.write("<!ATTLIST histogram name CDATA #REQUIRED>\n");
+		w.write("<!ATTLIST histogram value CDATA #REQUIRED>\n");
+		w.write("<!ATTLIST histogram mean CDATA #REQUIRED>\n");
+		w.write("<!ATTLIST histogram p50 CDATA #REQUIRED>\n");
+		w.write("<!ATTLIST histogram p90 CDATA #REQUIRED>\n");
+		w.write("<!ATTLIST histogram p99 CDATA #REQUIRED>\n");
+		w.write("<!ATTLIST histogram max CDATA #REQUIRED>\n");
+		w.write("]>\n");
+	}
+
+	/** Write the tail of the metrics XML file */
+	private void writeTail(Writer w) throws IOException {
+		w.write("</metrics>\n");
+	}
+}
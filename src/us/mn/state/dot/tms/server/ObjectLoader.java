@@ -0,0 +1,177 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.tms.TMSException;
+
+/**
+ * Object loader runs a set of load steps at server startup.  Each step
+ * declares the steps it depends on, and any steps with all dependencies
+ * satisfied are run concurrently on a small thread pool.
+ *
+ * @author Douglas Lau
+ */
+public class ObjectLoader {
+
+	/** Object loader debug log */
+	static private final DebugLog LOADER_LOG = new DebugLog("loader");
+
+	/** A single load step */
+	static abstract public class Step {
+
+		/** Step name */
+		private final String name;
+
+		/** Names of steps which must complete first */
+		private final String[] deps;
+
+		/** Create a new load step */
+		public Step(String n, String... d) {
+			name = n;
+			deps = d;
+		}
+
+		/** Load the objects for this step */
+		abstract protected void load() throws TMSException;
+	}
+
+	/** Steps to load, in declaration order */
+	private final LinkedHashMap<String, Step> steps =
+		new LinkedHashMap<String, Step>();
+
+	/** Number of load threads */
+	private final int n_threads;
+
+	/** Create a new object loader.
+	 * @param n Number of load threads. */
+	public ObjectLoader(int n) {
+		n_threads = Math.max(1, n);
+	}
+
+	/** Add a load step.  All dependencies must be added before the
+	 * step which depends on them. */
+	public void add(Step s) {
+		for (String d: s.deps) {
+			if (!steps.containsKey(d)) {
+				throw new IllegalArgumentException("Step " + s.name
+					+ ": unknown dependency " + d);
+			}
+		}
+		steps.put(s.name, s);
+	}
+
+	/** Run all load steps */
+	public void run() throws TMSException {
+		long start = System.currentTimeMillis();
+		ExecutorService pool = Executors.newFixedThreadPool(n_threads,
+			new ThreadFactory()
+		{
+			private int n_thread = 0;
+			public Thread newThread(Runnable r) {
+				n_thread++;
+				Thread t = new Thread(r, "loader-" + n_thread);
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			runSteps(new ExecutorCompletionService<Step>(pool));
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		System.err.println("Loaded " + steps.size() + " steps in " +
+			(System.currentTimeMillis() - start) + " ms (" +
+			n_threads + " threads)");
+	}
+
+	/** Run all steps using a completion service */
+	private void runSteps(CompletionService<Step> cs) throws TMSException {
+		ArrayList<Step> pending = new ArrayList<Step>(steps.values());
+		HashSet<String> done = new HashSet<String>();
+		int running = 0;
+		while (!pending.isEmpty() || running > 0) {
+			Iterator<Step> it = pending.iterator();
+			while (it.hasNext()) {
+				Step s = it.next();
+				if (isReady(s, done)) {
+					it.remove();
+					cs.submit(createTask(s));
+					running++;
+				}
+			}
+			if (running == 0) {
+				throw new TMSException("Unresolved load step: " +
+					pending.get(0).name);
+			}
+			done.add(takeStep(cs).name);
+			running--;
+		}
+	}
+
+	/** Check if all dependencies of a step are done */
+	private boolean isReady(Step s, HashSet<String> done) {
+		for (String d: s.deps) {
+			if (!done.contains(d))
+				return false;
+		}
+		return true;
+	}
+
+	/** Create a timed task for one step */
+	private Callable<Step> createTask(final Step s) {
+		return new Callable<Step>() {
+			public Step call() throws TMSException {
+				long st = System.currentTimeMillis();
+				s.load();
+				if (LOADER_LOG.isOpen()) {
+					long e = System.currentTimeMillis() - st;
+					LOADER_LOG.log("Loaded " + s.name + " in " +
+						e + " ms");
+				}
+				return s;
+			}
+		};
+	}
+
+	/** Wait for the next step to complete */
+	private Step takeStep(CompletionService<Step> cs) throws TMSException {
+		try {
+			return cs.take().get();
+		}
+		catch (InterruptedException e) {
+			throw new TMSException(e);
+		}
+		catch (ExecutionException e) {
+			Throwable c = e.getCause();
+			if (c instanceof TMSException)
+				throw (TMSException) c;
+			else
+				throw new TMSException(c);
+		}
+	}
+}
@@ -19,6 +19,7 @@ import java.io.RandomAccessFile;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.HashMap;
 import java.util.Iterator;
 import us.mn.state.dot.sched.DebugLog;
 import us.mn.state.dot.sched.TimeSteward;
@@ -35,6 +36,9 @@ import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
  * Each file contains one day of sample data.  For example, a vehicle count file
  * with a 30-second period would have 2880 bytes.
  *
+ * Alternatively, samples can be written to columnar files, with one file per
+ * day for all sensors (see ColumnarSampleFile).
+ *
  * @author Douglas Lau
  */
 public class PeriodicSampleWriter {
@@ -66,16 +70,56 @@ public class PeriodicSampleWriter {
 	/** Current file channel */
 	private transient FileChannel channel;
 
+	/** Flag to write columnar files */
+	private boolean columnar;
+
+	/** Open columnar files */
+	private final HashMap<File, ColumnarSampleFile> columns =
+		new HashMap<File, ColumnarSampleFile>();
+
+	/** Current columnar file */
+	private transient ColumnarSampleFile column;
+
+	/** Current sensor ID */
+	private transient String sensor;
+
 	/** Create a new periodic sample writer */
 	public PeriodicSampleWriter(SampleArchiveFactory f) {
 		factory = f;
 	}
 
+	/** Set the flag to write columnar files.  Open columnar files are
+	 * closed if the flag changes. */
+	public void setColumnar(boolean c) {
+		if (c != columnar) {
+			close();
+			columnar = c;
+		}
+	}
+
+	/** Close all open columnar files */
+	public void close() {
+		for (ColumnarSampleFile col: columns.values()) {
+			try {
+				col.close();
+			}
+			catch (IOException e) {
+				if (FLUSH_LOG.isOpen()) {
+					FLUSH_LOG.log("close: " +
+						e.getMessage());
+				}
+			}
+		}
+		columns.clear();
+	}
+
 	/** Flush samples from a cache to files */
 	public void flush(PeriodicSampleCache cache, String sensor_id) {
 		period = new Interval(0);
 		file = null;
 		channel = null;
+		column = null;
+		sensor = sensor_id;
 		buffer.clear();
 		try {
 			flush(cache.iterator(), sensor_id, cache.sample_type);
@@ -99,8 +143,7 @@ public class PeriodicSampleWriter {
 			while (it.hasNext()) {
 				PeriodicSample ps = it.next();
 				period = new Interval(ps.period);
-				File f = factory.createFile(sensor_id, s_type,
-					ps);
+				File f = createFile(sensor_id, s_type, ps);
 				if (!f.equals(file)) {
 					file = f;
 					readNextFile(s_type);
@@ -115,6 +158,16 @@ public class PeriodicSampleWriter {
 		}
 	}
 
+	/** Create a file for one sample */
+	private File createFile(String sensor_id, PeriodicSampleType s_type,
+		PeriodicSample ps) throws IOException
+	{
+		return columnar
+		      ? factory.createColumnarFile(s_type.extension +
+		                                   ps.period, ps.start())
+		      : factory.createFile(sensor_id, s_type, ps);
+	}
+
 	/** Read next file (after writing current file buffer). */
 	private void readNextFile(PeriodicSampleType s_type) throws IOException{
 		writeBuffer(s_type.sample_bytes);
@@ -125,9 +178,16 @@ public class PeriodicSampleWriter {
 	 * @param s_type Sample type. */
 	private void readBuffer(PeriodicSampleType s_type) throws IOException {
 		int n_size = bufferBytes(s_type.sample_bytes);
-		channel = new RandomAccessFile(file, "rw").getChannel();
 		buffer.clear();
-		readBuffer();
+		if (columnar) {
+			column = openColumnar(s_type);
+			buffer.limit(n_size);
+			column.read(sensor, buffer);
+			buffer.limit(buffer.capacity());
+		} else {
+			channel = new RandomAccessFile(file, "rw").getChannel();
+			readBuffer();
+		}
 		// Buffer should contain no more than one day of samples
 		if (buffer.position() > n_size)
 			buffer.position(n_size);
@@ -142,6 +202,19 @@ public class PeriodicSampleWriter {
 		return samplesPerDay(period) * s_bytes;
 	}
 
+	/** Open the current columnar file */
+	private ColumnarSampleFile openColumnar(PeriodicSampleType s_type)
+		throws IOException
+	{
+		ColumnarSampleFile col = columns.get(file);
+		if (null == col) {
+			col = new ColumnarSampleFile(file, s_type.sample_bytes,
+				samplesPerDay(period));
+			columns.put(file, col);
+		}
+		return col;
+	}
+
 	/** Read all existing sample data from file */
 	private void readBuffer() throws IOException {
 		while (channel.read(buffer) >= 0 && buffer.hasRemaining());
@@ -158,6 +231,11 @@ public class PeriodicSampleWriter {
 
 	/** Write the buffer to the file channel and close the file. */
 	private void writeBuffer(int s_bytes) throws IOException {
+		if (column != null) {
+			buffer.position(0);
+			column.write(sensor, buffer);
+			column = null;
+		}
 		if (channel != null) {
 			int n_size = bufferBytes(s_bytes);
 			channel.position(0);
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2016  Minnesota Department of Transportation
+ * Copyright (C) 2000-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -20,8 +20,10 @@ import java.io.FileWriter;
 import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
 import java.text.NumberFormat;
+import java.util.HashMap;
 import us.mn.state.dot.sched.DebugLog;
 import us.mn.state.dot.sched.TimeSteward;
+import us.mn.state.dot.sched.Worker;
 import us.mn.state.dot.sonar.Connection;
 import us.mn.state.dot.sonar.Namespace;
 import us.mn.state.dot.tms.BaseHelper;
@@ -131,6 +133,45 @@ public class Profiler {
 		PROFILE_LOG.log(sb.toString());
 	}
 
+	/** Worker counts from previous profile */
+	static private class WorkerCounts {
+		private final long added;
+		private final long done;
+		private final long wait_ns;
+		private WorkerCounts(Worker w) {
+			added = w.getAdded();
+			done = w.getDone();
+			wait_ns = w.getWaitNanos();
+		}
+	}
+
+	/** Worker counts from previous profile */
+	private final HashMap<Worker, WorkerCounts> worker_counts =
+		new HashMap<Worker, WorkerCounts>();
+
+	/** Debug profiling information for all workers.  Counts are since
+	 * the previous profile. */
+	public void debugWorkers() {
+		for (Worker w: Worker.getAll()) {
+			WorkerCounts c = new WorkerCounts(w);
+			WorkerCounts p = worker_counts.put(w, c);
+			if (p != null && PROFILE_LOG.isOpen())
+				debugWorker(w, c, p);
+		}
+	}
+
+	/** Add one worker to debug log */
+	private void debugWorker(Worker w, WorkerCounts c, WorkerCounts p) {
+		long done = c.done - p.done;
+		long wait_us = (done > 0)
+		             ? (c.wait_ns - p.wait_ns) / done / 1000
+		             : 0;
+		PROFILE_LOG.log(w.getName() + " worker: added " +
+			(c.added - p.added) + ", done " + done + ", queued " +
+			w.size() + ", rejected " + w.getRejected() +
+			", wait " + wait_us + " us");
+	}
+
 	/** Append to uptime log file */
 	public void appendUptimeLog() throws IOException {
 		FileWriter fw = new FileWriter(UPTIME_LOG_FILE, true);
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009  Minnesota Department of Transportation
+ * Copyright (C) 2009-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -41,6 +41,7 @@ public class ProfilingJob extends Job {
 	public void perform() throws IOException {
 		profiler.debugMemory();
 		profiler.debugThreads();
+		profiler.debugWorkers();
 		if(SystemAttrEnum.UPTIME_LOG_ENABLE.getBoolean())
 			profiler.appendUptimeLog();
 	}
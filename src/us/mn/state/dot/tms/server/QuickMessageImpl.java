@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2018  Minnesota Department of Transportation
+ * Copyright (C) 2009-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -197,6 +197,7 @@ public class QuickMessageImpl extends BaseObjectImpl implements QuickMessage {
 		if (!m.equals(multi)) {
 			store.update(this, "multi", m);
 			setMulti(m);
+			plan_engine.invalidate();
 		}
 	}
 }
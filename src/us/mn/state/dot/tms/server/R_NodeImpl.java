@@ -19,7 +19,6 @@ import java.io.IOException;
 import java.io.Writer;
 import java.sql.ResultSet;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 import us.mn.state.dot.sonar.Namespace;
 import us.mn.state.dot.sonar.NamespaceError;
@@ -179,6 +178,14 @@ public class R_NodeImpl extends BaseObjectImpl implements R_Node {
 	public void doDestroy() throws TMSException {
 		updateStation(station, null);
 		super.doDestroy();
+		corridors.removeNode(this);
+	}
+
+	/** Store a new r_node */
+	@Override
+	public void doStore() throws TMSException {
+		super.doStore();
+		corridors.updateNode(this);
 	}
 
 	/** Node location */
@@ -223,6 +230,7 @@ public class R_NodeImpl extends BaseObjectImpl implements R_Node {
 			return;
 		store.update(this, "node_type", t);
 		setNodeType(t);
+		corridors.updateNode(this);
 	}
 
 	/** Check if the r_node is an exit */
@@ -430,6 +438,7 @@ public class R_NodeImpl extends BaseObjectImpl implements R_Node {
 		if (a != abandoned) {
 			store.update(this, "abandoned", a);
 			setAbandoned(a);
+			corridors.updateNode(this);
 		}
 	}
 
@@ -586,24 +595,23 @@ public class R_NodeImpl extends BaseObjectImpl implements R_Node {
 	/** Fork node to branch to other corridor */
 	private transient R_NodeImpl fork;
 
-	/** Update exit fork (branch to other corridor) */
-	public void updateFork() {
-		fork = isExit() ? findFork() : null;
+	/** Update exit fork (branch to other corridor).
+	 * @param nodes All r_nodes to check for a fork. */
+	public void updateFork(Iterable<R_NodeImpl> nodes) {
+		fork = isExit() ? findFork(nodes) : null;
 	}
 
 	/** Find fork node (branch to other corridor) */
-	private R_NodeImpl findFork() {
+	private R_NodeImpl findFork(Iterable<R_NodeImpl> nodes) {
 		R_NodeImpl nearest = null;
 		Distance d = new Distance(0);
-		Iterator<R_Node> it = R_NodeHelper.iterator();
-		while (it.hasNext()) {
-			R_Node n = it.next();
+		for (R_NodeImpl n: nodes) {
 			if (isExitLink(n)) {
 				Distance m = Corridor.nodeDistance(this, n);
 				if ((m != null) &&
 				    ((null == nearest) || m.m() < d.m()))
 				{
-					nearest = (R_NodeImpl) n;
+					nearest = n;
 					d = m;
 				}
 			}
@@ -173,7 +173,7 @@ public class RampMeterImpl extends DeviceImpl implements RampMeter {
 	}
 
 	/** Create a ramp meter */
-	private RampMeterImpl(String n, GeoLocImpl loc, ControllerImpl c,
+	protected RampMeterImpl(String n, GeoLocImpl loc, ControllerImpl c,
 		int p, String nt, int t, int st, int w, int alg, int at, int pt,
 		Beacon b, CameraPreset cp, Integer lk)
 	{
@@ -676,6 +676,11 @@ public class RampMeterImpl extends DeviceImpl implements RampMeter {
 			ratePlanned = r;
 	}
 
+	/** Get the planned next release rate */
+	public Integer getRatePlanned() {
+		return ratePlanned;
+	}
+
 	/** Update the planned rate */
 	public void updateRatePlanned() {
 		if (!isLocked())
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2017-2018  SRF Consulting Group
+ * Copyright (C) 2017-2019  SRF Consulting Group
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,14 +15,21 @@
 
 package us.mn.state.dot.tms.server;
 
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import us.mn.state.dot.tms.RptConduit;
 import us.mn.state.dot.tms.TMSException;
 import us.mn.state.dot.tms.reports.RptGenItem;
 import us.mn.state.dot.tms.reports.RptRequest;
+import us.mn.state.dot.tms.reports.RptResultItem;
 import us.mn.state.dot.tms.reports.RptResults;
 import us.mn.state.dot.tms.server.BaseObjectImpl;
 import us.mn.state.dot.tms.server.reports.RptGen;
@@ -32,12 +39,49 @@ import us.mn.state.dot.tms.server.reports.RptGen;
  * for requesting and returning reports.
  * 
  * (Note that a RptConduit is a non-persistent SONAR object.)
+ * 
+ * Reports are generated on a bounded executor, and
+ * results are sent to the client in pages as they
+ * are generated.  The generator waits when it gets
+ * a few pages ahead of the page requested by the
+ * client.
  *
  * @author John L. Stanley - SRF Consulting
  */
 public class RptConduitImpl extends BaseObjectImpl
 		implements RptConduit {
 
+	/** Number of report rows in each page of results */
+	static private final int PAGE_ROWS = 1000;
+
+	/** Maximum number of pages generated ahead of the requested page */
+	static private final int PAGES_AHEAD = 4;
+
+	/** Time to wait for the client to request another page (ms) */
+	static private final long PAGE_TIMEOUT_MS = 5 * 60 * 1000;
+
+	/** Number of report generator threads */
+	static private final int REPORT_THREADS = 2;
+
+	/** Maximum number of queued report requests */
+	static private final int REPORT_QUEUE = 8;
+
+	/** Executor for generating reports */
+	static private final ThreadPoolExecutor REPORTS =
+		new ThreadPoolExecutor(REPORT_THREADS, REPORT_THREADS,
+		60, TimeUnit.SECONDS,
+		new ArrayBlockingQueue<Runnable>(REPORT_QUEUE),
+		new ThreadFactory()
+	{
+		private int n_thread = 0;
+		public synchronized Thread newThread(Runnable r) {
+			n_thread++;
+			Thread t = new Thread(r, "report-" + n_thread);
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
 	/** Get the SONAR type name */
 	public String getTypeName() {
 		return SONAR_TYPE;
@@ -76,11 +120,14 @@ public class RptConduitImpl extends BaseObjectImpl
 
 	//-------------------------------------------
 
-	protected boolean canceled = false;
+	protected volatile boolean canceled = false;
 	
 	@Override
 	public void setCanceled(boolean b) {
-		canceled = b;
+		synchronized (pages) {
+			canceled = b;
+			pages.notifyAll();
+		}
 	}
 
 	@Override
@@ -96,17 +143,24 @@ public class RptConduitImpl extends BaseObjectImpl
 	public void setRequest(String sReq) {
 		request = sReq;
 		if ((sReq == null) || sReq.equals("")) {
-			setresults("{}");
+			addPage(new RptResults().toPageString(0, true));
 			return;
 		}
 
-		// generate the report in a new thread
-		Thread t = new Thread() {
-			public void run() {
-				generateReports();
-			}
-		};
-		t.start();
+		// generate the report on the report executor
+		try {
+			REPORTS.execute(new Runnable() {
+				public void run() {
+					generateReports();
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			// Report the error to the client
+			RptResults res = new RptResults();
+			res.addException("Report rejected: server busy");
+			addPage(res.toPageString(0, true));
+		}
 	}
 
 	@Override
@@ -143,14 +197,109 @@ public class RptConduitImpl extends BaseObjectImpl
 
 	//-------------------------------------------
 	
+	/** Requested page of results */
+	protected int page = -1;
+
+	/** Serialized pages of results (null after being sent) */
+	private final ArrayList<String> pages = new ArrayList<String>();
+
+	@Override
+	public void setPage(int p) {
+		synchronized (pages) {
+			page = p;
+			pages.notifyAll();
+		}
+		sendPage();
+	}
+
+	@Override
+	public int getPage() {
+		return page;
+	}
+
+	/** Add a page of results */
+	private void addPage(String sPage) {
+		synchronized (pages) {
+			waitForPage();
+			pages.add(sPage);
+		}
+		sendPage();
+	}
+
+	/** Wait until the client requests a page close enough to the
+	 *  last generated page.  This keeps the report generator from
+	 *  buffering the whole report.  Must be called with the pages
+	 *  lock held.
+	 * @throws CancellationException if canceled, or the client
+	 *         stops requesting pages. */
+	private void waitForPage() {
+		long end = System.currentTimeMillis() + PAGE_TIMEOUT_MS;
+		while (pages.size() - Math.max(page, 0) >= PAGES_AHEAD) {
+			long ms = end - System.currentTimeMillis();
+			if (canceled || ms <= 0) {
+				canceled = true;
+				throw new CancellationException();
+			}
+			try {
+				pages.wait(ms);
+			}
+			catch (InterruptedException e) {
+				canceled = true;
+				throw new CancellationException();
+			}
+		}
+	}
+
+	/** Send the requested page to the client (if available).
+	 *  Pages before the requested page are released. */
+	private void sendPage() {
+		String sRes;
+		synchronized (pages) {
+			if ((page < 0) || (page >= pages.size()))
+				return;
+			sRes = pages.get(page);
+			for (int i = 0; i < page; i++)
+				pages.set(i, null);
+		}
+		try {
+			if (sRes != null)
+				setresultsNotify(sRes);
+		} catch (TMSException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/** Report results which are sent in pages */
+	private class PagedResults extends RptResults {
+		private int n_page = 0;
+
+		@Override
+		public void addRptRecord(RptResultItem item) {
+			if (canceled)
+				throw new CancellationException();
+			super.addRptRecord(item);
+			if (resultsSize() >= PAGE_ROWS)
+				flush(false);
+		}
+
+		/** Send the current rows as a page */
+		private void flush(boolean last) {
+			addPage(toPageString(n_page, last));
+			n_page++;
+			clear();
+		}
+	}
+
 	protected void generateReports() {
 		RptRequest req = new RptRequest();
-		RptResults res = new RptResults();
+		PagedResults res = new PagedResults();
 		RptGen gen;
 
 		// run report generator(s)
 		req.initFromReqString(request);
 		for (RptGenItem it : req.getGenItemList()) {
+			if (canceled)
+				break;
 			if (it.getSelected()) {
 				try {
 					gen = RptGen.newGenerator(it.getGuiName());
@@ -160,20 +309,17 @@ public class RptConduitImpl extends BaseObjectImpl
 				}
 			}
 		}
-		
-		// return results
+
+		// send last page of results
 		try {
-			if (!canceled) {
-				String sRes = res.toResultsString();
-				if ((sRes == null) || sRes.isEmpty())
-					sRes = "{empty: }";
-				setresultsNotify(sRes);
-			}
-		} catch (TMSException e) {
-			e.printStackTrace();
+			if (!canceled)
+				res.flush(true);
+		}
+		catch (CancellationException e) {
+			// client stopped requesting pages
 		}
 	}
-	
+
 	//-------------------------------------------
 	// Suppress the following two database operations
 	// (because we have NO database table).
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2005-2016  Minnesota Department of Transportation
+ * Copyright (C) 2005-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -19,11 +19,18 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.Statement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.sched.Histogram;
+import us.mn.state.dot.sched.Metrics;
 import us.mn.state.dot.tms.ChangeVetoException;
 import us.mn.state.dot.tms.TMSException;
 
@@ -37,6 +44,22 @@ public class SQLConnection {
 	/** SQL debug log */
 	static private final DebugLog SQL_LOG = new DebugLog("sql");
 
+	/** Histogram of query times */
+	static private final Histogram QUERY_TIME =
+		Metrics.histogram("sql.query");
+
+	/** Histogram of update times */
+	static private final Histogram UPDATE_TIME =
+		Metrics.histogram("sql.update");
+
+	/** Histogram of batch times */
+	static private final Histogram BATCH_TIME =
+		Metrics.histogram("sql.batch");
+
+	/** Counter of SQL errors */
+	static private final Metrics.Counter ERRORS =
+		Metrics.counter("sql.error");
+
 	/** Pattern to match for a SQL identifier */
 	static private final Pattern SQL_IDENTIFIER =
 		Pattern.compile("[a-z_0-9.]*");
@@ -77,13 +100,24 @@ public class SQLConnection {
 	/** Password to log into database server */
 	private final String password;
 
-	/** Connection to the SQL database */
-	private Connection connection = null;
+	/** Connections to the SQL database */
+	private final ArrayList<Connection> connections =
+		new ArrayList<Connection>();
+
+	/** Maximum number of connections to open */
+	private int max_connections = 1;
+
+	/** Index of connection to use for next new statement */
+	private int next_connection = 0;
 
 	/** Available SQL statements */
 	private final LinkedList<Statement> statements =
 		new LinkedList<Statement>();
 
+	/** Change serial numbers, by table name */
+	private final ConcurrentHashMap<String, AtomicLong> serials =
+		new ConcurrentHashMap<String, AtomicLong>();
+
 	/** Create a new SQL connection */
 	public SQLConnection(String url, String usr, String pswd)
 		throws TMSException
@@ -99,43 +133,39 @@ public class SQLConnection {
 		password = pswd;
 	}
 
-	/** Close the current database connection */
-	private void close() throws SQLException {
-		statements.clear();
-		if (connection != null) {
-			try {
-				connection.close();
-			}
-			finally {
-				connection = null;
-			}
-		}
-	}
-
 	/** Open a new database connection */
-	private void open() throws SQLException {
-		connection = DriverManager.getConnection(location, user,
+	private Connection open() throws SQLException {
+		Connection c = DriverManager.getConnection(location, user,
 			password);
-		connection.setAutoCommit(true);
+		c.setAutoCommit(true);
+		connections.add(c);
+		return c;
 	}
 
-	/** Create a database statement */
-	private Statement _createStatement() throws SQLException {
-		if (connection == null)
-			open();
-		return connection.createStatement();
+	/** Get a connection for a new statement.  Connections are opened as
+	 * needed (up to the maximum), and then used in rotation. */
+	private Connection nextConnection() throws SQLException {
+		if (connections.size() < max_connections)
+			return open();
+		next_connection = (next_connection + 1) % connections.size();
+		return connections.get(next_connection);
 	}
 
-	/** Create a database statement */
+	/** Create a database statement.  If the statement cannot be created,
+	 * only the connection which failed is closed, and a statement is
+	 * created on another (or a new) connection. */
 	private Statement createStatement() throws TMSException {
+		Connection c = null;
 		try {
-			return _createStatement();
+			c = nextConnection();
+			return c.createStatement();
 		}
 		catch (SQLException e) {
 			SQL_LOG.log("createStatement -> " + e);
+			if (c != null && connections.remove(c))
+				closeConnection(c);
 			try {
-				close();
-				return _createStatement();
+				return nextConnection().createStatement();
 			}
 			catch (SQLException e2) {
 				SQL_LOG.log("createStatement.2 -> " + e2);
@@ -154,13 +184,50 @@ public class SQLConnection {
 
 	/** Put a statement back after using it */
 	private synchronized void putStatement(Statement s) {
-		statements.add(s);
+		try {
+			if (!s.isClosed())
+				statements.add(s);
+		}
+		catch (SQLException e) {
+			SQL_LOG.log("putStatement -> " + e);
+		}
+	}
+
+	/** Set the maximum number of database connections.  Multiple
+	 * connections allow queries from different threads to run
+	 * concurrently.  When the maximum is reduced, surplus connections
+	 * (and their idle statements) are closed.
+	 * @param m Maximum number of connections (at least 1). */
+	public synchronized void setMaxConnections(int m) {
+		max_connections = Math.max(1, m);
+		while (connections.size() > max_connections) {
+			Connection c = connections.remove(
+				connections.size() - 1);
+			closeConnection(c);
+		}
+		next_connection = 0;
+	}
+
+	/** Close one connection along with its idle statements */
+	private void closeConnection(Connection c) {
+		try {
+			Iterator<Statement> it = statements.iterator();
+			while (it.hasNext()) {
+				if (it.next().getConnection() == c)
+					it.remove();
+			}
+			c.close();
+		}
+		catch (SQLException e) {
+			SQL_LOG.log("closeConnection -> " + e);
+		}
 	}
 
 	/** Query the database and call a factory for each result */
 	public void query(String sql, ResultFactory factory)
 		throws TMSException
 	{
+		long st = Metrics.start();
 		Statement s = getStatement();
 		try {
 			ResultSet set = s.executeQuery(sql);
@@ -174,21 +241,68 @@ public class SQLConnection {
 			putStatement(s);
 		}
 		catch (Exception e) {
+			ERRORS.inc();
 			throw new TMSException(e);
 		}
+		finally {
+			QUERY_TIME.recordSince(st);
+		}
+	}
+
+	/** Query the database, streaming results with a fetch size.  This
+	 * uses a dedicated connection (not autocommit), so that large result
+	 * sets are fetched incrementally instead of all at once.  The factory
+	 * can stop the query early by throwing an exception.
+	 * @param sql SQL query.
+	 * @param fetch_size Number of rows to fetch at a time.
+	 * @param factory Factory to call for each result row. */
+	public void queryStream(String sql, int fetch_size,
+		ResultFactory factory) throws TMSException
+	{
+		long st = Metrics.start();
+		try {
+			Connection c = DriverManager.getConnection(location,
+				user, password);
+			try {
+				c.setAutoCommit(false);
+				Statement s = c.createStatement();
+				s.setFetchSize(fetch_size);
+				ResultSet set = s.executeQuery(sql);
+				while (set.next())
+					factory.create(set);
+				set.close();
+				s.close();
+			}
+			finally {
+				c.rollback();
+				c.close();
+			}
+		}
+		catch (Exception e) {
+			ERRORS.inc();
+			throw new TMSException(e);
+		}
+		finally {
+			QUERY_TIME.recordSince(st);
+		}
 	}
 
 	/** Update the database with the given SQL command */
 	public void update(String sql) throws TMSException {
+		long st = Metrics.start();
 		Statement s = getStatement();
 		try {
 			s.executeUpdate(sql);
 			putStatement(s);
 		}
 		catch (SQLException e) {
+			ERRORS.inc();
 			SQL_LOG.log(sql + " -> " + e);
 			throw new TMSException(e);
 		}
+		finally {
+			UPDATE_TIME.recordSince(st);
+		}
 	}
 
 	/** Update one field in a storable database table */
@@ -200,6 +314,7 @@ public class SQLConnection {
 		validateValue(key);
 		if (value == null) {
 			updateNull(s, field, key);
+			tableChanged(s.getTable());
 			return;
 		}
 		String v = escapeValue(value);
@@ -207,6 +322,7 @@ public class SQLConnection {
 		update("UPDATE " + s.getTable() +
 		      " SET " + field + " = '" + v + "'" +
 		      " WHERE " + s.getKeyName() + " = '" + key + "';");
+		tableChanged(s.getTable());
 	}
 
 	/** Update one field with a NULL value */
@@ -242,6 +358,69 @@ public class SQLConnection {
 		String sql = "INSERT INTO " + s.getTable() + " (" + keys +
 			") VALUES (" + values + ");";
 		update(sql);
+		tableChanged(s.getTable());
+	}
+
+	/** Create several storable records with one statement.  All records
+	 * must be for the same table, with the same columns.
+	 * @param ss List of records to create. */
+	public void createAll(List<? extends Storable> ss)
+		throws TMSException
+	{
+		if (ss.isEmpty())
+			return;
+		update(insertAllSQL(ss));
+		tableChanged(ss.get(0).getTable());
+	}
+
+	/** Build one INSERT statement for several records.  The statement
+	 * is only built if every record is valid, so a batch is never
+	 * partly inserted.
+	 * @param ss List of records (not empty).
+	 * @return SQL INSERT statement.
+	 * @throws ChangeVetoException if records are for different tables,
+	 *         or have an invalid identifier or value. */
+	static String insertAllSQL(List<? extends Storable> ss)
+		throws ChangeVetoException
+	{
+		String table = ss.get(0).getTable();
+		validateIdentifier(table);
+		ArrayList<String> fields = new ArrayList<String>(
+			ss.get(0).getColumns().keySet());
+		StringBuilder sql = new StringBuilder("INSERT INTO ");
+		sql.append(table);
+		sql.append(" (");
+		for (String field: fields) {
+			validateIdentifier(field);
+			sql.append(field);
+			sql.append(",");
+		}
+		sql.setLength(sql.length() - 1);
+		sql.append(") VALUES ");
+		for (Storable s: ss) {
+			if (!table.equals(s.getTable())) {
+				throw new ChangeVetoException("Mixed tables: " +
+					table + ", " + s.getTable());
+			}
+			Map<String, Object> columns = s.getColumns();
+			sql.append("(");
+			for (String field: fields) {
+				Object value = columns.get(field);
+				if (value != null) {
+					String val = escapeValue(value);
+					validateValue(val);
+					sql.append("'");
+					sql.append(val);
+					sql.append("',");
+				} else
+					sql.append("NULL,");
+			}
+			sql.setLength(sql.length() - 1);
+			sql.append("),");
+		}
+		sql.setLength(sql.length() - 1);
+		sql.append(";");
+		return sql.toString();
 	}
 
 	/** Destroy one storable record */
@@ -250,10 +429,31 @@ public class SQLConnection {
 		validateValue(val);
 		update("DELETE FROM " + s.getTable() +
 		      " WHERE " + s.getKeyName() + " = '" + val + "';");
+		tableChanged(s.getTable());
+	}
+
+	/** Increment the change serial number of a table */
+	private void tableChanged(String table) {
+		AtomicLong sn = serials.get(table);
+		if (null == sn) {
+			serials.putIfAbsent(table, new AtomicLong());
+			sn = serials.get(table);
+		}
+		sn.incrementAndGet();
+	}
+
+	/** Get the change serial number of a table.  This is incremented
+	 * every time a storable record is created, updated or destroyed.
+	 * @param table Table name.
+	 * @return Serial number (0 if never changed). */
+	public long getSerial(String table) {
+		AtomicLong sn = serials.get(table);
+		return (sn != null) ? sn.get() : 0;
 	}
 
 	/** Update the database with a batch of SQL commands */
 	public void batch(BatchFactory f) throws TMSException {
+		long st = Metrics.start();
 		Statement s = getStatement();
 		try {
 			while (true) {
@@ -267,8 +467,12 @@ public class SQLConnection {
 			putStatement(s);
 		}
 		catch (SQLException e) {
+			ERRORS.inc();
 			SQL_LOG.log("batch -> " + e);
 			throw new TMSException(e);
 		}
+		finally {
+			BATCH_TIME.recordSince(st);
+		}
 	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2010-2013  Minnesota Department of Transportation
+ * Copyright (C) 2010-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -41,6 +41,12 @@ public interface SampleArchiveFactory {
 	File createFile(String sensor_id, PeriodicSampleType s_type,
 		PeriodicSample ps) throws IOException;
 
+	/** Create a columnar archive file.
+	 * @param ext File extension of per-sensor files.
+	 * @param stamp Time stamp.
+	 * @return Columnar file to archive sample data for all sensors. */
+	File createColumnarFile(String ext, long stamp) throws IOException;
+
 	/** Test if a sample file name has a known extension */
 	boolean hasKnownExtension(String name);
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2010-2018  Minnesota Department of Transportation
+ * Copyright (C) 2010-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -95,4 +95,17 @@ public class SampleArchiveFactoryImpl implements SampleArchiveFactory {
 		return createFile(sensor_id, s_type.extension + ps.period,
 			ps.start());
 	}
+
+	/** Create a columnar archive file.
+	 * @param ext File extension of per-sensor files.
+	 * @param stamp Time stamp.
+	 * @return Columnar file to archive sample data for all sensors. */
+	public File createColumnarFile(String ext, long stamp)
+		throws IOException
+	{
+		// Columns are archived as per-sensor entries
+		addExtension("." + ext);
+		return ColumnarSampleFile.columnarFile(new File(
+			directory(stamp)), ext);
+	}
 }
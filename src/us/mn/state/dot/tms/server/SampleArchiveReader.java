@@ -0,0 +1,425 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import us.mn.state.dot.sched.TimeSteward;
+import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
+
+/**
+ * A reader for archived sample files.  Files for days which have not been
+ * archived yet are read directly from the day directory (or from columnar
+ * files in that directory).  Otherwise, they are read from the .traffic (zip)
+ * archive for the day.
+ *
+ * Each archive is memory-mapped, and its central directory is read into an
+ * index of entry names.  Stored (uncompressed) entries are returned as
+ * slices of the mapped archive, so only the needed pages are read from
+ * disk.  Compressed entries are inflated.  A bounded set of archives is
+ * kept mapped, in least-recently-used order.  Archives with more than 65534
+ * entries (zip64) are supported, but not archives larger than 2 GiB.
+ *
+ * @author Douglas Lau
+ */
+public class SampleArchiveReader {
+
+	/** Maximum number of mapped archives */
+	static private final int MAX_ARCHIVES = 16;
+
+	/** Signature of zip "end of central directory" record */
+	static private final int END_SIG = 0x06054b50;
+
+	/** Length of zip "end of central directory" record */
+	static private final int END_LEN = 22;
+
+	/** Signature of zip64 "end of central directory" locator */
+	static private final int END64_LOC_SIG = 0x07064b50;
+
+	/** Length of zip64 "end of central directory" locator */
+	static private final int END64_LOC_LEN = 20;
+
+	/** Signature of zip64 "end of central directory" record */
+	static private final int END64_SIG = 0x06064b50;
+
+	/** Entry count indicating a zip64 record is needed */
+	static private final int ZIP64_COUNT = 0xFFFF;
+
+	/** Offset indicating a zip64 record is needed */
+	static private final int ZIP64_OFFSET = 0xFFFFFFFF;
+
+	/** Maximum length of zip file comment */
+	static private final int MAX_COMMENT = 0xFFFF;
+
+	/** Signature of zip central directory header */
+	static private final int CEN_SIG = 0x02014b50;
+
+	/** Length of zip central directory header (without name) */
+	static private final int CEN_LEN = 46;
+
+	/** Signature of zip local file header */
+	static private final int LOC_SIG = 0x04034b50;
+
+	/** Length of zip local file header (without name) */
+	static private final int LOC_LEN = 30;
+
+	/** Character set for entry names */
+	static private final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** Get an unsigned short from a buffer */
+	static private int getShort(ByteBuffer b, int pos) {
+		return b.getShort(pos) & 0xFFFF;
+	}
+
+	/** Get an unsigned int (as an int offset) from a buffer */
+	static private int getOffset(ByteBuffer b, int pos)
+		throws ZipException
+	{
+		long v = b.getInt(pos) & 0xFFFFFFFFL;
+		if (v > Integer.MAX_VALUE)
+			throw new ZipException("Invalid offset: " + v);
+		return (int) v;
+	}
+
+	/** Get an unsigned long (as an int) from a buffer */
+	static private int getLong(ByteBuffer b, int pos) throws ZipException {
+		long v = b.getLong(pos);
+		if (v < 0 || v > Integer.MAX_VALUE)
+			throw new ZipException("Invalid zip64 value: " + v);
+		return (int) v;
+	}
+
+	/** An entry in an archive */
+	static private class Entry {
+		private final int method;
+		private final int offset;
+		private final int c_size;
+		private final int size;
+		private Entry(int m, int o, int cs, int s) {
+			method = m;
+			offset = o;
+			c_size = cs;
+			size = s;
+		}
+	}
+
+	/** A memory-mapped archive */
+	static private class Archive {
+
+		/** Archive file */
+		private final File file;
+
+		/** File length when mapped */
+		private final long length;
+
+		/** File modified time when mapped */
+		private final long modified;
+
+		/** Mapped archive (little-endian, for zip headers) */
+		private final ByteBuffer map;
+
+		/** Index of entries by name */
+		private final HashMap<String, Entry> entries =
+			new HashMap<String, Entry>();
+
+		/** Map an archive and read its index */
+		private Archive(File f) throws IOException {
+			file = f;
+			length = f.length();
+			modified = f.lastModified();
+			if (length > Integer.MAX_VALUE)
+				throw new ZipException("Too large: " + f);
+			RandomAccessFile raf = new RandomAccessFile(f, "r");
+			try {
+				map = raf.getChannel().map(
+					FileChannel.MapMode.READ_ONLY, 0,
+					length);
+			}
+			finally {
+				// Mapping remains valid after closing
+				raf.close();
+			}
+			map.order(ByteOrder.LITTLE_ENDIAN);
+			readIndex();
+		}
+
+		/** Check if the archive file has not changed since mapped */
+		private boolean isCurrent() {
+			return file.length() == length &&
+			       file.lastModified() == modified;
+		}
+
+		/** Find the end of central directory record */
+		private int findEnd() throws ZipException {
+			int last = Math.max(0, map.limit() - END_LEN -
+				MAX_COMMENT);
+			for (int p = map.limit() - END_LEN; p >= last; p--) {
+				if (map.getInt(p) == END_SIG)
+					return p;
+			}
+			throw new ZipException("No central directory: " + file);
+		}
+
+		/** Find the zip64 end of central directory record.
+		 * @param end Position of end of central directory record.
+		 * @return Position of zip64 record, or -1 if none. */
+		private int findEnd64(int end) throws ZipException {
+			int loc = end - END64_LOC_LEN;
+			if (loc < 0 || map.getInt(loc) != END64_LOC_SIG)
+				return -1;
+			int p = getLong(map, loc + 8);
+			if (p + 56 > map.limit() || map.getInt(p) != END64_SIG)
+				throw new ZipException("Bad zip64: " + file);
+			return p;
+		}
+
+		/** Read the central directory into the entry index */
+		private void readIndex() throws ZipException {
+			int end = findEnd();
+			int n_entries = getShort(map, end + 10);
+			boolean zip64 = (ZIP64_COUNT == n_entries) ||
+				(ZIP64_OFFSET == map.getInt(end + 16));
+			int end64 = zip64 ? findEnd64(end) : -1;
+			int p;
+			if (end64 >= 0) {
+				n_entries = getLong(map, end64 + 32);
+				p = getLong(map, end64 + 48);
+			} else
+				p = getOffset(map, end + 16);
+			for (int i = 0; i < n_entries; i++) {
+				if (p + CEN_LEN > map.limit() ||
+				    map.getInt(p) != CEN_SIG)
+				{
+					throw new ZipException("Invalid " +
+						"central directory: " + file);
+				}
+				int n_len = getShort(map, p + 28);
+				String name = readName(p + CEN_LEN, n_len);
+				int loc = getOffset(map, p + 42);
+				entries.put(name, new Entry(
+					getShort(map, p + 10),
+					dataOffset(loc),
+					getOffset(map, p + 20),
+					getOffset(map, p + 24)));
+				p += CEN_LEN + n_len + getShort(map, p + 30) +
+					getShort(map, p + 32);
+			}
+		}
+
+		/** Read an entry name */
+		private String readName(int pos, int len) {
+			byte[] b = new byte[len];
+			ByteBuffer bb = map.duplicate();
+			bb.position(pos);
+			bb.get(b);
+			return new String(b, UTF8);
+		}
+
+		/** Get the data offset of an entry from its local header */
+		private int dataOffset(int loc) throws ZipException {
+			if (loc + LOC_LEN > map.limit() ||
+			    map.getInt(loc) != LOC_SIG)
+				throw new ZipException("Bad entry: " + file);
+			return loc + LOC_LEN + getShort(map, loc + 26) +
+				getShort(map, loc + 28);
+		}
+
+		/** Read one entry.
+		 * @param name Entry name.
+		 * @return Read-only buffer of entry data, or null. */
+		private ByteBuffer read(String name) throws IOException {
+			Entry e = entries.get(name);
+			if (null == e)
+				return null;
+			if (e.offset + e.c_size > map.limit())
+				throw new ZipException("Truncated: " + name);
+			ByteBuffer bb = map.duplicate();
+			bb.position(e.offset);
+			bb.limit(e.offset + e.c_size);
+			// Slice is big-endian, like sample files
+			ByteBuffer data = bb.slice();
+			switch (e.method) {
+			case ZipEntry.STORED:
+				return data.asReadOnlyBuffer();
+			case ZipEntry.DEFLATED:
+				return inflate(data, e.size);
+			default:
+				throw new ZipException("Invalid method: " +
+					name);
+			}
+		}
+	}
+
+	/** Inflate compressed entry data */
+	static private ByteBuffer inflate(ByteBuffer data, int size)
+		throws ZipException
+	{
+		// An extra "dummy" byte is needed with nowrap
+		byte[] in = new byte[data.remaining() + 1];
+		data.get(in, 0, in.length - 1);
+		byte[] out = new byte[size];
+		Inflater inf = new Inflater(true);
+		try {
+			inf.setInput(in);
+			int n = 0;
+			while (n < size && !inf.finished()) {
+				int r = inf.inflate(out, n, size - n);
+				if (0 == r && inf.needsInput())
+					break;
+				n += r;
+			}
+			if (n < size)
+				throw new ZipException("Truncated entry");
+		}
+		catch (DataFormatException e) {
+			throw new ZipException(e.getMessage());
+		}
+		finally {
+			inf.end();
+		}
+		return ByteBuffer.wrap(out).asReadOnlyBuffer();
+	}
+
+	/** Base sample archive directory */
+	private final File base;
+
+	/** Mapped archives, in least-recently-used order */
+	private final LinkedHashMap<File, Archive> archives =
+		new LinkedHashMap<File, Archive>(16, 0.75f, true)
+	{
+		@Override protected boolean removeEldestEntry(
+			Map.Entry<File, Archive> e)
+		{
+			return size() > MAX_ARCHIVES;
+		}
+	};
+
+	/** Create a new sample archive reader.
+	 * @param b Base sample archive directory. */
+	public SampleArchiveReader(File b) {
+		base = b;
+	}
+
+	/** Read a sample file.
+	 * @param sensor_id Sensor identifier.
+	 * @param ext File extension.
+	 * @param stamp Time stamp (any time during the day).
+	 * @return Read-only buffer of file data, or null if not found. */
+	public ByteBuffer read(String sensor_id, String ext, long stamp)
+		throws IOException
+	{
+		String d = TimeSteward.dateShortString(stamp);
+		File year = new File(base, d.substring(0, 4));
+		String name = sensor_id + '.' + ext;
+		File dir = new File(year, d);
+		File file = new File(dir, name);
+		File cf = ColumnarSampleFile.columnarFile(dir, ext);
+		if (cf.isFile()) {
+			ByteBuffer b = readColumnar(cf, sensor_id, file);
+			if (b != null)
+				return b;
+		}
+		if (file.isFile()) {
+			byte[] data = Files.readAllBytes(file.toPath());
+			return ByteBuffer.wrap(data).asReadOnlyBuffer();
+		}
+		File traffic = new File(year, d + ".traffic");
+		return traffic.isFile() ? read(traffic, name) : null;
+	}
+
+	/** Read samples for one sensor from a columnar file.
+	 * @param cf Columnar sample file.
+	 * @param sensor_id Sensor identifier.
+	 * @param file Per-sensor sample file, which may not exist.
+	 * @return Read-only buffer of samples, or null if not found. */
+	private ByteBuffer readColumnar(File cf, String sensor_id, File file)
+		throws IOException
+	{
+		ColumnarSampleFile col = new ColumnarSampleFile(cf);
+		try {
+			if (!col.hasSensor(sensor_id))
+				return null;
+			byte[] data = ColumnarSampleConverter.sensorSamples(col,
+				sensor_id, file);
+			return ByteBuffer.wrap(data).asReadOnlyBuffer();
+		}
+		finally {
+			col.close();
+		}
+	}
+
+	/** Read an entry from a sample archive.
+	 * @param traffic Sample archive file.
+	 * @param name Entry name.
+	 * @return Read-only buffer of entry data, or null if not found. */
+	public ByteBuffer read(File traffic, String name) throws IOException {
+		return getArchive(traffic).read(name);
+	}
+
+	/** Get a mapped archive */
+	private Archive getArchive(File traffic) throws IOException {
+		synchronized (archives) {
+			Archive a = archives.get(traffic);
+			if (null == a || !a.isCurrent()) {
+				a = new Archive(traffic);
+				archives.put(traffic, a);
+			}
+			return a;
+		}
+	}
+
+	/** Read periodic samples for one day.
+	 * @param sensor_id Sensor identifier.
+	 * @param t Periodic sample type.
+	 * @param period Sample period (seconds).
+	 * @param stamp Time stamp (any time during the day).
+	 * @return Array of sample values (MISSING_DATA when missing), or
+	 *         null if not found. */
+	public int[] readSamples(String sensor_id, PeriodicSampleType t,
+		int period, long stamp) throws IOException
+	{
+		ByteBuffer b = read(sensor_id, t.extension + period, stamp);
+		if (null == b)
+			return null;
+		int[] samples = new int[b.remaining() / t.sample_bytes];
+		for (int i = 0; i < samples.length; i++) {
+			int v = (t.sample_bytes == 2)
+			      ? b.getShort(i * 2)
+			      : b.get(i);
+			samples[i] = Math.max(v, MISSING_DATA);
+		}
+		return samples;
+	}
+
+	/** Get the number of mapped archives */
+	public int mappedArchives() {
+		synchronized (archives) {
+			return archives.size();
+		}
+	}
+}
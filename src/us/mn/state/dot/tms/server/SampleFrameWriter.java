@@ -0,0 +1,153 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.zip.GZIPOutputStream;
+import us.mn.state.dot.tms.Detector;
+import us.mn.state.dot.tms.DetectorHelper;
+import us.mn.state.dot.tms.SampleFrame;
+import static us.mn.state.dot.tms.server.XmlWriter.XML_OUTPUT_DIRECTORY;
+import static us.mn.state.dot.tms.server.XmlWriter.atomicFileMove;
+
+/**
+ * Writer for binary detector sample frames.  Every period, a full frame
+ * is written, along with a delta frame against the previous period.
+ *
+ * @author Douglas Lau
+ */
+public class SampleFrameWriter {
+
+	/** Comparator for sorting detectors by name */
+	static private final Comparator<DetectorImpl> NAME_COMP =
+		new Comparator<DetectorImpl>()
+	{
+		public int compare(DetectorImpl d0, DetectorImpl d1) {
+			return d0.getName().compareTo(d1.getName());
+		}
+	};
+
+	/** Sample period (seconds) */
+	static private final int PERIOD_SEC = 30;
+
+	/** Full frame file */
+	private final File full_file = new File(XML_OUTPUT_DIRECTORY,
+		SampleFrame.FULL_FILE);
+
+	/** Delta frame file */
+	private final File delta_file = new File(XML_OUTPUT_DIRECTORY,
+		SampleFrame.DELTA_FILE);
+
+	/** Detectors in index table order */
+	private final ArrayList<DetectorImpl> dets =
+		new ArrayList<DetectorImpl>();
+
+	/** Detector names in index table order */
+	private String[] names = new String[0];
+
+	/** Index table ID */
+	private int table_id = SampleFrame.tableId(names);
+
+	/** Frame from previous period */
+	private SampleFrame prev = null;
+
+	/** Write the sample frames for the current period */
+	public void write() throws IOException {
+		updateTable();
+		SampleFrame f = new SampleFrame(names, table_id,
+			DetectorImpl.calculateEndTime(), PERIOD_SEC);
+		for (int i = 0; i < dets.size(); i++)
+			dets.get(i).storeSample(f, i);
+		writeFull(f);
+		writeDelta(f);
+		prev = f;
+	}
+
+	/** Update the detector index table */
+	private void updateTable() {
+		dets.clear();
+		Iterator<Detector> it = DetectorHelper.iterator();
+		while (it.hasNext()) {
+			Detector d = it.next();
+			if (d instanceof DetectorImpl && !d.getAbandoned())
+				dets.add((DetectorImpl) d);
+		}
+		Collections.sort(dets, NAME_COMP);
+		if (!isTableValid()) {
+			names = new String[dets.size()];
+			for (int i = 0; i < names.length; i++)
+				names[i] = dets.get(i).getName();
+			table_id = SampleFrame.tableId(names);
+		}
+	}
+
+	/** Check if the index table names match the detector list */
+	private boolean isTableValid() {
+		if (names.length != dets.size())
+			return false;
+		for (int i = 0; i < names.length; i++) {
+			if (!names[i].equals(dets.get(i).getName()))
+				return false;
+		}
+		return true;
+	}
+
+	/** Write a full frame file */
+	private void writeFull(SampleFrame f) throws IOException {
+		File temp = new File(full_file.getAbsolutePath() + "~");
+		OutputStream os = new GZIPOutputStream(new FileOutputStream(
+			temp));
+		try {
+			f.writeFull(new BufferedOutputStream(os));
+		}
+		finally {
+			os.close();
+		}
+		moveFile(temp, full_file);
+	}
+
+	/** Write a delta frame file.  If the previous frame has a different
+	 * index table, the delta file is removed so that readers will
+	 * request a full frame. */
+	private void writeDelta(SampleFrame f) throws IOException {
+		if (f.isCompatible(prev)) {
+			File temp = new File(delta_file.getAbsolutePath() +"~");
+			OutputStream os = new BufferedOutputStream(
+				new FileOutputStream(temp));
+			try {
+				f.writeDelta(os, prev);
+			}
+			finally {
+				os.close();
+			}
+			moveFile(temp, delta_file);
+		} else
+			delta_file.delete();
+	}
+
+	/** Move a temp file into place */
+	private void moveFile(File temp, File file) throws IOException {
+		if (!atomicFileMove(temp.toPath(), file.toPath()))
+			throw new IOException("Rename failed: " + file);
+	}
+}
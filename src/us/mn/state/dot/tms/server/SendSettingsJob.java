@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2018  Minnesota Department of Transportation
+ * Copyright (C) 2009-2019  Minnesota Department of Transportation
  * Copyright (C) 2017  Iteris Inc.
  *
  * This program is free software; you can redistribute it and/or modify
@@ -75,12 +75,13 @@ public class SendSettingsJob extends Job {
 		requestWeatherSensors(DeviceRequest.SEND_SETTINGS);
 	}
 
-	/** Send a request to all DMS */
+	/** Send a request to all DMS (skipping fonts already installed) */
 	private void requestDMS(DeviceRequest req) {
 		Iterator<DMS> it = DMSHelper.iterator();
 		while (it.hasNext()) {
 			DMS dms = it.next();
-			dms.setDeviceRequest(req.ordinal());
+			if (dms instanceof DMSImpl)
+				((DMSImpl) dms).setDeviceReq(req);
 		}
 	}
 
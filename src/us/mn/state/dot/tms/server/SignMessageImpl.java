@@ -18,9 +18,13 @@ import java.io.IOException;
 import java.io.Writer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import us.mn.state.dot.sched.DebugLog;
+import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.DMSHelper;
 import us.mn.state.dot.tms.DmsMsgPriority;
 import us.mn.state.dot.tms.SignConfig;
@@ -42,6 +46,64 @@ public class SignMessageImpl extends BaseObjectImpl implements SignMessage {
 	/** Sign msg debug log */
 	static private final DebugLog MSG_LOG = new DebugLog("sign_msg");
 
+	/** Time a message must be unreferenced before it is reaped.  This
+	 * gives clients time to assign a newly created message to a sign,
+	 * and operations time to start sending it. */
+	static private final long REAP_DELAY_MS = 60 * 1000;
+
+	/** Unreferenced sign messages, mapped to the time they lost their
+	 * last reference (oldest first).  Reference counts are also
+	 * protected by this lock. */
+	static private final LinkedHashMap<SignMessageImpl, Long>
+		UNREFERENCED = new LinkedHashMap<SignMessageImpl, Long>();
+
+	/** Replace a sign message reference.
+	 * @param om Old sign message (released).
+	 * @param sm New sign message (referenced). */
+	static public void swapRef(SignMessage om, SignMessage sm) {
+		if (om != sm) {
+			if (sm instanceof SignMessageImpl)
+				((SignMessageImpl) sm).addRef();
+			if (om instanceof SignMessageImpl)
+				((SignMessageImpl) om).releaseRef();
+		}
+	}
+
+	/** Reap sign messages which have been unreferenced long enough */
+	static public void reapUnreferenced() {
+		for (SignMessageImpl sm: findReapable()) {
+			// Make sure the message has not already been
+			// reaped by looking it up in the namespace.
+			// This is needed because objects are removed
+			// asynchronously from the namespace.
+			if (sm.isUnreferenced() &&
+			    SignMessageHelper.lookup(sm.getName()) == sm)
+			{
+				sm.notifyRemove();
+				sm.logMsg("removed (reaper)");
+			}
+		}
+	}
+
+	/** Find and remove reapable messages from the unreferenced map */
+	static private ArrayList<SignMessageImpl> findReapable() {
+		long before = TimeSteward.currentTimeMillis() - REAP_DELAY_MS;
+		ArrayList<SignMessageImpl> msgs =
+			new ArrayList<SignMessageImpl>();
+		synchronized (UNREFERENCED) {
+			Iterator<Map.Entry<SignMessageImpl, Long>> it =
+				UNREFERENCED.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<SignMessageImpl, Long> e = it.next();
+				if (e.getValue() > before)
+					break;
+				msgs.add(e.getKey());
+				it.remove();
+			}
+		}
+		return msgs;
+	}
+
 	/** Last allocated system message ID */
 	static private int last_id = 0;
 
@@ -108,6 +170,7 @@ public class SignMessageImpl extends BaseObjectImpl implements SignMessage {
 	/** Create a new sign message (by SONAR clients) */
 	public SignMessageImpl(String n) {
 		super(n);
+		markUnreferenced();
 		logMsg("created (client)");
 	}
 
@@ -139,7 +202,8 @@ public class SignMessageImpl extends BaseObjectImpl implements SignMessage {
 		msg_priority = mp;
 		source = s;
 		owner = o;
-		duration = d;		
+		duration = d;
+		markUnreferenced();
 	}
 
 	/** Create a new sign message (by IRIS) */
@@ -155,9 +219,45 @@ public class SignMessageImpl extends BaseObjectImpl implements SignMessage {
 		source = s;
 		owner = o;
 		duration = d;
+		markUnreferenced();
 		logMsg("created (server)");
 	}
 
+	/** Count of references from signs */
+	private transient int refs = 0;
+
+	/** Add a reference to the message */
+	private void addRef() {
+		synchronized (UNREFERENCED) {
+			refs++;
+			UNREFERENCED.remove(this);
+		}
+	}
+
+	/** Release a reference to the message */
+	private void releaseRef() {
+		synchronized (UNREFERENCED) {
+			if (refs > 0)
+				refs--;
+			if (0 == refs)
+				markUnreferenced();
+		}
+	}
+
+	/** Mark the message unreferenced */
+	private void markUnreferenced() {
+		synchronized (UNREFERENCED) {
+			UNREFERENCED.put(this, TimeSteward.currentTimeMillis());
+		}
+	}
+
+	/** Check if the message is unreferenced */
+	private boolean isUnreferenced() {
+		synchronized (UNREFERENCED) {
+			return 0 == refs;
+		}
+	}
+
 	/** Log a message */
 	void logMsg(String msg) {
 		if (MSG_LOG.isOpen())
@@ -15,7 +15,6 @@
 package us.mn.state.dot.tms.server;
 
 import java.io.IOException;
-import java.io.Writer;
 import java.util.Map;
 import java.util.NavigableMap;
 import us.mn.state.dot.sched.DebugLog;
@@ -24,7 +23,6 @@ import us.mn.state.dot.tms.R_Node;
 import us.mn.state.dot.tms.Station;
 import us.mn.state.dot.tms.SystemAttrEnum;
 import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
-import static us.mn.state.dot.tms.server.XmlWriter.createAttribute;
 
 /**
  * A station is a group of related detectors.
@@ -401,7 +399,7 @@ public class StationImpl implements Station, VehicleSampler {
 	}
 
 	/** Write the current sample as an XML element */
-	public void writeSampleXml(Writer w) throws IOException {
+	public void writeSampleXml(XmlEmitter em) throws IOException {
 		if (!getActive())
 			return;
 		long end = DetectorImpl.calculateEndTime();
@@ -409,17 +407,15 @@ public class StationImpl implements Station, VehicleSampler {
 		int f = getFlow(start, end);
 		int s = Math.round(getSpeed());
 		float o = occupancy;
-		w.write("\t<sample");
-		w.write(createAttribute("sensor", name));
+		em.raw(FlushXmlJob.SAMPLE_START);
+		em.attr(FlushXmlJob.SENSOR, name);
 		if (f > MISSING_DATA)
-			w.write(createAttribute("flow", f));
+			em.attr(FlushXmlJob.FLOW, f);
 		if (s > 0)
-			w.write(createAttribute("speed", s));
-		if (o >= 0) {
-			w.write(createAttribute("occ",
-				BaseObjectImpl.formatFloat(o, 2)));
-		}
-		w.write("/>\n");
+			em.attr(FlushXmlJob.SPEED, s);
+		if (o >= 0)
+			em.attr(FlushXmlJob.OCC, o, 2);
+		em.raw(FlushXmlJob.ELEMENT_END);
 	}
 
 	/** Get the station index */
@@ -449,6 +445,11 @@ public class StationImpl implements Station, VehicleSampler {
 		bottleneck = b;
 	}
 
+	/** Check if the station is a bottleneck */
+	public boolean isBottleneck() {
+		return bottleneck;
+	}
+
 	/** Calculate whether the station is a bottleneck.
 	 * @param m Mile point of this station.
 	 * @param upstream Mapping of mile points to upstream stations. */
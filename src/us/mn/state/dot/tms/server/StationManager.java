@@ -15,9 +15,9 @@
 package us.mn.state.dot.tms.server;
 
 import java.io.IOException;
-import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Iterator;
-import us.mn.state.dot.sched.TimeSteward;
+import java.util.concurrent.RecursiveAction;
 import us.mn.state.dot.tms.Station;
 import us.mn.state.dot.tms.StationHelper;
 
@@ -31,69 +31,51 @@ class StationManager {
 	/** Location of station sample XML file */
 	static private final String SAMPLE_XML = "stat_sample.xml";
 
-	/** Calculate the current data for all stations */
+	/** Calculate the current data for all stations.  Stations do not
+	 * share detectors, so each one is calculated as a separate task. */
 	public void calculateData() {
+		ArrayList<RecursiveAction> actions =
+			new ArrayList<RecursiveAction>();
 		Iterator<Station> it = StationHelper.iterator();
 		while(it.hasNext()) {
 			Station s = it.next();
 			if(s instanceof StationImpl) {
-				StationImpl si = (StationImpl)s;
-				si.calculateData();
+				final StationImpl si = (StationImpl)s;
+				actions.add(new RecursiveAction() {
+					@Override protected void compute() {
+						si.calculateData();
+					}
+				});
 			}
 		}
+		MeteringJob.forkAll(actions);
 	}
 
+	/** Emitter for station sample XML (reused for every write) */
+	private final XmlEmitter sample_xml = new XmlEmitter(SAMPLE_XML,
+		true)
+	{
+		@Override protected void emit() throws IOException {
+			FlushXmlJob.writeSampleXmlHead(this);
+			writeSampleXmlBody(this);
+			FlushXmlJob.writeSampleXmlTail(this);
+		}
+	};
+
 	/** Write the station sample data out as XML */
 	public void writeSampleXml() throws IOException {
-		XmlWriter w = new XmlWriter(SAMPLE_XML, true) {
-			@Override protected void write(Writer w)
-				throws IOException
-			{
-				writeSampleXmlHead(w);
-				writeSampleXmlBody(w);
-				writeSampleXmlTail(w);
-			}
-		};
-		w.write();
-	}
-
-	/** Print the header of the station sample XML file */
-	private void writeSampleXmlHead(Writer w) throws IOException {
-		w.write(XmlWriter.XML_DECLARATION);
-		writeDtd(w);
-		w.write("<traffic_sample time_stamp='" +
-			TimeSteward.getDateInstance() + "' period='30'>\n");
-	}
-
-	/** Print the DTD */
-	private void writeDtd(Writer w) throws IOException {
-		w.write("<!DOCTYPE traffic_sample [\n");
-		w.write("<!ELEMENT traffic_sample (sample)*>\n");
-		w.write("<!ATTLIST traffic_sample time_stamp " +
-			"CDATA #REQUIRED>\n");
-		w.write("<!ATTLIST traffic_sample period CDATA #REQUIRED>\n");
-		w.write("<!ELEMENT sample EMPTY>\n");
-		w.write("<!ATTLIST sample sensor CDATA #REQUIRED>\n");
-		w.write("<!ATTLIST sample flow CDATA 'UNKNOWN'>\n");
-		w.write("<!ATTLIST sample speed CDATA 'UNKNOWN'>\n");
-		w.write("<!ATTLIST sample occ CDATA 'UNKNOWN'>\n");
-		w.write("]>\n");
+		sample_xml.write();
 	}
 
 	/** Print the body of the station sample XML file */
-	private void writeSampleXmlBody(Writer w) throws IOException {
+	private void writeSampleXmlBody(XmlEmitter em) throws IOException {
 		Iterator<Station> it = StationHelper.iterator();
 		while(it.hasNext()) {
 			Station s = it.next();
 			if(s instanceof StationImpl) {
 				StationImpl si = (StationImpl)s;
-				si.writeSampleXml(w);
+				si.writeSampleXml(em);
 			}
 		}
 	}
-
-	/** Print the tail of the station sample XML file */
-	private void writeSampleXmlTail(Writer w) throws IOException {
-		w.write("</traffic_sample>\n");
-	}
 }
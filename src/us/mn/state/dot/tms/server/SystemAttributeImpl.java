@@ -111,7 +111,7 @@ public class SystemAttributeImpl extends BaseObjectImpl
 	}
 
 	/** Create a new attribute */
-	private SystemAttributeImpl(String att_name, String arg_value) {
+	protected SystemAttributeImpl(String att_name, String arg_value) {
 		super(att_name);
 		value = arg_value;
 	}
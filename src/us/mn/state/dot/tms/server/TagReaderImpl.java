@@ -33,6 +33,7 @@ import us.mn.state.dot.tms.TMSException;
 import us.mn.state.dot.tms.TollZone;
 import us.mn.state.dot.tms.server.comm.DevicePoller;
 import us.mn.state.dot.tms.server.comm.TagReaderPoller;
+import us.mn.state.dot.tms.server.event.TagReadBuffer;
 import us.mn.state.dot.tms.server.event.TagReadEvent;
 
 /**
@@ -698,6 +699,9 @@ public class TagReaderImpl extends DeviceImpl implements TagReader {
 	{
 		TagReadEvent ev = new TagReadEvent(EventType.TAG_READ,
 			new Date(stamp), tt.ordinal(), agency, tid, name, hov);
-		logEvent(ev);
+		TagReadBuffer.offer(ev);
+		TollZone tz = toll_zone;
+		if (tz instanceof TollZoneImpl)
+			((TollZoneImpl) tz).countTagRead(hov);
 	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2018  Minnesota Department of Transportation
+ * Copyright (C) 2009-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,37 +15,65 @@
 package us.mn.state.dot.tms.server;
 
 import java.util.Calendar;
-import java.util.Iterator;
 import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
-import us.mn.state.dot.tms.TimeAction;
-import us.mn.state.dot.tms.TimeActionHelper;
 import us.mn.state.dot.tms.TMSException;
 
 /**
- * Job to perform time actions.
+ * Job to perform time actions.  This runs at the start of every minute, and
+ * only performs actions scheduled for that minute.  If the TIMER thread is
+ * late, actions for any skipped minutes are performed when it catches up.
  *
  * @author Douglas Lau
  */
 public class TimeActionJob extends Job {
 
+	/** Milliseconds per minute */
+	static private final long MINUTE_MS = 60 * 1000;
+
+	/** Maximum number of skipped minutes to catch up */
+	static private final int MAX_CATCH_UP = 10;
+
+	/** Action plan engine */
+	private final ActionPlanEngine engine;
+
+	/** Start time of the last minute performed (ms) */
+	private long last_ms = 0;
+
 	/** Create a new time action job */
 	public TimeActionJob() {
-		super(0);
+		this(BaseObjectImpl.plan_engine);
+	}
+
+	/** Create a new time action job */
+	TimeActionJob(ActionPlanEngine e) {
+		super(Calendar.MINUTE, 1);
+		engine = e;
 	}
 
 	/** Perform time actions */
 	@Override
 	public void perform() throws TMSException {
-		Calendar cal = TimeSteward.getCalendarInstance();
-		int min = TimeSteward.currentMinuteOfDayInt();
-		Iterator<TimeAction> it = TimeActionHelper.iterator();
-		while (it.hasNext()) {
-			TimeAction ta = it.next();
-			if (ta instanceof TimeActionImpl) {
-				TimeActionImpl tai = (TimeActionImpl) ta;
-				tai.perform(cal, min);
-			}
+		performMinutes(TimeSteward.currentTimeMillis());
+	}
+
+	/** Perform time actions for every minute since the last one
+	 * performed, up to the current minute.
+	 * @param now Current time (ms). */
+	void performMinutes(long now) throws TMSException {
+		long ms = now / MINUTE_MS * MINUTE_MS;
+		long first = (last_ms > 0)
+		      ? Math.max(last_ms + MINUTE_MS,
+		                 ms - (MAX_CATCH_UP - 1) * MINUTE_MS)
+		      : ms;
+		for (long t = first; t <= ms; t += MINUTE_MS) {
+			Calendar cal = Calendar.getInstance();
+			cal.setTimeInMillis(t);
+			int min = cal.get(Calendar.HOUR_OF_DAY) * 60 +
+			          cal.get(Calendar.MINUTE);
+			// Update first, so a failing action is not retried
+			last_ms = t;
+			engine.performTimeActions(cal, min);
 		}
 	}
 }
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2012-2013  Minnesota Department of Transportation
+ * Copyright (C) 2012-2019  Minnesota Department of Transportation
  * Copyright (C) 2011  Berkeley Transportation Systems Inc.
  * Copyright (C) 2012  Iteris Inc.
  *
@@ -16,12 +16,20 @@
  */
 package us.mn.state.dot.tms.server;
 
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import us.mn.state.dot.sched.TimeSteward;
+import us.mn.state.dot.tms.Cabinet;
 import us.mn.state.dot.tms.Camera;
 import us.mn.state.dot.tms.CameraHelper;
 import us.mn.state.dot.tms.CommLink;
@@ -30,11 +38,20 @@ import us.mn.state.dot.tms.Controller;
 import us.mn.state.dot.tms.ControllerHelper;
 import us.mn.state.dot.tms.DMS;
 import us.mn.state.dot.tms.DMSHelper;
+import us.mn.state.dot.tms.Detector;
+import us.mn.state.dot.tms.GeoLoc;
+import us.mn.state.dot.tms.R_Node;
 import us.mn.state.dot.tms.RampMeter;
 import us.mn.state.dot.tms.RampMeterHelper;
+import us.mn.state.dot.tms.Road;
+import us.mn.state.dot.tms.SignConfig;
+import us.mn.state.dot.tms.SystemAttribute;
 
 /**
- * This class writes out the TMS configuration data to an XML file.
+ * This class writes out the TMS configuration data to an XML file.  Each
+ * section is cached, and only rendered again when objects of its types
+ * have changed.  The file is not written at all if nothing changed, and
+ * an ETag file is written beside it so clients can skip downloads.
  *
  * @author Douglas Lau
  * @author Michael Darter
@@ -44,28 +61,148 @@ public class TmsConfigXmlWriter extends XmlWriter {
 	/** TMS config XML file */
 	static private final String CONFIG_XML = "_config.xml";
 
+	/** ETag file extension */
+	static private final String ETAG_EXT = ".etag";
+
+	/** Sections of the config file */
+	static private enum Section {
+		R_NODES(R_Node.SONAR_TYPE, Detector.SONAR_TYPE,
+			RampMeter.SONAR_TYPE, GeoLoc.SONAR_TYPE,
+			Road.SONAR_TYPE, SystemAttribute.SONAR_TYPE),
+		CAMERAS(Camera.SONAR_TYPE, Controller.SONAR_TYPE,
+			CommLink.SONAR_TYPE, GeoLoc.SONAR_TYPE,
+			Road.SONAR_TYPE),
+		COMM_LINKS(CommLink.SONAR_TYPE),
+		CONTROLLERS(Controller.SONAR_TYPE, Cabinet.SONAR_TYPE,
+			GeoLoc.SONAR_TYPE, Road.SONAR_TYPE),
+		SIGNS(DMS.SONAR_TYPE, SignConfig.SONAR_TYPE,
+			GeoLoc.SONAR_TYPE, Road.SONAR_TYPE);
+
+		/** Types of objects written in the section, including types
+		 * which affect the output indirectly (cameras are only
+		 * written if their controller and comm link are active) */
+		private final String[] types;
+
+		/** Create a config section */
+		private Section(String... t) {
+			types = t;
+		}
+
+		/** Get the change serial number of the section.  This is
+		 * the sum of the serial numbers of all tables, which only
+		 * stays the same if none of them have changed. */
+		private long getSerial(SQLConnection store) {
+			long sn = 0;
+			for (String t: types)
+				sn += store.getSerial("iris." + t);
+			return sn;
+		}
+	}
+
+	/** Cached fragments for each section */
+	static private final EnumMap<Section, String> FRAGMENTS =
+		new EnumMap<Section, String>(Section.class);
+
+	/** Serial numbers of cached fragments */
+	static private final EnumMap<Section, Long> SERIALS =
+		new EnumMap<Section, Long>(Section.class);
+
+	/** ETag of the last config file written */
+	static private String last_etag;
+
 	/** Corridor manager */
 	private final CorridorManager manager;
 
+	/** ETag file */
+	private final File etag_file;
+
+	/** DTD of the config file */
+	private String dtd;
+
 	/** Create a new TMS config XML writer */
 	public TmsConfigXmlWriter(CorridorManager cm) {
 		super(MainServer.districtId() + CONFIG_XML, true);
 		manager = cm;
+		etag_file = new File(file.getAbsolutePath() + ETAG_EXT);
 	}
 
-	/** Write the TMS config XML file */
-	@Override protected void write(Writer w) throws IOException {
-		writeHead(w);
-		writeBody(w);
-		writeTail(w);
+	/** Write the TMS config XML file, if anything has changed */
+	@Override
+	public void write() throws IOException {
+		synchronized (FRAGMENTS) {
+			dtd = renderDtd();
+			updateFragments();
+			String etag = createETag();
+			if (etag.equals(last_etag) && file.exists())
+				return;
+			super.write();
+			writeETag(etag);
+			last_etag = etag;
+		}
 	}
 
-	/** Write the head of the TMS config XML file */
-	private void writeHead(Writer w) throws IOException {
-		w.write(XML_DECLARATION);
+	/** Render the DTD */
+	private String renderDtd() throws IOException {
+		StringWriter w = new StringWriter();
 		writeDtd(w);
+		return w.toString();
+	}
+
+	/** Re-render fragments for sections which have changed */
+	private void updateFragments() throws IOException {
+		for (Section s: Section.values()) {
+			// Get serial before rendering, so that changes
+			// made while rendering are caught next time
+			Long sn = s.getSerial(BaseObjectImpl.store);
+			if (!sn.equals(SERIALS.get(s))) {
+				StringWriter w = new StringWriter();
+				writeSection(s, w);
+				FRAGMENTS.put(s, w.toString());
+				SERIALS.put(s, sn);
+			}
+		}
+	}
+
+	/** Create an ETag from an MD5 digest of the DTD and fragments */
+	private String createETag() throws IOException {
+		try {
+			MessageDigest md = MessageDigest.getInstance("MD5");
+			md.update(dtd.getBytes(StandardCharsets.UTF_8));
+			for (String f: FRAGMENTS.values())
+				md.update(f.getBytes(StandardCharsets.UTF_8));
+			StringBuilder sb = new StringBuilder();
+			for (byte b: md.digest())
+				sb.append(String.format("%02x", b & 0xFF));
+			return sb.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/** Write the ETag file */
+	private void writeETag(String etag) throws IOException {
+		File t = new File(etag_file.getAbsolutePath() + "~");
+		Writer w = new FileWriter(t);
+		try {
+			w.write(etag + "\n");
+		}
+		finally {
+			w.close();
+		}
+		if (!atomicFileMove(t.toPath(), etag_file.toPath()))
+			throw new IOException("Rename failed: " + etag_file);
+	}
+
+	/** Write the TMS config XML file */
+	@Override protected void write(Writer w) throws IOException {
+		w.write(XML_DECLARATION);
+		w.write(dtd);
 		w.write("<tms_config time_stamp='" +
 			TimeSteward.getDateInstance() + "'>\n");
+		for (String f: FRAGMENTS.values())
+			w.write(f);
+		writeTail(w);
 	}
 
 	/** Write the DTD */
@@ -164,13 +301,25 @@ public class TmsConfigXmlWriter extends XmlWriter {
 		w.write("<!ATTLIST dms height_pixels CDATA #IMPLIED>\n");
 	}
 
-	/** Write the body of the TMS config XML file */
-	private void writeBody(Writer w) throws IOException {
-		writeRNodeBody(w);
-		writeCameraBody(w);
-		writeCommLinkBody(w);
-		writeControllerBody(w);
-		writeDmsBody(w);
+	/** Write one section of the TMS config XML file */
+	private void writeSection(Section s, Writer w) throws IOException {
+		switch (s) {
+		case R_NODES:
+			writeRNodeBody(w);
+			break;
+		case CAMERAS:
+			writeCameraBody(w);
+			break;
+		case COMM_LINKS:
+			writeCommLinkBody(w);
+			break;
+		case CONTROLLERS:
+			writeControllerBody(w);
+			break;
+		case SIGNS:
+			writeDmsBody(w);
+			break;
+		}
 	}
 
 	/** Write the r_node elements */
@@ -19,6 +19,7 @@ import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import us.mn.state.dot.sched.DebugLog;
 import us.mn.state.dot.sched.TimeSteward;
 import us.mn.state.dot.tms.GeoLoc;
@@ -360,9 +361,51 @@ public class TollZoneImpl extends BaseObjectImpl implements TollZone {
 		return (r != null) ? " " : " NOT ";
 	}
 
+	/** Count of tag reads in current pricing period */
+	private transient final AtomicInteger tag_reads = new AtomicInteger();
+
+	/** Count of HOV tag reads in current pricing period */
+	private transient final AtomicInteger hov_reads = new AtomicInteger();
+
+	/** Count of tag reads in previous pricing period */
+	private transient int last_tag_reads;
+
+	/** Count of HOV tag reads in previous pricing period */
+	private transient int last_hov_reads;
+
+	/** Count a tag read in the toll zone.
+	 * @param hov HOV switch flag. */
+	public void countTagRead(boolean hov) {
+		tag_reads.incrementAndGet();
+		if (hov)
+			hov_reads.incrementAndGet();
+	}
+
+	/** Get the count of tag reads in the previous pricing period */
+	public int getTagReads() {
+		return last_tag_reads;
+	}
+
+	/** Get the count of HOV tag reads in the previous pricing period */
+	public int getHovReads() {
+		return last_hov_reads;
+	}
+
+	/** Start a new pricing period for tag read counts */
+	private void binTagReads() {
+		last_tag_reads = tag_reads.getAndSet(0);
+		last_hov_reads = hov_reads.getAndSet(0);
+		if (isLogging()) {
+			log("tag reads: " + last_tag_reads + ", hov: " +
+				last_hov_reads);
+		}
+	}
+
 	/** Update density.
 	 * @param np New pricing period (if true). */
 	public synchronized void updateDensity(boolean np) {
+		if (np)
+			binTagReads();
 		updateDensityHistory();
 		for (Map.Entry<VehicleSampler,DensityHist> e:k_hist.entrySet()){
 			double k = e.getKey().getDensity();
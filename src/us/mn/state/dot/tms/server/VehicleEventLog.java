@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2006-2014  Minnesota Department of Transportation
+ * Copyright (C) 2006-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -14,9 +14,7 @@
  */
 package us.mn.state.dot.tms.server;
 
-import java.io.File;
-import java.io.FileWriter;
-import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Calendar;
 import us.mn.state.dot.sched.Job;
 import us.mn.state.dot.sched.TimeSteward;
@@ -26,7 +24,9 @@ import static us.mn.state.dot.tms.server.DetectorImpl.SAMPLE_PERIOD_SEC;
 import static us.mn.state.dot.tms.server.MainServer.FLUSH;
 
 /**
- * The vehicle event log records vehicle detection events.
+ * The vehicle event log records vehicle detection events.  Formatted events
+ * are buffered in memory, in chunks of one day each, and written to files
+ * by the FLUSH thread, either on a timer or when the buffer gets large.
  *
  * @author Douglas Lau
  */
@@ -38,6 +38,18 @@ public class VehicleEventLog {
 	/** Sample period for detectors (ms) */
 	static private final int SAMPLE_PERIOD_MS = SAMPLE_PERIOD_SEC * 1000;
 
+	/** Number of buffered characters to trigger a flush */
+	static private final int FLUSH_CHARS = 8192;
+
+	/** Vehicle event writer (used only by FLUSH thread) */
+	static private final VehicleEventWriter WRITER =
+		new VehicleEventWriter(MainServer.a_factory);
+
+	/** Close idle vehicle event log files (on FLUSH thread) */
+	static public void closeIdle() {
+		WRITER.closeIdle();
+	}
+
 	/** Is archiving enabled? */
 	static private boolean isArchiveEnabled() {
 		return SystemAttrEnum.SAMPLE_ARCHIVE_ENABLE.getBoolean();
@@ -50,12 +62,47 @@ public class VehicleEventLog {
 		      : TimeSteward.currentTimeMillis();
 	}
 
-	/** Sample archive factory */
-	private final SampleArchiveFactory factory;
+	/** Buffered events for one day */
+	static private class Chunk {
+
+		/** Time stamp of first event */
+		private final long stamp;
+
+		/** Start of day (ms) */
+		private final long start;
+
+		/** End of day (ms) */
+		private final long end;
+
+		/** Formatted events */
+		private final StringBuilder events = new StringBuilder();
+
+		/** Create a new chunk */
+		private Chunk(long st) {
+			stamp = st;
+			Calendar cal = Calendar.getInstance();
+			cal.setTimeInMillis(st);
+			cal.set(Calendar.HOUR_OF_DAY, 0);
+			cal.set(Calendar.MINUTE, 0);
+			cal.set(Calendar.SECOND, 0);
+			cal.set(Calendar.MILLISECOND, 0);
+			start = cal.getTimeInMillis();
+			cal.add(Calendar.DATE, 1);
+			end = cal.getTimeInMillis();
+		}
+
+		/** Check if a time stamp is in the same day */
+		private boolean isSameDay(long st) {
+			return st >= start && st < end;
+		}
+	}
 
 	/** Sensor ID */
 	private final String sensor_id;
 
+	/** Vehicle event writer (used only by FLUSH thread) */
+	private final VehicleEventWriter writer;
+
 	/** Count of vehicles in current sampling period */
 	private int ev_vehicles = 0;
 
@@ -68,15 +115,31 @@ public class VehicleEventLog {
 	/** Sum of all vehicle speeds (mph) in current sampling period */
 	private int ev_speed = 0;
 
+	/** Chunks of buffered events (oldest first) */
+	private ArrayList<Chunk> chunks = new ArrayList<Chunk>();
+
+	/** Number of buffered characters */
+	private int n_chars = 0;
+
+	/** Flag indicating a flush job has been scheduled */
+	private boolean flush_scheduled = false;
+
 	/** Create a new vehicle event log */
 	public VehicleEventLog(String sid) {
+		this(sid, WRITER);
+	}
+
+	/** Create a new vehicle event log.
+	 * @param sid Sensor ID.
+	 * @param w Vehicle event writer. */
+	VehicleEventLog(String sid, VehicleEventWriter w) {
 		sensor_id = sid;
-		factory = MainServer.a_factory;
+		writer = w;
 	}
 
 	/** Log a vehicle detection event */
-	public void logVehicle(final Calendar stamp, final int duration,
-		final int headway, final int speed)
+	public synchronized void logVehicle(Calendar stamp, int duration,
+		int headway, int speed)
 	{
 		ev_vehicles++;
 		ev_duration += duration;
@@ -85,44 +148,54 @@ public class VehicleEventLog {
 			ev_speed += speed;
 		}
 		if (isArchiveEnabled()) {
-			FLUSH.addJob(new Job() {
-				public void perform() throws IOException {
-					appendEvent(stamp, formatEvent(stamp,
-						duration, headway, speed));
-				}
-			});
+			appendEvent(getStampMillis(stamp), formatEvent(stamp,
+				duration, headway, speed));
 		}
 	}
 
-	/** Append an event to the log */
-	private void appendEvent(Calendar stamp, String line)
-		throws IOException
-	{
-		File file = factory.createFile(sensor_id, "vlog",
-			getStampMillis(stamp));
-		if (file != null) {
-			FileWriter fw = new FileWriter(file, true);
-			try {
-				fw.write(line);
-			}
-			finally {
-				fw.close();
-			}
+	/** Append an event to the buffer */
+	private void appendEvent(long st, String line) {
+		int n = chunks.size();
+		Chunk c = (n > 0) ? chunks.get(n - 1) : null;
+		if (null == c || !c.isSameDay(st)) {
+			c = new Chunk(st);
+			chunks.add(c);
 		}
-	}
-
-	/** Log a gap in vehicle events */
-	public void logGap() {
-		p_stamp = null;
-		if (isArchiveEnabled()) {
+		c.events.append(line);
+		n_chars += line.length();
+		if (n_chars >= FLUSH_CHARS && !flush_scheduled) {
+			flush_scheduled = true;
 			FLUSH.addJob(new Job() {
-				public void perform() throws IOException {
-					appendEvent(null, "*\n");
+				public void perform() {
+					flush();
 				}
 			});
 		}
 	}
 
+	/** Log a gap in vehicle events */
+	public synchronized void logGap() {
+		p_stamp = null;
+		if (isArchiveEnabled())
+			appendEvent(getStampMillis(null), "*\n");
+	}
+
+	/** Flush buffered events to files (on FLUSH thread) */
+	public void flush() {
+		ArrayList<Chunk> cs = takeChunks();
+		for (Chunk c: cs)
+			writer.write(sensor_id, c.stamp, c.events.toString());
+	}
+
+	/** Take all buffered chunks */
+	private synchronized ArrayList<Chunk> takeChunks() {
+		ArrayList<Chunk> cs = chunks;
+		chunks = new ArrayList<Chunk>();
+		n_chars = 0;
+		flush_scheduled = false;
+		return cs;
+	}
+
 	/** Time stamp of most recent vehicle event */
 	private transient Calendar p_stamp;
 
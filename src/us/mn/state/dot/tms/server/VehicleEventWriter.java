@@ -0,0 +1,147 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import us.mn.state.dot.sched.DebugLog;
+
+/**
+ * A writer for vehicle event logs.  Like the periodic sample writer, this
+ * is only used by the FLUSH thread, so that threads collecting vehicle
+ * events do not have to wait for file I/O.
+ *
+ * A bounded set of vlog files is kept open for appending.  Files which
+ * have not been written since the last call to closeIdle are closed.
+ *
+ * @author Douglas Lau
+ */
+public class VehicleEventWriter {
+
+	/** Flush debug log */
+	static private final DebugLog FLUSH_LOG = new DebugLog("flush");
+
+	/** Vehicle event log file extension */
+	static private final String VLOG = "vlog";
+
+	/** Maximum number of open files */
+	static private final int MAX_OPEN_FILES = 64;
+
+	/** Character set for vehicle event logs */
+	static private final Charset ASCII = Charset.forName("US-ASCII");
+
+	/** Close an output stream, logging any exception */
+	static private void close(File f, OutputStream os) {
+		try {
+			os.close();
+		}
+		catch (IOException e) {
+			FLUSH_LOG.log(f + ", " + e.getMessage());
+		}
+	}
+
+	/** Sample archive factory */
+	private final SampleArchiveFactory factory;
+
+	/** Open files, in least-recently-used order */
+	private final LinkedHashMap<File, OutputStream> files =
+		new LinkedHashMap<File, OutputStream>(16, 0.75f, true)
+	{
+		@Override protected boolean removeEldestEntry(
+			Map.Entry<File, OutputStream> e)
+		{
+			if (size() > MAX_OPEN_FILES) {
+				close(e.getKey(), e.getValue());
+				return true;
+			} else
+				return false;
+		}
+	};
+
+	/** Files written since last closeIdle */
+	private final HashSet<File> written = new HashSet<File>();
+
+	/** Create a new vehicle event writer */
+	public VehicleEventWriter(SampleArchiveFactory f) {
+		factory = f;
+	}
+
+	/** Append vehicle events to a log file.
+	 * @param sensor_id Sensor identifier.
+	 * @param stamp Time stamp of first event.
+	 * @param text Formatted events (all from the same day). */
+	public void write(String sensor_id, long stamp, String text) {
+		File f = null;
+		try {
+			f = factory.createFile(sensor_id, VLOG, stamp);
+			if (f != null) {
+				getStream(f).write(text.getBytes(ASCII));
+				written.add(f);
+			}
+		}
+		catch (IOException e) {
+			if (FLUSH_LOG.isOpen()) {
+				FLUSH_LOG.log(sensor_id + ": " + f + ", " +
+					e.getMessage());
+			}
+			if (f != null)
+				closeFile(f);
+		}
+	}
+
+	/** Get an output stream for appending to a file */
+	private OutputStream getStream(File f) throws IOException {
+		OutputStream os = files.get(f);
+		if (null == os) {
+			os = new FileOutputStream(f, true);
+			files.put(f, os);
+		}
+		return os;
+	}
+
+	/** Close one file */
+	private void closeFile(File f) {
+		OutputStream os = files.remove(f);
+		if (os != null)
+			close(f, os);
+	}
+
+	/** Close all files which have not been written since the previous
+	 * call.  This allows files to be archived after a day rollover. */
+	public void closeIdle() {
+		Iterator<Map.Entry<File, OutputStream>> it =
+			files.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<File, OutputStream> e = it.next();
+			if (!written.contains(e.getKey())) {
+				close(e.getKey(), e.getValue());
+				it.remove();
+			}
+		}
+		written.clear();
+	}
+
+	/** Get the number of open files */
+	public int openFiles() {
+		return files.size();
+	}
+}
@@ -19,6 +19,7 @@ import java.util.HashMap;
 import java.util.Map;
 import us.mn.state.dot.tms.TMSException;
 import us.mn.state.dot.tms.Word;
+import us.mn.state.dot.tms.WordHelper;
 
 /**
  * A word is a character string.
@@ -33,11 +34,13 @@ public class WordImpl extends BaseObjectImpl implements Word {
 			"iris." + SONAR_TYPE + ";", new ResultFactory()
 		{
 			public void create(ResultSet row) throws Exception {
-				namespace.addObject(new WordImpl(
+				WordImpl w = new WordImpl(
 					row.getString(1),	// name
 					row.getString(2),	// abbr
 					row.getBoolean(3)	// allowed
-				));
+				);
+				namespace.addObject(w);
+				WordHelper.addIndex(w);
 			}
 		});
 	}
@@ -73,6 +76,20 @@ public class WordImpl extends BaseObjectImpl implements Word {
 		allowed = al;
 	}
 
+	/** Store a new word */
+	@Override
+	public void doStore() throws TMSException {
+		super.doStore();
+		WordHelper.addIndex(this);
+	}
+
+	/** Destroy a word */
+	@Override
+	public void doDestroy() throws TMSException {
+		super.doDestroy();
+		WordHelper.removeIndex(this);
+	}
+
 	/** Abbreviation */
 	private String abbr;
 
@@ -43,7 +43,6 @@ public class XmlConfigJob extends Job {
 	/** Write the TMS xml configuration files */
 	private void writeXmlConfiguration() throws IOException {
 		CorridorManager cm = BaseObjectImpl.corridors;
-		cm.createCorridors();
 		TmsConfigXmlWriter xml_writer = new TmsConfigXmlWriter(cm);
 		xml_writer.write();
 	}
@@ -0,0 +1,387 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import us.mn.state.dot.sched.Metrics;
+
+/**
+ * An XML emitter writes UTF-8 encoded XML directly into a byte buffer,
+ * escaping attribute values as it goes.  The buffer and deflater are
+ * reused for every write, so an emitter which is kept around between
+ * writes produces very little garbage.  This is intended for large files
+ * which are written frequently, such as sample data.
+ *
+ * @author Douglas Lau
+ */
+abstract public class XmlEmitter {
+
+	/** UTF-8 charset */
+	static private final Charset UTF8 = Charset.forName("UTF-8");
+
+	/** Buffer size */
+	static private final int BUF_SIZE = 65536;
+
+	/** Maximum bytes needed to encode one character */
+	static private final int MAX_CHAR_BYTES = 6;
+
+	/** GZIP header (no file name, mtime or extra fields) */
+	static private final byte[] GZIP_HEADER = {
+		(byte) 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0,
+		0, (byte) 0xff
+	};
+
+	/** Entity for ampersand */
+	static private final byte[] AMP = encode("&amp;");
+
+	/** Entity for less-than */
+	static private final byte[] LT = encode("&lt;");
+
+	/** Entity for greater-than */
+	static private final byte[] GT = encode("&gt;");
+
+	/** Entity for double quote */
+	static private final byte[] QUOT = encode("&quot;");
+
+	/** Entity for apostrophe */
+	static private final byte[] APOS = encode("&apos;");
+
+	/** Encode a string as UTF-8 bytes */
+	static public byte[] encode(String s) {
+		return s.getBytes(UTF8);
+	}
+
+	/** Pre-encoded attribute name, including leading space, equals sign
+	 * and opening quote */
+	static public final class Attr {
+		private final byte[] prefix;
+
+		/** Create a new attribute name */
+		public Attr(String n) {
+			prefix = encode(" " + XmlWriter.validateElementName(n) +
+				"='");
+		}
+	}
+
+	/** File to write final XML data */
+	private final File file;
+
+	/** Temporary file to write XML data */
+	private final File temp;
+
+	/** Should the XML data be compressed? */
+	private final boolean gzip;
+
+	/** Buffer of uncompressed XML data */
+	private final byte[] buf = new byte[BUF_SIZE];
+
+	/** Position in buffer */
+	private int pos = 0;
+
+	/** Buffer for compressed data */
+	private final byte[] dbuf = new byte[BUF_SIZE];
+
+	/** Deflater for compressed output (raw, without zlib wrapper) */
+	private final Deflater deflater = new Deflater(
+		Deflater.DEFAULT_COMPRESSION, true);
+
+	/** CRC of uncompressed data */
+	private final CRC32 crc = new CRC32();
+
+	/** Total count of uncompressed bytes */
+	private long n_bytes = 0;
+
+	/** Output stream for current write */
+	private OutputStream out;
+
+	/** Create a new XML emitter */
+	public XmlEmitter(String f, boolean gz) {
+		if (gz)
+			f = f + ".gz";
+		file = new File(XmlWriter.XML_OUTPUT_DIRECTORY, f);
+		temp = new File(file.getAbsolutePath() + "~");
+		gzip = gz;
+	}
+
+	/** Write the XML file */
+	public void write() throws IOException {
+		long st = Metrics.start();
+		OutputStream os = new FileOutputStream(temp);
+		try {
+			write(os);
+		}
+		finally {
+			os.close();
+		}
+		if (!XmlWriter.atomicFileMove(temp.toPath(), file.toPath()))
+			throw new IOException("Rename failed: " + file);
+		if (st != 0) {
+			Metrics.histogram("xml." + file.getName())
+				.recordSince(st);
+		}
+	}
+
+	/** Write the XML to an output stream */
+	protected void write(OutputStream os) throws IOException {
+		out = os;
+		try {
+			start();
+			emit();
+			finish();
+		}
+		finally {
+			out = null;
+			reset();
+		}
+	}
+
+	/** Emit the XML document */
+	abstract protected void emit() throws IOException;
+
+	/** Start writing a file */
+	private void start() throws IOException {
+		reset();
+		if (gzip)
+			out.write(GZIP_HEADER);
+	}
+
+	/** Reset the emitter state for the next write */
+	private void reset() {
+		pos = 0;
+		n_bytes = 0;
+		crc.reset();
+		deflater.reset();
+	}
+
+	/** Finish writing a file */
+	private void finish() throws IOException {
+		flushBuffer();
+		if (gzip) {
+			deflater.finish();
+			while (!deflater.finished())
+				writeDeflated();
+			writeTrailer();
+		}
+	}
+
+	/** Write the GZIP trailer (CRC-32 and size, little-endian) */
+	private void writeTrailer() throws IOException {
+		putIntLE(dbuf, 0, (int) crc.getValue());
+		putIntLE(dbuf, 4, (int) n_bytes);
+		out.write(dbuf, 0, 8);
+	}
+
+	/** Put an int into a byte array (little-endian) */
+	static private void putIntLE(byte[] b, int p, int v) {
+		b[p] = (byte) v;
+		b[p + 1] = (byte) (v >> 8);
+		b[p + 2] = (byte) (v >> 16);
+		b[p + 3] = (byte) (v >> 24);
+	}
+
+	/** Flush the uncompressed buffer to the output stream */
+	private void flushBuffer() throws IOException {
+		if (pos > 0) {
+			n_bytes += pos;
+			if (gzip) {
+				crc.update(buf, 0, pos);
+				deflater.setInput(buf, 0, pos);
+				while (!deflater.needsInput())
+					writeDeflated();
+			} else
+				out.write(buf, 0, pos);
+			pos = 0;
+		}
+	}
+
+	/** Write one chunk of deflated data */
+	private void writeDeflated() throws IOException {
+		int n = deflater.deflate(dbuf);
+		if (n > 0)
+			out.write(dbuf, 0, n);
+	}
+
+	/** Ensure the buffer has room for some bytes */
+	private void ensure(int n) throws IOException {
+		if (pos + n > buf.length)
+			flushBuffer();
+	}
+
+	/** Write raw (pre-encoded) bytes */
+	public void raw(byte[] b) throws IOException {
+		if (b.length > buf.length) {
+			flushBuffer();
+			for (int i = 0; i < b.length; i += buf.length) {
+				int n = Math.min(buf.length, b.length - i);
+				System.arraycopy(b, i, buf, 0, n);
+				pos = n;
+				flushBuffer();
+			}
+		} else {
+			ensure(b.length);
+			System.arraycopy(b, 0, buf, pos, b.length);
+			pos += b.length;
+		}
+	}
+
+	/** Write raw (unescaped) text */
+	public void raw(String s) throws IOException {
+		int len = s.length();
+		for (int i = 0; i < len; i++)
+			putChar(s, i);
+	}
+
+	/** Write escaped text */
+	public void text(String s) throws IOException {
+		int len = s.length();
+		for (int i = 0; i < len; i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '&':
+				raw(AMP);
+				break;
+			case '<':
+				raw(LT);
+				break;
+			case '>':
+				raw(GT);
+				break;
+			case '"':
+				raw(QUOT);
+				break;
+			case '\'':
+				raw(APOS);
+				break;
+			default:
+				putChar(s, i);
+			}
+		}
+	}
+
+	/** Put one character of a string into the buffer as UTF-8 */
+	private void putChar(String s, int i) throws IOException {
+		ensure(MAX_CHAR_BYTES);
+		char c = s.charAt(i);
+		if (c < 0x80)
+			buf[pos++] = (byte) c;
+		else if (c < 0x800) {
+			buf[pos++] = (byte) (0xc0 | (c >> 6));
+			buf[pos++] = (byte) (0x80 | (c & 0x3f));
+		} else if (Character.isHighSurrogate(c)) {
+			// Low surrogate is skipped on next call
+			int cp = s.codePointAt(i);
+			if (cp != c) {
+				buf[pos++] = (byte) (0xf0 | (cp >> 18));
+				buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+				buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+				buf[pos++] = (byte) (0x80 | (cp & 0x3f));
+			} else
+				buf[pos++] = '?';
+		} else if (Character.isLowSurrogate(c)) {
+			if (i == 0 || !Character.isHighSurrogate(s.charAt(i-1)))
+				buf[pos++] = '?';
+		} else {
+			buf[pos++] = (byte) (0xe0 | (c >> 12));
+			buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+			buf[pos++] = (byte) (0x80 | (c & 0x3f));
+		}
+	}
+
+	/** Write an integer value */
+	public void number(int v) throws IOException {
+		ensure(11);
+		if (v < 0) {
+			if (v == Integer.MIN_VALUE) {
+				raw(Integer.toString(v));
+				return;
+			}
+			buf[pos++] = '-';
+			v = -v;
+		}
+		int start = pos;
+		do {
+			buf[pos++] = (byte) ('0' + (v % 10));
+			v /= 10;
+		} while (v > 0);
+		// Digits were written in reverse order
+		for (int i = start, j = pos - 1; i < j; i++, j--) {
+			byte t = buf[i];
+			buf[i] = buf[j];
+			buf[j] = t;
+		}
+	}
+
+	/** Write a float value, rounded half-even with trailing zeros of
+	 * the fraction removed (same as BaseObjectImpl.formatFloat).  A
+	 * float times a scale up to 10^6 is exact as a double, so rint
+	 * rounds ties the same way as NumberFormat.
+	 * @param v Value to write.
+	 * @param digits Maximum fraction digits (0 - 6). */
+	public void number(float v, int digits) throws IOException {
+		int scale = 1;
+		for (int i = 0; i < digits; i++)
+			scale *= 10;
+		double d = Math.rint((double) v * scale);
+		if (v < 0) {
+			raw("-");
+			d = -d;
+		}
+		long n = (long) d;
+		long ip = n / scale;
+		int fp = (int) (n % scale);
+		if (ip > Integer.MAX_VALUE)
+			raw(Long.toString(ip));
+		else
+			number((int) ip);
+		if (fp > 0) {
+			ensure(digits + 1);
+			buf[pos++] = '.';
+			while (fp > 0) {
+				scale /= 10;
+				buf[pos++] = (byte) ('0' + fp / scale);
+				fp %= scale;
+			}
+		}
+	}
+
+	/** Write a string attribute */
+	public void attr(Attr a, String v) throws IOException {
+		if (v != null) {
+			raw(a.prefix);
+			text(v);
+			raw("'");
+		}
+	}
+
+	/** Write an integer attribute */
+	public void attr(Attr a, int v) throws IOException {
+		raw(a.prefix);
+		number(v);
+		raw("'");
+	}
+
+	/** Write a float attribute */
+	public void attr(Attr a, float v, int digits) throws IOException {
+		raw(a.prefix);
+		number(v, digits);
+		raw("'");
+	}
+}
@@ -26,6 +26,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.zip.GZIPOutputStream;
+import us.mn.state.dot.sched.Metrics;
 
 /**
  * A simple class for writing out XML documents
@@ -104,6 +105,7 @@ abstract public class XmlWriter {
 
 	/** Write the XML file */
 	public void write() throws IOException {
+		long st = Metrics.start();
 		OutputStream os = createOutputStream();
 		try {
 			BufferedWriter bw = new BufferedWriter(
@@ -117,6 +119,10 @@ abstract public class XmlWriter {
 
 		if (!atomicFileMove(temp.toPath(), file.toPath()))
 			throw new IOException("Rename failed: " + file);
+		if (st != 0) {
+			Metrics.histogram("xml." + file.getName())
+				.recordSince(st);
+		}
 	}
 
 	/** Atomic file-mover method - uses a newer Java file-moving api
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2016-2018  Minnesota Department of Transportation
+ * Copyright (C) 2016-2019  Minnesota Department of Transportation
  * Copyright (C) 2017       SRF Consulting Group
  *
  * This program is free software; you can redistribute it and/or modify
@@ -83,8 +83,13 @@ abstract public class BasePoller implements DevicePoller {
 	/** Scheduler for processing comm operations */
 	static private final Scheduler COMM = new Scheduler("commx", HANDLER);
 
-	/** Worker for logging to debug logs */
-	static private final Worker LOGGER = new Worker("logger", HANDLER);
+	/** Maximum number of queued log messages */
+	static private final int LOGGER_CAPACITY = 10000;
+
+	/** Worker for logging to debug logs.  If logging falls behind, new
+	 * messages are discarded. */
+	static private final Worker LOGGER = new Worker("logger", HANDLER,
+		LOGGER_CAPACITY, Worker.Rejection.DISCARD);
 
 	/** Poller (comm link) name */
 	private final String name;
@@ -17,6 +17,8 @@
 package us.mn.state.dot.tms.server.comm;
 
 import java.io.IOException;
+import us.mn.state.dot.sched.Metrics;
+import us.mn.state.dot.tms.CommProtocol;
 import us.mn.state.dot.tms.EventType;
 import us.mn.state.dot.tms.SystemAttrEnum;
 import us.mn.state.dot.tms.server.ControllerImpl;
@@ -204,8 +206,23 @@ abstract public class OpController<T extends ControllerProperty> {
 		DeviceContentionException
 	{
 		Phase<T> p = phase;
-		if (p != null)
-			updatePhase(p.poll(mess));
+		if (p != null) {
+			long st = Metrics.start();
+			try {
+				updatePhase(p.poll(mess));
+			}
+			finally {
+				if (st != 0)
+					Metrics.histogram(metricName("poll"))
+						.recordSince(st);
+			}
+		}
+	}
+
+	/** Get a metric name for the controller protocol */
+	private String metricName(String m) {
+		CommProtocol cp = controller.getProtocol();
+		return "comm." + ((cp != null) ? cp.name() : "none") + "." + m;
 	}
 
 	/** Update the phase of the operation */
@@ -223,6 +240,8 @@ abstract public class OpController<T extends ControllerProperty> {
 	/** Handle a communication error */
 	public void handleCommError(EventType et, String msg) {
 		controller.logCommEvent(et, id, filterMsg(msg));
+		if (Metrics.isEnabled())
+			Metrics.counter(metricName("error")).inc();
 		if (!retry())
 			setFailed();
 	}
@@ -89,12 +89,9 @@ public class OpQueryStats extends OpG4 {
 	@Override
 	public void cleanup() {
 		long stamp = stat.getStamp();
-		controller.storeVehCount(stamp, period, START_PIN,
-			stat.getVehCount());
-		controller.storeOccupancy(stamp, period, START_PIN,
-			stat.getScans(), StatProperty.MAX_SCANS);
-		controller.storeSpeed(stamp, period, START_PIN,
-			stat.getSpeed());
+		controller.storeSamples(stamp, period, START_PIN,
+			stat.getVehCount(), stat.getScans(),
+			StatProperty.MAX_SCANS, stat.getSpeed());
 		controller.storeVehCount(stamp, period, START_PIN,
 			stat.getVehCount(G4VehClass.SMALL),
 			G4VehClass.SMALL.v_class);
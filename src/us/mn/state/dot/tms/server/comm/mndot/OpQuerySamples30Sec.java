@@ -64,10 +64,8 @@ public class OpQuerySamples30Sec extends OpQuerySamples {
 	/** Cleanup the operation */
 	@Override
 	public void cleanup() {
-		controller.storeVehCount(getStamp(), SAMPLE_PERIOD_SEC,
-			FIRST_DETECTOR_PIN, v_count);
-		controller.storeOccupancy(getStamp(), SAMPLE_PERIOD_SEC,
-			FIRST_DETECTOR_PIN, scans, MAX_SCANS);
+		controller.storeSamples(getStamp(), SAMPLE_PERIOD_SEC,
+			FIRST_DETECTOR_PIN, v_count, scans, MAX_SCANS, null);
 		super.cleanup();
 	}
 }
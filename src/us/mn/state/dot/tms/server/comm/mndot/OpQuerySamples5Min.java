@@ -125,10 +125,9 @@ public class OpQuerySamples5Min extends OpQuerySamples {
 				setStamp();
 			}
 			processData(rec);
-			controller.storeVehCount(getStamp(), SAMPLE_PERIOD_SEC,
-				FIRST_DETECTOR_PIN, v_count);
-			controller.storeOccupancy(getStamp(), SAMPLE_PERIOD_SEC,
-				FIRST_DETECTOR_PIN, scans, MAX_SCANS);
+			controller.storeSamples(getStamp(), SAMPLE_PERIOD_SEC,
+				FIRST_DETECTOR_PIN, v_count, scans, MAX_SCANS,
+				null);
 			updateGreenCount(lookupMeter1(controller),
 				rec[Address.OFF_GREEN_METER_1] & 0xFF);
 			updateGreenCount(lookupMeter2(controller),
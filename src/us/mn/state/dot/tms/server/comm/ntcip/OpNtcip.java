@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2013-2016  Minnesota Department of Transportation
+ * Copyright (C) 2013-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -26,10 +26,12 @@ import us.mn.state.dot.tms.LaneUseMultiHelper;
 import us.mn.state.dot.tms.QuickMessage;
 import us.mn.state.dot.tms.SignMessage;
 import us.mn.state.dot.tms.server.DeviceImpl;
+import us.mn.state.dot.tms.server.comm.CommMessage;
 import us.mn.state.dot.tms.server.comm.OpDevice;
 import us.mn.state.dot.tms.server.comm.PriorityLevel;
 import us.mn.state.dot.tms.server.comm.ntcip.mib1203.GraphicInfoList;
 import us.mn.state.dot.tms.server.comm.snmp.ASN1Object;
+import us.mn.state.dot.tms.server.comm.snmp.SNMP;
 import us.mn.state.dot.tms.utils.HexString;
 import us.mn.state.dot.tms.utils.MultiBuilder;
 import us.mn.state.dot.tms.utils.MultiString;
@@ -147,6 +149,41 @@ abstract public class OpNtcip extends OpDevice {
 		return null;
 	}
 
+	/** Get the byte limit for one batch of SET values.  This is the
+	 * largest request the agent has accepted, up to a maximum.
+	 * @param mess Comm message.
+	 * @param max Maximum bytes in one batch.
+	 * @return Batch limit (bytes). */
+	static protected int batchLimit(CommMessage mess, int max) {
+		if (mess instanceof SNMP.Message) {
+			SNMP.Message m = (SNMP.Message) mess;
+			return Math.min(max, m.getMaxVarBinds());
+		} else
+			return max;
+	}
+
+	/** Count the values which fit into one batch of SET requests.
+	 * The first value always fits, so that a batch is never empty.
+	 * @param mess Comm message.
+	 * @param max Maximum bytes in one batch.
+	 * @param sizes Sizes of all values (bytes).
+	 * @param first Index of first value in the batch.
+	 * @return Number of values in the batch. */
+	static protected int batchCount(CommMessage mess, int max,
+		int[] sizes, int first)
+	{
+		int limit = batchLimit(mess, max);
+		int n_bytes = 0;
+		int n = 0;
+		for (int i = first; i < sizes.length; i++) {
+			if (n > 0 && n_bytes + sizes[i] > limit)
+				break;
+			n_bytes += sizes[i];
+			n++;
+		}
+		return n;
+	}
+
 	/** Log a msg */
 	protected void log(String msg) {
 		if (NTCIP_LOG.isOpen())
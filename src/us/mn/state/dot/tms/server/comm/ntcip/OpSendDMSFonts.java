@@ -28,6 +28,7 @@ import us.mn.state.dot.tms.FontHelper;
 import us.mn.state.dot.tms.Glyph;
 import us.mn.state.dot.tms.SignDetail;
 import us.mn.state.dot.tms.server.DMSImpl;
+import us.mn.state.dot.tms.server.FontImpl;
 import us.mn.state.dot.tms.server.comm.CommMessage;
 import us.mn.state.dot.tms.server.comm.PriorityLevel;
 import us.mn.state.dot.tms.server.comm.ntcip.mib1203.*;
@@ -83,6 +84,10 @@ public class OpSendDMSFonts extends OpDMS {
 	/** Time in seconds to allow for verifying font status */
 	static private final int VERIFY_STATUS_SECS = 5;
 
+	/** Maximum bitmap bytes to send in one phase.  Each batch is also
+	 * limited to the largest request the agent has accepted. */
+	static private final int GLYPH_BATCH_BYTES = 8192;
+
 	/** Time in seconds to allow for calculating font ID */
 	static private final int CALCULATING_ID_SECS = 15;
 
@@ -112,7 +117,52 @@ public class OpSendDMSFonts extends OpDMS {
 	/** Create the second phase of the operation */
 	@Override
 	protected Phase phaseTwo() {
-		return new Query1203Version();
+		// ADDCO font numbers depend on table rows, so query them
+		if (areAllFontsInstalled() && !isAddco()) {
+			log("fonts unchanged");
+			return defaultFontPhase();
+		} else
+			return new Query1203Version();
+	}
+
+	/** Get a phase to set the default font without a font download */
+	private Phase defaultFontPhase() {
+		Font f = DMSHelper.getDefaultFont(dms);
+		return (f != null && fonts.contains(f))
+		      ? new SetDefaultFont(new FontRow(f))
+		      : null;
+	}
+
+	/** Content type for installed fonts */
+	static private final String FONT = "font";
+
+	/** Get the content hash of a font */
+	static private int contentHash(Font f) {
+		return (f instanceof FontImpl)
+		      ? ((FontImpl) f).getContentHash()
+		      : 0;
+	}
+
+	/** Check if all fonts were previously installed on the sign */
+	private boolean areAllFontsInstalled() {
+		for (Font f: fonts) {
+			if (!isFontInstalled(f))
+				return false;
+		}
+		return true;
+	}
+
+	/** Check if a font was previously installed on the sign */
+	private boolean isFontInstalled(Font f) {
+		return dms.isContentInstalled(FONT, f.getNumber(),
+			contentHash(f));
+	}
+
+	/** Record whether a font is installed on the sign */
+	private void setFontInstalled(FontRow frow, boolean i) {
+		Font f = frow.font;
+		dms.setContentInstalled(FONT, f.getNumber(),
+			i ? contentHash(f) : null);
 	}
 
 	/** Phase to determine the version of NTCIP 1203 (1 or 2) */
@@ -295,11 +345,13 @@ public class OpSendDMSFonts extends OpDMS {
 			logQuery(version);
 			if (isVersionIDCorrect(v)) {
 				logError("Font is valid");
+				setFontInstalled(frow, true);
 				if (DMSHelper.getDefaultFont(dms) == frow.font)
 					return new SetDefaultFont(frow);
 				else
 					return nextFontPhase();
 			} else {
+				setFontInstalled(frow, false);
 				if (version2)
 					return new QueryInitialStatus(frow);
 				else
@@ -531,57 +583,90 @@ public class OpSendDMSFonts extends OpDMS {
 		}
 	}
 
-	/** Add a character to the font table */
+	/** Add characters to the font table.  Several characters are sent in
+	 * each phase, up to the batch limit of bitmap data.  The SNMP layer
+	 * will split requests which are too big. */
 	private class AddCharacter extends Phase {
 
 		private final FontRow frow;
 
-		/** Iterator for remaining glyphs */
-		private final Iterator<Glyph> chars;
+		/** All glyphs to add */
+		private final Glyph[] glyphs;
+
+		/** Decoded bitmaps of all glyphs */
+		private final byte[][] bitmaps;
 
-		/** Current glyph */
-		private Glyph glyph;
+		/** Sizes of all bitmaps (bytes) */
+		private final int[] sizes;
 
 		/** Count of characters added */
 		private int count = 0;
 
+		/** Count of SET requests */
+		private int n_sets = 0;
+
+		/** Time when phase was created */
+		private final long start = TimeSteward.currentTimeMillis();
+
 		/** Create a new add character phase */
-		public AddCharacter(FontRow fr, Collection<Glyph> c) {
+		public AddCharacter(FontRow fr, Collection<Glyph> c)
+			throws IOException
+		{
 			frow = fr;
-			chars = c.iterator();
-			if (chars.hasNext())
-				glyph = chars.next();
+			glyphs = c.toArray(new Glyph[0]);
+			bitmaps = new byte[glyphs.length][];
+			sizes = new int[glyphs.length];
+			for (int i = 0; i < glyphs.length; i++) {
+				String p = glyphs[i].getPixels();
+				bitmaps[i] = Base64.decode(p);
+				sizes[i] = bitmaps[i].length;
+			}
 		}
 
-		/** Add a character to the font table */
+		/** Add characters to the font table */
 		@SuppressWarnings("unchecked")
 		protected Phase poll(CommMessage mess) throws IOException {
+			int before = count;
+			int n = batchCount(mess, GLYPH_BATCH_BYTES, sizes,
+				count);
+			for (int i = count; i < before + n; i++)
+				addGlyph(mess, glyphs[i], bitmaps[i]);
+			mess.storeProps();
+			n_sets++;
+			if (count / 20 > before / 20 && !controller.isFailed())
+				setSuccess(true);
+			if (count < glyphs.length)
+				return this;
+			else {
+				log("font " + frow.f_num + ": " + count +
+				    " chars, " + n_sets + " sets, " +
+				    (TimeSteward.currentTimeMillis() - start) +
+				    " ms");
+				if (version2)
+					return new ValidateFontV2(frow);
+				else
+					return new ValidateFontV1(frow);
+			}
+		}
+
+		/** Add one glyph to a message */
+		@SuppressWarnings("unchecked")
+		private void addGlyph(CommMessage mess, Glyph g, byte[] pixels)
+			throws IOException
+		{
 			int row = frow.row;
-			int code_point = glyph.getCodePoint();
-			byte[] pixels = Base64.decode(glyph.getPixels());
+			int code_point = g.getCodePoint();
 			ASN1Integer char_width = characterWidth.makeInt(row,
 				code_point);
 			ASN1OctetString char_bitmap = new ASN1OctetString(
 				characterBitmap.node, row, code_point);
-			char_width.setInteger(glyph.getWidth());
+			char_width.setInteger(g.getWidth());
 			char_bitmap.setOctetString(pixels);
 			mess.add(char_width);
 			mess.add(char_bitmap);
 			logStore(char_width);
 			logStore(char_bitmap);
-			mess.storeProps();
 			count++;
-			if (count % 20 == 0 && !controller.isFailed())
-				setSuccess(true);
-			if (chars.hasNext()) {
-				glyph = chars.next();
-				return this;
-			} else {
-				if (version2)
-					return new ValidateFontV2(frow);
-				else
-					return new ValidateFontV1(frow);
-			}
 		}
 	}
 
@@ -601,6 +686,7 @@ public class OpSendDMSFonts extends OpDMS {
 			mess.add(height);
 			logStore(height);
 			mess.storeProps();
+			setFontInstalled(frow, true);
 			if (DMSHelper.getDefaultFont(dms) == frow.font)
 				return new SetDefaultFont(frow);
 			else
@@ -647,6 +733,7 @@ public class OpSendDMSFonts extends OpDMS {
 			logQuery(status);
 			switch (status.getEnum()) {
 			case readyForUse:
+				setFontInstalled(frow, true);
 				if (DMSHelper.getDefaultFont(dms) == frow.font)
 					return new SetDefaultFont(frow);
 				else
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2018  Minnesota Department of Transportation
+ * Copyright (C) 2000-2019  Minnesota Department of Transportation
  * Copyright (C) 2017       SRF Consulting Group
  *
  * This program is free software; you can redistribute it and/or modify
@@ -85,6 +85,10 @@ public class OpSendDMSMessage extends OpDMS {
 	/** Pixel service disabled while message is deployed */
 	static private final int PIXEL_SERVICE_DISABLED = 0;
 
+	/** Maximum graphic bytes to send in one phase.  Each batch is also
+	 * limited to the largest request the agent has accepted. */
+	static private final int GRAPHIC_BATCH_BYTES = 8192;
+
 	/** Make a new DmsMessageStatus enum */
 	static private ASN1Enum<DmsMessageStatus> makeStatus(
 		DmsMessageMemoryType mem, int n)
@@ -967,44 +971,80 @@ public class OpSendDMSMessage extends OpDMS {
 		}
 	}
 
-	/** Phase to send a block of a graphic */
+	/** Phase to send blocks of a graphic.  Several blocks are sent in
+	 * each phase, up to the batch limit.  The SNMP layer will split
+	 * requests which are too big. */
 	private class SendGraphicBlock extends Phase {
 		private final Graphic graphic;
 		private final int row;
 		private final byte[] bitmap;
+
+		/** Sizes of all blocks (bytes) */
+		private final int[] sizes;
+
 		private int block;
 
+		/** Count of SET requests */
+		private int n_sets = 0;
+
+		/** Time when phase was created */
+		private final long start = TimeSteward.currentTimeMillis();
+
 		/** Create a phase to send graphic blocks */
 		private SendGraphicBlock(Graphic g, int r) throws IOException {
 			graphic = g;
 			row = r;
 			bitmap = Base64.decode(g.getPixels());
+			int bsize = block_size.getInteger();
+			int n_blocks = Math.max(1,
+				(bitmap.length + bsize - 1) / bsize);
+			sizes = new int[n_blocks];
+			for (int b = 0; b < n_blocks; b++) {
+				sizes[b] = Math.min(bsize,
+					bitmap.length - b * bsize);
+			}
 			block = 1;
 		}
 
-		/** Send a graphic block */
+		/** Send graphic blocks */
 		@SuppressWarnings("unchecked")
 		protected Phase poll(CommMessage mess) throws IOException {
-			ASN1OctetString block_bitmap = new ASN1OctetString(
-				dmsGraphicBlockBitmap.node, row, block);
-			block_bitmap.setOctetString(createBlock());
-			mess.add(block_bitmap);
-			logStore(block_bitmap);
-			mess.storeProps();
-			if (block * block_size.getInteger() < bitmap.length) {
+			int n = batchCount(mess, GRAPHIC_BATCH_BYTES, sizes,
+				block - 1);
+			for (int i = 0; i < n; i++) {
+				ASN1OctetString block_bitmap =
+					new ASN1OctetString(
+					dmsGraphicBlockBitmap.node, row, block);
+				block_bitmap.setOctetString(createBlock());
+				mess.add(block_bitmap);
+				logStore(block_bitmap);
 				block++;
-				if (block % 20 == 0 && !controller.isFailed())
+			}
+			mess.storeProps();
+			n_sets++;
+			if (!isLastBlock()) {
+				if (n_sets % 20 == 0 && !controller.isFailed())
 					setSuccess(true);
 				return this;
-			} else
+			} else {
+				log("graphic " + graphic.getGNumber() + ": " +
+				    (block - 1) + " blocks, " + n_sets +
+				    " sets, " + (TimeSteward.currentTimeMillis()
+				    - start) + " ms");
 				return new ValidateGraphic(graphic, row);
+			}
+		}
+
+		/** Check if the last block has been sent */
+		private boolean isLastBlock() {
+			return block > sizes.length;
 		}
 
 		/** Create a graphic block */
 		private byte[] createBlock() {
 			int bsize = block_size.getInteger();
 			int pos = (block - 1) * bsize;
-			int blen = Math.min(bsize, bitmap.length - pos);
+			int blen = sizes[block - 1];
 			byte[] bdata = new byte[blen];
 			System.arraycopy(bitmap, pos, bdata, 0, blen);
 			return bdata;
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2009-2012  Minnesota Department of Transportation
+ * Copyright (C) 2009-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -41,8 +41,7 @@ public class OpSendLCSSettings extends OpLCS {
 	protected void sendSettings() {
 		for(DMSImpl dms: dmss) {
 			if(dms != null) {
-				dms.setDeviceRequest(
-					DeviceRequest.SEND_SETTINGS.ordinal());
+				dms.setDeviceReq(DeviceRequest.SEND_SETTINGS);
 			}
 		}
 	}
@@ -1,6 +1,6 @@
 /*
  * IRIS -- Intelligent Roadway Information System
- * Copyright (C) 2000-2016  Minnesota Department of Transportation
+ * Copyright (C) 2000-2019  Minnesota Department of Transportation
  *
  * This program is free software; you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -18,7 +18,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import us.mn.state.dot.sched.DebugLog;
 import us.mn.state.dot.tms.server.comm.CommMessage;
 import us.mn.state.dot.tms.server.comm.ParsingException;
@@ -64,6 +66,26 @@ public class SNMP extends BER {
 	/** Last SNMP request-id */
 	private int last_request = 0;
 
+	/** Maximum size of encoded variable bindings in one request (bytes).
+	 * This starts out unlimited, and is reduced whenever the agent
+	 * responds with a tooBig error. */
+	private int max_varbinds = Integer.MAX_VALUE;
+
+	/** Get the next request-id */
+	private int nextRequestId() {
+		int r = last_request++;
+		if (last_request > REQUEST_ID_MAX_LEDSTAR_BUG)
+			last_request = 0;
+		return r;
+	}
+
+	/** Reduce the maximum variable binding size after a tooBig error.
+	 * @param size Size of rejected variable bindings (bytes). */
+	private void reduceMaxSize(int size) {
+		max_varbinds = Math.max(1, size / 2);
+		SNMP_LOG.log("tooBig: " + size + ", max size: " + max_varbinds);
+	}
+
 	/** Encode an SNMP message */
 	private void encodeSNMPMessage(String community) throws IOException {
 		byte[] pdu = getEncodedData();
@@ -99,20 +121,31 @@ public class SNMP extends BER {
 		private final String community;
 
 		/** SNMP request-id */
-		public final int request_id;
+		private int request_id;
+
+		/** Flag indicating a request has been sent with request_id */
+		private boolean sent = false;
 
 		/** List of objects set or get with this message */
 		private final LinkedList<ASN1Object> mos =
 			new LinkedList<ASN1Object>();
 
+		/** Objects in the current request (sub-list of mos) */
+		private List<ASN1Object> batch = mos;
+
 		/** Create a new SNMP message */
 		public Message(OutputStream o, InputStream i, String c) {
 			os = o;
 			is = i;
 			community = (c != null) ? c : PUBLIC;
-			request_id = last_request++;
-			if (last_request > REQUEST_ID_MAX_LEDSTAR_BUG)
-				last_request = 0;
+			request_id = nextRequestId();
+		}
+
+		/** Get the maximum size of variable bindings in one request.
+		 * This is learned from tooBig errors returned by the agent.
+		 * @return Maximum size (bytes). */
+		public int getMaxVarBinds() {
+			return max_varbinds;
 		}
 
 		/** Add a controller property */
@@ -125,16 +158,7 @@ public class SNMP extends BER {
 		 * @throws IOException On any errors sending a request or
 		 *         receiving response */
 		public void queryProps() throws IOException {
-			if (mos.isEmpty())
-				return;
-			is.skip(is.available());
-			encodeVarBindList(false);
-			encodeRequestPDU(SNMPTag.GET_REQUEST);
-			encodeSNMPMessage(community);
-			encoder.writeTo(os);
-			encoder.reset();
-			os.flush();
-			decodeResponse();
+			sendRequest(SNMPTag.GET_REQUEST, false);
 		}
 
 		/** Log a property query */
@@ -160,11 +184,87 @@ public class SNMP extends BER {
 		 * @throws IOException On any errors sending a request or
 		 *         receiving response */
 		public void storeProps() throws IOException {
+			sendRequest(SNMPTag.SET_REQUEST, true);
+		}
+
+		/** Send a request for all objects.  The variable bindings are
+		 * packed into as few requests as the agent will accept.
+		 * @param tag PDU type identifier.
+		 * @param set Flag to encode values (SET) or nulls (GET). */
+		private void sendRequest(Tag tag, boolean set)
+			throws IOException
+		{
 			if (mos.isEmpty())
 				return;
+			ArrayList<byte[]> vbs = new ArrayList<byte[]>(
+				mos.size());
+			for (ASN1Object mo: mos) {
+				encodeVarBind(mo, set);
+				vbs.add(getEncodedData());
+			}
+			try {
+				int i = 0;
+				while (i < vbs.size()) {
+					int n = batchCount(vbs, i);
+					try {
+						sendBatch(tag, vbs, i, i + n);
+						i += n;
+					}
+					catch (TooBig e) {
+						if (n < 2)
+							throw e;
+						reduceMaxSize(batchSize(vbs, i,
+							i + n));
+					}
+				}
+			}
+			finally {
+				batch = mos;
+			}
+		}
+
+		/** Get the number of variable bindings which fit in one
+		 * request (always at least one).
+		 * @param vbs Encoded variable bindings.
+		 * @param i Index of first binding. */
+		private int batchCount(List<byte[]> vbs, int i) {
+			int size = vbs.get(i).length;
+			int n = 1;
+			while (i + n < vbs.size()) {
+				size += vbs.get(i + n).length;
+				if (size > max_varbinds)
+					break;
+				n++;
+			}
+			return n;
+		}
+
+		/** Get the encoded size of a range of variable bindings */
+		private int batchSize(List<byte[]> vbs, int i, int j) {
+			int size = 0;
+			for (int k = i; k < j; k++)
+				size += vbs.get(k).length;
+			return size;
+		}
+
+		/** Send one request for a range of variable bindings.
+		 * @param tag PDU type identifier.
+		 * @param vbs Encoded variable bindings.
+		 * @param i Index of first binding.
+		 * @param j Index after last binding. */
+		private void sendBatch(Tag tag, List<byte[]> vbs, int i, int j)
+			throws IOException
+		{
+			batch = mos.subList(i, j);
+			if (sent)
+				request_id = nextRequestId();
+			sent = true;
 			is.skip(is.available());
-			encodeVarBindList(true);
-			encodeRequestPDU(SNMPTag.SET_REQUEST);
+			ByteArrayOutputStream vb = new ByteArrayOutputStream();
+			for (int k = i; k < j; k++)
+				vb.write(vbs.get(k));
+			encodeSequence(vb.toByteArray());
+			encodeRequestPDU(tag);
 			encodeSNMPMessage(community);
 			encoder.writeTo(os);
 			encoder.reset();
@@ -202,16 +302,6 @@ public class SNMP extends BER {
 			encodeSequence(getEncodedData());
 		}
 
-		/** Encode the variable binding list */
-		private void encodeVarBindList(boolean set) throws IOException {
-			ByteArrayOutputStream vb = new ByteArrayOutputStream();
-			for (ASN1Object mo: mos) {
-				encodeVarBind(mo, set);
-				vb.write(getEncodedData());
-			}
-			encodeSequence(vb.toByteArray());
-		}
-
 		/** Encode an SNMP request PDU
 		 * @param tag PDU type identifier */
 		private void encodeRequestPDU(Tag tag) throws IOException {
@@ -241,7 +331,7 @@ public class SNMP extends BER {
 			throws IOException
 		{
 			decodeSequence(is);
-			for (ASN1Object mo: mos)
+			for (ASN1Object mo: batch)
 				decodeVarBind(is, mo);
 		}
 
@@ -274,16 +364,16 @@ public class SNMP extends BER {
 
 		/** Get the object name/value */
 		private String getObject(int i) {
-			if (i > 0 && i <= mos.size())
-				return mos.get(i - 1).toString();
+			if (i > 0 && i <= batch.size())
+				return batch.get(i - 1).toString();
 			else
 				return String.valueOf(i);
 		}
 
 		/** Get the object name */
 		private String getName(int i) {
-			if (i > 0 && i <= mos.size())
-				return mos.get(i - 1).getName();
+			if (i > 0 && i <= batch.size())
+				return batch.get(i - 1).getName();
 			else
 				return String.valueOf(i);
 		}
@@ -94,12 +94,9 @@ public class OpQuerySamples extends OpSS105 {
 	/** Cleanup the operation */
 	@Override
 	public void cleanup() {
-		controller.storeVehCount(stamp, period, START_PIN,
-			samples.getVehCount());
-		controller.storeOccupancy(stamp, period, START_PIN,
-			samples.getScans(), BinnedSampleProperty.MAX_PERCENT);
-		controller.storeSpeed(stamp, period, START_PIN,
-			samples.getSpeed());
+		controller.storeSamples(stamp, period, START_PIN,
+			samples.getVehCount(), samples.getScans(),
+			BinnedSampleProperty.MAX_PERCENT, samples.getSpeed());
 		for (VehLengthClass vc: VehLengthClass.values()) {
 			controller.storeVehCount(stamp, period, START_PIN,
 				samples.getVehCount(vc), vc);
@@ -0,0 +1,140 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.event;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import us.mn.state.dot.sched.Metrics;
+import us.mn.state.dot.tms.TMSException;
+
+/**
+ * A ring buffer for tag read events.  Poller threads add events without
+ * locking, and the FLUSH thread writes them to the database in batches,
+ * with one INSERT statement per batch.  If the database falls behind and
+ * the buffer fills up, new events are dropped and counted.
+ *
+ * @author Douglas Lau
+ */
+public class TagReadBuffer {
+
+	/** Buffer capacity (must be a power of 2) */
+	static private final int CAPACITY = 1 << 14;
+
+	/** Mask for slot index */
+	static private final int MASK = CAPACITY - 1;
+
+	/** Maximum number of rows to insert with one statement */
+	static private final int BATCH_ROWS = 500;
+
+	/** Counter of events dropped because the buffer was full */
+	static private final Metrics.Counter OVERFLOW =
+		Metrics.counter("tag_read.overflow");
+
+	/** Counter of events lost because of database errors */
+	static private final Metrics.Counter LOST =
+		Metrics.counter("tag_read.lost");
+
+	/** Counter of events written to the database */
+	static private final Metrics.Counter WRITTEN =
+		Metrics.counter("tag_read.written");
+
+	/** Gauge of buffered events at each flush */
+	static private final Metrics.Gauge QUEUED =
+		Metrics.gauge("tag_read.queued");
+
+	/** Slots for buffered events */
+	static private final AtomicReferenceArray<TagReadEvent> SLOTS =
+		new AtomicReferenceArray<TagReadEvent>(CAPACITY);
+
+	/** Sequence number of next event to take (only FLUSH thread) */
+	static private final AtomicLong HEAD = new AtomicLong();
+
+	/** Sequence number of next slot to fill */
+	static private final AtomicLong TAIL = new AtomicLong();
+
+	/** Add an event to the buffer.
+	 * @param ev Tag read event.
+	 * @return true if added, false if the buffer was full. */
+	static public boolean offer(TagReadEvent ev) {
+		while (true) {
+			long t = TAIL.get();
+			if (t - HEAD.get() >= CAPACITY) {
+				OVERFLOW.inc();
+				return false;
+			}
+			if (TAIL.compareAndSet(t, t + 1)) {
+				SLOTS.set((int) (t & MASK), ev);
+				return true;
+			}
+		}
+	}
+
+	/** Take the next event from the buffer.  An event whose slot has
+	 * been reserved but not yet filled will be taken on a later flush.
+	 * @return Tag read event, or null if none are available. */
+	static private TagReadEvent poll() {
+		long h = HEAD.get();
+		int i = (int) (h & MASK);
+		TagReadEvent ev = SLOTS.get(i);
+		if (ev != null) {
+			SLOTS.set(i, null);
+			HEAD.set(h + 1);
+		}
+		return ev;
+	}
+
+	/** Get the number of buffered events */
+	static public int size() {
+		return (int) (TAIL.get() - HEAD.get());
+	}
+
+	/** Write all buffered events to the database (on FLUSH thread) */
+	static public void flush() {
+		QUEUED.set(size());
+		ArrayList<TagReadEvent> batch =
+			new ArrayList<TagReadEvent>(BATCH_ROWS);
+		while (drain(batch) > 0) {
+			write(batch);
+			batch.clear();
+		}
+	}
+
+	/** Drain buffered events into a batch (only one thread at a time).
+	 * @return Number of events in batch. */
+	static int drain(ArrayList<TagReadEvent> batch) {
+		while (batch.size() < BATCH_ROWS) {
+			TagReadEvent ev = poll();
+			if (null == ev)
+				break;
+			batch.add(ev);
+		}
+		return batch.size();
+	}
+
+	/** Write a batch of events to the database */
+	static private void write(ArrayList<TagReadEvent> batch) {
+		try {
+			BaseEvent.store.createAll(batch);
+			WRITTEN.add(batch.size());
+		}
+		catch (TMSException e) {
+			LOST.add(batch.size());
+		}
+	}
+
+	/** Don't instantiate */
+	private TagReadBuffer() { }
+}
@@ -33,6 +33,9 @@ import us.mn.state.dot.tms.server.SQLConnection;
  */
 public abstract class RptGen {
 
+	/** Number of rows to fetch at a time for streamed queries */
+	static protected final int FETCH_SIZE = 1000;
+
 	/** Returns RptGenEnum that corresponds to this class. */
 	abstract public RptGenEnum getEnum();
 
@@ -61,6 +64,9 @@ public abstract class RptGen {
 	
 	/** Uses info from request to generate report.
 	 * Adds generated RptResultItem(s) to rptResults.
+	 * Results may be sent in pages as they are added,
+	 * and adding a result may throw CancellationException
+	 * if the report has been canceled.
 	 * This method is ONLY run in the server context.
 	 * Must be implemented by each child generator class. 
 	 * 
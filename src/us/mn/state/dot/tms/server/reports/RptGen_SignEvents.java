@@ -82,11 +82,12 @@ public class RptGen_SignEvents extends RptGen {
 		if (!str_device_list.isEmpty())
 			sWhere = addWhere(sWhere, "device_id in ('" + str_device_list + "')");
 
-		// run query and gather results
-		store.query("SELECT event_date, description, device_id, multi, owner "
+		// run query and stream results
+		store.queryStream("SELECT event_date, description, device_id, multi, owner "
 				+ "FROM public.sign_event_view"
 				+ sWhere
 				+ " ORDER BY event_date, device_id;",
+			FETCH_SIZE,
 			new ResultFactory() {
 				public void create(ResultSet row) throws Exception {
 					Timestamp tsTime = row.getTimestamp(1);	// event_date
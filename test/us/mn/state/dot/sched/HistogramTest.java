@@ -0,0 +1,72 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sched;
+
+import junit.framework.TestCase;
+
+/**
+ * Histogram tests
+ *
+ * @author Douglas Lau
+ */
+public class HistogramTest extends TestCase {
+
+	public HistogramTest(String name) {
+		super(name);
+	}
+
+	public void testBuckets() {
+		long[] vals = { 0, 1, 15, 16, 17, 31, 32, 33, 1000, 65535,
+			1L << 40, Long.MAX_VALUE };
+		for (long v: vals) {
+			int i = Histogram.bucketIndex(v);
+			assertTrue(Histogram.bucketLow(i) <= v);
+			assertTrue(Histogram.bucketHigh(i) >= v);
+			// Relative error must be within 1/16
+			long w = Histogram.bucketHigh(i) - Histogram.bucketLow(i);
+			assertTrue(w <= Math.max(0, v / 16));
+		}
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, Histogram.bucketIndex(
+				Histogram.bucketLow(i)));
+		}
+	}
+
+	public void testPercentiles() {
+		Histogram h = new Histogram("test");
+		Metrics.setEnabled(false);
+		h.record(5);
+		assertEquals(0, h.drain().getCount());
+		Metrics.setEnabled(true);
+		try {
+			for (int v = 1; v <= 1000; v++)
+				h.record(v);
+		}
+		finally {
+			Metrics.setEnabled(false);
+		}
+		Histogram.Snapshot s = h.drain();
+		assertEquals(1000, s.getCount());
+		assertEquals(500, s.getMean());
+		assertEquals(1000, s.getMax());
+		assertEquals(500, s.getPercentile(50), 500 / 16);
+		assertEquals(990, s.getPercentile(99), 990 / 16);
+		assertEquals(1000, s.getPercentile(100));
+		// Drain resets the histogram
+		s = h.drain();
+		assertEquals(0, s.getCount());
+		assertEquals(0, s.getPercentile(50));
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.sched;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+
+/**
+ * Worker tests
+ *
+ * @author Doug Lau
+ */
+public class WorkerTest extends TestCase {
+
+	static private final ExceptionHandler HANDLER =
+		new ExceptionHandler()
+	{
+		public boolean handle(Exception e) {
+			e.printStackTrace();
+			return true;
+		}
+	};
+
+	/** Work which records its number */
+	static private class NumWork extends Work {
+		private final ArrayList<Integer> done;
+		private final int num;
+		private NumWork(ArrayList<Integer> d, int n) {
+			done = d;
+			num = n;
+		}
+		@Override protected void perform() {
+			synchronized (done) {
+				done.add(num);
+			}
+		}
+	}
+
+	/** Work which blocks the worker until released */
+	static private class BlockWork extends Work {
+		private final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		@Override protected void perform() throws Exception {
+			started.countDown();
+			release.await();
+		}
+	}
+
+	/** Check that waiting for rejected work fails without timeout */
+	static private void assertRejected(Work w) throws Exception {
+		try {
+			w.waitForCompletion(60000);
+			fail("rejected");
+		}
+		catch (RejectedExecutionException e) {
+			// expected
+		}
+	}
+
+	public WorkerTest(String name) {
+		super(name);
+	}
+
+	public void testOrder() throws Exception {
+		Worker worker = new Worker("test_order", HANDLER);
+		final ArrayList<Integer> done = new ArrayList<Integer>();
+		NumWork last = null;
+		for (int i = 0; i < 1000; i++) {
+			last = new NumWork(done, i);
+			assertTrue(worker.addWork(last));
+		}
+		last.waitForCompletion(5000);
+		assertEquals(1000, done.size());
+		for (int i = 0; i < 1000; i++)
+			assertEquals(i, done.get(i).intValue());
+		assertEquals(0, worker.size());
+		// The done count is updated after the work is complete
+		for (int i = 0; i < 100 && worker.getDone() < 1000; i++)
+			Thread.sleep(10);
+		assertEquals(1000, worker.getDone());
+		worker.dispose();
+	}
+
+	public void testProducers() throws Exception {
+		final Worker worker = new Worker("test_producers", HANDLER);
+		final ArrayList<Integer> done = new ArrayList<Integer>();
+		final CountDownLatch finished = new CountDownLatch(4);
+		for (int t = 0; t < 4; t++) {
+			final int base = t * 10000;
+			new Thread() {
+				public void run() {
+					for (int i = 0; i < 10000; i++) {
+						worker.addWork(new NumWork(done,
+							base + i));
+					}
+					finished.countDown();
+				}
+			}.start();
+		}
+		assertTrue(finished.await(10, TimeUnit.SECONDS));
+		for (int i = 0; i < 100 && worker.getDone() < 40000; i++)
+			Thread.sleep(50);
+		assertEquals(40000, worker.getDone());
+		assertEquals(40000, done.size());
+		assertEquals(40000, worker.getAdded());
+		worker.dispose();
+	}
+
+	public void testDiscard() throws Exception {
+		Worker worker = new Worker("test_discard", HANDLER, 3,
+			Worker.Rejection.DISCARD);
+		BlockWork block = new BlockWork();
+		worker.addWork(block);
+		assertTrue(block.started.await(5, TimeUnit.SECONDS));
+		ArrayList<Integer> done = new ArrayList<Integer>();
+		NumWork dropped = null;
+		for (int i = 0; i < 5; i++) {
+			NumWork w = new NumWork(done, i);
+			assertEquals(i < 3, worker.addWork(w));
+			if (i == 4)
+				dropped = w;
+		}
+		assertEquals(3, worker.size());
+		assertEquals(2, worker.getRejected());
+		assertTrue(dropped.isRejected());
+		assertRejected(dropped);
+		block.release.countDown();
+		NumWork w = new NumWork(done, 5);
+		for (int i = 0; i < 100 && !worker.addWork(w); i++)
+			Thread.sleep(10);
+		w.waitForCompletion(5000);
+		assertEquals("[0, 1, 2, 5]", done.toString());
+		worker.dispose();
+	}
+
+	public void testDiscardOldest() throws Exception {
+		Worker worker = new Worker("test_oldest", HANDLER, 3,
+			Worker.Rejection.DISCARD_OLDEST);
+		BlockWork block = new BlockWork();
+		worker.addWork(block);
+		assertTrue(block.started.await(5, TimeUnit.SECONDS));
+		ArrayList<Integer> done = new ArrayList<Integer>();
+		NumWork first = null;
+		NumWork last = null;
+		for (int i = 0; i < 5; i++) {
+			last = new NumWork(done, i);
+			assertTrue(worker.addWork(last));
+			if (null == first)
+				first = last;
+		}
+		assertEquals(3, worker.size());
+		assertEquals(2, worker.getRejected());
+		assertRejected(first);
+		assertFalse(last.isRejected());
+		block.release.countDown();
+		last.waitForCompletion(5000);
+		assertEquals("[2, 3, 4]", done.toString());
+		worker.dispose();
+	}
+}
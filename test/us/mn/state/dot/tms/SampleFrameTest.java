@@ -0,0 +1,110 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import junit.framework.TestCase;
+
+/**
+ * Sample frame tests
+ *
+ * @author Douglas Lau
+ */
+public class SampleFrameTest extends TestCase {
+
+	static private final String[] NAMES = { "100", "101", "102", "103" };
+
+	public SampleFrameTest(String name) {
+		super(name);
+	}
+
+	public void testFull() throws IOException {
+		SampleFrame f = new SampleFrame(NAMES, 30000, 30);
+		f.setSample(0, 1200, 55, 12.34f);
+		f.setSample(1, 0, -1, 0f);
+		f.setSample(3, 40000, 120, 100f);
+		SampleFrame r = readFull(f);
+		assertEquals(4, r.size());
+		assertEquals("102", r.getName(2));
+		assertEquals(f.getTableId(), r.getTableId());
+		assertEquals(30000, r.getStamp());
+		assertEquals(30, r.getPeriod());
+		assertEquals(Integer.valueOf(1200), r.getFlow(0));
+		assertEquals(Integer.valueOf(55), r.getSpeed(0));
+		assertEquals(12.34f, r.getOcc(0), 0.001f);
+		assertEquals(Integer.valueOf(0), r.getFlow(1));
+		assertNull(r.getSpeed(1));
+		assertFalse(r.hasData(2));
+		assertNull(r.getOcc(2));
+		assertEquals(Integer.valueOf(Short.MAX_VALUE), r.getFlow(3));
+		assertEquals(100f, r.getOcc(3), 0.001f);
+	}
+
+	public void testDelta() throws IOException {
+		SampleFrame f0 = new SampleFrame(NAMES, 30000, 30);
+		f0.setSample(0, 1200, 55, 12.34f);
+		f0.setSample(2, 600, 60, 5f);
+		SampleFrame f1 = new SampleFrame(NAMES, 60000, 30);
+		f1.setSample(0, 1320, 52, 14f);
+		f1.setSample(2, 600, 60, 5f);
+		f1.setSample(3, 240, 65, 2.5f);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		f1.writeDelta(bos, f0);
+		SampleFrame r0 = readFull(f0);
+		SampleFrame r1 = r0.applyDelta(new ByteArrayInputStream(
+			bos.toByteArray()));
+		assertNotNull(r1);
+		assertEquals(60000, r1.getStamp());
+		for (int i = 0; i < NAMES.length; i++) {
+			assertEquals(f1.getFlow(i), r1.getFlow(i));
+			assertEquals(f1.getSpeed(i), r1.getSpeed(i));
+			assertEquals(f1.getOcc(i), r1.getOcc(i));
+		}
+		// Base frame is not modified
+		assertEquals(Integer.valueOf(1200), r0.getFlow(0));
+		// Delta with the same stamp leaves frame unchanged
+		assertSame(f1, f1.applyDelta(new ByteArrayInputStream(
+			bos.toByteArray())));
+		// Delta does not apply to a frame with a different stamp
+		SampleFrame f2 = new SampleFrame(NAMES, 90000, 30);
+		assertNull(f2.applyDelta(new ByteArrayInputStream(
+			bos.toByteArray())));
+	}
+
+	public void testIncompatible() {
+		SampleFrame f0 = new SampleFrame(NAMES, 30000, 30);
+		SampleFrame f1 = new SampleFrame(new String[] { "100" }, 60000,
+			30);
+		assertFalse(f1.isCompatible(f0));
+		assertFalse(f1.isCompatible(null));
+		try {
+			f1.writeDelta(new ByteArrayOutputStream(), f0);
+			fail();
+		}
+		catch (IOException e) {
+			// expected
+		}
+	}
+
+	/** Write and read back a full frame */
+	private SampleFrame readFull(SampleFrame f) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		f.writeFull(bos);
+		return SampleFrame.readFull(new ByteArrayInputStream(
+			bos.toByteArray()));
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ * Word index tests
+ *
+ * @author Douglas Lau
+ */
+public class WordIndexTest extends TestCase {
+
+	/** Number of words in large dictionary */
+	static private final int N_WORDS = 20000;
+
+	/** Number of lookups to benchmark */
+	static private final int N_LOOKUPS = 2000;
+
+	/** Simple word for testing */
+	static private class TestWord implements Word {
+		private final String name;
+		private final String abbr;
+		private final boolean allowed;
+		private TestWord(String n, String a, boolean al) {
+			name = WordHelper.encode(n.toUpperCase());
+			abbr = a;
+			allowed = al;
+		}
+		public String getTypeName() { return SONAR_TYPE; }
+		public String getName() { return name; }
+		public void destroy() { }
+		public String getAbbr() { return abbr; }
+		public void setAbbr(String a) { }
+		public boolean getAllowed() { return allowed; }
+		public void setAllowed(boolean a) { }
+	}
+
+	/** Create an index with a few words */
+	private WordIndex createIndex() {
+		WordIndex wi = new WordIndex();
+		wi.add(new TestWord("LANE", "LN", true));
+		wi.add(new TestWord("LANES", "LNS", true));
+		wi.add(new TestWord("CLOSED", "CLS", true));
+		wi.add(new TestWord("US89/191", "", true));
+		wi.add(new TestWord("DARN", "", false));
+		return wi;
+	}
+
+	public WordIndexTest(String name) {
+		super(name);
+	}
+
+	public void testLookup() {
+		WordIndex wi = createIndex();
+		assertTrue(wi.size() == 5);
+		assertEquals("LN", wi.lookup("lane").getAbbr());
+		assertEquals("LN", wi.lookup("Lane").getAbbr());
+		assertNotNull(wi.lookup("us89/191"));
+		assertFalse(wi.lookup("DARN").getAllowed());
+		assertNull(wi.lookup("ROAD"));
+		assertNull(wi.lookup(null));
+		Word w = wi.lookup("LANE");
+		wi.remove(w);
+		assertNull(wi.lookup("LANE"));
+		assertTrue(wi.size() == 4);
+	}
+
+	public void testBestAbbr() {
+		WordIndex wi = createIndex();
+		List<String> ws = Arrays.asList("LEFT", "LANE", "CLOSED");
+		assertEquals("CLS", wi.findBestAbbr(ws).getAbbr());
+		ws = Arrays.asList("LEFT", "LANES");
+		assertEquals("LNS", wi.findBestAbbr(ws).getAbbr());
+		ws = Arrays.asList("DARN", "US89/191");
+		assertNull(wi.findBestAbbr(ws));
+	}
+
+	public void testAbbreviate() {
+		WordIndex wi = createIndex();
+		WordIndex.Fit fit = new WordIndex.Fit() {
+			public boolean fits(String ms) {
+				return ms.length() <= 15;
+			}
+		};
+		assertEquals("LANE CLOSED", wi.abbreviate("LANE CLOSED", fit));
+		// CLOSED saves the most characters, so it is first
+		assertEquals("LEFT LANE CLS", wi.abbreviate("LEFT LANE CLOSED",
+			fit));
+		assertEquals("LN[nl]LN CLS", wi.abbreviate(
+			"LANE[nl]LANE CLOSED", fit));
+		assertNull(wi.abbreviate("SLOW TRAFFIC AHEAD", fit));
+	}
+
+	/** Create a large index */
+	private WordIndex createLarge() {
+		WordIndex wi = new WordIndex();
+		for (int i = 0; i < N_WORDS; i++)
+			wi.add(new TestWord("WORD" + i, "W" + i, true));
+		return wi;
+	}
+
+	public void testLarge() {
+		WordIndex wi = createLarge();
+		assertTrue(wi.size() == N_WORDS);
+		for (int i = 0; i < N_WORDS; i++) {
+			assertEquals("W" + i, wi.lookup("word" + i).getAbbr());
+		}
+		List<String> ws = Arrays.asList("SLOW", "TRAFFIC", "WORD123");
+		assertEquals("W123", wi.findBestAbbr(ws).getAbbr());
+	}
+
+	/** Lookup a word by scanning every word, like the old checks */
+	static private Word scan(List<Word> words, String w) {
+		for (Word dw: words) {
+			String n = WordHelper.decode(dw.getName());
+			if (WordHelper.equals(n, w))
+				return dw;
+		}
+		return null;
+	}
+
+	public void testBenchmark() {
+		WordIndex wi = createLarge();
+		ArrayList<Word> words = new ArrayList<Word>();
+		for (int i = 0; i < N_WORDS; i++)
+			words.add(wi.lookup("WORD" + i));
+		long st = System.currentTimeMillis();
+		for (int i = 0; i < N_LOOKUPS; i++)
+			assertNotNull(scan(words, "word" + (i * 97 % N_WORDS)));
+		long t_scan = System.currentTimeMillis() - st;
+		st = System.currentTimeMillis();
+		for (int i = 0; i < N_LOOKUPS; i++)
+			assertNotNull(wi.lookup("word" + (i * 97 % N_WORDS)));
+		long t_index = System.currentTimeMillis() - st;
+		assertTrue("index: " + t_index + " ms, scan: " + t_scan + " ms",
+			t_index < t_scan);
+	}
+}
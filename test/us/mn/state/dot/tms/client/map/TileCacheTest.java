@@ -0,0 +1,146 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.client.map;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import javax.imageio.ImageIO;
+import junit.framework.TestCase;
+
+/**
+ * Tile cache tests
+ *
+ * @author Douglas Lau
+ */
+public class TileCacheTest extends TestCase {
+
+	/** Size of one decoded test tile (bytes) */
+	static private final long TILE_BYTES = 4 * 256 * 256;
+
+	/** Encode a blank tile */
+	static private byte[] blankTile() throws IOException {
+		BufferedImage img = new BufferedImage(256, 256,
+			BufferedImage.TYPE_INT_ARGB);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ImageIO.write(img, "png", bos);
+		return bos.toByteArray();
+	}
+
+	/** Fetcher which creates blank tiles */
+	static private class TestFetcher extends ImageFetcher {
+		private int n_fetched = 0;
+		private TestFetcher() throws IOException {
+			super("http://127.0.0.1/");
+		}
+		@Override
+		public InputStream fetchImage(String n) throws IOException {
+			if (n.startsWith("0/"))
+				throw new FileNotFoundException(n);
+			n_fetched++;
+			return new ByteArrayInputStream(blankTile());
+		}
+	}
+
+	/** Listener which waits for tiles */
+	static private class Waiter implements TileCache.Listener {
+		private int n_loaded = 0;
+		public synchronized void tileLoaded(String n) {
+			n_loaded++;
+			notifyAll();
+		}
+		private synchronized void waitFor(int n)
+			throws InterruptedException
+		{
+			long end = System.currentTimeMillis() + 10000;
+			while (n_loaded < n && System.currentTimeMillis() < end)
+				wait(100);
+			assertEquals(n, n_loaded);
+		}
+	}
+
+	public TileCacheTest(String name) {
+		super(name);
+	}
+
+	public void testCache() throws Exception {
+		File dir = Files.createTempDirectory("tiles").toFile();
+		TestFetcher f = new TestFetcher();
+		TileCache c = new TileCache(f, TILE_BYTES * 2, dir,
+			Long.MAX_VALUE);
+		Waiter w = new Waiter();
+		c.setListener(w);
+		assertNull(c.getTile("1/0/0"));
+		c.requestTile("1/0/0");
+		w.waitFor(1);
+		assertNotNull(c.getTile("1/0/0"));
+		assertEquals(1, c.getHits());
+		assertEquals(1, c.getMisses());
+		c.requestTile("1/0/1");
+		c.requestTile("1/1/0");
+		w.waitFor(3);
+		// Memory cache holds only 2 tiles; least recently used purged
+		assertNull(c.getTile("1/0/0"));
+		assertEquals(3, f.n_fetched);
+		assertTrue(new File(dir, "1/0/0.png").canRead());
+		c.requestTile("1/0/0");
+		w.waitFor(4);
+		assertEquals(1, c.getDiskHits());
+		assertEquals(3, c.getFetches());
+		c.requestTile("0/0/0");
+		for (int i = 0; i < 100 && !c.isTileMissing("0/0/0"); i++)
+			Thread.sleep(10);
+		assertTrue(c.isTileMissing("0/0/0"));
+		c.destroy();
+	}
+
+	public void testDiskLimit() throws Exception {
+		File dir = Files.createTempDirectory("tiles").toFile();
+		long size = blankTile().length;
+		TestFetcher f = new TestFetcher();
+		TileCache c = new TileCache(f, TILE_BYTES * 4, dir, size * 2);
+		Waiter w = new Waiter();
+		c.setListener(w);
+		c.requestTile("1/0/0");
+		w.waitFor(1);
+		c.requestTile("1/0/1");
+		w.waitFor(2);
+		c.requestTile("1/1/0");
+		w.waitFor(3);
+		// Disk cache holds only 2 tiles; least recently used deleted
+		assertFalse(new File(dir, "1/0/0.png").exists());
+		assertTrue(new File(dir, "1/0/1.png").exists());
+		assertTrue(new File(dir, "1/1/0.png").exists());
+		assertEquals(size * 2, c.getDiskBytes());
+		c.destroy();
+		// Modified times order the cache in a new session
+		long now = System.currentTimeMillis();
+		new File(dir, "1/0/1.png").setLastModified(now);
+		new File(dir, "1/1/0.png").setLastModified(now - 60000);
+		File temp = new File(dir, "1/1/1.png~tile_fetch_0");
+		Files.write(temp.toPath(), new byte[10]);
+		c = new TileCache(f, TILE_BYTES * 4, dir, size);
+		assertEquals(size, c.getDiskBytes());
+		assertTrue(new File(dir, "1/0/1.png").exists());
+		assertFalse(new File(dir, "1/1/0.png").exists());
+		assertFalse(temp.exists());
+		c.destroy();
+	}
+}
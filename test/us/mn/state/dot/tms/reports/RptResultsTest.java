@@ -0,0 +1,57 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  SRF Consulting Group
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.reports;
+
+import junit.framework.TestCase;
+
+/**
+ * Report results paging tests
+ *
+ * @author John L. Stanley - SRF Consulting
+ */
+public class RptResultsTest extends TestCase {
+
+	public RptResultsTest(String name) {
+		super(name);
+	}
+
+	public void testPages() {
+		RptResults r0 = new RptResults();
+		r0.addRptRecord(new RptResultItem(1000, "V1", "user",
+			"Message deployed"));
+		r0.addRptRecord(new RptResultItem(2000, "V2", "user",
+			"Message cleared"));
+		String p0 = r0.toPageString(0, false);
+		RptResults r1 = new RptResults();
+		r1.addRptRecord(new RptResultItem(3000, "V3", "", "Blank"));
+		String p1 = r1.toPageString(1, true);
+		assertEquals(0, RptResults.getPageNumber(p0));
+		assertEquals(1, RptResults.getPageNumber(p1));
+		assertEquals(-1, RptResults.getPageNumber("{empty: }"));
+		assertEquals(-1, RptResults.getPageNumber(null));
+		RptResults res = new RptResults();
+		res.initFromResultsString(p0);
+		assertEquals(0, res.getPage());
+		assertFalse(res.isLastPage());
+		res.initFromResultsString(p1);
+		assertEquals(1, res.getPage());
+		assertTrue(res.isLastPage());
+		assertEquals(3, res.resultsSize());
+		RptResultItem it = res.getRptResults().get(2);
+		assertEquals(Long.valueOf(3000), it.getDatetimeLong());
+		assertEquals("V3", it.getName());
+		assertEquals("Blank", it.getDescription());
+	}
+}
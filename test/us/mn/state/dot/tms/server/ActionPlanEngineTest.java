@@ -0,0 +1,416 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import junit.framework.TestCase;
+import us.mn.state.dot.sonar.GroupChecker;
+import us.mn.state.dot.sonar.Name;
+import us.mn.state.dot.sonar.Namespace;
+import us.mn.state.dot.sonar.SonarObject;
+import us.mn.state.dot.tms.ActionPlan;
+import us.mn.state.dot.tms.BaseHelper;
+import us.mn.state.dot.tms.Beacon;
+import us.mn.state.dot.tms.BeaconAction;
+import us.mn.state.dot.tms.DmsAction;
+import us.mn.state.dot.tms.LaneAction;
+import us.mn.state.dot.tms.LaneMarking;
+import us.mn.state.dot.tms.PlanPhase;
+
+/**
+ * Action plan engine tests.  Objects are faked in a test namespace, and
+ * results are checked against the rules of the old periodic sweeps.
+ *
+ * @author Douglas Lau
+ */
+public class ActionPlanEngineTest extends TestCase {
+
+	/** Namespace with objects stored in maps */
+	static private class TestNamespace extends Namespace {
+		private final HashMap<String, LinkedHashMap<String,
+			SonarObject>> types = new HashMap<String,
+			LinkedHashMap<String, SonarObject>>();
+		private LinkedHashMap<String, SonarObject> objects(String t) {
+			LinkedHashMap<String, SonarObject> objs = types.get(t);
+			if (null == objs) {
+				objs = new LinkedHashMap<String, SonarObject>();
+				types.put(t, objs);
+			}
+			return objs;
+		}
+		private void add(SonarObject o) {
+			objects(o.getTypeName()).put(o.getName(), o);
+		}
+		private void remove(SonarObject o) {
+			objects(o.getTypeName()).remove(o.getName());
+		}
+		@Override protected GroupChecker getGroupChecker(Name n) {
+			return null;
+		}
+		@Override public SonarObject lookupObject(String t, String n) {
+			return objects(t).get(n);
+		}
+		@Override public Iterator<SonarObject> iterator(String t) {
+			return new ArrayList<SonarObject>(objects(t).values())
+				.iterator();
+		}
+		@Override public int getCount(String t) {
+			return objects(t).size();
+		}
+	}
+
+	/** Fake SONAR object, with properties stored in a map */
+	static private class Fake implements InvocationHandler {
+		private final String name;
+		private final String type;
+		private final HashMap<String, Object> props =
+			new HashMap<String, Object>();
+		private int n_sets = 0;
+		private Fake(String n, String t) {
+			name = n;
+			type = t;
+		}
+		public Object invoke(Object p, Method m, Object[] args) {
+			String n = m.getName();
+			if ("getName".equals(n) || "toString".equals(n))
+				return name;
+			if ("getTypeName".equals(n))
+				return type;
+			if ("hashCode".equals(n))
+				return System.identityHashCode(p);
+			if ("equals".equals(n))
+				return p == args[0];
+			if (n.startsWith("set")) {
+				props.put(n.substring(3), args[0]);
+				n_sets++;
+				return null;
+			}
+			if (n.startsWith("get"))
+				return props.get(n.substring(3));
+			return null;
+		}
+	}
+
+	/** Get the fake for an object */
+	static private Fake fake(Object o) {
+		return (Fake) Proxy.getInvocationHandler(o);
+	}
+
+	/** Time action which records when it is performed */
+	static private class TestTimeAction extends TimeActionImpl {
+		private final ArrayList<String> performed;
+		private TestTimeAction(String n, ActionPlan ap, Calendar cal,
+			ArrayList<String> p)
+		{
+			super(n, ap, null, cal.getTime(), cal.getTime(), null);
+			performed = p;
+		}
+		@Override protected void perform() {
+			performed.add(getName());
+		}
+	}
+
+	/** Create a calendar for a time today */
+	static private Calendar today(int hour, int minute) {
+		Calendar cal = Calendar.getInstance();
+		cal.set(Calendar.HOUR_OF_DAY, hour);
+		cal.set(Calendar.MINUTE, minute);
+		cal.set(Calendar.SECOND, 0);
+		cal.set(Calendar.MILLISECOND, 0);
+		return cal;
+	}
+
+	/** Previous helper namespace */
+	private Namespace saved;
+
+	/** Test namespace */
+	private TestNamespace ns;
+
+	/** Engine to test */
+	private ActionPlanEngine engine;
+
+	/** Deployed phase */
+	private PlanPhase deployed;
+
+	/** Undeployed phase */
+	private PlanPhase undeployed;
+
+	public ActionPlanEngineTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		saved = BaseHelper.namespace;
+		ns = new TestNamespace();
+		BaseHelper.namespace = ns;
+		engine = new ActionPlanEngine();
+		deployed = create(PlanPhase.class, "deployed");
+		undeployed = create(PlanPhase.class, "undeployed");
+	}
+
+	@Override
+	protected void tearDown() {
+		BaseHelper.namespace = saved;
+	}
+
+	/** Create a fake object and add it to the namespace.
+	 * @param c Interface to fake.
+	 * @param n Object name.
+	 * @param kv Pairs of property names and values. */
+	private <T extends SonarObject> T create(Class<T> c, String n,
+		Object... kv) throws Exception
+	{
+		Fake f = new Fake(n, (String) c.getField("SONAR_TYPE")
+			.get(null));
+		for (int i = 0; i < kv.length; i += 2)
+			f.props.put((String) kv[i], kv[i + 1]);
+		T o = c.cast(Proxy.newProxyInstance(c.getClassLoader(),
+			new Class[] { c }, f));
+		ns.add(o);
+		return o;
+	}
+
+	/** Create a fake action plan */
+	private ActionPlan plan(String n, boolean a, PlanPhase p)
+		throws Exception
+	{
+		return create(ActionPlan.class, n, "Active", a, "Phase", p);
+	}
+
+	/** Create a fake beacon action */
+	private BeaconAction beaconAction(String n, ActionPlan ap, Beacon b,
+		PlanPhase p) throws Exception
+	{
+		return create(BeaconAction.class, n, "ActionPlan", ap,
+			"Beacon", b, "Phase", p);
+	}
+
+	/** Create a fake DMS action */
+	private DmsAction dmsAction(String n, ActionPlan ap, PlanPhase p,
+		int prio, String msg) throws Exception
+	{
+		return create(DmsAction.class, n, "ActionPlan", ap, "Phase", p,
+			"MsgPriority", prio, "Msg", msg);
+	}
+
+	/** Choose a message from DMS actions */
+	static private String choose(List<DmsAction> acts,
+		final List<String> created, boolean dynamic)
+	{
+		ActionPlanEngine.MsgChooser<String> ch =
+			new ActionPlanEngine.MsgChooser<String>()
+		{
+			protected String create(DmsAction da) {
+				created.add(da.getName());
+				return (String) fake(da).props.get("Msg");
+			}
+			protected boolean isValid(String m) {
+				return !"INVALID".equals(m);
+			}
+			protected boolean isDynamic(String m) {
+				return m.startsWith("DYN");
+			}
+		};
+		String m = ch.choose(acts);
+		assertEquals(dynamic, ch.isDynamic());
+		return m;
+	}
+
+	public void testDmsPriority() throws Exception {
+		ActionPlan ap = plan("ap", true, deployed);
+		DmsAction lo = dmsAction("lo", ap, deployed, 1, "LO");
+		DmsAction hi = dmsAction("hi", ap, deployed, 5, "HI");
+		DmsAction lo2 = dmsAction("lo2", ap, deployed, 1, "LO2");
+		ArrayList<String> created = new ArrayList<String>();
+		assertEquals("HI", choose(Arrays.asList(lo, hi, lo2), created,
+			false));
+		// Messages for lower priority actions are not created
+		assertEquals("[lo, hi]", created.toString());
+		// For equal priorities, the last action is used
+		DmsAction hi2 = dmsAction("hi2", ap, deployed, 5, "HI2");
+		assertEquals("HI2", choose(Arrays.asList(lo, hi, hi2),
+			new ArrayList<String>(), false));
+		assertEquals("HI", choose(Arrays.asList(hi2, hi),
+			new ArrayList<String>(), false));
+	}
+
+	public void testDmsInactive() throws Exception {
+		ActionPlan ap = plan("ap", true, deployed);
+		ActionPlan off = plan("off", false, deployed);
+		DmsAction lo = dmsAction("lo", ap, deployed, 1, "LO");
+		DmsAction hi = dmsAction("hi", off, deployed, 5, "HI");
+		DmsAction other = dmsAction("other", ap, undeployed, 9, "X");
+		ArrayList<String> created = new ArrayList<String>();
+		// Inactive plans and other phases are ignored
+		assertEquals("LO", choose(Arrays.asList(lo, hi, other),
+			created, false));
+		assertEquals("[lo]", created.toString());
+		assertNull(choose(Arrays.asList(hi, other),
+			new ArrayList<String>(), false));
+	}
+
+	public void testDmsInvalid() throws Exception {
+		ActionPlan ap = plan("ap", true, deployed);
+		DmsAction lo = dmsAction("lo", ap, deployed, 1, "LO");
+		DmsAction bad = dmsAction("bad", ap, deployed, 5, "INVALID");
+		DmsAction dyn = dmsAction("dyn", ap, deployed, 1, "DYN");
+		// An invalid message is skipped, and marks the DMS for retry
+		assertEquals("LO", choose(Arrays.asList(lo, bad),
+			new ArrayList<String>(), true));
+		assertNull(choose(Arrays.asList(bad),
+			new ArrayList<String>(), true));
+		// A dynamic message marks the DMS for periodic updates
+		assertEquals("DYN", choose(Arrays.asList(dyn),
+			new ArrayList<String>(), true));
+		assertEquals("LO", choose(Arrays.asList(dyn, lo),
+			new ArrayList<String>(), true));
+	}
+
+	public void testBeacons() throws Exception {
+		ActionPlan a = plan("a", true, deployed);
+		ActionPlan b = plan("b", true, undeployed);
+		ActionPlan c = plan("c", false, deployed);
+		Beacon b1 = create(Beacon.class, "b1");
+		Beacon b2 = create(Beacon.class, "b2");
+		Beacon b3 = create(Beacon.class, "b3");
+		beaconAction("ba1", a, b1, deployed);
+		beaconAction("ba2", b, b1, deployed);
+		beaconAction("ba3", a, b2, deployed);
+		beaconAction("ba4", c, b2, undeployed);
+		beaconAction("ba5", c, b3, deployed);
+		engine.evaluatePeriodic(true);
+		// The last action for an active plan is used
+		assertEquals(false, fake(b1).props.get("Flashing"));
+		assertEquals(true, fake(b2).props.get("Flashing"));
+		// Beacons with only inactive plans are not changed
+		assertNull(fake(b3).props.get("Flashing"));
+		c.setActive(true);
+		engine.planChanged(c);
+		engine.evaluatePeriodic(false);
+		assertEquals(false, fake(b2).props.get("Flashing"));
+		assertEquals(true, fake(b3).props.get("Flashing"));
+	}
+
+	public void testLaneMarkings() throws Exception {
+		ActionPlan a = plan("a", true, deployed);
+		ActionPlan b = plan("b", false, undeployed);
+		LaneMarking lm = create(LaneMarking.class, "lm");
+		create(LaneAction.class, "la1", "ActionPlan", a,
+			"LaneMarking", lm, "Phase", deployed);
+		create(LaneAction.class, "la2", "ActionPlan", b,
+			"LaneMarking", lm, "Phase", deployed);
+		engine.evaluatePeriodic(true);
+		assertEquals(true, fake(lm).props.get("Deployed"));
+		b.setActive(true);
+		engine.planChanged(b);
+		engine.evaluatePeriodic(false);
+		assertEquals(false, fake(lm).props.get("Deployed"));
+	}
+
+	public void testDirtyPlans() throws Exception {
+		ActionPlan a = plan("a", true, deployed);
+		ActionPlan b = plan("b", true, deployed);
+		Beacon b1 = create(Beacon.class, "b1");
+		Beacon b2 = create(Beacon.class, "b2");
+		beaconAction("ba1", a, b1, deployed);
+		beaconAction("ba2", b, b2, deployed);
+		engine.evaluatePeriodic(true);
+		assertEquals(1, fake(b1).n_sets);
+		assertEquals(1, fake(b2).n_sets);
+		// Only devices with actions for changed plans are updated
+		a.setPhase(undeployed);
+		engine.planChanged(a);
+		engine.evaluatePeriodic(false);
+		assertEquals(false, fake(b1).props.get("Flashing"));
+		assertEquals(2, fake(b1).n_sets);
+		assertEquals(1, fake(b2).n_sets);
+		// Changed plans are only evaluated once
+		engine.evaluatePeriodic(false);
+		assertEquals(2, fake(b1).n_sets);
+		// A full evaluation updates every device
+		engine.evaluatePeriodic(true);
+		assertEquals(3, fake(b1).n_sets);
+		assertEquals(2, fake(b2).n_sets);
+	}
+
+	public void testInvalidate() throws Exception {
+		ActionPlan a = plan("a", true, deployed);
+		Beacon b1 = create(Beacon.class, "b1");
+		Beacon b2 = create(Beacon.class, "b2");
+		beaconAction("ba1", a, b1, deployed);
+		engine.evaluatePeriodic(false);
+		assertEquals(true, fake(b1).props.get("Flashing"));
+		BeaconAction ba2 = beaconAction("ba2", a, b2, deployed);
+		engine.planChanged(a);
+		engine.evaluatePeriodic(false);
+		// New actions are not used until the index is invalidated
+		assertNull(fake(b2).props.get("Flashing"));
+		engine.invalidate();
+		engine.evaluatePeriodic(false);
+		assertEquals(true, fake(b2).props.get("Flashing"));
+		// Removed actions are not used after invalidating
+		ns.remove(ba2);
+		engine.invalidate();
+		engine.evaluatePeriodic(false);
+		int n_sets = fake(b2).n_sets;
+		a.setPhase(undeployed);
+		engine.planChanged(a);
+		engine.evaluatePeriodic(false);
+		assertEquals(false, fake(b1).props.get("Flashing"));
+		assertEquals(n_sets, fake(b2).n_sets);
+	}
+
+	public void testTimeActions() throws Exception {
+		ActionPlan ap = plan("ap", true, deployed);
+		ArrayList<String> performed = new ArrayList<String>();
+		Calendar c600 = today(10, 0);
+		Calendar c601 = today(10, 1);
+		Calendar c602 = today(10, 2);
+		Calendar tomorrow = today(10, 0);
+		tomorrow.add(Calendar.DATE, 1);
+		ns.add(new TestTimeAction("t600", ap, c600, performed));
+		ns.add(new TestTimeAction("t601", ap, c601, performed));
+		ns.add(new TestTimeAction("tomorrow", ap, tomorrow,
+			performed));
+		// Only actions for the minute and date are performed
+		engine.performTimeActions(c600, 600);
+		assertEquals("[t600]", performed.toString());
+		performed.clear();
+		engine.performTimeActions(c601, 601);
+		assertEquals("[t601]", performed.toString());
+		performed.clear();
+		engine.performTimeActions(tomorrow, 600);
+		assertEquals("[tomorrow]", performed.toString());
+		performed.clear();
+		// New actions are indexed after invalidating
+		ns.add(new TestTimeAction("t602", ap, c602, performed));
+		engine.performTimeActions(c602, 602);
+		assertTrue(performed.isEmpty());
+		engine.invalidate();
+		engine.performTimeActions(c602, 602);
+		assertEquals("[t602]", performed.toString());
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Calendar;
+import junit.framework.TestCase;
+import us.mn.state.dot.sched.TimeSteward;
+import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
+
+/**
+ * Columnar sample file tests.
+ *
+ * @author Doug Lau
+ */
+public class ColumnarSampleFileTest extends TestCase {
+
+	static private final int SAMPLES = 2880;
+
+	/** Create a column of scan samples for one sensor */
+	static private ByteBuffer scans(int s) {
+		ByteBuffer c = ByteBuffer.allocate(SAMPLES * 2);
+		for (int i = 0; i < SAMPLES; i++)
+			c.putShort((short) ((i + s) % 1800));
+		c.flip();
+		return c;
+	}
+
+	public ColumnarSampleFileTest(String name) {
+		super(name);
+	}
+
+	public void testBlocks() throws Exception {
+		File f = File.createTempFile("c30", ColumnarSampleFile.EXT);
+		f.delete();
+		ColumnarSampleFile col = new ColumnarSampleFile(f, 2, SAMPLES);
+		// More than one block of sensors
+		for (int s = 0; s < 300; s++)
+			col.write("D" + s, scans(s));
+		col.write("D7", scans(0));
+		col.close();
+		col = new ColumnarSampleFile(f);
+		assertEquals(2, col.getSampleBytes());
+		assertEquals(SAMPLES, col.getSlots());
+		assertEquals(300, col.getSensors().size());
+		assertEquals("D299", col.getSensors().get(299));
+		assertEquals(scans(0), col.read("D7"));
+		assertEquals(scans(299), col.read("D299"));
+		assertNull(col.read("D300"));
+		col.close();
+		try {
+			new ColumnarSampleFile(f, 1, SAMPLES).close();
+			fail("format mismatch");
+		}
+		catch (IOException e) {
+			// expected
+		}
+		assertTrue(f.delete());
+	}
+
+	public void testWriter() throws Exception {
+		File f = new File("/tmp/v30" + ColumnarSampleFile.EXT);
+		f.delete();
+		PeriodicSampleCache cache = new PeriodicSampleCache(
+			PeriodicSampleType.VEH_COUNT);
+		// Samples must be recent to be cached
+		long now = TimeSteward.currentTimeMillis() / 30000 * 30000;
+		PeriodicSample ps = new PeriodicSample(now - 90000, 30, 5);
+		cache.add(ps, "test");
+		cache.add(new PeriodicSample(now - 30000, 30, 7), "test");
+		int i = TimeSteward.secondOfDayInt(ps.start()) / 30;
+		PeriodicSampleWriter writer = new PeriodicSampleWriter(
+			new PeriodicSampleWriterTest.TestFactory());
+		writer.setColumnar(true);
+		writer.flush(cache, "TEST");
+		writer.flush(cache, "TEST2");
+		writer.close();
+		ColumnarSampleFile col = new ColumnarSampleFile(f);
+		assertEquals(2, col.getSensors().size());
+		ByteBuffer b = col.read("TEST2");
+		col.close();
+		assertEquals(SAMPLES, b.remaining());
+		assertEquals(5, b.get(i));
+		assertEquals(MISSING_DATA, b.get((i + 1) % SAMPLES));
+		assertEquals(7, b.get((i + 2) % SAMPLES));
+		assertEquals(MISSING_DATA, b.get((i + 3) % SAMPLES));
+		assertTrue(f.delete());
+	}
+
+	public void testConvert() throws Exception {
+		File base = Files.createTempDirectory("traffic").toFile();
+		File year = new File(base, "2019");
+		File day = new File(year, "20190415");
+		assertTrue(day.mkdirs());
+		for (int s = 0; s < 3; s++) {
+			Files.write(new File(day, "D" + s + ".c30").toPath(),
+				scans(s).array());
+		}
+		Files.write(new File(day, "D0.vlog").toPath(), new byte[10]);
+		assertEquals(3, ColumnarSampleConverter.toColumnar(day));
+		assertFalse(new File(day, "D0.c30").exists());
+		assertTrue(new File(day, "c30.col").isFile());
+		Calendar cal = Calendar.getInstance();
+		cal.set(2019, Calendar.APRIL, 15, 12, 0, 0);
+		long stamp = cal.getTimeInMillis();
+		SampleArchiveReader reader = new SampleArchiveReader(base);
+		assertEquals(scans(1), reader.read("D1", "c30", stamp));
+		assertEquals(3, ColumnarSampleConverter.toFiles(day));
+		assertFalse(new File(day, "c30.col").exists());
+		assertEquals(scans(2), reader.read("D2", "c30", stamp));
+		ColumnarSampleConverter.toColumnar(day);
+		// Archive entries are per-sensor, even from columnar files
+		File traf = new File(year, "20190415.traffic");
+		ArchiveSamplesJob job = new ArchiveSamplesJob(
+			new PeriodicSampleWriterTest.TestFactory());
+		job.createSampleArchive(traf, day);
+		assertFalse(day.exists());
+		assertEquals(scans(0), reader.read(traf, "D0.c30"));
+		assertEquals(scans(2), reader.read("D2", "c30", stamp));
+		assertEquals(10, reader.read(traf, "D0.vlog").remaining());
+		assertTrue(traf.delete());
+		assertTrue(year.delete());
+		assertTrue(base.delete());
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import junit.framework.TestCase;
+import us.mn.state.dot.tms.MeterAlgorithm;
+
+/**
+ * Metering replay test cases.  One corridor has a bottleneck from 7:00 to
+ * 8:00 AM, just downstream of a metered entrance.
+ *
+ * @author Doug Lau
+ */
+public class MeteringReplayTest extends TestCase {
+
+	static private final String CONFIG =
+		"<?xml version='1.0'?>\n" +
+		"<tms_config>\n" +
+		"<corridor route='T.H.100' dir='NB'>\n" +
+		"  <r_node name='rn_1' station_id='S1' label='50th St'" +
+		" lon='-93.3' lat='44.90' lanes='2'>\n" +
+		"    <detector name='D1' lane='1'/>\n" +
+		"  </r_node>\n" +
+		"  <r_node name='rn_2' station_id='S2' label='Excelsior'" +
+		" lon='-93.3' lat='44.91' lanes='2'>\n" +
+		"    <detector name='D2' lane='1'/>\n" +
+		"  </r_node>\n" +
+		"  <r_node name='rn_3' n_type='Entrance' label='Main St'" +
+		" lon='-93.3' lat='44.915'>\n" +
+		"    <detector name='Q3' category='Q'/>\n" +
+		"    <detector name='P3' category='P'/>\n" +
+		"    <detector name='G3' category='G'/>\n" +
+		"    <detector name='M3' category='M'/>\n" +
+		"    <meter name='RM3' storage='500'/>\n" +
+		"  </r_node>\n" +
+		"  <r_node name='rn_4' station_id='S4' label='Main St'" +
+		" lon='-93.3' lat='44.92' lanes='2'>\n" +
+		"    <detector name='D4' lane='1'/>\n" +
+		"  </r_node>\n" +
+		"  <r_node name='rn_5' station_id='S5' label='Lake St'" +
+		" lon='-93.3' lat='44.93' lanes='2'>\n" +
+		"    <detector name='D5' lane='1'/>\n" +
+		"  </r_node>\n" +
+		"</corridor>\n" +
+		"</tms_config>\n";
+
+	static private final int SAMPLES = 2880;
+
+	/** Check if a sample is during the congested period */
+	static private boolean isCongested(int i) {
+		return i >= 7 * 120 && i < 8 * 120;
+	}
+
+	/** Write sample entries for one detector */
+	static private void writeDetector(ZipOutputStream zip, String det,
+		int veh, int scans, int spd, boolean bneck) throws IOException
+	{
+		ByteBuffer v = ByteBuffer.allocate(SAMPLES);
+		ByteBuffer c = ByteBuffer.allocate(SAMPLES * 2);
+		ByteBuffer s = ByteBuffer.allocate(SAMPLES);
+		for (int i = 0; i < SAMPLES; i++) {
+			boolean cong = bneck && isCongested(i);
+			v.put((byte) veh);
+			c.putShort((short) (cong ? scans * 3 : scans));
+			s.put((byte) (cong ? spd / 3 : spd));
+		}
+		writeEntry(zip, det + ".v30", v.array());
+		writeEntry(zip, det + ".c30", c.array());
+		if (spd > 0)
+			writeEntry(zip, det + ".s30", s.array());
+	}
+
+	static private void writeEntry(ZipOutputStream zip, String name,
+		byte[] data) throws IOException
+	{
+		zip.putNextEntry(new ZipEntry(name));
+		zip.write(data);
+		zip.closeEntry();
+	}
+
+	public MeteringReplayTest(String name) {
+		super(name);
+	}
+
+	public void testReplay() throws Exception {
+		File cfg = new File("/tmp/replay_tms_config.xml");
+		Files.write(cfg.toPath(), CONFIG.getBytes("UTF-8"));
+		File traffic = new File("/tmp/20190415.traffic");
+		ZipOutputStream zip = new ZipOutputStream(
+			new FileOutputStream(traffic));
+		try {
+			writeDetector(zip, "D1", 15, 225, 60, false);
+			writeDetector(zip, "D2", 15, 225, 60, false);
+			writeDetector(zip, "D4", 15, 225, 60, true);
+			writeDetector(zip, "D5", 15, 225, 60, false);
+			writeDetector(zip, "Q3", 6, 90, 0, false);
+			writeDetector(zip, "P3", 6, 90, 0, false);
+			writeDetector(zip, "G3", 6, 0, 0, false);
+			writeDetector(zip, "M3", 6, 90, 0, false);
+		}
+		finally {
+			zip.close();
+		}
+		MeteringReplay replay = new MeteringReplay(
+			MeterAlgorithm.K_ADAPTIVE);
+		replay.loadConfig(cfg);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(bos);
+		replay.replay(traffic, out);
+		out.flush();
+		assertEquals(SAMPLES, replay.getCycles());
+		int n_bneck = 0;
+		int n_rate = 0;
+		for (String line: bos.toString("UTF-8").split("\n")) {
+			String[] v = line.split(",");
+			assertEquals(4, v.length);
+			int min = Integer.parseInt(v[0].substring(0, 2)) * 60 +
+				Integer.parseInt(v[0].substring(3, 5));
+			if (v[1].equals("bottleneck")) {
+				assertEquals("S4", v[2]);
+				assertTrue(min >= 7 * 60 && min <= 8 * 60 + 10);
+				n_bneck++;
+			} else {
+				assertEquals("meter", v[1]);
+				assertEquals("RM3", v[2]);
+				assertTrue(min >= 6 * 60 && min < 9 * 60);
+				int r = Integer.parseInt(v[3]);
+				assertTrue(r > 0 && r <= 1800);
+				n_rate++;
+			}
+		}
+		assertTrue(n_bneck > 0);
+		assertTrue(n_rate > 0);
+		cfg.delete();
+		traffic.delete();
+	}
+}
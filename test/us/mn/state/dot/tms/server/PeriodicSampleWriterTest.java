@@ -100,6 +100,12 @@ public class PeriodicSampleWriterTest extends TestCase {
 			return new File("/tmp", sensor_id + "." +
 				s_type.extension + ps.period);
 		}
+		public File createColumnarFile(String ext, long stamp)
+			throws IOException
+		{
+			return ColumnarSampleFile.columnarFile(new File("/tmp"),
+				ext);
+		}
 		public boolean hasKnownExtension(String name) {
 			return true;
 		}
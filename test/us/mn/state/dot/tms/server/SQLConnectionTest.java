@@ -0,0 +1,106 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import junit.framework.TestCase;
+import us.mn.state.dot.tms.ChangeVetoException;
+
+/**
+ * SQL connection test cases
+ *
+ * @author Douglas Lau
+ */
+public class SQLConnectionTest extends TestCase {
+
+	/** Simple record for testing */
+	static private class TestRecord implements Storable {
+		private final String table;
+		private final LinkedHashMap<String, Object> columns =
+			new LinkedHashMap<String, Object>();
+		private TestRecord(String t, int id, Object v) {
+			table = t;
+			columns.put("id", id);
+			columns.put("value", v);
+		}
+		private TestRecord(int id, Object v) {
+			this("event.test", id, v);
+		}
+		public String getTable() { return table; }
+		public String getKeyName() { return "id"; }
+		public String getKey() { return columns.get("id").toString(); }
+		public Map<String, Object> getColumns() { return columns; }
+	}
+
+	public SQLConnectionTest(String name) {
+		super(name);
+	}
+
+	public void testInsertAll() throws ChangeVetoException {
+		assertEquals("INSERT INTO event.test (id,value) VALUES " +
+			"('1','one');", SQLConnection.insertAllSQL(
+			Arrays.asList(new TestRecord(1, "one"))));
+		// One statement for all records, with NULL and quoted values
+		assertEquals("INSERT INTO event.test (id,value) VALUES " +
+			"('1','one'),('2',NULL),('3','it''s');",
+			SQLConnection.insertAllSQL(Arrays.asList(
+			new TestRecord(1, "one"), new TestRecord(2, null),
+			new TestRecord(3, "it's"))));
+	}
+
+	public void testInsertBatch() throws ChangeVetoException {
+		ArrayList<TestRecord> rs = new ArrayList<TestRecord>();
+		for (int i = 0; i < 500; i++)
+			rs.add(new TestRecord(i, i));
+		String sql = SQLConnection.insertAllSQL(rs);
+		assertTrue(sql.startsWith("INSERT INTO event.test"));
+		assertTrue(sql.endsWith("('499','499');"));
+		assertEquals(1, sql.split("INSERT").length - 1);
+		assertEquals(500, sql.split("\\),\\(").length);
+	}
+
+	public void testInvalid() {
+		// One invalid record rejects the whole batch
+		try {
+			SQLConnection.insertAllSQL(Arrays.asList(
+				new TestRecord(1, "one"),
+				new TestRecord(2, "bad\u0000value")));
+			fail();
+		}
+		catch (ChangeVetoException e) {
+			// expected
+		}
+		try {
+			SQLConnection.insertAllSQL(Arrays.asList(
+				new TestRecord(1, "one"),
+				new TestRecord("event.other", 2, "two")));
+			fail();
+		}
+		catch (ChangeVetoException e) {
+			// expected
+		}
+		try {
+			SQLConnection.insertAllSQL(Arrays.asList(
+				new TestRecord("event.test; DROP", 1, "one")));
+			fail();
+		}
+		catch (ChangeVetoException e) {
+			// expected
+		}
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Calendar;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import junit.framework.TestCase;
+import static us.mn.state.dot.tms.server.Constants.MISSING_DATA;
+
+/**
+ * Sample archive reader tests.
+ *
+ * @author Doug Lau
+ */
+public class SampleArchiveReaderTest extends TestCase {
+
+	static private final int SAMPLES = 2880;
+
+	static private byte[] volumes() {
+		byte[] v = new byte[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++)
+			v[i] = (byte) ((i % 10 == 0) ? MISSING_DATA : i % 37);
+		return v;
+	}
+
+	static private byte[] scans() {
+		ByteBuffer c = ByteBuffer.allocate(SAMPLES * 2);
+		for (int i = 0; i < SAMPLES; i++)
+			c.putShort((short) (i % 1800));
+		return c.array();
+	}
+
+	/** Larger than the stored size limit, so it is compressed */
+	static private byte[] vehicleLog() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; sb.length() < 100 * 1024; i++)
+			sb.append(String.format("%d,12:00:%02d\n", i, i % 60));
+		return sb.toString().getBytes();
+	}
+
+	public SampleArchiveReaderTest(String name) {
+		super(name);
+	}
+
+	public void testRead() throws Exception {
+		File base = Files.createTempDirectory("traffic").toFile();
+		File year = new File(base, "2019");
+		File day = new File(year, "20190415");
+		assertTrue(day.mkdirs());
+		Files.write(new File(day, "D1.v30").toPath(), volumes());
+		Files.write(new File(day, "D1.c30").toPath(), scans());
+		Files.write(new File(day, "D1.vlog").toPath(), vehicleLog());
+		Calendar cal = Calendar.getInstance();
+		cal.set(2019, Calendar.APRIL, 15, 12, 0, 0);
+		long stamp = cal.getTimeInMillis();
+		SampleArchiveReader reader = new SampleArchiveReader(base);
+		// Read from unarchived day directory
+		int[] v = reader.readSamples("D1",
+			PeriodicSampleType.VEH_COUNT, 30, stamp);
+		assertEquals(SAMPLES, v.length);
+		assertEquals(MISSING_DATA, v[0]);
+		assertEquals(1, v[1]);
+		File traf = new File(year, "20190415.traffic");
+		ArchiveSamplesJob job = new ArchiveSamplesJob(
+			new PeriodicSampleWriterTest.TestFactory());
+		job.createSampleArchive(traf, day);
+		assertFalse(day.exists());
+		// Read from archive
+		assertEquals(ByteBuffer.wrap(volumes()),
+			reader.read("D1", "v30", stamp));
+		assertEquals(ByteBuffer.wrap(scans()),
+			reader.read("D1", "c30", stamp));
+		assertEquals(ByteBuffer.wrap(vehicleLog()),
+			reader.read(traf, "D1.vlog"));
+		assertNull(reader.read(traf, "D2.v30"));
+		int[] c = reader.readSamples("D1", PeriodicSampleType.SCAN,
+			30, stamp);
+		assertEquals(SAMPLES, c.length);
+		assertEquals(1799, c[1799]);
+		assertEquals(0, c[1800]);
+		assertEquals(1, reader.mappedArchives());
+		assertTrue(traf.delete());
+		assertTrue(year.delete());
+		assertTrue(base.delete());
+	}
+
+	public void testZip64() throws Exception {
+		// More entries than fit in a (non-zip64) end record
+		int n_entries = 0x10000 + 10;
+		File traf = File.createTempFile("zip64", ".traffic");
+		ZipOutputStream zos = new ZipOutputStream(
+			new FileOutputStream(traf));
+		try {
+			for (int i = 0; i < n_entries; i++) {
+				String n = "D" + i + ".v30";
+				zos.putNextEntry(new ZipEntry(n));
+				zos.write(i & 0xFF);
+				zos.closeEntry();
+			}
+		}
+		finally {
+			zos.close();
+		}
+		SampleArchiveReader reader = new SampleArchiveReader(
+			traf.getParentFile());
+		assertEquals(1, reader.read(traf, "D0.v30").remaining());
+		ByteBuffer b = reader.read(traf, "D" + (n_entries - 1) +
+			".v30");
+		assertEquals((n_entries - 1) & 0xFF, b.get(0) & 0xFF);
+		assertTrue(traf.delete());
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import junit.framework.TestCase;
+import us.mn.state.dot.tms.TMSException;
+
+/**
+ * Time action job tests
+ *
+ * @author Douglas Lau
+ */
+public class TimeActionJobTest extends TestCase {
+
+	/** Get the time (ms) for a day, hour, minute and second */
+	static private long time(int day, int hour, int minute, int sec) {
+		Calendar cal = Calendar.getInstance();
+		cal.set(2019, Calendar.MARCH, day, hour, minute, sec);
+		cal.set(Calendar.MILLISECOND, 0);
+		return cal.getTimeInMillis();
+	}
+
+	/** Minutes performed */
+	private final ArrayList<Integer> mins = new ArrayList<Integer>();
+
+	/** Job to test */
+	private final TimeActionJob job = new TimeActionJob(
+		new ActionPlanEngine()
+	{
+		@Override public void performTimeActions(Calendar cal,
+			int min)
+		{
+			mins.add(min);
+		}
+	});
+
+	public TimeActionJobTest(String name) {
+		super(name);
+	}
+
+	/** Perform the job, and check which minutes were performed */
+	private void assertMinutes(String m, long now) throws TMSException {
+		mins.clear();
+		job.performMinutes(now);
+		assertEquals(m, mins.toString());
+	}
+
+	public void testMinutes() throws TMSException {
+		assertMinutes("[600]", time(14, 10, 0, 0));
+		// Running again in the same minute does nothing
+		assertMinutes("[]", time(14, 10, 0, 30));
+		assertMinutes("[601]", time(14, 10, 1, 0));
+	}
+
+	public void testLate() throws TMSException {
+		assertMinutes("[600]", time(14, 10, 0, 0));
+		// A late job performs the skipped minute first
+		assertMinutes("[601, 602]", time(14, 10, 2, 5));
+		assertMinutes("[603]", time(14, 10, 3, 59));
+		// After a long delay, only the last 10 minutes are performed
+		assertMinutes("[711, 712, 713, 714, 715, 716, 717, 718, " +
+			"719, 720]", time(14, 12, 0, 0));
+	}
+
+	public void testMidnight() throws TMSException {
+		assertMinutes("[1439]", time(14, 23, 59, 0));
+		assertMinutes("[0, 1]", time(15, 0, 1, 30));
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import junit.framework.TestCase;
+
+/**
+ * Vehicle Event Log test cases
+ * @author Doug Lau
+ */
+public class VehicleEventLogTest extends TestCase {
+
+	/** Writer which records each write */
+	static private class TestWriter extends VehicleEventWriter {
+		private final ArrayList<Long> stamps = new ArrayList<Long>();
+		private final ArrayList<String> texts =
+			new ArrayList<String>();
+		private TestWriter() {
+			super(null);
+		}
+		@Override
+		public void write(String sensor_id, long stamp, String text) {
+			assertEquals("TEST", sensor_id);
+			stamps.add(stamp);
+			texts.add(text);
+		}
+	}
+
+	/** Create a time stamp */
+	static private Calendar stamp(Calendar day, int h, int m, int s) {
+		Calendar cal = (Calendar) day.clone();
+		cal.set(Calendar.HOUR_OF_DAY, h);
+		cal.set(Calendar.MINUTE, m);
+		cal.set(Calendar.SECOND, s);
+		cal.set(Calendar.MILLISECOND, 0);
+		return cal;
+	}
+
+	/** Get the following day */
+	static private Calendar nextDay(Calendar day, int n) {
+		Calendar cal = (Calendar) day.clone();
+		cal.add(Calendar.DATE, n);
+		return cal;
+	}
+
+	public VehicleEventLogTest(String name) {
+		super(name);
+	}
+
+	public void testMidnight() {
+		TestWriter w = new TestWriter();
+		VehicleEventLog log = new VehicleEventLog("TEST", w);
+		Calendar d0 = Calendar.getInstance();
+		d0.set(2019, Calendar.MARCH, 14);
+		Calendar d1 = nextDay(d0, 1);
+		Calendar d3 = nextDay(d0, 3);
+		log.logVehicle(stamp(d0, 23, 59, 58), 100, 0, 0);
+		log.logVehicle(stamp(d0, 23, 59, 59), 110, 1000, 0);
+		log.logVehicle(stamp(d1, 0, 0, 1), 120, 2000, 0);
+		// No events for a day and a half
+		log.logVehicle(stamp(d3, 12, 0, 0), 130, 0, 0);
+		log.flush();
+		// Each day's events are written with a stamp from that day
+		assertEquals(3, w.texts.size());
+		assertEquals("100,?,23:59:58\n110,1000\n", w.texts.get(0));
+		assertEquals(stamp(d0, 23, 59, 58).getTimeInMillis(),
+			(long) w.stamps.get(0));
+		assertEquals("120,2000,00:00:01\n", w.texts.get(1));
+		assertEquals(stamp(d1, 0, 0, 1).getTimeInMillis(),
+			(long) w.stamps.get(1));
+		assertEquals("130,?,12:00:00\n", w.texts.get(2));
+		assertEquals(stamp(d3, 12, 0, 0).getTimeInMillis(),
+			(long) w.stamps.get(2));
+		// Flushed events are not written again
+		log.flush();
+		assertEquals(3, w.texts.size());
+	}
+
+	public void testGap() {
+		TestWriter w = new TestWriter();
+		VehicleEventLog log = new VehicleEventLog("TEST", w);
+		// Gaps are logged at the current time, so use today
+		Calendar d0 = Calendar.getInstance();
+		log.logVehicle(stamp(d0, 12, 0, 0), 100, 0, 0);
+		log.logVehicle(stamp(d0, 12, 0, 2), 110, 2000, 0);
+		log.logGap();
+		// The first event after a gap has a time stamp
+		log.logVehicle(stamp(d0, 12, 1, 0), 120, 58000, 55);
+		log.logVehicle(stamp(d0, 12, 1, 1), 130, 1000, 60);
+		log.flush();
+		assertEquals(1, w.texts.size());
+		assertEquals("100,?,12:00:00\n110,2000\n*\n" +
+			"120,58000,12:01:00,55\n130,1000,,60\n",
+			w.texts.get(0));
+	}
+}
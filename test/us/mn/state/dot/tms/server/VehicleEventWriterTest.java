@@ -0,0 +1,52 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import junit.framework.TestCase;
+
+/**
+ * Vehicle Event Writer test cases
+ * @author Doug Lau
+ */
+public class VehicleEventWriterTest extends TestCase {
+
+	public VehicleEventWriterTest(String name) {
+		super(name);
+	}
+
+	public void testWriter() throws IOException {
+		File file = new File("/tmp/TEST.vlog");
+		file.delete();
+		VehicleEventWriter writer = new VehicleEventWriter(
+			new PeriodicSampleWriterTest.TestFactory());
+		writer.write("TEST", 0, "100,?,12:00:00\n");
+		writer.write("TEST", 0, "110,2000\n");
+		assertTrue(writer.openFiles() == 1);
+		writer.closeIdle();
+		assertTrue(writer.openFiles() == 1);
+		writer.closeIdle();
+		assertTrue(writer.openFiles() == 0);
+		writer.write("TEST", 0, "*\n");
+		writer.closeIdle();
+		writer.closeIdle();
+		String text = new String(Files.readAllBytes(file.toPath()),
+			"US-ASCII");
+		assertEquals("100,?,12:00:00\n110,2000\n*\n", text);
+		file.delete();
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import junit.framework.TestCase;
+import static us.mn.state.dot.tms.server.XmlWriter.createAttribute;
+
+/**
+ * XML emitter tests.
+ *
+ * @author Douglas Lau
+ */
+public class XmlEmitterTest extends TestCase {
+
+	/** Number of synthetic detectors */
+	static private final int N_DETS = 8000;
+
+	/** Number of benchmark iterations */
+	static private final int N_ITER = 10;
+
+	/** Output stream which discards everything */
+	static private final OutputStream NULL_OUT = new OutputStream() {
+		public void write(int b) { }
+		public void write(byte[] b, int off, int len) { }
+	};
+
+	/** Test emitter which writes a string for each call */
+	static private class StringEmitter extends XmlEmitter {
+		private final boolean gz;
+		private String value;
+		private StringEmitter(boolean g) {
+			super("test.xml", g);
+			gz = g;
+		}
+		protected void emit() throws IOException {
+			text(value);
+		}
+		private String emitString(String v) throws IOException {
+			value = v;
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			write(bos);
+			InputStream is = new ByteArrayInputStream(
+				bos.toByteArray());
+			if (gz)
+				is = new GZIPInputStream(is);
+			ByteArrayOutputStream res = new ByteArrayOutputStream();
+			byte[] buf = new byte[4096];
+			for (int n = is.read(buf); n >= 0; n = is.read(buf))
+				res.write(buf, 0, n);
+			return new String(res.toByteArray(), "UTF-8");
+		}
+	}
+
+	/** Synthetic detector names */
+	private final String[] names = new String[N_DETS];
+
+	public XmlEmitterTest(String name) {
+		super(name);
+		for (int i = 0; i < N_DETS; i++)
+			names[i] = Integer.toString(100 + i);
+	}
+
+	public void testEscape() throws IOException {
+		StringEmitter em = new StringEmitter(false);
+		assertEquals("abc", em.emitString("abc"));
+		assertEquals("&amp;&lt;&gt;&quot;&apos;",
+			em.emitString("&<>\"'"));
+		assertEquals(XmlWriter.validateElementValue("a<b>'c'"),
+			em.emitString("a<b>'c'"));
+		assertEquals("\u00e9\u20ac\ud83d\ude00",
+			em.emitString("\u00e9\u20ac\ud83d\ude00"));
+	}
+
+	public void testGzip() throws IOException {
+		StringEmitter em = new StringEmitter(true);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 50000; i++)
+			sb.append(i);
+		String v = sb.toString();
+		// Emit twice to check deflater reuse
+		assertEquals(v, em.emitString(v));
+		assertEquals(v, em.emitString(v));
+		assertEquals("", em.emitString(""));
+	}
+
+	public void testNumbers() throws IOException {
+		final float[] vals = { 0f, 1f, 12.5f, 3.14159f, 99.999f,
+			0.004f, 0.005f, 100f, 45.25f, 7.1f };
+		XmlEmitter em = new XmlEmitter("test.xml", false) {
+			protected void emit() throws IOException {
+				number(0);
+				raw(",");
+				number(-42);
+				raw(",");
+				number(Integer.MAX_VALUE);
+				for (float v: vals) {
+					raw(",");
+					number(v, 2);
+				}
+			}
+		};
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		em.write(bos);
+		StringBuilder sb = new StringBuilder("0,-42,");
+		sb.append(Integer.MAX_VALUE);
+		for (float v: vals) {
+			sb.append(',');
+			sb.append(BaseObjectImpl.formatFloat(v, 2));
+		}
+		assertEquals(sb.toString(), bos.toString("UTF-8"));
+	}
+
+	public void testNumberTies() throws IOException {
+		// Eighths are exact in binary, so many of these are ties
+		final float[] vals = new float[201];
+		for (int i = 0; i < vals.length; i++)
+			vals[i] = (i - 100) / 8f;
+		vals[0] = 12.125f;
+		for (int digits = 0; digits <= 3; digits++) {
+			final int dg = digits;
+			XmlEmitter em = new XmlEmitter("test.xml", false) {
+				protected void emit() throws IOException {
+					for (float v: vals) {
+						number(v, dg);
+						raw(",");
+					}
+				}
+			};
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			em.write(bos);
+			StringBuilder sb = new StringBuilder();
+			for (float v: vals) {
+				sb.append(BaseObjectImpl.formatFloat(v, dg));
+				sb.append(',');
+			}
+			assertEquals(sb.toString(), bos.toString("UTF-8"));
+		}
+		assertEquals("12.12", BaseObjectImpl.formatFloat(12.125f, 2));
+	}
+
+	public void testSamples() throws IOException {
+		XmlEmitter em = new XmlEmitter("det_sample.xml", false) {
+			protected void emit() throws IOException {
+				emitSamples(this);
+			}
+		};
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		em.write(bos);
+		StringWriter sw = new StringWriter();
+		writeSamples(sw);
+		assertEquals(sw.toString(), bos.toString("UTF-8"));
+	}
+
+	/** Benchmark writing gzipped samples for a synthetic network with
+	 * XmlWriter attributes and with XmlEmitter.  The best time of
+	 * several iterations is compared for each. */
+	public void testBenchmark() throws IOException {
+		XmlEmitter em = new XmlEmitter("det_sample.xml", true) {
+			protected void emit() throws IOException {
+				emitSamples(this);
+			}
+		};
+		long old_ns = Long.MAX_VALUE;
+		long new_ns = Long.MAX_VALUE;
+		for (int i = 0; i < N_ITER; i++) {
+			long st = System.nanoTime();
+			GZIPOutputStream gz = new GZIPOutputStream(NULL_OUT);
+			Writer w = new BufferedWriter(new OutputStreamWriter(
+				gz, "UTF-8"));
+			writeSamples(w);
+			w.flush();
+			gz.finish();
+			old_ns = Math.min(old_ns, System.nanoTime() - st);
+			st = System.nanoTime();
+			em.write(NULL_OUT);
+			new_ns = Math.min(new_ns, System.nanoTime() - st);
+		}
+		assertTrue(N_DETS + " detectors, XmlWriter: " + old_ns / 1000 +
+			" us, XmlEmitter: " + new_ns / 1000 + " us",
+			new_ns < old_ns);
+	}
+
+	/** Write synthetic samples using XmlWriter attributes */
+	private void writeSamples(Writer w) throws IOException {
+		for (int i = 0; i < N_DETS; i++) {
+			w.write("\t<sample");
+			w.write(createAttribute("sensor", names[i]));
+			w.write(createAttribute("flow", i % 40));
+			w.write(createAttribute("speed", 40 + i % 30));
+			w.write(createAttribute("occ", BaseObjectImpl
+				.formatFloat(occupancy(i), 2)));
+			w.write("/>\n");
+		}
+	}
+
+	/** Emit synthetic samples */
+	private void emitSamples(XmlEmitter em) throws IOException {
+		for (int i = 0; i < N_DETS; i++) {
+			em.raw(FlushXmlJob.SAMPLE_START);
+			em.attr(FlushXmlJob.SENSOR, names[i]);
+			em.attr(FlushXmlJob.FLOW, i % 40);
+			em.attr(FlushXmlJob.SPEED, 40 + i % 30);
+			em.attr(FlushXmlJob.OCC, occupancy(i), 2);
+			em.raw(FlushXmlJob.ELEMENT_END);
+		}
+	}
+
+	/** Get a synthetic occupancy value */
+	static private float occupancy(int i) {
+		return (i % 1000) / 13f;
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm.ntcip;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import junit.framework.TestCase;
+import us.mn.state.dot.tms.server.comm.snmp.SNMP;
+
+/**
+ * SET batch packing test cases.
+ *
+ * @author Douglas Lau
+ */
+public class BatchTest extends TestCase {
+
+	/** Create an SNMP message which has not learned a size limit */
+	static private SNMP.Message createMessage() {
+		SNMP snmp = new SNMP();
+		return snmp.new Message(new ByteArrayOutputStream(),
+			new ByteArrayInputStream(new byte[0]), null);
+	}
+
+	/** Split values into batches with OpNtcip.batchCount.
+	 * @return Number of values in each batch. */
+	static private ArrayList<Integer> pack(int[] sizes, int max) {
+		SNMP.Message mess = createMessage();
+		ArrayList<Integer> batches = new ArrayList<Integer>();
+		int i = 0;
+		while (i < sizes.length) {
+			int n = OpNtcip.batchCount(mess, max, sizes, i);
+			assertTrue(n > 0);
+			batches.add(n);
+			i += n;
+		}
+		return batches;
+	}
+
+	/** Make an array of equal sizes */
+	static private int[] blocks(int n, int size) {
+		int[] sizes = new int[n];
+		for (int i = 0; i < n; i++)
+			sizes[i] = size;
+		return sizes;
+	}
+
+	public void testGraphicBlocks() {
+		// Blocks as large as the old fixed limit must still batch
+		assertEquals("[8, 8, 4]", pack(blocks(20, 1024),
+			8192).toString());
+		assertEquals("[2, 2, 1]", pack(blocks(5, 1024),
+			2600).toString());
+		// A block larger than the limit is sent by itself
+		assertEquals("[1, 1, 1]", pack(blocks(3, 2048),
+			1024).toString());
+	}
+
+	public void testGlyphs() {
+		int[] sizes = { 30, 30, 40, 50, 10, 60, 20 };
+		assertEquals("[3, 2, 2]", pack(sizes, 100).toString());
+		assertEquals("[7]", pack(sizes, 8192).toString());
+		assertEquals("[1, 1, 1, 1, 1, 1, 1]", pack(sizes, 1)
+			.toString());
+	}
+
+	public void testFirst() {
+		int[] sizes = { 30, 30, 40, 50 };
+		SNMP.Message mess = createMessage();
+		assertEquals(2, OpNtcip.batchCount(mess, 100, sizes, 1));
+		assertEquals(1, OpNtcip.batchCount(mess, 100, sizes, 3));
+		assertEquals(0, OpNtcip.batchCount(mess, 100, sizes, 4));
+	}
+
+	public void testLimit() {
+		SNMP.Message mess = createMessage();
+		// No tooBig yet, so the phase maximum applies
+		assertEquals(8192, OpNtcip.batchLimit(mess, 8192));
+		assertEquals(512, OpNtcip.batchLimit(mess, 512));
+	}
+}
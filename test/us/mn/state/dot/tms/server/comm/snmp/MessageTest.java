@@ -0,0 +1,247 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.comm.snmp;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import junit.framework.TestCase;
+import static us.mn.state.dot.tms.server.comm.ntcip.mib1203.MIB1203.*;
+
+/**
+ * SNMP message test cases, using a fake agent.
+ *
+ * @author Douglas Lau
+ */
+public class MessageTest extends TestCase {
+
+	/** Input stream of response datagrams from the agent.  Like a
+	 * datagram messenger, available bytes are only counted from the
+	 * current datagram. */
+	static private class Responses extends InputStream {
+		private final LinkedList<byte[]> queue =
+			new LinkedList<byte[]>();
+		private byte[] buf = new byte[0];
+		private int pos = 0;
+
+		/** Add a response */
+		private void put(byte[] b) {
+			queue.add(b);
+		}
+
+		@Override
+		public int read() {
+			if (pos >= buf.length) {
+				if (queue.isEmpty())
+					return -1;
+				buf = queue.removeFirst();
+				pos = 0;
+			}
+			return buf[pos++] & 0xFF;
+		}
+
+		@Override
+		public int available() {
+			return buf.length - pos;
+		}
+	}
+
+	/** Fake SNMP agent, which responds when a request is flushed */
+	static private class Agent extends OutputStream {
+
+		/** Codec for requests and responses */
+		private final SNMP ber = new SNMP();
+
+		/** Request being written */
+		private final ByteArrayOutputStream req =
+			new ByteArrayOutputStream();
+
+		/** Responses to requests */
+		private final Responses responses = new Responses();
+
+		/** Largest variable binding list accepted (bytes) */
+		private final int max_size;
+
+		/** Block numbers received in accepted requests */
+		private final ArrayList<Integer> blocks =
+			new ArrayList<Integer>();
+
+		/** Count of tooBig responses */
+		private int n_too_big = 0;
+
+		/** Count of accepted requests */
+		private int n_accepted = 0;
+
+		/** Flag to send a stray response before each response */
+		private boolean stray = false;
+
+		private Agent(int m) {
+			max_size = m;
+		}
+
+		@Override
+		public void write(int b) {
+			req.write(b);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			byte[] r = req.toByteArray();
+			req.reset();
+			if (stray)
+				responses.put(respond(r, 100));
+			responses.put(respond(r, 0));
+		}
+
+		/** Decode a request and encode a response.
+		 * @param r Request datagram.
+		 * @param id_offset Offset to add to request-id (if not zero,
+		 *                  the request is not counted). */
+		private byte[] respond(byte[] r, int id_offset)
+			throws IOException
+		{
+			InputStream is = new ByteArrayInputStream(r);
+			ber.decodeSequence(is);
+			ber.decodeInteger(is);
+			byte[] community = ber.decodeOctetString(is);
+			ber.decodeIdentifier(is);
+			ber.decodeLength(is);
+			int request_id = ber.decodeInteger(is);
+			ber.decodeInteger(is);
+			ber.decodeInteger(is);
+			byte[] vbl = new byte[is.available()];
+			is.read(vbl);
+			int error = (vbl.length > max_size) ? 1 : 0;
+			if (id_offset != 0)
+				request_id += id_offset;
+			else if (error != 0)
+				n_too_big++;
+			else {
+				n_accepted++;
+				readBlocks(vbl);
+			}
+			ber.encodeInteger(request_id);
+			ber.encodeInteger(error);
+			ber.encodeInteger(0);
+			ber.encoder.write(vbl);
+			byte[] pdu = ber.getEncodedData();
+			ber.encodeIdentifier(SNMPTag.GET_RESPONSE);
+			ber.encodeLength(pdu.length);
+			ber.encoder.write(pdu);
+			pdu = ber.getEncodedData();
+			ber.encodeInteger(SNMP.SNMP_VERSION);
+			ber.encodeOctetString(community);
+			ber.encoder.write(pdu);
+			ber.encodeSequence(ber.getEncodedData());
+			return ber.getEncodedData();
+		}
+
+		/** Record the block number (first byte) of each binding */
+		private void readBlocks(byte[] vbl) throws IOException {
+			InputStream is = new ByteArrayInputStream(vbl);
+			ber.decodeSequence(is);
+			while (is.available() > 0) {
+				ber.decodeSequence(is);
+				ber.decodeObjectIdentifier(is);
+				blocks.add((int) ber.decodeOctetString(is)[0]);
+			}
+		}
+	}
+
+	/** Create a message with graphic blocks */
+	static private SNMP.Message createMessage(SNMP snmp, Agent a,
+		int n_blocks, int bsize) throws IOException
+	{
+		int[] sizes = new int[n_blocks];
+		for (int b = 0; b < n_blocks; b++)
+			sizes[b] = bsize;
+		return createMessage(snmp, a, sizes);
+	}
+
+	/** Create a message with graphic blocks of various sizes */
+	static private SNMP.Message createMessage(SNMP snmp, Agent a,
+		int[] sizes) throws IOException
+	{
+		SNMP.Message mess = snmp.new Message(a, a.responses, null);
+		for (int b = 1; b <= sizes.length; b++) {
+			ASN1OctetString block = new ASN1OctetString(
+				dmsGraphicBlockBitmap.node, 1, b);
+			byte[] data = new byte[sizes[b - 1]];
+			data[0] = (byte) b;
+			block.setOctetString(data);
+			mess.add(block);
+		}
+		return mess;
+	}
+
+	/** Check that each block was received exactly once */
+	private void assertBlocks(Agent a, int n_blocks) {
+		assertEquals(n_blocks, a.blocks.size());
+		for (int b = 1; b <= n_blocks; b++)
+			assertEquals(b, (int) a.blocks.get(b - 1));
+	}
+
+	public void testPacked() throws IOException {
+		SNMP snmp = new SNMP();
+		Agent a = new Agent(Integer.MAX_VALUE);
+		createMessage(snmp, a, 10, 1024).storeProps();
+		assertEquals(1, a.n_accepted);
+		assertEquals(0, a.n_too_big);
+		assertBlocks(a, 10);
+	}
+
+	public void testSplit() throws IOException {
+		SNMP snmp = new SNMP();
+		Agent a = new Agent(4096);
+		SNMP.Message mess = createMessage(snmp, a, 10, 1024);
+		mess.storeProps();
+		assertTrue(a.n_too_big > 0);
+		assertBlocks(a, 10);
+		int max = mess.getMaxVarBinds();
+		assertTrue(max <= 4096);
+		assertTrue(max >= 2048);
+		// Learned limit is used for the next message
+		a.blocks.clear();
+		int n_too_big = a.n_too_big;
+		createMessage(snmp, a, 10, 1024).storeProps();
+		assertEquals(n_too_big, a.n_too_big);
+		assertBlocks(a, 10);
+	}
+
+	public void testTooBig() throws IOException {
+		SNMP snmp = new SNMP();
+		Agent a = new Agent(512);
+		try {
+			createMessage(snmp, a, 1, 1024).storeProps();
+			fail();
+		}
+		catch (TooBig e) {
+			assertEquals(0, a.n_accepted);
+		}
+	}
+
+	public void testStrayResponse() throws IOException {
+		SNMP snmp = new SNMP();
+		Agent a = new Agent(Integer.MAX_VALUE);
+		a.stray = true;
+		createMessage(snmp, a, 4, 100).storeProps();
+		assertEquals(1, a.n_accepted);
+		assertBlocks(a, 4);
+	}
+}
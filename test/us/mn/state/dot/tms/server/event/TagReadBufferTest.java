@@ -0,0 +1,146 @@
+/*
+ * IRIS -- Intelligent Roadway Information System
+ * Copyright (C) 2019  Minnesota Department of Transportation
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ */
+package us.mn.state.dot.tms.server.event;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+import us.mn.state.dot.tms.EventType;
+
+/**
+ * Tag read buffer test cases
+ *
+ * @author Douglas Lau
+ */
+public class TagReadBufferTest extends TestCase {
+
+	/** Buffer capacity */
+	static private final int CAPACITY = 1 << 14;
+
+	/** Maximum rows in one batch */
+	static private final int BATCH_ROWS = 500;
+
+	/** Number of producer threads */
+	static private final int N_PRODUCERS = 4;
+
+	/** Number of events offered by each producer */
+	static private final int N_EVENTS = 20000;
+
+	/** Create an event.  The tag ID identifies the producer and the
+	 * sequence number within that producer. */
+	static private TagReadEvent createEvent(int p, int i) {
+		return new TagReadEvent(EventType.TAG_READ, new Date(), 1, null,
+			p * N_EVENTS + i, "R" + p, false);
+	}
+
+	/** Get the tag ID of an event */
+	static private int tagId(TagReadEvent ev) {
+		return (Integer) ev.getColumns().get("tag_id");
+	}
+
+	/** Drain all buffered events */
+	static private ArrayList<TagReadEvent> drainAll() {
+		ArrayList<TagReadEvent> all = new ArrayList<TagReadEvent>();
+		ArrayList<TagReadEvent> batch = new ArrayList<TagReadEvent>();
+		while (TagReadBuffer.drain(batch) > 0) {
+			assertTrue(batch.size() <= BATCH_ROWS);
+			all.addAll(batch);
+			batch.clear();
+		}
+		return all;
+	}
+
+	public TagReadBufferTest(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() {
+		drainAll();
+	}
+
+	public void testOverflow() {
+		int n = 0;
+		while (TagReadBuffer.offer(createEvent(0, n)))
+			n++;
+		assertEquals(CAPACITY, n);
+		assertEquals(CAPACITY, TagReadBuffer.size());
+		ArrayList<TagReadEvent> all = drainAll();
+		assertEquals(CAPACITY, all.size());
+		for (int i = 0; i < n; i++)
+			assertEquals(i, tagId(all.get(i)));
+		assertEquals(0, TagReadBuffer.size());
+		// Space is available again after draining
+		assertTrue(TagReadBuffer.offer(createEvent(0, 0)));
+		assertEquals(1, drainAll().size());
+	}
+
+	public void testConcurrent() throws Exception {
+		final int[] accepted = new int[N_PRODUCERS];
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch finished = new CountDownLatch(N_PRODUCERS);
+		for (int p = 0; p < N_PRODUCERS; p++) {
+			final int pr = p;
+			new Thread() {
+				private void offerAll(int pr) {
+					for (int i = 0; i < N_EVENTS; i++) {
+						if (TagReadBuffer.offer(
+						    createEvent(pr, i)))
+							accepted[pr]++;
+					}
+				}
+				public void run() {
+					try {
+						start.await();
+					}
+					catch (InterruptedException e) {
+						return;
+					}
+					offerAll(pr);
+					finished.countDown();
+				}
+			}.start();
+		}
+		// Drain on this thread while producers are running
+		final ArrayList<TagReadEvent> all =
+			new ArrayList<TagReadEvent>();
+		start.countDown();
+		while (!finished.await(0, TimeUnit.MILLISECONDS))
+			all.addAll(drainAll());
+		all.addAll(drainAll());
+		assertEquals(0, TagReadBuffer.size());
+		// Every accepted event is drained once, in order for each
+		// producer, and dropped events are never drained
+		int[] last = new int[N_PRODUCERS];
+		int[] count = new int[N_PRODUCERS];
+		for (int p = 0; p < N_PRODUCERS; p++)
+			last[p] = -1;
+		for (TagReadEvent ev: all) {
+			int p = tagId(ev) / N_EVENTS;
+			int i = tagId(ev) % N_EVENTS;
+			assertTrue(i > last[p]);
+			last[p] = i;
+			count[p]++;
+		}
+		int n_accepted = 0;
+		for (int p = 0; p < N_PRODUCERS; p++) {
+			assertEquals(accepted[p], count[p]);
+			n_accepted += accepted[p];
+		}
+		assertEquals(n_accepted, all.size());
+	}
+}